@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.benchmark.connection;
+
+import org.postgresql.benchmark.profilers.FlightRecorderProfiler;
+import org.postgresql.ds.PGConnectionPoolDataSource;
+import org.postgresql.ds.common.BaseDataSource;
+import org.postgresql.util.ConnectionUtil;
+import org.postgresql.xa.PGXADataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.PooledConnection;
+
+/**
+ * Measures the cost of the calls made through the handle of a {@link PooledConnection} or an
+ * {@link javax.sql.XAConnection}, compared to the same calls on the physical connection.
+ */
+@Fork(value = 5, jvmArgsPrepend = "-Xmx128m")
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PooledConnectionOverhead {
+  @Param({"physical", "pooled", "xa"})
+  String connectionType;
+
+  private PooledConnection pooledConnection;
+  private Connection connection;
+  private PreparedStatement ps;
+  private PreparedStatement select;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException {
+    if ("physical".equals(connectionType)) {
+      Properties props = ConnectionUtil.getProperties();
+      connection = DriverManager.getConnection(ConnectionUtil.getURL(), props);
+    } else {
+      BaseDataSource ds;
+      if ("pooled".equals(connectionType)) {
+        ds = new PGConnectionPoolDataSource();
+      } else {
+        ds = new PGXADataSource();
+      }
+      ds.setServerNames(new String[]{ConnectionUtil.getServer()});
+      ds.setPortNumbers(new int[]{ConnectionUtil.getPort()});
+      ds.setDatabaseName(ConnectionUtil.getDatabase());
+      ds.setUser(ConnectionUtil.getUser());
+      ds.setPassword(ConnectionUtil.getPassword());
+      if (ds instanceof PGXADataSource) {
+        pooledConnection = ((PGXADataSource) ds).getXAConnection();
+      } else {
+        pooledConnection = ((PGConnectionPoolDataSource) ds).getPooledConnection();
+      }
+      connection = pooledConnection.getConnection();
+    }
+    ps = connection.prepareStatement("select ?");
+    select = connection.prepareStatement("select 1");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    ps.close();
+    select.close();
+    connection.close();
+    if (pooledConnection != null) {
+      pooledConnection.close();
+    }
+  }
+
+  @Benchmark
+  public boolean getAutoCommit() throws SQLException {
+    return connection.getAutoCommit();
+  }
+
+  @Benchmark
+  public Statement bindInt() throws SQLException {
+    ps.setInt(1, 42);
+    return ps;
+  }
+
+  @Benchmark
+  public int executeQuery() throws SQLException {
+    ResultSet rs = select.executeQuery();
+    try {
+      rs.next();
+      return rs.getInt(1);
+    } finally {
+      rs.close();
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(PooledConnectionOverhead.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .addProfiler(FlightRecorderProfiler.class)
+        .detectJvmArgs()
+        .build();
+
+    new Runner(opt).run();
+  }
+}
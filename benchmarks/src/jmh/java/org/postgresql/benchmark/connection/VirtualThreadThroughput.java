@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.benchmark.connection;
+
+import org.postgresql.util.ConnectionUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Measures the throughput of many concurrent tasks that share a small set of connections: each
+ * task borrows a connection, executes a short query that waits on the server, and returns the
+ * connection.</p>
+ *
+ * <p>With {@code threads=virtual} every task runs on its own virtual thread (requires Java 21). A
+ * virtual thread that blocks on the socket while holding a monitor pins its carrier thread, so the
+ * driver must not hold monitors around network I/O for virtual threads to scale past the number of
+ * carriers. Run with {@code -Djdk.tracePinnedThreads=full} to report pinning.
+ * {@code threads=platform} runs the same tasks on a fixed pool of platform threads, one per
+ * connection, for comparison.</p>
+ *
+ * <p>To run this benchmark:</p>
+ *
+ * <blockquote><code>java -jar benchmarks/build/libs/benchmarks-jmh.jar VirtualThreadThroughput</code>
+ * </blockquote>
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Djdk.virtualThreadScheduler.parallelism=4")
+@Measurement(iterations = 10, time = 1)
+@Warmup(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class VirtualThreadThroughput {
+  private static final int TASKS = 5000;
+
+  @Param({"16"})
+  public int connections;
+
+  @Param({"platform", "virtual"})
+  public String threads;
+
+  @Param({"0.001"})
+  public String sleepSeconds;
+
+  private BlockingQueue<Connection> pool;
+  private List<Connection> allConnections;
+  private ExecutorService executor;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    pool = new ArrayBlockingQueue<Connection>(connections);
+    allConnections = new ArrayList<Connection>();
+    for (int i = 0; i < connections; i++) {
+      Connection connection =
+          DriverManager.getConnection(ConnectionUtil.getURL(), ConnectionUtil.getProperties());
+      allConnections.add(connection);
+      pool.add(connection);
+    }
+    if ("virtual".equals(threads)) {
+      // Executors.newVirtualThreadPerTaskExecutor() is Java 21+, the benchmarks compile for Java 8
+      executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } else {
+      executor = Executors.newFixedThreadPool(connections);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    executor.shutdownNow();
+    for (Connection connection : allConnections) {
+      connection.close();
+    }
+  }
+
+  private void query() throws SQLException, InterruptedException {
+    Connection connection = pool.take();
+    try {
+      PreparedStatement ps = connection.prepareStatement("select pg_sleep(?::float8)");
+      try {
+        ps.setString(1, sleepSeconds);
+        ResultSet rs = ps.executeQuery();
+        rs.next();
+        rs.close();
+      } finally {
+        ps.close();
+      }
+    } finally {
+      pool.put(connection);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TASKS)
+  public void borrowAndQuery() throws Exception {
+    List<Future<Void>> futures = new ArrayList<Future<Void>>(TASKS);
+    Callable<Void> task = new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        query();
+        return null;
+      }
+    };
+    for (int i = 0; i < TASKS; i++) {
+      futures.add(executor.submit(task));
+    }
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(VirtualThreadThroughput.class.getSimpleName())
+        .detectJvmArgs()
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.benchmark.copy;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.util.ConnectionUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * COPY FROM STDIN of many small rows, each one written with its own {@link CopyIn#writeToCopy}
+ * call, with and without coalescing of the writes into large CopyData messages.
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx128m")
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CopyInSmallWrites {
+  private Connection connection;
+  private CopyManager copyAPI;
+  private byte[][] rows;
+
+  @Param({"10000", "100000"})
+  int rowCount;
+
+  @Param({"0", "8192", "65536"})
+  int copyFrameSize;
+
+  @Param({"false", "true"})
+  boolean copyBackgroundSend;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException {
+    Properties props = ConnectionUtil.getProperties();
+    // PGProperty constants are not used for easier comparison with previous pgjdbc versions
+    props.put("copyFrameSize", Integer.toString(copyFrameSize));
+    props.put("copyBackgroundSend", Boolean.toString(copyBackgroundSend));
+
+    connection = DriverManager.getConnection(ConnectionUtil.getURL(), props);
+    Statement s = connection.createStatement();
+    s.execute("drop table if exists copy_in_perf_test");
+    s.execute("create unlogged table copy_in_perf_test(a int4, b text, c int8)");
+    s.close();
+    copyAPI = ((PGConnection) connection).getCopyAPI();
+
+    rows = new byte[rowCount][];
+    for (int i = 0; i < rowCount; i++) {
+      rows[i] = (i + "\ts" + i + "\t" + (i * 31L) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void truncate() throws SQLException {
+    Statement s = connection.createStatement();
+    s.execute("truncate copy_in_perf_test");
+    s.close();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    Statement s = connection.createStatement();
+    s.execute("drop table copy_in_perf_test");
+    s.close();
+    connection.close();
+  }
+
+  @Benchmark
+  public long copyIn() throws SQLException {
+    CopyIn copyIn = copyAPI.copyIn("COPY copy_in_perf_test FROM STDIN");
+    for (byte[] row : rows) {
+      copyIn.writeToCopy(row, 0, row.length);
+    }
+    return copyIn.endCopy();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(CopyInSmallWrites.class.getSimpleName())
+        .detectJvmArgs()
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -63,7 +63,8 @@ public class InsertBatch {
     // Test only
     //   1) p1nrows in (16, 128, 1024) && p2multi == 128
     //   2) p1nrows in (1024) && p2multi in (1, 2, 4, 4, 16)
-    if (bp.getBenchmark().contains("insertExecute")) {
+    if (bp.getBenchmark().contains("insertExecute")
+        || bp.getBenchmark().contains("insertBatchWithArrays")) {
       if (p2multi != 1) {
         System.exit(-1);
       }
@@ -78,6 +79,10 @@ public class InsertBatch {
       // PGProperty.REWRITE_BATCHED_INSERTS is not used for easier use with previous pgjdbc versions
       props.put("reWriteBatchedInserts", "true");
     }
+    if (bp.getBenchmark().contains("insertBatchWithArrays")) {
+      // One insert ... select from unnest(?, ?, ?) whatever the batch size
+      props.put("reWriteBatchedAsArrays", "true");
+    }
 
     connection = DriverManager.getConnection(ConnectionUtil.getURL(), props);
     Statement s = connection.createStatement();
@@ -144,6 +149,11 @@ public class InsertBatch {
     return insertBatch();
   }
 
+  @Benchmark
+  public int[] insertBatchWithArrays() throws SQLException {
+    return insertBatch();
+  }
+
   @Benchmark
   public void insertExecute(Blackhole b) throws SQLException {
     for (int i = 0; i < p1nrows; i++) {
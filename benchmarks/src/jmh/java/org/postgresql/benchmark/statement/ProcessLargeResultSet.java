@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.benchmark.statement;
+
+import org.postgresql.PGProperty;
+import org.postgresql.benchmark.profilers.FlightRecorderProfiler;
+import org.postgresql.util.ConnectionUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the allocation rate and throughput of {@code rowStorage=arrays} and
+ * {@code rowStorage=slab} when fetching a wide result with many rows. Run it with
+ * {@link GCProfiler} to see the difference in {@code gc.alloc.rate.norm}.
+ */
+@Fork(value = 3, jvmArgsPrepend = "-Xmx512m")
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProcessLargeResultSet {
+  public enum FieldType {
+    INT,
+    STRING
+  }
+
+  @Param({"arrays", "slab"})
+  private String rowStorage;
+
+  @Param({"100000"})
+  private int nrows;
+
+  @Param({"10"})
+  private int ncols;
+
+  @Param({"INT", "STRING"})
+  private FieldType type;
+
+  @Param({"0", "1000"})
+  private int fetchSize;
+
+  private Connection connection;
+
+  private PreparedStatement ps;
+
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException {
+    Properties props = ConnectionUtil.getProperties();
+    PGProperty.ROW_STORAGE.set(props, rowStorage);
+    connection = DriverManager.getConnection(ConnectionUtil.getURL(), props);
+    // fetchSize is honoured only outside of autocommit mode
+    connection.setAutoCommit(false);
+    StringBuilder sb = new StringBuilder();
+    sb.append("SELECT ");
+    for (int i = 0; i < ncols; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      if (type == FieldType.INT) {
+        sb.append("t.x + ").append(i);
+      } else {
+        sb.append("'value ' || (t.x + ").append(i).append(')');
+      }
+    }
+    sb.append(" from generate_series(1, ?) as t(x)");
+    ps = connection.prepareStatement(sb.toString());
+    ps.setFetchSize(fetchSize);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    ps.close();
+    connection.close();
+  }
+
+  @Benchmark
+  public void executeFetch(Blackhole b) throws SQLException {
+    ps.setInt(1, nrows);
+    ResultSet rs = ps.executeQuery();
+    while (rs.next()) {
+      for (int i = 1; i <= ncols; i++) {
+        if (type == FieldType.INT) {
+          b.consume(rs.getInt(i));
+        } else {
+          b.consume(rs.getString(i));
+        }
+      }
+    }
+    rs.close();
+    connection.commit();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(ProcessLargeResultSet.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .addProfiler(FlightRecorderProfiler.class)
+        .detectJvmArgs()
+        .build();
+
+    new Runner(opt).run();
+  }
+}
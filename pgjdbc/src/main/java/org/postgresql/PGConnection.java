@@ -5,6 +5,7 @@
 
 package org.postgresql;
 
+import org.postgresql.codec.TypeCodec;
 import org.postgresql.copy.CopyManager;
 import org.postgresql.fastpath.Fastpath;
 import org.postgresql.jdbc.AutoSave;
@@ -141,6 +142,27 @@ public interface PGConnection {
    */
   void addDataType(String type, Class<? extends PGobject> klass) throws SQLException;
 
+  /**
+   * <p>Registers a codec that converts the values of the given type, instead of the built-in
+   * conversions or the class registered with {@link #addDataType(String, Class)}. The codec is used
+   * by the {@code ResultSet} getters for columns of that type, and by
+   * {@code PreparedStatement.setObject} for instances of {@link TypeCodec#getJavaType()}.</p>
+   *
+   * <p>If the codec supports binary transfer in a direction and {@code binaryTransfer} is enabled,
+   * the values of the type are transferred in binary format in that direction.</p>
+   *
+   * <p>The default implementation throws {@link java.sql.SQLFeatureNotSupportedException}, so
+   * implementations of this interface outside of the driver keep compiling.</p>
+   *
+   * @param type name of the PostgreSQL type, optionally schema qualified
+   * @param codec the codec
+   * @throws SQLException if the type does not exist
+   * @see TypeCodec
+   */
+  default void registerTypeCodec(String type, TypeCodec codec) throws SQLException {
+    throw Driver.notImplemented(getClass(), "registerTypeCodec(String, TypeCodec)");
+  }
+
   /**
    * Set the default statement reuse threshold before enabling server-side prepare. See
    * {@link org.postgresql.PGStatement#setPrepareThreshold(int)} for details.
@@ -244,6 +266,21 @@ public interface PGConnection {
    */
   PGReplicationConnection getReplicationAPI();
 
+  /**
+   * Creates a pipeline that executes several prepared statements of this connection in a single
+   * network round trip.
+   *
+   * <p>The default implementation throws {@link java.sql.SQLFeatureNotSupportedException}, so
+   * implementations of this interface outside of the driver keep compiling.</p>
+   *
+   * @return a new, empty pipeline
+   * @throws SQLException if the connection is closed
+   * @see PGPipeline
+   */
+  default PGPipeline createPipeline() throws SQLException {
+    throw Driver.notImplemented(getClass(), "createPipeline()");
+  }
+
   /**
    * <p>Returns the current values of all parameters reported by the server.</p>
    *
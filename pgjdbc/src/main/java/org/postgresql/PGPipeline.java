@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>Collects statements and executes them in a single network round trip, similar to the pipeline
+ * mode of libpq. The statements are sent back to back with a single Sync message, and their results
+ * are read in the order the statements were added.</p>
+ *
+ * <pre>
+ * PGPipeline pipeline = connection.unwrap(PGConnection.class).createPipeline();
+ * CompletableFuture&lt;PreparedStatement&gt; a = pipeline.add(selectUser);
+ * CompletableFuture&lt;PreparedStatement&gt; b = pipeline.add(updateCounter);
+ * pipeline.sync();
+ * ResultSet rs = a.get().getResultSet();
+ * int updated = b.get().getUpdateCount();
+ * </pre>
+ *
+ * <p>Nothing is sent to the server until {@link #sync()} is called, so the connection can be used
+ * for other statements while the pipeline is being filled.</p>
+ *
+ * <p>The statements between two syncs are executed as a single implicit transaction if the
+ * connection is in auto-commit mode: if a statement fails, the remaining statements are not
+ * executed and the effects of the preceding ones are rolled back. Outside of auto-commit mode a
+ * failure aborts the current transaction, as usual. Note that the driver might split a large
+ * pipeline with intermediate syncs to avoid filling the network buffers.</p>
+ *
+ * <p>Maximum rows, fetch size and query timeout of the statements are not applied to pipelined
+ * executions: every result is fetched completely.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ *
+ * @see PGConnection#createPipeline()
+ */
+public interface PGPipeline {
+
+  /**
+   * <p>Queues the execution of the given statement with its current parameter values. The
+   * parameters are copied, so the statement can be given new parameter values right away, but it
+   * must not be added again until the pipeline is synced.</p>
+   *
+   * <p>The returned future is completed by {@link #sync()}. On success it yields the statement
+   * itself, and its results are accessible via {@link java.sql.Statement#getResultSet()},
+   * {@link java.sql.Statement#getUpdateCount()} and {@link java.sql.Statement#getMoreResults()}
+   * as if it was executed with {@link PreparedStatement#execute()}. Any results the statement held
+   * before are closed.</p>
+   *
+   * @param statement prepared statement created by the connection of this pipeline
+   * @return future that is completed with the statement once its results are received
+   * @throws SQLException if the statement belongs to another connection, is closed, is already
+   *     queued, or is a callable statement or a statement that returns generated keys
+   */
+  CompletableFuture<PreparedStatement> add(PreparedStatement statement) throws SQLException;
+
+  /**
+   * @return number of statements that were added since the last {@link #sync()}
+   */
+  int getPendingCount();
+
+  /**
+   * <p>Sends all queued statements followed by a single Sync message and reads their results.
+   * All the futures returned by {@link #add(PreparedStatement)} are completed, in order, before
+   * this method returns.</p>
+   *
+   * <p>A statement that fails completes its future exceptionally with the error reported by the
+   * server. The statements after it are not executed, and their futures complete exceptionally
+   * too.</p>
+   *
+   * @throws SQLException if the pipeline cannot be executed at all, for instance because the
+   *     connection is closed. The futures of the queued statements fail with the same exception.
+   */
+  void sync() throws SQLException;
+}
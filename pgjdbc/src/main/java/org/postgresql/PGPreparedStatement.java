@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * <p>PostgreSQL extensions to {@link java.sql.PreparedStatement}: asynchronous execution.</p>
+ *
+ * <p>The asynchronous methods send the statement right away and return without waiting for the
+ * server. The response is processed by threads managed by the driver, and the returned stage is
+ * completed on one of them, so dependent actions should not block. When the connection uses
+ * {@code socketChannel=true}, no thread is occupied while the server is busy with the
+ * statement.</p>
+ *
+ * <p>Asynchronous executions of the same connection are executed one after another in submission
+ * order. A synchronous use of the connection waits until the pending asynchronous executions are
+ * finished. The parameter values are copied when the execution is submitted, so the statement can
+ * be given new parameter values right away, however the statement must not be executed again until
+ * the returned stage is completed: the new execution would close the results of the previous
+ * one.</p>
+ *
+ * <p>The query timeout is not applied to asynchronous executions, and the {@code autosave}
+ * connection property is not honoured for them.</p>
+ */
+public interface PGPreparedStatement extends PGStatement {
+
+  /**
+   * Executes the query asynchronously, see {@link java.sql.PreparedStatement#executeQuery()}.
+   *
+   * @return stage that completes with the result set, or exceptionally with a
+   *     {@link SQLException} if the execution fails or the query returns no rows
+   * @throws SQLException if the statement is closed or the execution cannot be submitted
+   */
+  CompletionStage<ResultSet> executeQueryAsync() throws SQLException;
+
+  /**
+   * Executes the statement asynchronously, see {@link java.sql.PreparedStatement#executeUpdate()}.
+   *
+   * @return stage that completes with the update count, or exceptionally with a
+   *     {@link SQLException} if the execution fails or the statement returns rows
+   * @throws SQLException if the statement is closed or the execution cannot be submitted
+   */
+  CompletionStage<Integer> executeUpdateAsync() throws SQLException;
+
+  /**
+   * Executes the statement asynchronously, see {@link java.sql.PreparedStatement#execute()}. The
+   * results are accessible via {@link java.sql.Statement#getResultSet()},
+   * {@link java.sql.Statement#getUpdateCount()} and {@link java.sql.Statement#getMoreResults()}
+   * once the stage is completed.
+   *
+   * @return stage that completes with {@code true} if the first result is a result set, or
+   *     exceptionally with a {@link SQLException} if the execution fails
+   * @throws SQLException if the statement is closed or the execution cannot be submitted
+   */
+  CompletionStage<Boolean> executeAsync() throws SQLException;
+}
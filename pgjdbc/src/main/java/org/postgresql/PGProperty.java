@@ -24,6 +24,34 @@ import java.util.Properties;
  */
 public enum PGProperty {
 
+  /**
+   * Specifies if the number of rows fetched per round trip from a cursor is adapted to the width
+   * of the rows, so a round trip reads at most about half of {@code maxResultBuffer}. The fetch size
+   * requested by the application is used until the width of the rows is known. Has no effect unless
+   * {@code maxResultBuffer} is set.
+   */
+  ADAPTIVE_FETCH(
+    "adaptiveFetch",
+    "false",
+    "Adapt the number of rows fetched per round trip to the width of the rows and to maxResultBuffer"),
+
+  /**
+   * Specifies the highest number of rows an adaptive fetch requests per round trip, -1 for no
+   * limit.
+   */
+  ADAPTIVE_FETCH_MAXIMUM(
+    "adaptiveFetchMaximum",
+    "-1",
+    "Highest number of rows an adaptive fetch requests per round trip, -1 for no limit"),
+
+  /**
+   * Specifies the lowest number of rows an adaptive fetch requests per round trip.
+   */
+  ADAPTIVE_FETCH_MINIMUM(
+    "adaptiveFetchMinimum",
+    "0",
+    "Lowest number of rows an adaptive fetch requests per round trip"),
+
   /**
    * When using the V3 protocol the driver monitors changes in certain server configuration
    * parameters that should not be touched by end users. The {@code client_encoding} setting is set
@@ -67,6 +95,20 @@ public enum PGProperty {
     false,
     new String[] {"always", "never", "conservative"}),
 
+  /**
+   * <p>Send batches from a background thread while the results are read, instead of splitting them
+   * with Sync round trips to avoid filling the socket buffers. Batches of any size are then sent in
+   * a single round trip, unless more than a megabyte of the serialized batch waits to be sent
+   * because the backend is slower than the driver.</p>
+   *
+   * <p>In auto-commit mode a batch sent in a single round trip is a single implicit transaction:
+   * when a statement fails, none of the statements of the batch are committed.</p>
+   */
+  BATCH_PIPELINING(
+    "batchPipelining",
+    "false",
+    "Send batches from a background thread while reading the results, so they are not split into several round trips"),
+
   /**
    * Use binary format for sending and receiving data if possible.
    */
@@ -124,6 +166,36 @@ public enum PGProperty {
     "10",
     "The timeout value used for socket connect operations."),
 
+  /**
+   * <p>Send the data of {@code COPY FROM STDIN} from a background thread. The writes to the copy
+   * return without waiting for the socket, until a bounded amount of data is waiting to be
+   * sent.</p>
+   */
+  COPY_BACKGROUND_SEND(
+    "copyBackgroundSend",
+    "false",
+    "Send the data of COPY FROM STDIN from a background thread"),
+
+  /**
+   * <p>Execute the batches of a plain {@code INSERT INTO table (columns) VALUES (?, ...)} as a
+   * single {@code COPY table (columns) FROM STDIN}: the rows are sent as COPY data instead of one
+   * Bind and Execute message each. The values are parsed by the input function of the column
+   * types, as COPY does not cast them.</p>
+   */
+  COPY_BATCHED_INSERTS(
+    "copyBatchedInserts",
+    "false",
+    "Execute the batches of plain INSERT ... VALUES (?, ...) statements as a COPY FROM STDIN"),
+
+  /**
+   * <p>Largest CopyData message, in bytes, the small writes to a {@code COPY FROM STDIN} are
+   * coalesced into. Larger writes are sent as they are. {@code 0} sends one message per write.</p>
+   */
+  COPY_FRAME_SIZE(
+    "copyFrameSize",
+    "65536",
+    "Largest CopyData message the small writes to COPY FROM STDIN are coalesced into, 0 to send a message per write"),
+
   /**
    * Specify the schema (or several schema separated by commas) to be set in the search-path. This schema will be used to resolve
    * unqualified object names used in statements over this connection.
@@ -219,6 +291,17 @@ public enum PGProperty {
     "10",
     "Specifies period (seconds) after which the host status is checked again in case it has changed"),
 
+  /**
+   * <p>Period in seconds of the background probes of the hosts of a multi-host URL, 0 to disable
+   * them. The probes keep the status of the hosts, and the replication lag of the secondaries,
+   * up to date, so connection attempts do not have to discover that a host is down or has been
+   * demoted.</p>
+   */
+  HOST_PROBE_SECONDS(
+    "hostProbeSeconds",
+    "0",
+    "Period (seconds) of the background checks of the status and replication lag of the hosts, 0 to disable them"),
+
   /**
    * Specifies the name of the JAAS system or application login configuration.
    */
@@ -246,6 +329,17 @@ public enum PGProperty {
     null,
     "The Kerberos service name to use when authenticating with GSSAPI."),
 
+  /**
+   * <p>When {@code loadBalanceHosts} is enabled, picks the hosts with a probability inversely
+   * proportional to the round-trip time measured to them, instead of uniformly. The round trips
+   * are measured when the server type of a host is checked, and by the probes of
+   * {@code hostProbeSeconds}.</p>
+   */
+  LOAD_BALANCE_BY_LATENCY(
+    "loadBalanceByLatency",
+    "false",
+    "If enabled together with loadBalanceHosts, hosts that answer faster are chosen more often"),
+
   LOAD_BALANCE_HOSTS(
     "loadBalanceHosts",
     "false",
@@ -311,6 +405,16 @@ public enum PGProperty {
     "false",
     "When connections that are not explicitly closed are garbage collected, log the stacktrace from the opening of the connection to trace the leak source"),
 
+  /**
+   * <p>Highest replication lag in seconds of the secondaries to connect to, 0 to accept any lag. The
+   * lag of the secondaries is measured by the probes of {@code hostProbeSeconds}: secondaries that
+   * were not probed are not excluded. If every host is excluded, all of them are tried.</p>
+   */
+  MAX_REPLICATION_LAG_SECONDS(
+    "maxReplicationLagSeconds",
+    "0",
+    "Highest replication lag (seconds) of the secondaries to connect to, 0 to accept any lag"),
+
   /**
    * Specifies size of buffer during fetching result set. Can be specified as specified size or
    * percent of heap memory.
@@ -329,6 +433,26 @@ public enum PGProperty {
     null,
     "Specify 'options' connection initialization parameter."),
 
+  /**
+   * <p>Connect to several of the hosts of a multi-host URL concurrently, and keep the first
+   * connection to a host that matches {@code targetServerType}. The other attempts are abandoned,
+   * so a dead or slow host does not delay the connection by {@code connectTimeout}.</p>
+   */
+  PARALLEL_CONNECT(
+    "parallelConnect",
+    "false",
+    "Connect to several of the hosts concurrently, and keep the first connection to a suitable host"),
+
+  /**
+   * <p>Delay in milliseconds between the start of two connection attempts when
+   * {@code parallelConnect} is enabled. The next attempt is started earlier when all the running
+   * ones have failed. 0 starts the attempts to all the hosts at once.</p>
+   */
+  PARALLEL_CONNECT_DELAY(
+    "parallelConnectDelay",
+    "250",
+    "Delay in milliseconds before the next host is tried while the previous attempts are in progress, 0 to try all the hosts at once"),
+
   /**
    * Password to use when authenticating.
    */
@@ -472,6 +596,16 @@ public enum PGProperty {
       + "from that database. "
       + "(backend >= 9.4)"),
 
+  /**
+   * <p>Execute the batches of INSERT, UPDATE and DELETE statements as a single statement over
+   * {@code unnest} of one array parameter per bind parameter. The SQL of the rewritten statement
+   * does not depend on the size of the batch, so its server-prepared plan is reused.</p>
+   */
+  REWRITE_BATCHED_AS_ARRAYS(
+    "reWriteBatchedAsArrays",
+    "false",
+    "Execute batched INSERT, UPDATE and DELETE statements as a single statement over unnest of array parameters"),
+
   /**
    * Configure optimization to enable batch insert re-writing.
    */
@@ -480,6 +614,20 @@ public enum PGProperty {
     "false",
     "Enable optimization to rewrite and collapse compatible INSERT statements that are batched."),
 
+  /**
+   * <p>Specifies how the values of result rows are stored. In {@code rowStorage=arrays} mode
+   * (default) each non-null field value of each row is received into a separate {@code byte[]}.
+   * In {@code rowStorage=slab} mode the rows of a fetch batch are received into shared chunks of
+   * memory and the field values are referenced by offset, which drastically reduces the number of
+   * allocations for large results.</p>
+   */
+  ROW_STORAGE(
+    "rowStorage",
+    "arrays",
+    "Specifies how result rows are stored: arrays (one byte[] per field) or slab (rows share large byte[] chunks)",
+    false,
+    new String[] {"arrays", "slab"}),
+
   /**
    * Socket write buffer size (SO_SNDBUF). A value of {@code -1}, which is the default, means system
    * default.
@@ -489,6 +637,16 @@ public enum PGProperty {
     "-1",
     "Socket write buffer size"),
 
+  /**
+   * Use a {@link java.nio.channels.SocketChannel} with pooled direct buffers for socket I/O instead
+   * of the blocking socket streams. The setting is ignored when a custom {@code socketFactory} is
+   * configured, when the connection goes through a SOCKS proxy, and once SSL is negotiated.
+   */
+  SOCKET_CHANNEL(
+    "socketChannel",
+    "false",
+    "Use a java.nio SocketChannel with pooled direct buffers for socket I/O"),
+
   /**
    * Socket factory used to create socket. A null value, which is the default, means system default.
    */
@@ -620,6 +778,16 @@ public enum PGProperty {
     "POSTGRES",
     "The Windows SSPI service class for SPN"),
 
+  /**
+   * Specifies if the rows of forward-only, read-only result sets that are not fetched with a cursor
+   * are streamed: they are read from the network as {@code ResultSet.next()} is called, instead of
+   * being read before the query execution returns.
+   */
+  STREAM_RESULTS(
+    "streamResults",
+    "false",
+    "Read the rows of forward-only result sets from the network as ResultSet.next() is called"),
+
   /**
    * Bind String to either {@code unspecified} or {@code varchar}. Default is {@code varchar} for
    * 8.0+ backends.
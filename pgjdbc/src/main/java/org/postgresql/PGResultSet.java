@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.sql.SQLException;
+
+/**
+ * <p>PostgreSQL extensions to {@link java.sql.ResultSet}: columnar reads into primitive arrays.</p>
+ *
+ * <p>{@link #nextRows(int)} moves over a batch of rows, then the {@code readColumn} methods copy
+ * the values of a column of the batch into an array, one call per column instead of one getter
+ * call per value. Binary values of the common numeric and timestamp types are decoded straight
+ * from the received rows; the other values are converted as by the matching getter.</p>
+ *
+ * <pre>
+ * PGResultSet rs = resultSet.unwrap(PGResultSet.class);
+ * long[] ids = new long[1000];
+ * double[] amounts = new double[1000];
+ * boolean[] amountIsNull = new boolean[1000];
+ * int rows;
+ * while ((rows = rs.nextRows(ids.length)) &gt; 0) {
+ *   rs.readColumn(1, ids, null);
+ *   rs.readColumn(2, amounts, amountIsNull);
+ *   ...
+ * }
+ * </pre>
+ */
+public interface PGResultSet {
+
+  /**
+   * Moves the cursor over the next rows, fetching more rows from the server if needed. At most the
+   * rows received by one fetch are returned at once, so fewer rows than requested can be returned
+   * before the end of the result set. The cursor is left on the last row of the batch, so
+   * {@link java.sql.ResultSet#next()} continues after it.
+   *
+   * @param rowCount maximum number of rows to move over, greater than 0
+   * @return number of rows of the batch, 0 at the end of the result set
+   * @throws SQLException if the result set is closed or the rows cannot be fetched
+   */
+  int nextRows(int rowCount) throws SQLException;
+
+  /**
+   * Copies the values of a column of the rows of the last {@link #nextRows(int)} batch, converted
+   * as by {@link java.sql.ResultSet#getInt(int)}.
+   *
+   * @param columnIndex the first column is 1, the second is 2, ...
+   * @param values receives the values, 0 for SQL NULL; must hold the batch
+   * @param nulls if not null, receives true for the values that are SQL NULL
+   * @return number of values copied, the size of the batch
+   * @throws SQLException if the result set is not positioned by {@link #nextRows(int)}, the
+   *     column index is not valid, or a value cannot be converted
+   */
+  int readColumn(@Positive int columnIndex, int[] values, boolean @Nullable [] nulls)
+      throws SQLException;
+
+  /**
+   * Copies the values of a column of the rows of the last {@link #nextRows(int)} batch, converted
+   * as by {@link java.sql.ResultSet#getLong(int)}. The values of {@code timestamp} and
+   * {@code timestamptz} columns are read as microseconds since 1970-01-01 00:00:00 UTC, the
+   * values of {@code timestamp} columns being taken as UTC; {@code infinity} and
+   * {@code -infinity} are read as {@link Long#MAX_VALUE} and {@link Long#MIN_VALUE}.
+   *
+   * @param columnIndex the first column is 1, the second is 2, ...
+   * @param values receives the values, 0 for SQL NULL; must hold the batch
+   * @param nulls if not null, receives true for the values that are SQL NULL
+   * @return number of values copied, the size of the batch
+   * @throws SQLException if the result set is not positioned by {@link #nextRows(int)}, the
+   *     column index is not valid, or a value cannot be converted
+   */
+  int readColumn(@Positive int columnIndex, long[] values, boolean @Nullable [] nulls)
+      throws SQLException;
+
+  /**
+   * Copies the values of a column of the rows of the last {@link #nextRows(int)} batch, converted
+   * as by {@link java.sql.ResultSet#getDouble(int)}.
+   *
+   * @param columnIndex the first column is 1, the second is 2, ...
+   * @param values receives the values, 0 for SQL NULL; must hold the batch
+   * @param nulls if not null, receives true for the values that are SQL NULL
+   * @return number of values copied, the size of the batch
+   * @throws SQLException if the result set is not positioned by {@link #nextRows(int)}, the
+   *     column index is not valid, or a value cannot be converted
+   */
+  int readColumn(@Positive int columnIndex, double[] values, boolean @Nullable [] nulls)
+      throws SQLException;
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.codec;
+
+import org.postgresql.core.Encoding;
+
+import java.sql.SQLException;
+
+/**
+ * <p>Converts the values of a server type, identified by its OID, to and from Java. A codec is
+ * registered on a connection with
+ * {@link org.postgresql.PGConnection#registerTypeCodec(String, TypeCodec)}, and then takes
+ * precedence over the built-in conversions for that type in {@code ResultSet} getters and in
+ * {@code PreparedStatement.setObject}.</p>
+ *
+ * <p>The decoding methods read the value in place from the buffer the row was received in, so the
+ * primitive readers can be implemented without allocating. The same buffer holds other values, so
+ * implementations must not keep a reference to it.</p>
+ *
+ * <p>Codecs are shared by all the result sets of a connection, and must be thread-safe.</p>
+ *
+ * @see TypeCodecBase
+ */
+public interface TypeCodec {
+
+  /**
+   * @return the class of the values returned by {@link #decode} and accepted by the encoding
+   *     methods
+   */
+  Class<?> getJavaType();
+
+  /**
+   * @return true if the codec decodes the binary format, so the values are requested in binary
+   */
+  boolean supportsBinaryReceive();
+
+  /**
+   * @return true if the codec encodes the binary format, so parameters are sent in binary
+   */
+  boolean supportsBinarySend();
+
+  /**
+   * Decodes a non-null value.
+   *
+   * @param buffer buffer that holds the value
+   * @param offset offset of the value in the buffer
+   * @param length length of the value in bytes
+   * @param binary true if the value is in binary format, false if it is in text format
+   * @param encoding encoding of the connection, for text values
+   * @return the decoded value
+   * @throws SQLException if the value cannot be decoded
+   */
+  Object decode(byte[] buffer, int offset, int length, boolean binary, Encoding encoding)
+      throws SQLException;
+
+  /**
+   * Decodes a non-null value for {@link java.sql.ResultSet#getInt(int)}.
+   *
+   * @param buffer buffer that holds the value
+   * @param offset offset of the value in the buffer
+   * @param length length of the value in bytes
+   * @param binary true if the value is in binary format, false if it is in text format
+   * @param encoding encoding of the connection, for text values
+   * @return the decoded value
+   * @throws SQLException if the value cannot be decoded or does not fit
+   */
+  int decodeInt(byte[] buffer, int offset, int length, boolean binary, Encoding encoding)
+      throws SQLException;
+
+  /**
+   * Decodes a non-null value for {@link java.sql.ResultSet#getLong(int)}.
+   *
+   * @param buffer buffer that holds the value
+   * @param offset offset of the value in the buffer
+   * @param length length of the value in bytes
+   * @param binary true if the value is in binary format, false if it is in text format
+   * @param encoding encoding of the connection, for text values
+   * @return the decoded value
+   * @throws SQLException if the value cannot be decoded or does not fit
+   */
+  long decodeLong(byte[] buffer, int offset, int length, boolean binary, Encoding encoding)
+      throws SQLException;
+
+  /**
+   * Decodes a non-null value for {@link java.sql.ResultSet#getDouble(int)}.
+   *
+   * @param buffer buffer that holds the value
+   * @param offset offset of the value in the buffer
+   * @param length length of the value in bytes
+   * @param binary true if the value is in binary format, false if it is in text format
+   * @param encoding encoding of the connection, for text values
+   * @return the decoded value
+   * @throws SQLException if the value cannot be decoded
+   */
+  double decodeDouble(byte[] buffer, int offset, int length, boolean binary, Encoding encoding)
+      throws SQLException;
+
+  /**
+   * Encodes a parameter in binary format. Only called if {@link #supportsBinarySend()} is true.
+   *
+   * @param value value to encode, an instance of {@link #getJavaType()}
+   * @return the binary representation of the value
+   * @throws SQLException if the value cannot be encoded
+   */
+  byte[] encodeBinary(Object value) throws SQLException;
+
+  /**
+   * Encodes a parameter in text format.
+   *
+   * @param value value to encode, an instance of {@link #getJavaType()}
+   * @return the text representation of the value
+   * @throws SQLException if the value cannot be encoded
+   */
+  String encodeText(Object value) throws SQLException;
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.codec;
+
+import org.postgresql.core.Encoding;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import java.sql.SQLException;
+
+/**
+ * <p>Convenience base class for {@link TypeCodec} implementations that only need to implement
+ * {@link #decode}: the primitive readers convert the decoded value, which must then be a
+ * {@link Number}, and the text encoding uses {@link Object#toString()}. Binary transfer is not
+ * supported unless the subclass overrides {@link #supportsBinaryReceive()} and
+ * {@link #supportsBinarySend()}.</p>
+ *
+ * <p>Subclasses that care about allocations override the primitive readers.</p>
+ */
+public abstract class TypeCodecBase implements TypeCodec {
+  private final Class<?> javaType;
+
+  protected TypeCodecBase(Class<?> javaType) {
+    this.javaType = javaType;
+  }
+
+  @Override
+  public Class<?> getJavaType() {
+    return javaType;
+  }
+
+  @Override
+  public boolean supportsBinaryReceive() {
+    return false;
+  }
+
+  @Override
+  public boolean supportsBinarySend() {
+    return false;
+  }
+
+  private Number decodeNumber(byte[] buffer, int offset, int length, boolean binary,
+      Encoding encoding, String targetType) throws SQLException {
+    Object value = decode(buffer, offset, length, binary, encoding);
+    if (!(value instanceof Number)) {
+      throw new PSQLException(GT.tr("Bad value for type {0} : {1}", targetType, value),
+          PSQLState.DATA_TYPE_MISMATCH);
+    }
+    return (Number) value;
+  }
+
+  @Override
+  public int decodeInt(byte[] buffer, int offset, int length, boolean binary, Encoding encoding)
+      throws SQLException {
+    long value = decodeLong(buffer, offset, length, binary, encoding);
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new PSQLException(GT.tr("Bad value for type {0} : {1}", "int", value),
+          PSQLState.NUMERIC_VALUE_OUT_OF_RANGE);
+    }
+    return (int) value;
+  }
+
+  @Override
+  public long decodeLong(byte[] buffer, int offset, int length, boolean binary, Encoding encoding)
+      throws SQLException {
+    return decodeNumber(buffer, offset, length, binary, encoding, "long").longValue();
+  }
+
+  @Override
+  public double decodeDouble(byte[] buffer, int offset, int length, boolean binary,
+      Encoding encoding) throws SQLException {
+    return decodeNumber(buffer, offset, length, binary, encoding, "double").doubleValue();
+  }
+
+  @Override
+  public byte[] encodeBinary(Object value) throws SQLException {
+    throw new PSQLException(GT.tr("Binary encoding is not supported by {0}", getClass().getName()),
+        PSQLState.NOT_IMPLEMENTED);
+  }
+
+  @Override
+  public String encodeText(Object value) throws SQLException {
+    return value.toString();
+  }
+}
@@ -0,0 +1,481 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.copy;
+
+import org.postgresql.PGConnection;
+import org.postgresql.core.Encoding;
+import org.postgresql.core.v3.CopyOutImpl;
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * <p>Reads the rows of a {@code COPY ... TO STDOUT (FORMAT binary)} operation.</p>
+ *
+ * <p>{@link #next()} moves to the next row, then the getters decode its fields in place: the data
+ * is received in a buffer that is reused for all the rows, so reading the primitive values does
+ * not allocate. Binary values carry no type, so each field must be read with the getter matching
+ * the type of its column, for instance {@link #getLong(int)} for an {@code int8} column. The
+ * values of {@code timestamp} and {@code timestamptz} columns are read by {@link #getLong(int)}
+ * as microseconds since 2000-01-01 00:00:00 (UTC for {@code timestamptz}).</p>
+ *
+ * <pre>
+ * PGBinaryCopyReader reader = new PGBinaryCopyReader(connection,
+ *     "COPY measurement (id, value) TO STDOUT (FORMAT binary)");
+ * while (reader.next()) {
+ *   long id = reader.getLong(1);
+ *   double value = reader.isNull(2) ? Double.NaN : reader.getDouble(2);
+ *   ...
+ * }
+ * </pre>
+ */
+public class PGBinaryCopyReader {
+  private static final byte[] SIGNATURE = {
+      'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0
+  };
+  private static final int HEADER_LENGTH = SIGNATURE.length + 8;
+
+  private final CopyOut op;
+  private final Encoding encoding;
+
+  // Received data, up to limit. Either the array a CopyData message was received in, or
+  // spillBuffer when a row spans several messages.
+  private byte[] data = new byte[0];
+  private int position;
+  private int limit;
+  private byte[] spillBuffer = new byte[0];
+  private byte[] message = new byte[0];
+  private int messageLength;
+
+  private boolean headerRead;
+  private boolean done;
+  private int rowStart;
+  private int fieldCount;
+  private int[] fieldOffsets = new int[16]; // relative to rowStart
+  private int[] fieldLengths = new int[16];
+
+  /**
+   * Starts the given COPY TO STDOUT operation on the connection.
+   *
+   * @param connection database connection to use for copying
+   * @param sql COPY TO STDOUT statement with {@code FORMAT binary}
+   * @throws SQLException if initializing the operation fails
+   */
+  public PGBinaryCopyReader(PGConnection connection, String sql) throws SQLException {
+    this(connection.getCopyAPI().copyOut(sql), getEncoding(connection));
+  }
+
+  /**
+   * Reads the given COPY TO STDOUT operation. Text values are decoded as UTF-8, the client
+   * encoding used by the driver.
+   *
+   * @param op COPY TO STDOUT operation with {@code FORMAT binary}
+   * @throws SQLException if the operation does not use the binary format
+   */
+  public PGBinaryCopyReader(CopyOut op) throws SQLException {
+    this(op, Encoding.getDatabaseEncoding("UTF8"));
+  }
+
+  private PGBinaryCopyReader(CopyOut op, Encoding encoding) throws SQLException {
+    this.op = op;
+    this.encoding = encoding;
+    if (op.getFormat() != 1) {
+      op.cancelCopy();
+      throw new PSQLException(GT.tr("The COPY operation does not use the binary format."),
+          PSQLState.WRONG_OBJECT_TYPE);
+    }
+  }
+
+  private static Encoding getEncoding(PGConnection connection) {
+    String clientEncoding = connection.getParameterStatus("client_encoding");
+    return clientEncoding == null ? Encoding.defaultEncoding()
+        : Encoding.getDatabaseEncoding(clientEncoding);
+  }
+
+  /**
+   * Receives the next CopyData message into {@link #message}.
+   *
+   * @return false at the end of the copy
+   */
+  private boolean receiveMessage() throws SQLException {
+    byte[] received;
+    if (op instanceof CopyOutImpl) {
+      CopyOutImpl impl = (CopyOutImpl) op;
+      received = impl.readFromCopyIntoBuffer(true);
+      messageLength = received == null ? 0 : impl.getDataLength();
+    } else {
+      received = op.readFromCopy();
+      messageLength = received == null ? 0 : received.length;
+    }
+    if (received == null) {
+      return false;
+    }
+    message = received;
+    return true;
+  }
+
+  /**
+   * Makes sure the {@code length} bytes from {@link #position} are received. The bytes from
+   * {@link #rowStart} on are kept, but they can be moved to another array or offset, so the
+   * positions within the row must be relative to {@code rowStart}.
+   */
+  private void require(int length) throws SQLException {
+    while (limit - position < length) {
+      int pending = limit - rowStart;
+      if (pending == 0) {
+        if (!receiveMessage()) {
+          throw unexpectedEnd();
+        }
+        data = message;
+        rowStart = 0;
+        position = 0;
+        limit = messageLength;
+        continue;
+      }
+      // The row spans several messages: gather it in spillBuffer, as the next message can be
+      // received in the array that holds the current one
+      if (data != spillBuffer || rowStart != 0) {
+        byte[] spill = ensureSpillCapacity(pending);
+        System.arraycopy(data, rowStart, spill, 0, pending);
+        data = spill;
+        position -= rowStart;
+        rowStart = 0;
+        limit = pending;
+      }
+      if (!receiveMessage()) {
+        throw unexpectedEnd();
+      }
+      byte[] spill = ensureSpillCapacity(limit + messageLength);
+      System.arraycopy(message, 0, spill, limit, messageLength);
+      data = spill;
+      limit += messageLength;
+    }
+  }
+
+  private byte[] ensureSpillCapacity(int length) {
+    if (spillBuffer.length < length) {
+      spillBuffer = Arrays.copyOf(spillBuffer, Math.max(length, spillBuffer.length * 2));
+    }
+    return spillBuffer;
+  }
+
+  private PSQLException unexpectedEnd() {
+    return new PSQLException(GT.tr("Unexpected end of binary COPY data."),
+        PSQLState.COMMUNICATION_ERROR);
+  }
+
+  /**
+   * Moves to the next row.
+   *
+   * @return false at the end of the copy, once the operation is complete
+   * @throws SQLException if the operation fails or the data is not valid
+   */
+  public boolean next() throws SQLException {
+    if (done) {
+      return false;
+    }
+    fieldCount = 0;
+    if (!headerRead) {
+      readHeader();
+    }
+    rowStart = position;
+    require(2);
+    int count = ByteConverter.int2(data, position);
+    position += 2;
+    if (count == -1) {
+      // file trailer; wait for the end of the operation
+      done = true;
+      while (receiveMessage()) {
+        // no CopyData is expected after the trailer
+      }
+      return false;
+    }
+    if (count > fieldOffsets.length) {
+      fieldOffsets = new int[count];
+      fieldLengths = new int[count];
+    }
+    for (int i = 0; i < count; i++) {
+      require(4);
+      int length = ByteConverter.int4(data, position);
+      position += 4;
+      fieldOffsets[i] = position - rowStart;
+      fieldLengths[i] = length;
+      if (length > 0) {
+        require(length);
+        position += length;
+      }
+    }
+    fieldCount = count;
+    return true;
+  }
+
+  private void readHeader() throws SQLException {
+    rowStart = position;
+    require(HEADER_LENGTH);
+    for (int i = 0; i < SIGNATURE.length; i++) {
+      if (data[position + i] != SIGNATURE[i]) {
+        throw new PSQLException(GT.tr("Invalid binary COPY header."),
+            PSQLState.COMMUNICATION_ERROR);
+      }
+    }
+    int extensionLength = ByteConverter.int4(data, position + SIGNATURE.length + 4);
+    position += HEADER_LENGTH;
+    require(extensionLength);
+    position += extensionLength;
+    rowStart = position;
+    headerRead = true;
+  }
+
+  /**
+   * @return number of fields of the current row
+   */
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  private int checkField(int field) throws SQLException {
+    if (field < 1 || field > fieldCount) {
+      throw new PSQLException(
+          GT.tr("The column index is out of range: {0}, number of columns: {1}.", field,
+              fieldCount),
+          PSQLState.INVALID_PARAMETER_VALUE);
+    }
+    return field - 1;
+  }
+
+  /**
+   * Returns the offset of the value of a non-null field of the expected length.
+   */
+  private int valueOffset(int field, int length, String type) throws SQLException {
+    int i = checkField(field);
+    if (fieldLengths[i] != length) {
+      throw new PSQLException(GT.tr("Cannot convert the column of type {0} to requested type {1}.",
+          fieldLengths[i] < 0 ? "NULL" : fieldLengths[i] + " bytes", type),
+          PSQLState.DATA_TYPE_MISMATCH);
+    }
+    return rowStart + fieldOffsets[i];
+  }
+
+  /**
+   * @param field the first field is 1, the second is 2, ...
+   * @return true if the value of the field is SQL NULL
+   * @throws SQLException if the field index is not valid
+   */
+  public boolean isNull(int field) throws SQLException {
+    return fieldLengths[checkField(field)] < 0;
+  }
+
+  /**
+   * @param field the first field is 1, the second is 2, ...
+   * @return length of the value of the field in bytes, -1 for SQL NULL
+   * @throws SQLException if the field index is not valid
+   */
+  public int getLength(int field) throws SQLException {
+    return fieldLengths[checkField(field)];
+  }
+
+  /**
+   * Reads a {@code bool} value.
+   *
+   * @param field the first field is 1, the second is 2, ...
+   * @return value of the field
+   * @throws SQLException if the field index is not valid or the value is not a {@code bool}
+   */
+  public boolean getBoolean(int field) throws SQLException {
+    return ByteConverter.bool(data, valueOffset(field, 1, "boolean"));
+  }
+
+  /**
+   * Reads an {@code int2} value.
+   *
+   * @param field the first field is 1, the second is 2, ...
+   * @return value of the field
+   * @throws SQLException if the field index is not valid or the value is not an {@code int2}
+   */
+  public short getShort(int field) throws SQLException {
+    return ByteConverter.int2(data, valueOffset(field, 2, "short"));
+  }
+
+  /**
+   * Reads an {@code int4} or {@code int2} value.
+   *
+   * @param field the first field is 1, the second is 2, ...
+   * @return value of the field
+   * @throws SQLException if the field index is not valid or the value is not an integer
+   */
+  public int getInt(int field) throws SQLException {
+    if (getLength(field) == 2) {
+      return getShort(field);
+    }
+    return ByteConverter.int4(data, valueOffset(field, 4, "int"));
+  }
+
+  /**
+   * Reads an {@code int8}, {@code int4} or {@code int2} value, or the value of a
+   * {@code timestamp} or {@code timestamptz}.
+   *
+   * @param field the first field is 1, the second is 2, ...
+   * @return value of the field
+   * @throws SQLException if the field index is not valid or the value is not an integer
+   */
+  public long getLong(int field) throws SQLException {
+    int length = getLength(field);
+    if (length == 4 || length == 2) {
+      return getInt(field);
+    }
+    return ByteConverter.int8(data, valueOffset(field, 8, "long"));
+  }
+
+  /**
+   * Reads a {@code float4} value.
+   *
+   * @param field the first field is 1, the second is 2, ...
+   * @return value of the field
+   * @throws SQLException if the field index is not valid or the value is not a {@code float4}
+   */
+  public float getFloat(int field) throws SQLException {
+    return ByteConverter.float4(data, valueOffset(field, 4, "float"));
+  }
+
+  /**
+   * Reads a {@code float8} or {@code float4} value.
+   *
+   * @param field the first field is 1, the second is 2, ...
+   * @return value of the field
+   * @throws SQLException if the field index is not valid or the value is not a float
+   */
+  public double getDouble(int field) throws SQLException {
+    if (getLength(field) == 4) {
+      return getFloat(field);
+    }
+    return ByteConverter.float8(data, valueOffset(field, 8, "double"));
+  }
+
+  /**
+   * Reads a {@code numeric} value.
+   *
+   * @param field the first field is 1, the second is 2, ...
+   * @return value of the field, or null for SQL NULL; {@link Double#NaN} for {@code NaN}
+   * @throws SQLException if the field index is not valid or the value is not a {@code numeric}
+   */
+  public @Nullable Number getNumeric(int field) throws SQLException {
+    int i = checkField(field);
+    int length = fieldLengths[i];
+    if (length < 0) {
+      return null;
+    }
+    try {
+      return ByteConverter.numeric(data, rowStart + fieldOffsets[i], length);
+    } catch (IllegalArgumentException e) {
+      throw new PSQLException(GT.tr("Bad value for type {0} : {1}", "BigDecimal", e.getMessage()),
+          PSQLState.NUMERIC_VALUE_OUT_OF_RANGE, e);
+    }
+  }
+
+  /**
+   * Reads a {@code uuid} value.
+   *
+   * @param field the first field is 1, the second is 2, ...
+   * @return value of the field, or null for SQL NULL
+   * @throws SQLException if the field index is not valid or the value is not a {@code uuid}
+   */
+  public @Nullable UUID getUuid(int field) throws SQLException {
+    if (isNull(field)) {
+      return null;
+    }
+    int offset = valueOffset(field, 16, "uuid");
+    return new UUID(ByteConverter.int8(data, offset), ByteConverter.int8(data, offset + 8));
+  }
+
+  /**
+   * Reads a {@code text}, {@code varchar} or {@code char} value, in the client encoding.
+   *
+   * @param field the first field is 1, the second is 2, ...
+   * @return value of the field, or null for SQL NULL
+   * @throws SQLException if the field index is not valid or the value cannot be decoded
+   */
+  public @Nullable String getString(int field) throws SQLException {
+    int i = checkField(field);
+    int length = fieldLengths[i];
+    if (length < 0) {
+      return null;
+    }
+    try {
+      return encoding.decode(data, rowStart + fieldOffsets[i], length);
+    } catch (IOException e) {
+      throw new PSQLException(
+          GT.tr("Invalid character data was found.  This is most likely caused by stored data "
+              + "containing characters that are invalid for the character set the database was "
+              + "created in.  The most common example of this is storing 8bit data in a SQL_ASCII "
+              + "database."),
+          PSQLState.DATA_ERROR, e);
+    }
+  }
+
+  /**
+   * Returns a copy of the binary value of a field, for instance of a {@code bytea}.
+   *
+   * @param field the first field is 1, the second is 2, ...
+   * @return value of the field, or null for SQL NULL
+   * @throws SQLException if the field index is not valid
+   */
+  public byte @Nullable [] getBytes(int field) throws SQLException {
+    int i = checkField(field);
+    int length = fieldLengths[i];
+    if (length < 0) {
+      return null;
+    }
+    int offset = rowStart + fieldOffsets[i];
+    return Arrays.copyOfRange(data, offset, offset + length);
+  }
+
+  /**
+   * Returns a stream over the binary value of a field, without copying it. The stream is only
+   * valid until the next call of {@link #next()}.
+   *
+   * @param field the first field is 1, the second is 2, ...
+   * @return value of the field, or null for SQL NULL
+   * @throws SQLException if the field index is not valid
+   */
+  public @Nullable InputStream getBinaryStream(int field) throws SQLException {
+    int i = checkField(field);
+    int length = fieldLengths[i];
+    if (length < 0) {
+      return null;
+    }
+    return new ByteArrayInputStream(data, rowStart + fieldOffsets[i], length);
+  }
+
+  /**
+   * Aborts the copy operation if it is still in progress.
+   *
+   * @throws SQLException if the operation fails
+   */
+  public void cancelCopy() throws SQLException {
+    if (op.isActive()) {
+      op.cancelCopy();
+    }
+    done = true;
+    fieldCount = 0;
+  }
+
+  /**
+   * @return number of rows copied, once {@link #next()} returned false
+   */
+  public long getHandledRowCount() {
+    return op.getHandledRowCount();
+  }
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.copy;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGStatement;
+import org.postgresql.core.Encoding;
+import org.postgresql.jdbc.PgArray;
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * <p>Writes typed rows to a {@code COPY ... FROM STDIN (FORMAT binary)} operation.</p>
+ *
+ * <p>The values are encoded in the binary COPY format straight into a buffer that is sent when it
+ * is full, so no text is formatted on the client nor parsed on the server. Each value must be
+ * written with the method matching the type of its column, as the server does not convert binary
+ * values: for instance {@link #writeInt(int)} for an {@code int4} column and
+ * {@link #writeLong(long)} for an {@code int8} column.</p>
+ *
+ * <pre>
+ * PGBinaryCopyWriter writer = new PGBinaryCopyWriter(connection,
+ *     "COPY measurement (id, taken_at, value) FROM STDIN (FORMAT binary)");
+ * for (Measurement m : measurements) {
+ *   writer.startRow();
+ *   writer.writeLong(m.id);
+ *   writer.writeTimestamp(m.takenAt);
+ *   writer.writeDouble(m.value);
+ *   writer.endRow();
+ * }
+ * long rows = writer.endCopy();
+ * </pre>
+ */
+public class PGBinaryCopyWriter {
+  static final byte[] HEADER = {
+      'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0, // signature
+      0, 0, 0, 0, // flags
+      0, 0, 0, 0 // header extension length
+  };
+
+  // 2000-01-01 00:00:00 UTC, the epoch of binary timestamps, in seconds since 1970-01-01
+  private static final long PG_EPOCH_SECONDS = 946684800L;
+
+  private final PGConnection connection;
+  private final CopyIn op;
+  private final Encoding encoding;
+  private final boolean integerDateTimes;
+  private final int bufferSize;
+  private byte[] buffer;
+  private int position;
+  private int rowStart = -1;
+  private int fieldCount;
+
+  /**
+   * Starts the given COPY FROM STDIN operation on the connection.
+   *
+   * @param connection database connection to use for copying
+   * @param sql COPY FROM STDIN statement with {@code FORMAT binary}
+   * @throws SQLException if initializing the operation fails
+   */
+  public PGBinaryCopyWriter(PGConnection connection, String sql) throws SQLException {
+    this(connection, sql, CopyManager.DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Starts the given COPY FROM STDIN operation on the connection.
+   *
+   * @param connection database connection to use for copying
+   * @param sql COPY FROM STDIN statement with {@code FORMAT binary}
+   * @param bufferSize try to send this many bytes at a time
+   * @throws SQLException if initializing the operation fails
+   */
+  public PGBinaryCopyWriter(PGConnection connection, String sql, int bufferSize)
+      throws SQLException {
+    this.connection = connection;
+    String clientEncoding = connection.getParameterStatus("client_encoding");
+    this.encoding = clientEncoding == null ? Encoding.defaultEncoding()
+        : Encoding.getDatabaseEncoding(clientEncoding);
+    this.integerDateTimes = !"off".equals(connection.getParameterStatus("integer_datetimes"));
+    this.bufferSize = bufferSize;
+    this.buffer = new byte[Math.max(bufferSize, HEADER.length)];
+    this.op = connection.getCopyAPI().copyIn(sql);
+    if (op.getFormat() != 1) {
+      op.cancelCopy();
+      throw new PSQLException(GT.tr("The COPY operation does not use the binary format."),
+          PSQLState.WRONG_OBJECT_TYPE);
+    }
+    System.arraycopy(HEADER, 0, buffer, 0, HEADER.length);
+    position = HEADER.length;
+  }
+
+  /**
+   * Starts a new row.
+   *
+   * @throws SQLException if the previous row is not ended, or the buffered rows cannot be sent
+   */
+  public void startRow() throws SQLException {
+    if (rowStart >= 0) {
+      throw new PSQLException(GT.tr("The previous row is not ended."),
+          PSQLState.OBJECT_NOT_IN_STATE);
+    }
+    if (position >= bufferSize) {
+      op.writeToCopy(buffer, 0, position);
+      position = 0;
+    }
+    ensureCapacity(2);
+    rowStart = position;
+    fieldCount = 0;
+    position += 2; // field count, written by endRow
+  }
+
+  /**
+   * Ends the current row.
+   *
+   * @throws SQLException if no row is started
+   */
+  public void endRow() throws SQLException {
+    checkInRow();
+    ByteConverter.int2(buffer, rowStart, fieldCount);
+    rowStart = -1;
+  }
+
+  private void checkInRow() throws SQLException {
+    if (rowStart < 0) {
+      throw new PSQLException(GT.tr("No row is started, call startRow first."),
+          PSQLState.OBJECT_NOT_IN_STATE);
+    }
+  }
+
+  private void ensureCapacity(int length) {
+    if (position + length > buffer.length) {
+      // a row does not fit in the buffer; grow it, as the field count of the row is not known yet
+      byte[] newBuffer = new byte[Math.max(buffer.length * 2, position + length)];
+      System.arraycopy(buffer, 0, newBuffer, 0, position);
+      buffer = newBuffer;
+    }
+  }
+
+  /**
+   * Reserves space for a field of the current row and writes its length.
+   */
+  private void startField(int length) throws SQLException {
+    checkInRow();
+    ensureCapacity(4 + length);
+    ByteConverter.int4(buffer, position, length);
+    position += 4;
+    fieldCount++;
+  }
+
+  /**
+   * Writes SQL NULL.
+   *
+   * @throws SQLException if no row is started
+   */
+  public void writeNull() throws SQLException {
+    startField(0);
+    ByteConverter.int4(buffer, position - 4, -1);
+  }
+
+  /**
+   * Writes a {@code bool} value.
+   *
+   * @param value value to write
+   * @throws SQLException if no row is started
+   */
+  public void writeBoolean(boolean value) throws SQLException {
+    startField(1);
+    ByteConverter.bool(buffer, position, value);
+    position += 1;
+  }
+
+  /**
+   * Writes an {@code int2} value.
+   *
+   * @param value value to write
+   * @throws SQLException if no row is started
+   */
+  public void writeShort(short value) throws SQLException {
+    startField(2);
+    ByteConverter.int2(buffer, position, value);
+    position += 2;
+  }
+
+  /**
+   * Writes an {@code int4} value.
+   *
+   * @param value value to write
+   * @throws SQLException if no row is started
+   */
+  public void writeInt(int value) throws SQLException {
+    startField(4);
+    ByteConverter.int4(buffer, position, value);
+    position += 4;
+  }
+
+  /**
+   * Writes an {@code int8} value.
+   *
+   * @param value value to write
+   * @throws SQLException if no row is started
+   */
+  public void writeLong(long value) throws SQLException {
+    startField(8);
+    ByteConverter.int8(buffer, position, value);
+    position += 8;
+  }
+
+  /**
+   * Writes a {@code float4} value.
+   *
+   * @param value value to write
+   * @throws SQLException if no row is started
+   */
+  public void writeFloat(float value) throws SQLException {
+    startField(4);
+    ByteConverter.float4(buffer, position, value);
+    position += 4;
+  }
+
+  /**
+   * Writes a {@code float8} value.
+   *
+   * @param value value to write
+   * @throws SQLException if no row is started
+   */
+  public void writeDouble(double value) throws SQLException {
+    startField(8);
+    ByteConverter.float8(buffer, position, value);
+    position += 8;
+  }
+
+  /**
+   * Writes a {@code numeric} value.
+   *
+   * @param value value to write, or null for SQL NULL
+   * @throws SQLException if no row is started, or the value does not fit in {@code numeric}
+   */
+  public void writeNumeric(@Nullable BigDecimal value) throws SQLException {
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    byte[] bytes;
+    try {
+      bytes = ByteConverter.numeric(value);
+    } catch (IllegalArgumentException e) {
+      throw new PSQLException(GT.tr("Bad value for type {0} : {1}", "numeric", value),
+          PSQLState.NUMERIC_VALUE_OUT_OF_RANGE, e);
+    }
+    writeBytes(bytes);
+  }
+
+  /**
+   * Writes a {@code text}, {@code varchar} or {@code char} value, in the client encoding.
+   *
+   * @param value value to write, or null for SQL NULL
+   * @throws SQLException if no row is started, or the value cannot be encoded
+   */
+  public void writeString(@Nullable String value) throws SQLException {
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    try {
+      writeBytes(encoding.encode(value));
+    } catch (IOException e) {
+      throw new PSQLException(GT.tr("Unable to translate data into the desired encoding."),
+          PSQLState.DATA_ERROR, e);
+    }
+  }
+
+  /**
+   * Writes a {@code bytea} value, or a value already in the binary format of its type.
+   *
+   * @param value value to write, or null for SQL NULL
+   * @throws SQLException if no row is started
+   */
+  public void writeBytes(byte @Nullable [] value) throws SQLException {
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    startField(value.length);
+    System.arraycopy(value, 0, buffer, position, value.length);
+    position += value.length;
+  }
+
+  /**
+   * Writes a {@code uuid} value.
+   *
+   * @param value value to write, or null for SQL NULL
+   * @throws SQLException if no row is started
+   */
+  public void writeUuid(@Nullable UUID value) throws SQLException {
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    startField(16);
+    ByteConverter.int8(buffer, position, value.getMostSignificantBits());
+    ByteConverter.int8(buffer, position + 8, value.getLeastSignificantBits());
+    position += 16;
+  }
+
+  /**
+   * Writes a {@code timestamptz} value. {@link PGStatement#DATE_POSITIVE_INFINITY} and
+   * {@link PGStatement#DATE_NEGATIVE_INFINITY} are written as {@code infinity} and
+   * {@code -infinity}.
+   *
+   * @param value value to write, or null for SQL NULL
+   * @throws SQLException if no row is started
+   */
+  public void writeTimestamp(@Nullable Timestamp value) throws SQLException {
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    long millis = value.getTime();
+    if (millis == PGStatement.DATE_POSITIVE_INFINITY) {
+      writeInfinity(true);
+    } else if (millis == PGStatement.DATE_NEGATIVE_INFINITY) {
+      writeInfinity(false);
+    } else {
+      // getTime() includes the milliseconds of getNanos()
+      writeTimestamp(Math.floorDiv(millis, 1000L), value.getNanos());
+    }
+  }
+
+  /**
+   * Writes a {@code timestamp} (without time zone) value. {@link java.time.LocalDateTime#MAX} and
+   * {@link java.time.LocalDateTime#MIN} are written as {@code infinity} and {@code -infinity}.
+   *
+   * @param value value to write, or null for SQL NULL
+   * @throws SQLException if no row is started
+   */
+  public void writeTimestamp(java.time.@Nullable LocalDateTime value) throws SQLException {
+    if (value == null) {
+      writeNull();
+      return;
+    }
+    if (value.equals(java.time.LocalDateTime.MAX)) {
+      writeInfinity(true);
+    } else if (value.equals(java.time.LocalDateTime.MIN)) {
+      writeInfinity(false);
+    } else {
+      writeTimestamp(value.toEpochSecond(java.time.ZoneOffset.UTC), value.getNano());
+    }
+  }
+
+  private void writeTimestamp(long epochSeconds, int nanos) throws SQLException {
+    long seconds = epochSeconds - PG_EPOCH_SECONDS;
+    if (integerDateTimes) {
+      writeLong(seconds * 1000000L + nanos / 1000);
+    } else {
+      writeDouble(seconds + nanos / 1e9);
+    }
+  }
+
+  private void writeInfinity(boolean positive) throws SQLException {
+    if (integerDateTimes) {
+      writeLong(positive ? Long.MAX_VALUE : Long.MIN_VALUE);
+    } else {
+      writeDouble(positive ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY);
+    }
+  }
+
+  /**
+   * Writes an array value, see {@link PGConnection#createArrayOf(String, Object)} for the supported
+   * element types. The element type must be the element type of the column.
+   *
+   * @param elementType name of the type of the elements, for instance {@code int8}
+   * @param elements a Java array, for instance a {@code long[]}, or null for SQL NULL
+   * @throws SQLException if no row is started, or the elements cannot be encoded in binary
+   */
+  public void writeArray(String elementType, @Nullable Object elements) throws SQLException {
+    if (elements == null) {
+      writeNull();
+      return;
+    }
+    Array array = connection.createArrayOf(elementType, elements);
+    byte[] bytes = array instanceof PgArray ? ((PgArray) array).toBytes() : null;
+    if (bytes == null) {
+      throw new PSQLException(
+          GT.tr("Arrays of {0} cannot be written in binary format.", elementType),
+          PSQLState.INVALID_PARAMETER_TYPE);
+    }
+    writeBytes(bytes);
+  }
+
+  /**
+   * Sends the buffered rows to the server, see {@link CopyIn#flushCopy()}. The current row, if
+   * any, is kept until it is ended.
+   *
+   * @throws SQLException if the operation fails
+   */
+  public void flush() throws SQLException {
+    int end = rowStart >= 0 ? rowStart : position;
+    if (end > 0) {
+      op.writeToCopy(buffer, 0, end);
+      System.arraycopy(buffer, end, buffer, 0, position - end);
+      position -= end;
+      if (rowStart >= 0) {
+        rowStart = 0;
+      }
+    }
+    op.flushCopy();
+  }
+
+  /**
+   * Finishes the copy operation successfully.
+   *
+   * @return number of rows copied
+   * @throws SQLException if a row is not ended, or the operation fails
+   */
+  public long endCopy() throws SQLException {
+    if (rowStart >= 0) {
+      throw new PSQLException(GT.tr("The previous row is not ended."),
+          PSQLState.OBJECT_NOT_IN_STATE);
+    }
+    ensureCapacity(2);
+    ByteConverter.int2(buffer, position, -1); // file trailer
+    position += 2;
+    op.writeToCopy(buffer, 0, position);
+    position = 0;
+    return op.endCopy();
+  }
+
+  /**
+   * Aborts the copy operation, discarding the rows written so far.
+   *
+   * @throws SQLException if the operation fails
+   */
+  public void cancelCopy() throws SQLException {
+    position = 0;
+    rowStart = -1;
+    op.cancelCopy();
+  }
+
+  /**
+   * @return true if the copy operation is still in progress
+   */
+  public boolean isActive() {
+    return op.isActive();
+  }
+
+  /**
+   * @return number of rows copied, once {@link #endCopy()} returned
+   */
+  public long getHandledRowCount() {
+    return op.getHandledRowCount();
+  }
+}
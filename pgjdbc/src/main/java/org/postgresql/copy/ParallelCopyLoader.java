@@ -0,0 +1,813 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.copy;
+
+import static org.postgresql.util.internal.Nullness.castNonNull;
+
+import org.postgresql.PGConnection;
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+import org.postgresql.util.ServerErrorMessage;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+/**
+ * <p>Loads a large input with several {@code COPY ... FROM STDIN} operations running concurrently
+ * on their own connections, so the load is not limited by a single backend process.</p>
+ *
+ * <p>The input is split at row boundaries into chunks that are handed to the first connection
+ * ready to take them, so the rows are not inserted in the order of the input. The {@link Format}
+ * tells where the rows end: text rows end with a newline that is not escaped by a backslash, CSV
+ * rows with a newline outside of quotes, and binary rows are walked field by field. The COPY
+ * statement must match that format and must not use the {@code HEADER} option: skip the header
+ * line of a CSV input before calling {@link #load(InputStream)}.</p>
+ *
+ * <p>Each connection copies in its own transaction. The transactions are committed once all the
+ * COPY operations succeeded, and rolled back otherwise, so a failure loads no row unless one of
+ * the commits fails after other ones succeeded. The errors are reported in the order of the
+ * input: the first exception is the one of the earliest rejected row, the other ones are chained
+ * with {@link SQLException#setNextException(SQLException)}. When the server tells the line of the
+ * rejected row, the message of the exception gives its position in the input. The lines are
+ * counted as the server does, so a CSV row with quoted newlines spans several lines.</p>
+ *
+ * <pre>
+ * ParallelCopyLoader loader = new ParallelCopyLoader(dataSource,
+ *     "COPY measurement FROM STDIN (FORMAT csv)", ParallelCopyLoader.Format.CSV, 8);
+ * long rows = loader.load(new FileInputStream("measurement.csv"));
+ * </pre>
+ */
+public class ParallelCopyLoader {
+  private static final Logger LOGGER = Logger.getLogger(ParallelCopyLoader.class.getName());
+
+  /**
+   * Line of the rejected row in the context of a COPY error, e.g. "COPY measurement, line 3".
+   */
+  private static final Pattern LINE = Pattern.compile(", line (\\d+)");
+
+  private static final byte[] BINARY_TRAILER = {(byte) 0xff, (byte) 0xff};
+
+  private static final int BINARY_SIGNATURE_LENGTH = 11;
+
+  /**
+   * Format of the input, which tells where its rows end.
+   */
+  public enum Format {
+    /**
+     * {@code FORMAT text}, the default format of COPY.
+     */
+    TEXT,
+    /**
+     * {@code FORMAT csv}.
+     */
+    CSV,
+    /**
+     * {@code FORMAT binary}.
+     */
+    BINARY
+  }
+
+  /**
+   * Opens the connections the input is copied over.
+   */
+  public interface ConnectionFactory {
+    /**
+     * @return a new connection, closed by the loader once the load is over
+     * @throws SQLException if the connection cannot be opened
+     */
+    Connection getConnection() throws SQLException;
+  }
+
+  private final ConnectionFactory connectionFactory;
+  private final String sql;
+  private final Format format;
+  private final int parallelism;
+  private int chunkSize = 1024 * 1024;
+  private byte quote = '"';
+  private byte escape = '"';
+
+  /**
+   * @param dataSource data source the connections are obtained from
+   * @param sql COPY FROM STDIN statement run on each connection
+   * @param format format of the input, which must match the one of the statement
+   * @param parallelism number of connections copying concurrently
+   */
+  public ParallelCopyLoader(final DataSource dataSource, String sql, Format format,
+      int parallelism) {
+    this(new ConnectionFactory() {
+      @Override
+      public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+      }
+    }, sql, format, parallelism);
+  }
+
+  /**
+   * @param connectionFactory opens the connections
+   * @param sql COPY FROM STDIN statement run on each connection
+   * @param format format of the input, which must match the one of the statement
+   * @param parallelism number of connections copying concurrently
+   */
+  public ParallelCopyLoader(ConnectionFactory connectionFactory, String sql, Format format,
+      int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    this.connectionFactory = connectionFactory;
+    this.sql = sql;
+    this.format = format;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Sets the size of the chunks of rows handed to the connections. A chunk holds whole rows, so
+   * it is larger when a row does not fit. The default is 1MiB.
+   *
+   * @param chunkSize size of the chunks, in bytes
+   */
+  public void setChunkSize(int chunkSize) {
+    if (chunkSize < 1 || chunkSize > 256 * 1024 * 1024) {
+      throw new IllegalArgumentException("chunkSize must be between 1 and 256MiB: " + chunkSize);
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Sets the quote character of a CSV input, {@code "} by default. It must match the
+   * {@code QUOTE} option of the statement.
+   *
+   * @param quote quote character, in the ASCII range
+   */
+  public void setCsvQuote(char quote) {
+    this.quote = ascii(quote);
+  }
+
+  /**
+   * Sets the escape character of a CSV input, the quote character by default. It must match the
+   * {@code ESCAPE} option of the statement.
+   *
+   * @param escape escape character, in the ASCII range
+   */
+  public void setCsvEscape(char escape) {
+    this.escape = ascii(escape);
+  }
+
+  private static byte ascii(char c) {
+    if (c > 127) {
+      throw new IllegalArgumentException("Only ASCII characters are supported: " + c);
+    }
+    return (byte) c;
+  }
+
+  /**
+   * Loads the rows of the given input, which is read until its end or, in the binary format,
+   * until its trailer. The input is not closed.
+   *
+   * @param input rows in the format of the loader, with the header for the binary format
+   * @return number of rows loaded, the sum of the row counts of the COPY operations
+   * @throws SQLException if a COPY operation fails; no row is loaded in that case
+   * @throws IOException if the input cannot be read; no row is loaded in that case
+   */
+  public long load(InputStream input) throws SQLException, IOException {
+    return run(new StreamSplitter(input));
+  }
+
+  /**
+   * Loads the given rows. Each row is encoded in the format of the loader: a line for the text
+   * and CSV formats, a tuple without the file header for the binary format.
+   *
+   * @param rows rows to load
+   * @return number of rows loaded, the sum of the row counts of the COPY operations
+   * @throws SQLException if a COPY operation fails; no row is loaded in that case
+   */
+  public long load(Iterator<byte[]> rows) throws SQLException {
+    try {
+      return run(new RowSource(rows));
+    } catch (IOException e) {
+      // RowSource does not read any stream
+      throw new PSQLException(GT.tr("Unexpected error while loading the rows"),
+          PSQLState.UNEXPECTED_ERROR, e);
+    }
+  }
+
+  private long run(Source source) throws SQLException, IOException {
+    byte[] header = source.getBinaryHeader();
+    BlockingQueue<Chunk> queue = new ArrayBlockingQueue<Chunk>(2 * parallelism);
+    AtomicBoolean failed = new AtomicBoolean();
+    List<Worker> workers = new ArrayList<Worker>(parallelism);
+    List<Thread> threads = new ArrayList<Thread>(parallelism);
+    try {
+      for (int i = 0; i < parallelism; i++) {
+        Worker worker = new Worker(connectionFactory.getConnection(), queue, failed);
+        workers.add(worker);
+        worker.open(header);
+      }
+      for (int i = 0; i < parallelism; i++) {
+        Thread thread = new Thread(workers.get(i), "PgJDBC-copy-loader-" + i);
+        thread.setDaemon(true);
+        thread.start();
+        threads.add(thread);
+      }
+
+      try {
+        Chunk chunk;
+        while (!failed.get() && (chunk = source.next()) != null) {
+          offer(queue, chunk, failed);
+        }
+        for (int i = 0; i < parallelism && !failed.get(); i++) {
+          offer(queue, Chunk.END, failed);
+        }
+      } catch (IOException e) {
+        failed.set(true);
+        throw e;
+      } catch (SQLException e) {
+        failed.set(true);
+        throw e;
+      } catch (RuntimeException e) {
+        failed.set(true);
+        throw e;
+      } finally {
+        join(threads, failed);
+      }
+
+      long rows = 0;
+      SQLException error = collectFailures(workers);
+      if (error != null) {
+        throw error;
+      }
+      for (Worker worker : workers) {
+        worker.connection.commit();
+        rows += worker.rowCount;
+      }
+      LOGGER.log(Level.FINE, "Loaded {0} rows over {1} connections",
+          new Object[]{rows, parallelism});
+      return rows;
+    } finally {
+      for (Worker worker : workers) {
+        worker.close();
+      }
+    }
+  }
+
+  private static void offer(BlockingQueue<Chunk> queue, Chunk chunk, AtomicBoolean failed)
+      throws PSQLException {
+    try {
+      // The workers stop taking chunks once one of them failed
+      while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+        if (failed.get()) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failed.set(true);
+      throw new PSQLException(GT.tr("Interrupted while loading the rows"),
+          PSQLState.UNEXPECTED_ERROR, e);
+    }
+  }
+
+  private static void join(List<Thread> threads, AtomicBoolean failed) {
+    boolean interrupted = false;
+    for (Thread thread : threads) {
+      while (true) {
+        try {
+          thread.join();
+          break;
+        } catch (InterruptedException e) {
+          // The workers use the connections, so they must complete before they are closed
+          interrupted = true;
+          failed.set(true);
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static @Nullable SQLException collectFailures(List<Worker> workers) {
+    List<Worker> failures = new ArrayList<Worker>();
+    for (Worker worker : workers) {
+      if (worker.failure != null) {
+        failures.add(worker);
+      }
+    }
+    if (failures.isEmpty()) {
+      return null;
+    }
+    Collections.sort(failures, new Comparator<Worker>() {
+      @Override
+      public int compare(Worker a, Worker b) {
+        return a.failedRow < b.failedRow ? -1 : a.failedRow == b.failedRow ? 0 : 1;
+      }
+    });
+    SQLException first = castNonNull(failures.get(0).failure);
+    SQLException last = first;
+    for (int i = 1; i < failures.size(); i++) {
+      SQLException next = castNonNull(failures.get(i).failure);
+      last.setNextException(next);
+      last = next;
+    }
+    return first;
+  }
+
+  /**
+   * Whole rows of the input.
+   */
+  private static final class Chunk {
+    static final Chunk END = new Chunk(new byte[0], 0, 0);
+
+    final byte[] data;
+    final long firstRow;
+    final int rows;
+
+    Chunk(byte[] data, long firstRow, int rows) {
+      this.data = data;
+      this.firstRow = firstRow;
+      this.rows = rows;
+    }
+  }
+
+  private interface Source {
+    /**
+     * @return the header sent before the rows on each connection, null for text and CSV
+     */
+    byte @Nullable [] getBinaryHeader() throws SQLException, IOException;
+
+    /**
+     * @return next chunk of rows, null at the end of the input
+     */
+    @Nullable Chunk next() throws SQLException, IOException;
+  }
+
+  /**
+   * Rows of a chunk copied by a worker, with the number of lines the server counts for them.
+   */
+  private static final class CopiedRows {
+    final long firstRow;
+    final int rows;
+    final long lines;
+    /**
+     * Index in the chunk and number of additional lines of each row that spans several lines,
+     * null if there is none.
+     */
+    final int @Nullable [] multiLineRows;
+
+    CopiedRows(long firstRow, int rows, int @Nullable [] multiLineRows) {
+      this.firstRow = firstRow;
+      this.rows = rows;
+      this.multiLineRows = multiLineRows;
+      long lines = rows;
+      if (multiLineRows != null) {
+        for (int i = 1; i < multiLineRows.length; i += 2) {
+          lines += multiLineRows[i];
+        }
+      }
+      this.lines = lines;
+    }
+
+    /**
+     * @param line line from the start of the chunk, 0 based
+     * @return index in the chunk of the row that spans the given line
+     */
+    long rowAt(long line) {
+      long additionalLines = 0;
+      int[] multiLineRows = this.multiLineRows;
+      if (multiLineRows != null) {
+        for (int i = 0; i < multiLineRows.length; i += 2) {
+          long start = multiLineRows[i] + additionalLines;
+          if (line < start) {
+            break;
+          }
+          if (line <= start + multiLineRows[i + 1]) {
+            return multiLineRows[i];
+          }
+          additionalLines += multiLineRows[i + 1];
+        }
+      }
+      return line - additionalLines;
+    }
+  }
+
+  /**
+   * Runs one COPY operation on its own connection, with the chunks it takes from the queue.
+   */
+  private final class Worker implements Runnable {
+    final Connection connection;
+    private final BlockingQueue<Chunk> queue;
+    private final AtomicBoolean failed;
+    private @Nullable CopyIn copyIn;
+
+    /**
+     * Rows of the chunks copied so far, to find the position in the input of the line reported by
+     * the server.
+     */
+    private final List<CopiedRows> chunks = new ArrayList<CopiedRows>();
+
+    /**
+     * End of line of the CSV stream, 0 until the end of the first row is copied. Like the server,
+     * a quoted newline counts as a line when it matches it: {@code \n} for {@code \n} lines,
+     * {@code \r} otherwise.
+     */
+    private byte endOfLine;
+
+    long rowCount;
+    @Nullable SQLException failure;
+    long failedRow = Long.MAX_VALUE;
+
+    Worker(Connection connection, BlockingQueue<Chunk> queue, AtomicBoolean failed) {
+      this.connection = connection;
+      this.queue = queue;
+      this.failed = failed;
+    }
+
+    void open(byte @Nullable [] header) throws SQLException {
+      connection.setAutoCommit(false);
+      CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+      this.copyIn = copyIn;
+      if ((copyIn.getFormat() == 1) != (format == Format.BINARY)) {
+        throw new PSQLException(GT.tr("The COPY format does not match the {0} format of the input",
+            format), PSQLState.WRONG_OBJECT_TYPE);
+      }
+      if (header != null) {
+        copyIn.writeToCopy(header, 0, header.length);
+      }
+    }
+
+    @Override
+    public void run() {
+      CopyIn copyIn = castNonNull(this.copyIn);
+      Chunk chunk = null;
+      try {
+        while (true) {
+          chunk = queue.poll(100, TimeUnit.MILLISECONDS);
+          if (failed.get()) {
+            return;
+          }
+          if (chunk == Chunk.END) {
+            if (format == Format.BINARY) {
+              copyIn.writeToCopy(BINARY_TRAILER, 0, BINARY_TRAILER.length);
+            }
+            chunk = null;
+            rowCount = copyIn.endCopy();
+            return;
+          }
+          if (chunk != null) {
+            copyIn.writeToCopy(chunk.data, 0, chunk.data.length);
+            chunks.add(format == Format.CSV ? countCsvLines(chunk)
+                : new CopiedRows(chunk.firstRow, chunk.rows, null));
+          }
+        }
+      } catch (SQLException e) {
+        fail(e, chunk);
+      } catch (InterruptedException e) {
+        fail(new PSQLException(GT.tr("Interrupted while loading the rows"),
+            PSQLState.UNEXPECTED_ERROR, e), chunk);
+      } catch (RuntimeException e) {
+        fail(new PSQLException(GT.tr("Unexpected error while loading the rows"),
+            PSQLState.UNEXPECTED_ERROR, e), chunk);
+      }
+    }
+
+    /**
+     * Finds the CSV rows that span several lines, the way the server counts the lines of the
+     * {@code line} of its errors.
+     */
+    private CopiedRows countCsvLines(Chunk chunk) {
+      byte[] data = chunk.data;
+      // The server ignores the escape character when it is the quote character
+      boolean escapes = escape != quote;
+      int @Nullable [] multiLineRows = null;
+      int count = 0;
+      int row = 0;
+      int additionalLines = 0;
+      boolean quoted = false;
+      boolean lastWasEscape = false;
+      for (int i = 0; i < data.length; i++) {
+        byte b = data[i];
+        if (escapes && quoted && b == escape) {
+          lastWasEscape = !lastWasEscape;
+        }
+        if (b == quote && !lastWasEscape) {
+          quoted = !quoted;
+        }
+        if (b != escape) {
+          lastWasEscape = false;
+        }
+        if (quoted) {
+          if (b == (endOfLine == '\n' ? '\n' : '\r')) {
+            additionalLines++;
+          }
+        } else if (b == '\n') {
+          if (endOfLine == 0) {
+            endOfLine = i > 0 && data[i - 1] == '\r' ? (byte) '\r' : (byte) '\n';
+          }
+          if (additionalLines > 0) {
+            if (multiLineRows == null) {
+              multiLineRows = new int[8];
+            } else if (count == multiLineRows.length) {
+              multiLineRows = Arrays.copyOf(multiLineRows, 2 * count);
+            }
+            multiLineRows[count++] = row;
+            multiLineRows[count++] = additionalLines;
+            additionalLines = 0;
+          }
+          row++;
+        }
+      }
+      return new CopiedRows(chunk.firstRow, chunk.rows,
+          multiLineRows == null ? null : Arrays.copyOf(multiLineRows, count));
+    }
+
+    private void fail(SQLException e, @Nullable Chunk chunk) {
+      failed.set(true);
+      failure = e;
+      if (chunk != null) {
+        failedRow = chunk.firstRow;
+      }
+      ServerErrorMessage serverError =
+          e instanceof PSQLException ? ((PSQLException) e).getServerErrorMessage() : null;
+      String where = serverError == null ? null : serverError.getWhere();
+      Matcher matcher = where == null ? null : LINE.matcher(where);
+      if (matcher == null || !matcher.find()) {
+        return;
+      }
+      long remaining = Long.parseLong(matcher.group(1)) - 1;
+      for (CopiedRows copied : chunks) {
+        if (remaining < copied.lines) {
+          failedRow = copied.firstRow + copied.rowAt(remaining);
+          failure = new SQLException(GT.tr("Row {0} of the input was rejected: {1}",
+              String.valueOf(failedRow + 1), e.getMessage()), e.getSQLState(), e);
+          return;
+        }
+        remaining -= copied.lines;
+      }
+    }
+
+    void close() {
+      try {
+        CopyIn copyIn = this.copyIn;
+        if (copyIn != null && copyIn.isActive()) {
+          copyIn.cancelCopy();
+        }
+      } catch (SQLException e) {
+        LOGGER.log(Level.FINE, "Unable to cancel the copy", e);
+      }
+      try {
+        if (!connection.isClosed() && !connection.getAutoCommit()) {
+          // No-op once committed
+          connection.rollback();
+        }
+      } catch (SQLException e) {
+        LOGGER.log(Level.FINE, "Unable to roll back the copy", e);
+      }
+      try {
+        connection.close();
+      } catch (SQLException e) {
+        LOGGER.log(Level.FINE, "Unable to close the connection", e);
+      }
+    }
+  }
+
+  /**
+   * Splits an input stream at row boundaries.
+   */
+  private final class StreamSplitter implements Source {
+    private final InputStream input;
+    private byte[] buffer = new byte[2 * chunkSize];
+    // bytes before start are handed out, bytes up to limit are read
+    private int start;
+    private int limit;
+    // end of the last whole row, and number of whole rows since start
+    private int boundary;
+    private int rows;
+    private long nextRow;
+    // bytes before scanned are looked at, with the state after them
+    private int scanned;
+    private boolean escaped;
+    private boolean quoted;
+    private boolean eof;
+
+    StreamSplitter(InputStream input) {
+      this.input = input;
+    }
+
+    @Override
+    public byte @Nullable [] getBinaryHeader() throws SQLException, IOException {
+      if (format != Format.BINARY) {
+        return null;
+      }
+      byte[] header = readFully(BINARY_SIGNATURE_LENGTH + 8);
+      for (int i = 0; i < BINARY_SIGNATURE_LENGTH; i++) {
+        if (header[i] != PGBinaryCopyWriter.HEADER[i]) {
+          throw new PSQLException(GT.tr("The input does not start with the binary COPY signature"),
+              PSQLState.DATA_ERROR);
+        }
+      }
+      int extensionLength = ByteConverter.int4(header, BINARY_SIGNATURE_LENGTH + 4);
+      if (extensionLength < 0) {
+        throw new PSQLException(GT.tr("Invalid binary COPY header"), PSQLState.DATA_ERROR);
+      }
+      byte[] extension = readFully(extensionLength);
+      byte[] result = Arrays.copyOf(header, header.length + extensionLength);
+      System.arraycopy(extension, 0, result, header.length, extensionLength);
+      return result;
+    }
+
+    private byte[] readFully(int length) throws SQLException, IOException {
+      byte[] data = new byte[length];
+      int read = 0;
+      while (read < length) {
+        int n = input.read(data, read, length - read);
+        if (n < 0) {
+          throw new PSQLException(GT.tr("Unexpected end of the binary COPY header"),
+              PSQLState.DATA_ERROR);
+        }
+        read += n;
+      }
+      return data;
+    }
+
+    @Override
+    public @Nullable Chunk next() throws SQLException, IOException {
+      while (true) {
+        scan();
+        if (boundary - start >= chunkSize || eof && boundary > start) {
+          return take(boundary, false);
+        }
+        if (eof) {
+          if (limit == start) {
+            return null;
+          }
+          if (format == Format.BINARY) {
+            throw new PSQLException(GT.tr("Unexpected end of the binary COPY data"),
+                PSQLState.DATA_ERROR);
+          }
+          // The last line has no newline: it must not be joined with the next chunk
+          rows++;
+          return take(limit, true);
+        }
+        if (limit == buffer.length) {
+          byte[] target = start == 0 ? new byte[2 * buffer.length] : buffer;
+          System.arraycopy(buffer, start, target, 0, limit - start);
+          buffer = target;
+          limit -= start;
+          boundary -= start;
+          scanned -= start;
+          start = 0;
+        }
+        int n = input.read(buffer, limit, buffer.length - limit);
+        if (n < 0) {
+          eof = true;
+        } else {
+          limit += n;
+        }
+      }
+    }
+
+    private Chunk take(int end, boolean newline) {
+      byte[] data = Arrays.copyOfRange(buffer, start, newline ? end + 1 : end);
+      if (newline) {
+        data[data.length - 1] = '\n';
+      }
+      Chunk chunk = new Chunk(data, nextRow, rows);
+      nextRow += rows;
+      rows = 0;
+      start = end;
+      boundary = end;
+      return chunk;
+    }
+
+    private void scan() throws SQLException {
+      if (format == Format.BINARY) {
+        scanBinary();
+        return;
+      }
+      byte[] buffer = this.buffer;
+      boolean csv = format == Format.CSV;
+      for (int i = scanned; i < limit; i++) {
+        byte b = buffer[i];
+        if (escaped) {
+          escaped = false;
+        } else if (csv && quoted) {
+          if (b == escape && escape != quote) {
+            escaped = true;
+          } else if (b == quote) {
+            quoted = false;
+          }
+        } else if (csv && b == quote) {
+          quoted = true;
+        } else if (!csv && b == '\\') {
+          escaped = true;
+        } else if (b == '\n') {
+          boundary = i + 1;
+          rows++;
+        }
+      }
+      scanned = limit;
+    }
+
+    private void scanBinary() throws SQLException {
+      byte[] buffer = this.buffer;
+      int pos = boundary;
+      while (pos + 2 <= limit) {
+        int fields = ByteConverter.int2(buffer, pos);
+        if (fields == -1) {
+          // The trailer ends the data, whatever follows
+          limit = pos;
+          eof = true;
+          return;
+        }
+        if (fields < 0) {
+          throw new PSQLException(GT.tr("Invalid field count {0} in binary COPY data", fields),
+              PSQLState.DATA_ERROR);
+        }
+        int end = pos + 2;
+        for (int i = 0; i < fields && end <= limit; i++) {
+          if (end + 4 > limit) {
+            end = limit + 1;
+            break;
+          }
+          int length = ByteConverter.int4(buffer, end);
+          end += 4 + Math.max(length, 0);
+        }
+        if (end > limit) {
+          return;
+        }
+        pos = end;
+        boundary = pos;
+        rows++;
+      }
+    }
+  }
+
+  /**
+   * Groups rows that are already split into chunks.
+   */
+  private final class RowSource implements Source {
+    private final Iterator<byte[]> rows;
+    private long nextRow;
+
+    RowSource(Iterator<byte[]> rows) {
+      this.rows = rows;
+    }
+
+    @Override
+    public byte @Nullable [] getBinaryHeader() {
+      return format == Format.BINARY ? PGBinaryCopyWriter.HEADER.clone() : null;
+    }
+
+    @Override
+    public @Nullable Chunk next() {
+      if (!rows.hasNext()) {
+        return null;
+      }
+      byte[] data = new byte[chunkSize];
+      int length = 0;
+      int count = 0;
+      while (length < chunkSize && rows.hasNext()) {
+        byte[] row = rows.next();
+        boolean newline = format != Format.BINARY
+            && (row.length == 0 || row[row.length - 1] != '\n');
+        int rowLength = newline ? row.length + 1 : row.length;
+        if (length + rowLength > data.length) {
+          data = Arrays.copyOf(data, Math.max(2 * data.length, length + rowLength));
+        }
+        System.arraycopy(row, 0, data, length, row.length);
+        if (newline) {
+          data[length + row.length] = '\n';
+        }
+        length += rowLength;
+        count++;
+      }
+      Chunk chunk = new Chunk(Arrays.copyOf(data, length), nextRow, count);
+      nextRow += count;
+      return chunk;
+    }
+  }
+}
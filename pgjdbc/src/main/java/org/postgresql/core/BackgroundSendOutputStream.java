@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Output stream that never blocks on the socket: the data is queued in memory and written to the
+ * socket by a background task. It lets the owner of the connection read the responses of the
+ * backend while a large batch is still being sent, so neither side can block forever on a full
+ * socket buffer.</p>
+ *
+ * <p>The queue is not bounded unless a capacity is given: without one, the whole batch might be kept
+ * in memory if the backend is slower than the serialization of the messages. With a capacity, the
+ * writes wait once that many chunks are waiting to be sent. The backend might not read more until
+ * its responses are read, so a {@link Receiver} reads them meanwhile.</p>
+ *
+ * <p>{@link #abort()} stops the background task without sending the queued data.</p>
+ */
+class BackgroundSendOutputStream extends OutputStream {
+  private static final int CHUNK_SIZE = 32 * 1024;
+
+  /**
+   * Asks the background task to flush the socket stream.
+   */
+  private static final byte[] FLUSH = new byte[0];
+
+  /**
+   * Asks the background task to flush the socket stream and to stop.
+   */
+  private static final byte[] END = new byte[0];
+
+  /**
+   * Reads the responses of the backend while the writes wait for room in the queue.
+   */
+  interface Receiver {
+    /**
+     * Receives the data the backend has sent so far, waiting for some for a short time at most, and
+     * keeps it in memory until the responses are processed.
+     *
+     * @throws IOException if the data cannot be received
+     */
+    void receiveAhead() throws IOException;
+  }
+
+  private final OutputStream out;
+  private final Closeable connection;
+  private final LinkedBlockingQueue<byte[]> queue;
+  private final @Nullable Receiver receiver;
+  private final CountDownLatch done = new CountDownLatch(1);
+  private volatile @Nullable IOException failure;
+
+  private byte[] chunk = new byte[CHUNK_SIZE];
+  private int count;
+
+  /**
+   * @param out stream the data is written to
+   * @param connection closed if the data cannot be written, so the reader does not wait for
+   *     responses that will never come
+   * @param executor runs the background task
+   */
+  BackgroundSendOutputStream(OutputStream out, Closeable connection, Executor executor) {
+    this(out, connection, executor, Integer.MAX_VALUE, null);
+  }
+
+  /**
+   * @param out stream the data is written to
+   * @param connection closed if the data cannot be written, so the reader does not wait for
+   *     responses that will never come
+   * @param executor runs the background task
+   * @param capacity amount of data, in bytes, that might wait to be sent, {@link Integer#MAX_VALUE}
+   *     for no limit
+   * @param receiver reads the responses while the writes wait for room in the queue, or null if the
+   *     backend does not send responses that could block it
+   */
+  BackgroundSendOutputStream(OutputStream out, Closeable connection, Executor executor,
+      int capacity, @Nullable Receiver receiver) {
+    this.out = out;
+    this.connection = connection;
+    this.receiver = receiver;
+    this.queue = new LinkedBlockingQueue<byte[]>(
+        capacity == Integer.MAX_VALUE ? capacity : Math.max(1, capacity / CHUNK_SIZE));
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        send();
+      }
+    });
+  }
+
+  private void send() {
+    try {
+      while (true) {
+        byte[] data = queue.take();
+        if (data == END) {
+          out.flush();
+          return;
+        }
+        if (data == FLUSH) {
+          out.flush();
+        } else {
+          out.write(data);
+        }
+      }
+    } catch (IOException e) {
+      fail(e);
+    } catch (InterruptedException e) {
+      fail(new IOException("Interrupted while sending to the backend", e));
+    } catch (RuntimeException e) {
+      fail(new IOException(e));
+    } finally {
+      done.countDown();
+    }
+  }
+
+  private void fail(IOException e) {
+    failure = e;
+    queue.clear();
+    try {
+      connection.close();
+    } catch (IOException ignore) {
+      // The original failure is reported
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    IOException failure = this.failure;
+    if (failure != null) {
+      throw new IOException("Unable to send to the backend", failure);
+    }
+  }
+
+  private void put(byte[] data) throws IOException, InterruptedException {
+    // The background task might fail while the queue is full, so the failure is checked while
+    // waiting for room. The task might wait for the backend, which might wait for its responses to
+    // be read, so they are received meanwhile
+    Receiver receiver = this.receiver;
+    while (!queue.offer(data, receiver == null ? 100 : 10, TimeUnit.MILLISECONDS)) {
+      checkFailure();
+      if (receiver != null) {
+        receiver.receiveAhead();
+      }
+    }
+  }
+
+  private void enqueue(byte[] data) throws IOException {
+    try {
+      put(data);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the data to be sent");
+    }
+  }
+
+  private byte @Nullable [] takeChunk() {
+    if (count == 0) {
+      return null;
+    }
+    byte[] data = chunk;
+    if (count < data.length) {
+      byte[] copy = new byte[count];
+      System.arraycopy(data, 0, copy, 0, count);
+      data = copy;
+    } else {
+      chunk = new byte[CHUNK_SIZE];
+    }
+    count = 0;
+    return data;
+  }
+
+  private void enqueueChunk() throws IOException {
+    byte[] data = takeChunk();
+    if (data != null) {
+      enqueue(data);
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    checkFailure();
+    if (count == chunk.length) {
+      enqueueChunk();
+    }
+    chunk[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    checkFailure();
+    while (len > 0) {
+      if (count == chunk.length) {
+        enqueueChunk();
+      }
+      int n = Math.min(len, chunk.length - count);
+      System.arraycopy(b, off, chunk, count, n);
+      count += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  /**
+   * Hands the buffered data to the background task, without waiting for it to be written.
+   */
+  @Override
+  public void flush() throws IOException {
+    checkFailure();
+    enqueueChunk();
+    enqueue(FLUSH);
+  }
+
+  /**
+   * Tells if at least half of the capacity is used, so the owner of the connection can read the
+   * responses before the writes block.
+   *
+   * @return true if at least half of the capacity is used
+   */
+  boolean isFillingUp() {
+    return queue.remainingCapacity() <= queue.size();
+  }
+
+  /**
+   * Discards the data that is not sent yet and stops the background task without waiting for it.
+   * A message might be sent partially, so the connection is closed, which also releases a task that
+   * is blocked on the socket.
+   */
+  void abort() {
+    fail(new IOException("The background send was aborted"));
+    // Wakes up the task if it waits for data
+    queue.offer(END);
+  }
+
+  /**
+   * Waits until all the data is written to the socket. The responses are received meanwhile, like
+   * while the writes wait for room in the queue.
+   *
+   * @throws IOException if the data could not be written
+   */
+  void finish() throws IOException {
+    // The background task is writing on the connection, so it must complete first
+    boolean interrupted = false;
+    try {
+      byte[] data = takeChunk();
+      byte[][] remaining = data == null ? new byte[][]{END} : new byte[][]{data, END};
+      int i = 0;
+      while (failure == null && i < remaining.length) {
+        try {
+          put(remaining[i]);
+          i++;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    } catch (IOException e) {
+      if (failure == null) {
+        // The responses could not be received: stop the background task like abort() does
+        fail(e);
+        queue.offer(END);
+      }
+      // The failure is reported below
+    }
+    Receiver receiver = this.receiver;
+    while (true) {
+      try {
+        if (receiver == null || failure != null) {
+          done.await();
+          break;
+        }
+        if (done.await(10, TimeUnit.MILLISECONDS)) {
+          break;
+        }
+        receiver.receiveAhead();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      } catch (IOException e) {
+        fail(e);
+        queue.offer(END);
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    checkFailure();
+  }
+}
@@ -8,6 +8,7 @@ package org.postgresql.core;
 import org.postgresql.PGConnection;
 import org.postgresql.PGProperty;
 import org.postgresql.jdbc.FieldMetadata;
+import org.postgresql.jdbc.ResourceLock;
 import org.postgresql.jdbc.TimestampUtils;
 import org.postgresql.util.LruCache;
 import org.postgresql.xml.PGXmlFactoryFactory;
@@ -20,6 +21,7 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.TimerTask;
+import java.util.concurrent.locks.Condition;
 
 /**
  * Driver-internal connection interface. Application code should not use this interface.
@@ -92,6 +94,11 @@ public interface BaseConnection extends PGConnection, Connection {
 
   TypeInfo getTypeInfo();
 
+  /**
+   * @return the codecs registered with {@link org.postgresql.PGConnection#registerTypeCodec}
+   */
+  TypeCodecRegistry getTypeCodecRegistry();
+
   /**
    * <p>Check if we have at least a particular server version.</p>
    *
@@ -228,4 +235,17 @@ public interface BaseConnection extends PGConnection, Connection {
    * @throws SQLException if the class cannot be found or instantiated.
    */
   PGXmlFactoryFactory getXmlFactoryFactory() throws SQLException;
+
+  /**
+   * Obtains the lock of the connection. Use it with try-with-resources, so the lock is released:
+   * {@code try (ResourceLock ignore = connection.obtainLock()) { ... }}.
+   *
+   * @return the lock, already held by the current thread
+   */
+  ResourceLock obtainLock();
+
+  /**
+   * @return condition of the lock returned by {@link #obtainLock()}
+   */
+  Condition lockCondition();
 }
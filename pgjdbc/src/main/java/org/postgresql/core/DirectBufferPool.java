@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of equally sized direct {@link ByteBuffer}s. Allocating direct memory is expensive
+ * and it is only reclaimed by the garbage collector, so the buffers are recycled across connections
+ * instead of being allocated per stream.
+ */
+class DirectBufferPool {
+  private final int bufferSize;
+  private final int maxPooled;
+  private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+  private final AtomicInteger pooled = new AtomicInteger();
+
+  /**
+   * @param bufferSize size of each buffer in bytes
+   * @param maxPooled maximum number of idle buffers kept by the pool
+   */
+  DirectBufferPool(int bufferSize, int maxPooled) {
+    this.bufferSize = bufferSize;
+    this.maxPooled = maxPooled;
+  }
+
+  int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Returns a cleared buffer, reusing a pooled one if possible.
+   *
+   * @return direct buffer of {@link #getBufferSize()} bytes
+   */
+  ByteBuffer acquire() {
+    ByteBuffer buffer = buffers.poll();
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(bufferSize);
+    }
+    pooled.decrementAndGet();
+    buffer.clear();
+    return buffer;
+  }
+
+  /**
+   * Returns the buffer to the pool. The caller must not use the buffer afterwards.
+   *
+   * @param buffer buffer obtained from {@link #acquire()}
+   */
+  void release(ByteBuffer buffer) {
+    if (pooled.incrementAndGet() > maxPooled) {
+      pooled.decrementAndGet();
+      return;
+    }
+    buffers.offer(buffer);
+  }
+}
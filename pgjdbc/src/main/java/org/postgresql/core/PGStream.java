@@ -5,8 +5,11 @@
 
 package org.postgresql.core;
 
+import static org.postgresql.util.internal.Nullness.castNonNull;
+
 import org.postgresql.gss.GSSInputStream;
 import org.postgresql.gss.GSSOutputStream;
+import org.postgresql.util.ByteConverter;
 import org.postgresql.util.ByteStreamWriter;
 import org.postgresql.util.GT;
 import org.postgresql.util.HostSpec;
@@ -21,7 +24,6 @@ import org.ietf.jgss.MessageProp;
 import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.EOFException;
-import java.io.FilterOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -31,7 +33,9 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
 import java.sql.SQLException;
+import java.util.concurrent.Executor;
 
 import javax.net.SocketFactory;
 
@@ -52,6 +56,10 @@ public class PGStream implements Closeable, Flushable {
   private Socket connection;
   private VisibleBufferedInputStream pgInput;
   private OutputStream pgOutput;
+  private volatile @Nullable SocketChannelTransport channelTransport;
+  private @Nullable BackgroundSendOutputStream backgroundSend;
+  // The socket output while backgroundSend is active
+  private @Nullable OutputStream directOutput;
   private byte @Nullable [] streamBuffer;
 
   public boolean isGssEncrypted() {
@@ -159,14 +167,64 @@ public class PGStream implements Closeable, Flushable {
     return hostSpec;
   }
 
+  /**
+   * Returns the underlying socket, to read or change its options, or to close it. When the socket
+   * is driven through a {@link java.nio.channels.SocketChannel}, the channel may be in non-blocking
+   * mode, so the socket streams must not be used: see {@link #getBlockingSocket()}.
+   *
+   * @return the underlying socket
+   */
   public Socket getSocket() {
     return connection;
   }
 
+  /**
+   * Returns the underlying socket, so the caller is free to use the socket streams (e.g. to layer
+   * SSL on top of the socket). When the socket is driven through a
+   * {@link java.nio.channels.SocketChannel}, the channel is deregistered from its selectors and
+   * switched back to blocking mode, so this must be called by the thread that reads the stream.
+   *
+   * @return the underlying socket
+   * @throws IOException if the channel cannot be switched to blocking mode
+   */
+  public Socket getBlockingSocket() throws IOException {
+    SocketChannelTransport channelTransport = this.channelTransport;
+    if (channelTransport != null) {
+      channelTransport.ensureBlocking();
+    }
+    return connection;
+  }
+
   public SocketFactory getSocketFactory() {
     return socketFactory;
   }
 
+  /**
+   * Returns the channel the backend messages are read from, when the connection is driven through
+   * a {@link SocketChannel} with no further layer such as SSL. The channel can be polled with a
+   * {@link java.nio.channels.Selector} to wait for incoming data, but it must not be read directly.
+   *
+   * @return the channel, or null if the socket is not driven through a channel
+   */
+  public @Nullable SocketChannel getReadableChannel() {
+    SocketChannelTransport channelTransport = this.channelTransport;
+    if (channelTransport == null || pgInput != channelTransport.getInputStream()) {
+      return null;
+    }
+    return channelTransport.getChannel();
+  }
+
+  /**
+   * Checks if some data has already been received, so reading would not have to wait for the
+   * backend.
+   *
+   * @return true if the data is available without waiting
+   * @throws IOException if something wrong happens
+   */
+  public boolean hasBufferedInput() throws IOException {
+    return pgInput.available() > 0;
+  }
+
   /**
    * Check for pending backend messages without blocking. Might return false when there actually are
    * messages waiting, depending on the characteristics of the underlying socket. This is used to
@@ -221,6 +279,11 @@ public class PGStream implements Closeable, Flushable {
   private Socket createSocket(int timeout) throws IOException {
 
     Socket socket = socketFactory.createSocket();
+    if (!socket.isConnected() && socket.getChannel() != null && !hostSpec.shouldResolve()) {
+      // SocketChannel does not support SOCKS proxies, so fall back to a regular socket
+      socket.close();
+      socket = SocketFactory.getDefault().createSocket();
+    }
     if (!socket.isConnected()) {
       // When using a SOCKS proxy, the host might not be resolvable locally,
       // thus we defer resolution until the traffic reaches the proxy. If there
@@ -250,9 +313,28 @@ public class PGStream implements Closeable, Flushable {
     // really need to.
     connection.setTcpNoDelay(true);
 
-    // Buffer sizes submitted by Sverre H Huseby <sverrehu@online.no>
-    pgInput = new VisibleBufferedInputStream(connection.getInputStream(), 8192);
-    pgOutput = new BufferedOutputStream(connection.getOutputStream(), 8192);
+    SocketChannel channel = socket.getChannel();
+    SocketChannelTransport oldTransport = channelTransport;
+    if (oldTransport != null && oldTransport.getChannel() == channel) {
+      return;
+    }
+    channelTransport = null;
+    if (oldTransport != null) {
+      // The new socket (e.g. SSL) delegates to the channel socket streams
+      oldTransport.ensureBlocking();
+      oldTransport.close();
+    }
+
+    if (channel != null) {
+      SocketChannelTransport channelTransport = new SocketChannelTransport(channel);
+      this.channelTransport = channelTransport;
+      pgInput = channelTransport.getInputStream();
+      pgOutput = channelTransport.getOutputStream();
+    } else {
+      // Buffer sizes submitted by Sverre H Huseby <sverrehu@online.no>
+      pgInput = new VisibleBufferedInputStream(connection.getInputStream(), 8192);
+      pgOutput = new BufferedOutputStream(connection.getOutputStream(), 8192);
+    }
 
     if (encoding != null) {
       setEncoding(encoding);
@@ -282,12 +364,21 @@ public class PGStream implements Closeable, Flushable {
 
     // Intercept flush() downcalls from the writer; our caller
     // will call PGStream.flush() as needed.
-    OutputStream interceptor = new FilterOutputStream(pgOutput) {
+    // The writes go to the current pgOutput, which changes while a batch is sent in the background.
+    OutputStream interceptor = new OutputStream() {
+      public void write(int b) throws IOException {
+        pgOutput.write(b);
+      }
+
+      public void write(byte[] b, int off, int len) throws IOException {
+        pgOutput.write(b, off, len);
+      }
+
       public void flush() throws IOException {
       }
 
       public void close() throws IOException {
-        super.flush();
+        pgOutput.flush();
       }
     };
 
@@ -572,6 +663,51 @@ public class PGStream implements Closeable, Flushable {
     return new Tuple(answer);
   }
 
+  /**
+   * Read a tuple from the back end into a region of the given slab. The raw DataRow payload is
+   * copied as is, so the tuple costs a single {@code int[]} of field offsets on top of the slab.
+   *
+   * @param slab the slab that provides the storage for the row
+   * @return tuple from the back end
+   * @throws IOException if a data I/O error occurs
+   * @throws SQLException if read more bytes than set maxResultBuffer
+   */
+  public Tuple receiveTupleV3(TupleSlab slab) throws IOException, OutOfMemoryError, SQLException {
+    int messageSize = receiveInteger4(); // MESSAGE SIZE
+    int nf = receiveInteger2();
+    // field lengths and field data
+    int payloadSize = messageSize - 4 - 2;
+    increaseByteCounter(payloadSize - 4 * nf);
+
+    byte[] buffer;
+    try {
+      buffer = slab.allocate(payloadSize);
+    } catch (OutOfMemoryError oome) {
+      skip(payloadSize);
+      throw oome;
+    }
+    int offset = slab.offset();
+    receive(buffer, offset, payloadSize);
+
+    int[] offsets = new int[nf];
+    int end = offset + payloadSize;
+    for (int i = 0; i < nf; ++i) {
+      if (offset + 4 > end) {
+        throw new IOException("Malformed DataRow message: field " + i + " exceeds message size");
+      }
+      int size = ByteConverter.int4(buffer, offset);
+      offset += 4;
+      offsets[i] = offset;
+      if (size > 0) {
+        offset += size;
+      }
+    }
+    if (offset != end) {
+      throw new IOException("Malformed DataRow message: field sizes do not match message size");
+    }
+    return new Tuple(buffer, offsets);
+  }
+
   /**
    * Reads in a given number of bytes from the backend.
    *
@@ -663,6 +799,124 @@ public class PGStream implements Closeable, Flushable {
     pgOutput.flush();
   }
 
+  /**
+   * @return true if {@link #startBackgroundSend(Executor)} can be used on this stream
+   */
+  public boolean isBackgroundSendSupported() {
+    // GSS encryption shares its context between the input and the output
+    return !gssEncrypted && backgroundSend == null;
+  }
+
+  /**
+   * <p>Makes the writes and flushes return without waiting for the socket: the data is kept in
+   * memory and sent by a task of the given executor. It lets the caller read the responses while
+   * the requests are still being sent, so the socket buffers cannot cause a deadlock however large
+   * the requests and the responses are.</p>
+   *
+   * <p>{@link #finishBackgroundSend()} must be called once the requests are written.</p>
+   *
+   * @param executor executor that runs the send task
+   * @throws IOException if the pending output cannot be flushed
+   */
+  public void startBackgroundSend(Executor executor) throws IOException {
+    startBackgroundSend(executor, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Same as {@link #startBackgroundSend(Executor)}, except the writes wait once the given amount of
+   * data waits to be sent, so a producer faster than the backend does not exhaust the memory. While
+   * they wait, the responses are received and kept in memory, since the backend might not read the
+   * requests until its responses are read.
+   *
+   * @param executor executor that runs the send task
+   * @param queueBytes amount of data, in bytes, that might wait to be sent
+   * @throws IOException if the pending output cannot be flushed
+   */
+  public void startBackgroundSend(Executor executor, int queueBytes) throws IOException {
+    flush();
+    BackgroundSendOutputStream backgroundSend =
+        new BackgroundSendOutputStream(pgOutput, connection, executor, queueBytes,
+            new BackgroundSendOutputStream.Receiver() {
+              @Override
+              public void receiveAhead() throws IOException {
+                PGStream.this.receiveAhead();
+              }
+            });
+    this.backgroundSend = backgroundSend;
+    directOutput = pgOutput;
+    pgOutput = backgroundSend;
+  }
+
+  /**
+   * Receives the data the backend has sent so far, waiting for some for a millisecond at most, and
+   * keeps it in the receive buffer until it is read. Called by the writes that wait for room in the
+   * queue of the background send: the backend might not read the requests until its responses are
+   * read.
+   */
+  private void receiveAhead() throws IOException {
+    int soTimeout = getNetworkTimeout();
+    connection.setSoTimeout(1);
+    try {
+      pgInput.readAhead();
+    } finally {
+      connection.setSoTimeout(soTimeout);
+    }
+  }
+
+  /**
+   * Waits until the data written since {@link #startBackgroundSend(Executor)} is sent, and goes back
+   * to regular writes.
+   *
+   * @throws IOException if the data could not be sent; the connection is closed in that case
+   */
+  public void finishBackgroundSend() throws IOException {
+    BackgroundSendOutputStream backgroundSend = this.backgroundSend;
+    if (backgroundSend == null) {
+      return;
+    }
+    try {
+      if (encodingWriter != null) {
+        encodingWriter.flush();
+      }
+      backgroundSend.finish();
+    } finally {
+      this.backgroundSend = null;
+      pgOutput = castNonNull(directOutput);
+      directOutput = null;
+    }
+  }
+
+  /**
+   * Tells if the data written since {@link #startBackgroundSend(Executor, int)} fills at least half
+   * of the queue, so the caller should read the responses before writing more.
+   *
+   * @return true if the queue of the background send is filling up
+   */
+  public boolean isBackgroundSendFillingUp() {
+    BackgroundSendOutputStream backgroundSend = this.backgroundSend;
+    return backgroundSend != null && backgroundSend.isFillingUp();
+  }
+
+  /**
+   * Discards the data written since {@link #startBackgroundSend(Executor)} that is not sent yet,
+   * and goes back to regular writes. Unlike {@link #finishBackgroundSend()}, it does not wait for
+   * the backend, which might not read its input while its responses are not read. A message might
+   * be sent partially, so the connection is closed.
+   */
+  public void abortBackgroundSend() {
+    BackgroundSendOutputStream backgroundSend = this.backgroundSend;
+    if (backgroundSend == null) {
+      return;
+    }
+    try {
+      backgroundSend.abort();
+    } finally {
+      this.backgroundSend = null;
+      pgOutput = castNonNull(directOutput);
+      directOutput = null;
+    }
+  }
+
   /**
    * Consume an expected EOF from the backend.
    *
@@ -692,6 +946,28 @@ public class PGStream implements Closeable, Flushable {
     pgOutput.close();
     pgInput.close();
     connection.close();
+    SocketChannelTransport channelTransport = this.channelTransport;
+    if (channelTransport != null) {
+      this.channelTransport = null;
+      channelTransport.close();
+    }
+  }
+
+  /**
+   * Closes the socket without flushing, and wakes up a thread that waits for the socket, so a
+   * blocked read fails at once. Unlike the other methods, it can be called by any thread.
+   *
+   * @throws IOException if an I/O Error occurs
+   */
+  public void abort() throws IOException {
+    try {
+      connection.close();
+    } finally {
+      SocketChannelTransport channelTransport = this.channelTransport;
+      if (channelTransport != null) {
+        channelTransport.wakeup();
+      }
+    }
   }
 
   public void setNetworkTimeout(int milliseconds) throws IOException {
@@ -714,6 +990,13 @@ public class PGStream implements Closeable, Flushable {
     maxResultBuffer = PGPropertyMaxResultBufferParser.parseProperty(value);
   }
 
+  /**
+   * @return the limit of the bytes read for a result set, or -1 if there is no limit
+   */
+  public long getMaxResultBuffer() {
+    return maxResultBuffer;
+  }
+
   /**
    * Method to clear count of byte buffer.
    */
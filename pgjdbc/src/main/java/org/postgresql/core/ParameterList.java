@@ -197,6 +197,17 @@ public interface ParameterList {
    */
   String toString(@Positive int index, boolean standardConformingStrings);
 
+  /**
+   * Returns the value of a parameter in the text format of its type, as it is sent in the data of
+   * a {@code COPY} in text format.
+   *
+   * @param index the 1-based parameter index
+   * @return the text of the value, null for a NULL value
+   * @throws SQLException if the parameter is not bound, or if its value has no text form on the
+   *     client, e.g. a stream or a binary value of a type the driver does not decode
+   */
+  @Nullable String getTextValue(@Positive int index) throws SQLException;
+
   /**
    * Use this operation to append more parameters to the current list.
    * @param list of parameters to append with.
@@ -10,7 +10,6 @@ import org.postgresql.PGNotification;
 import org.postgresql.copy.CopyOperation;
 import org.postgresql.core.v3.TypeTransferModeRegistry;
 import org.postgresql.jdbc.AutoSave;
-import org.postgresql.jdbc.BatchResultHandler;
 import org.postgresql.jdbc.EscapeSyntaxCallMode;
 import org.postgresql.jdbc.PreferQueryMode;
 import org.postgresql.util.HostSpec;
@@ -24,6 +23,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * <p>Abstracts the protocol-specific details of executing a query.</p>
@@ -36,7 +36,7 @@ import java.util.TimeZone;
  * {@link #createQuery(String, boolean, boolean, String...)})
  * <li>execution methods for created Query objects (
  * {@link #execute(Query, ParameterList, ResultHandler, int, int, int)} for single queries and
- * {@link #execute(Query[], ParameterList[], BatchResultHandler, int, int, int)} for batches of queries)
+ * {@link #execute(Query[], ParameterList[], ResultHandler, int, int, int)} for batches of queries)
  * <li>a fastpath call interface ({@link #createFastpathParameters} and {@link #fastpathCall}).
  * </ul>
  *
@@ -129,6 +129,15 @@ public interface QueryExecutor extends TypeTransferModeRegistry {
    */
   int QUERY_READ_ONLY_HINT = 2048;
 
+  /**
+   * Flag for query execution that streams the rows: the execution returns once the first rows are
+   * received, and the remaining rows are read as they are fetched through the {@link ResultCursor}
+   * passed to the result handler. Any other use of the connection first reads the remaining rows
+   * into memory. Only honored by {@link #execute(Query, ParameterList, ResultHandler, int, int, int)}
+   * for a single statement executed with the extended protocol.
+   */
+  int QUERY_STREAM_ROWS = 4096;
+
   /**
    * Execute a Query, passing results to a provided ResultHandler.
    *
@@ -157,7 +166,9 @@ public interface QueryExecutor extends TypeTransferModeRegistry {
    *        <code>null</code> if the corresponding query takes parameters, and must be a parameter
    *        object returned by {@link Query#createParameterList()} created by
    *        the corresponding query.
-   * @param handler a ResultHandler responsible for handling results generated by this query
+   * @param handler a ResultHandler responsible for handling results generated by the queries. The
+   *        results are passed in the order of the queries, and the queries are sent with as few
+   *        Sync messages as possible
    * @param maxRows the maximum number of rows to retrieve
    * @param fetchSize if QUERY_FORWARD_CURSOR is set, the preferred number of rows to retrieve
    *        before suspending
@@ -165,9 +176,46 @@ public interface QueryExecutor extends TypeTransferModeRegistry {
    * @throws SQLException if query execution fails
    */
   void execute(Query[] queries, @Nullable ParameterList[] parameterLists,
-      BatchResultHandler handler, int maxRows,
+      ResultHandler handler, int maxRows,
       int fetchSize, int flags) throws SQLException;
 
+  /**
+   * <p>Execute a Query without waiting for its results. The query is sent by the calling thread,
+   * and the results are passed to the handler by a driver-managed thread once the backend responds.
+   * When the connection is driven through a {@link java.nio.channels.SocketChannel}, no thread is
+   * blocked while waiting for the backend.</p>
+   *
+   * <p>Asynchronous executions on the same connection are performed one after another, in
+   * submission order. Synchronous operations wait until the running asynchronous execution is
+   * complete. Automatic savepoints ({@code autosave}) are not used for asynchronous executions.</p>
+   *
+   * @param query the query to execute; must be a query returned from calling
+   *        {@link #wrap(List)} on this QueryExecutor object.
+   * @param parameters the parameters for the query. Must be non-<code>null</code> if the query
+   *        takes parameters, and must not be modified until the returned future completes.
+   * @param handler a ResultHandler responsible for handling results generated by this query
+   * @param maxRows the maximum number of rows to retrieve
+   * @param fetchSize if QUERY_FORWARD_CURSOR is set, the preferred number of rows to retrieve
+   *        before suspending
+   * @param flags a combination of QUERY_* flags indicating how to handle the query.
+   * @return future that completes once the results are passed to the handler; it completes
+   *         exceptionally with the exception thrown by {@link ResultHandler#handleCompletion()}
+   * @throws SQLException if the query cannot be submitted, e.g. when parameters are missing
+   */
+  CompletableFuture<Void> executeAsync(Query query, @Nullable ParameterList parameters,
+      ResultHandler handler, int maxRows, int fetchSize, int flags) throws SQLException;
+
+  /**
+   * Returns the number of rows the next fetch from the given cursor should request. With adaptive
+   * fetch enabled, it is derived from the width of the rows received so far and from the
+   * {@code maxResultBuffer} limit, otherwise it is the requested fetch size.
+   *
+   * @param cursor the cursor to fetch from
+   * @param fetchSize the fetch size requested by the application
+   * @return the number of rows to fetch, positive if fetchSize is positive
+   */
+  int getAdaptiveFetchSize(ResultCursor cursor, int fetchSize);
+
   /**
    * Fetch additional rows from a cursor.
    *
@@ -192,6 +240,24 @@ public interface QueryExecutor extends TypeTransferModeRegistry {
 
   boolean isReWriteBatchedInsertsEnabled();
 
+  /**
+   * @return true if the batches are executed as a single statement over array parameters, see
+   *     {@link org.postgresql.PGProperty#REWRITE_BATCHED_AS_ARRAYS}
+   */
+  boolean isReWriteBatchedAsArraysEnabled();
+
+  /**
+   * @return true if the batches of plain INSERT statements are executed as a COPY, see
+   *     {@link org.postgresql.PGProperty#COPY_BATCHED_INSERTS}
+   */
+  boolean isCopyBatchedInsertsEnabled();
+
+  /**
+   * @return true if the rows of forward-only result sets should be streamed, see
+   *     {@link #QUERY_STREAM_ROWS}
+   */
+  boolean isStreamResultsEnabled();
+
   CachedQuery createQuery(String sql, boolean escapeProcessing, boolean isParameterized,
       String @Nullable ... columnNames)
       throws SQLException;
@@ -239,6 +305,15 @@ public interface QueryExecutor extends TypeTransferModeRegistry {
    */
   void processNotifies(int timeoutMillis) throws SQLException;
 
+  /**
+   * Checks that the server still answers, with a lone Sync message: the cheapest round trip of the
+   * protocol, which neither runs a query nor changes the transaction state.
+   *
+   * @param timeoutMillis time to wait for the answer, in milliseconds, 0 to wait forever
+   * @throws SQLException if the server does not answer in time, or if the connection is broken
+   */
+  void ping(int timeoutMillis) throws SQLException;
+
   //
   // Fastpath interface.
   //
@@ -307,6 +382,22 @@ public interface QueryExecutor extends TypeTransferModeRegistry {
    */
   void setBinarySendOids(Set<Integer> useBinaryForOids);
 
+  /**
+   * Changes the encoding used to receive the values of a single type.
+   *
+   * @param oid the oid of the type
+   * @param binary true to request the values with binary encoding
+   */
+  void setBinaryReceiveOid(int oid, boolean binary);
+
+  /**
+   * Changes the encoding used to send the values of a single type.
+   *
+   * @param oid the oid of the type
+   * @param binary true to send the values with binary encoding
+   */
+  void setBinarySendOid(int oid, boolean binary);
+
   /**
    * Returns true if server uses integer instead of double for binary date and time encodings.
    *
@@ -10,6 +10,7 @@ import org.postgresql.PGProperty;
 import org.postgresql.jdbc.AutoSave;
 import org.postgresql.jdbc.EscapeSyntaxCallMode;
 import org.postgresql.jdbc.PreferQueryMode;
+import org.postgresql.jdbc.ResourceLock;
 import org.postgresql.util.HostSpec;
 import org.postgresql.util.LruCache;
 import org.postgresql.util.PSQLException;
@@ -27,6 +28,7 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,6 +36,15 @@ public abstract class QueryExecutorBase implements QueryExecutor {
 
   private static final Logger LOGGER = Logger.getLogger(QueryExecutorBase.class.getName());
   protected final PGStream pgStream;
+  /**
+   * Guards the state of the connection. It is used instead of the monitor of the executor, so
+   * virtual threads that wait for the backend while holding it do not pin their carrier threads.
+   */
+  protected final ResourceLock lock = new ResourceLock();
+  /**
+   * Signalled when the connection becomes available, see {@code QueryExecutorImpl#waitOnLock}.
+   */
+  protected final Condition lockCondition = lock.newCondition();
   private final String user;
   private final String database;
   private final int cancelSignalTimeout;
@@ -45,6 +56,9 @@ public abstract class QueryExecutorBase implements QueryExecutor {
   private int serverVersionNum = 0;
   private TransactionState transactionState = TransactionState.IDLE;
   private final boolean reWriteBatchedInserts;
+  private final boolean reWriteBatchedAsArrays;
+  private final boolean copyBatchedInserts;
+  private final boolean streamResults;
   private final boolean columnSanitiserDisabled;
   private final EscapeSyntaxCallMode escapeSyntaxCallMode;
   private final PreferQueryMode preferQueryMode;
@@ -73,6 +87,9 @@ public abstract class QueryExecutorBase implements QueryExecutor {
     this.database = database;
     this.cancelSignalTimeout = cancelSignalTimeout;
     this.reWriteBatchedInserts = PGProperty.REWRITE_BATCHED_INSERTS.getBoolean(info);
+    this.reWriteBatchedAsArrays = PGProperty.REWRITE_BATCHED_AS_ARRAYS.getBoolean(info);
+    this.copyBatchedInserts = PGProperty.COPY_BATCHED_INSERTS.getBoolean(info);
+    this.streamResults = PGProperty.STREAM_RESULTS.getBoolean(info);
     this.columnSanitiserDisabled = PGProperty.DISABLE_COLUMN_SANITISER.getBoolean(info);
     String callMode = PGProperty.ESCAPE_SYNTAX_CALL_MODE.get(info);
     this.escapeSyntaxCallMode = EscapeSyntaxCallMode.of(callMode);
@@ -135,7 +152,7 @@ public abstract class QueryExecutorBase implements QueryExecutor {
   @Override
   public void abort() {
     try {
-      pgStream.getSocket().close();
+      pgStream.abort();
     } catch (IOException e) {
       // ignore
     }
@@ -205,30 +222,38 @@ public abstract class QueryExecutorBase implements QueryExecutor {
     }
   }
 
-  public synchronized void addWarning(SQLWarning newWarning) {
-    if (warnings == null) {
-      warnings = newWarning;
-    } else {
-      warnings.setNextWarning(newWarning);
+  public void addWarning(SQLWarning newWarning) {
+    try (ResourceLock ignore = lock.obtain()) {
+      if (warnings == null) {
+        warnings = newWarning;
+      } else {
+        warnings.setNextWarning(newWarning);
+      }
     }
   }
 
-  public synchronized void addNotification(PGNotification notification) {
-    notifications.add(notification);
+  public void addNotification(PGNotification notification) {
+    try (ResourceLock ignore = lock.obtain()) {
+      notifications.add(notification);
+    }
   }
 
   @Override
-  public synchronized PGNotification[] getNotifications() throws SQLException {
-    PGNotification[] array = notifications.toArray(new PGNotification[0]);
-    notifications.clear();
-    return array;
+  public PGNotification[] getNotifications() throws SQLException {
+    try (ResourceLock ignore = lock.obtain()) {
+      PGNotification[] array = notifications.toArray(new PGNotification[0]);
+      notifications.clear();
+      return array;
+    }
   }
 
   @Override
-  public synchronized @Nullable SQLWarning getWarnings() {
-    SQLWarning chain = warnings;
-    warnings = null;
-    return chain;
+  public @Nullable SQLWarning getWarnings() {
+    try (ResourceLock ignore = lock.obtain()) {
+      SQLWarning chain = warnings;
+      warnings = null;
+      return chain;
+    }
   }
 
   @Override
@@ -256,22 +281,30 @@ public abstract class QueryExecutorBase implements QueryExecutor {
     this.serverVersionNum = serverVersionNum;
   }
 
-  public synchronized void setTransactionState(TransactionState state) {
-    transactionState = state;
+  public void setTransactionState(TransactionState state) {
+    try (ResourceLock ignore = lock.obtain()) {
+      transactionState = state;
+    }
   }
 
-  public synchronized void setStandardConformingStrings(boolean value) {
-    standardConformingStrings = value;
+  public void setStandardConformingStrings(boolean value) {
+    try (ResourceLock ignore = lock.obtain()) {
+      standardConformingStrings = value;
+    }
   }
 
   @Override
-  public synchronized boolean getStandardConformingStrings() {
-    return standardConformingStrings;
+  public boolean getStandardConformingStrings() {
+    try (ResourceLock ignore = lock.obtain()) {
+      return standardConformingStrings;
+    }
   }
 
   @Override
-  public synchronized TransactionState getTransactionState() {
-    return transactionState;
+  public TransactionState getTransactionState() {
+    try (ResourceLock ignore = lock.obtain()) {
+      return transactionState;
+    }
   }
 
   public void setEncoding(Encoding encoding) throws IOException {
@@ -288,6 +321,21 @@ public abstract class QueryExecutorBase implements QueryExecutor {
     return this.reWriteBatchedInserts;
   }
 
+  @Override
+  public boolean isReWriteBatchedAsArraysEnabled() {
+    return this.reWriteBatchedAsArrays;
+  }
+
+  @Override
+  public boolean isCopyBatchedInsertsEnabled() {
+    return this.copyBatchedInserts;
+  }
+
+  @Override
+  public boolean isStreamResultsEnabled() {
+    return this.streamResults;
+  }
+
   @Override
   public final CachedQuery borrowQuery(String sql) throws SQLException {
     return statementCache.borrow(sql);
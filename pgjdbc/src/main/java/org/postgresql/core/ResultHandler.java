@@ -83,6 +83,14 @@ public interface ResultHandler {
    */
   void secureProgress();
 
+  /**
+   * Called when the backend reaches a Sync point after an error. The failed query and the queries
+   * sent after it up to the Sync point are abandoned: they produce no results.
+   *
+   * @param count the number of abandoned queries, including the failed one
+   */
+  void handleAbandonedQueries(int count);
+
   /**
    * Returns the first encountered exception. The rest are chained via {@link SQLException#setNextException(SQLException)}
    * @return the first encountered exception
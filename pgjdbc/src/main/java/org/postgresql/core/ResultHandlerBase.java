@@ -41,6 +41,10 @@ public class ResultHandlerBase implements ResultHandler {
   public void secureProgress() {
   }
 
+  @Override
+  public void handleAbandonedQueries(int count) {
+  }
+
   @Override
   public void handleWarning(SQLWarning warning) {
     if (firstWarning == null) {
@@ -67,6 +67,13 @@ public class ResultHandlerDelegate implements ResultHandler {
     }
   }
 
+  @Override
+  public void handleAbandonedQueries(int count) {
+    if (delegate != null) {
+      delegate.handleAbandonedQueries(count);
+    }
+  }
+
   @Override
   public @Nullable SQLException getException() {
     if (delegate != null) {
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+import javax.net.SocketFactory;
+
+/**
+ * Creates sockets that are backed by a {@link SocketChannel}. {@link PGStream} detects such sockets
+ * via {@link Socket#getChannel()} and performs I/O through {@link SocketChannelTransport}.
+ *
+ * @see org.postgresql.PGProperty#SOCKET_CHANNEL
+ */
+class SocketChannelSocketFactory extends SocketFactory {
+  static final SocketChannelSocketFactory INSTANCE = new SocketChannelSocketFactory();
+
+  @Override
+  public Socket createSocket() throws IOException {
+    return SocketChannel.open().socket();
+  }
+
+  @Override
+  public Socket createSocket(String host, int port) throws IOException {
+    return createSocket(new InetSocketAddress(host, port), null);
+  }
+
+  @Override
+  public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+      throws IOException {
+    return createSocket(new InetSocketAddress(host, port),
+        new InetSocketAddress(localHost, localPort));
+  }
+
+  @Override
+  public Socket createSocket(InetAddress host, int port) throws IOException {
+    return createSocket(new InetSocketAddress(host, port), null);
+  }
+
+  @Override
+  public Socket createSocket(InetAddress address, int port, InetAddress localAddress,
+      int localPort) throws IOException {
+    return createSocket(new InetSocketAddress(address, port),
+        new InetSocketAddress(localAddress, localPort));
+  }
+
+  private Socket createSocket(InetSocketAddress address, @Nullable InetSocketAddress localAddress)
+      throws IOException {
+    Socket socket = createSocket();
+    try {
+      if (localAddress != null) {
+        socket.bind(localAddress);
+      }
+      socket.connect(address);
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+    return socket;
+  }
+}
@@ -0,0 +1,502 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import static org.postgresql.util.internal.Nullness.castNonNull;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * <p>Socket I/O on top of a {@link SocketChannel} and a pair of pooled direct buffers. Reads fill the
+ * whole receive buffer with a single system call, and writes are accumulated in the send buffer
+ * until it is full or flushed.</p>
+ *
+ * <p>The input stream is the {@link VisibleBufferedInputStream} of {@link PGStream} itself: the
+ * messages are decoded straight from the receive buffer, so the data is copied from the direct
+ * buffer to the heap once, into the arrays the values are returned in.</p>
+ *
+ * <p>The channel is switched to non-blocking mode and polled with a {@link Selector}, so that the
+ * socket read timeout ({@link java.net.Socket#getSoTimeout()}) is honoured the same way as for
+ * regular socket streams. {@link #ensureBlocking()} hands the channel back in blocking mode when
+ * the caller needs the socket streams themselves, for instance to layer SSL on top of it.</p>
+ *
+ * <p>Like {@link PGStream}, this class is not thread-safe, except that the input stream and the
+ * output stream may be used by two different threads, and that {@link #wakeup()} can be called
+ * by any thread.</p>
+ */
+class SocketChannelTransport {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final DirectBufferPool BUFFER_POOL = new DirectBufferPool(BUFFER_SIZE, 256);
+
+  private final SocketChannel channel;
+  private @Nullable ByteBuffer receiveBuffer;
+  private @Nullable ByteBuffer sendBuffer;
+  // Reads and writes wait on separate selectors, so a batch can be sent by another thread while
+  // the results are read, see PGStream#startBackgroundSend
+  private volatile @Nullable SelectionKey readKey;
+  private volatile @Nullable SelectionKey writeKey;
+
+  private final VisibleBufferedInputStream inputStream = new ChannelInputStream();
+  private final OutputStream outputStream = new ChannelOutputStream();
+
+  SocketChannelTransport(SocketChannel channel) {
+    this.channel = channel;
+    ByteBuffer receiveBuffer = BUFFER_POOL.acquire();
+    // the receive buffer is kept in "read" mode, so it starts empty
+    receiveBuffer.limit(0);
+    this.receiveBuffer = receiveBuffer;
+    this.sendBuffer = BUFFER_POOL.acquire();
+  }
+
+  SocketChannel getChannel() {
+    return channel;
+  }
+
+  VisibleBufferedInputStream getInputStream() {
+    return inputStream;
+  }
+
+  OutputStream getOutputStream() {
+    return outputStream;
+  }
+
+  /**
+   * Switches the channel back to blocking mode, so the socket streams can be used directly. Must
+   * not be called while another thread waits for the channel.
+   *
+   * @throws IOException if the blocking mode cannot be changed
+   */
+  void ensureBlocking() throws IOException {
+    SelectionKey readKey = this.readKey;
+    SelectionKey writeKey = this.writeKey;
+    this.readKey = null;
+    this.writeKey = null;
+    deregister(readKey);
+    deregister(writeKey);
+    if (!channel.isBlocking() && channel.isOpen()) {
+      try {
+        channel.configureBlocking(true);
+      } catch (IllegalBlockingModeException e) {
+        // The channel is registered with a selector of someone else
+        throw new IOException("The channel cannot be switched to blocking mode", e);
+      }
+    }
+  }
+
+  /**
+   * Wakes up the threads that wait for the channel, so they notice that it was closed.
+   */
+  void wakeup() {
+    SelectionKey readKey = this.readKey;
+    SelectionKey writeKey = this.writeKey;
+    if (readKey != null) {
+      readKey.selector().wakeup();
+    }
+    if (writeKey != null) {
+      writeKey.selector().wakeup();
+    }
+  }
+
+  /**
+   * Releases the buffers and the selectors. The channel itself is closed by the owner of the socket.
+   */
+  void close() throws IOException {
+    ByteBuffer receiveBuffer = this.receiveBuffer;
+    ByteBuffer sendBuffer = this.sendBuffer;
+    this.receiveBuffer = null;
+    this.sendBuffer = null;
+    if (receiveBuffer != null && receiveBuffer.capacity() == BUFFER_SIZE) {
+      BUFFER_POOL.release(receiveBuffer);
+    }
+    if (sendBuffer != null) {
+      BUFFER_POOL.release(sendBuffer);
+    }
+    SelectionKey readKey = this.readKey;
+    SelectionKey writeKey = this.writeKey;
+    this.readKey = null;
+    this.writeKey = null;
+    if (readKey != null) {
+      readKey.selector().close();
+    }
+    if (writeKey != null) {
+      writeKey.selector().close();
+    }
+  }
+
+  private static void deregister(@Nullable SelectionKey selectionKey) throws IOException {
+    if (selectionKey != null) {
+      selectionKey.cancel();
+      // Cancelled keys are deregistered on the next selection operation
+      selectionKey.selector().selectNow();
+      selectionKey.selector().close();
+    }
+  }
+
+  private ByteBuffer receiveBuffer() throws IOException {
+    ByteBuffer receiveBuffer = this.receiveBuffer;
+    if (receiveBuffer == null) {
+      throw new IOException("The connection is closed");
+    }
+    return receiveBuffer;
+  }
+
+  private ByteBuffer sendBuffer() throws IOException {
+    ByteBuffer sendBuffer = this.sendBuffer;
+    if (sendBuffer == null) {
+      throw new IOException("The connection is closed");
+    }
+    return sendBuffer;
+  }
+
+  private SelectionKey readKey() throws IOException {
+    SelectionKey readKey = this.readKey;
+    if (readKey == null) {
+      readKey = register(SelectionKey.OP_READ);
+      this.readKey = readKey;
+    }
+    return readKey;
+  }
+
+  private SelectionKey writeKey() throws IOException {
+    SelectionKey writeKey = this.writeKey;
+    if (writeKey == null) {
+      writeKey = register(SelectionKey.OP_WRITE);
+      this.writeKey = writeKey;
+    }
+    return writeKey;
+  }
+
+  private SelectionKey register(int ops) throws IOException {
+    Selector selector = Selector.open();
+    try {
+      synchronized (channel.blockingLock()) {
+        channel.configureBlocking(false);
+        return channel.register(selector, ops);
+      }
+    } catch (IOException e) {
+      selector.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Waits until the channel is ready for the operation of the given key.
+   *
+   * @param selectionKey {@link #readKey()} or {@link #writeKey()}
+   * @param timeoutMillis timeout in milliseconds, or 0 to wait forever
+   * @return false if the timeout expired
+   */
+  private boolean await(SelectionKey selectionKey, int timeoutMillis) throws IOException {
+    Selector selector = selectionKey.selector();
+    long deadline = timeoutMillis == 0 ? 0 : System.nanoTime() / 1000000 + timeoutMillis;
+    while (true) {
+      long wait = 0;
+      if (deadline != 0) {
+        wait = deadline - System.nanoTime() / 1000000;
+        if (wait <= 0) {
+          return false;
+        }
+      }
+      int selected = selector.select(wait);
+      selector.selectedKeys().clear();
+      if (selected > 0) {
+        return true;
+      }
+      if (!channel.isOpen()) {
+        throw new EOFException();
+      }
+    }
+  }
+
+  /**
+   * Reads whatever the socket has available after the data of the receive buffer. The unread data
+   * is moved to the start of the buffer, or to a larger buffer, if less than {@code wanted} bytes
+   * would fit after it.
+   *
+   * @param wanted number of bytes the caller needs on top of the unread ones
+   * @return false on end of stream
+   */
+  private boolean fill(int wanted) throws IOException {
+    ByteBuffer receiveBuffer = receiveBuffer();
+    if (!receiveBuffer.hasRemaining()) {
+      receiveBuffer.clear();
+      receiveBuffer.limit(0);
+    }
+    if (receiveBuffer.capacity() - receiveBuffer.limit() < wanted) {
+      int remaining = receiveBuffer.remaining();
+      if (receiveBuffer.capacity() < remaining + wanted) {
+        // A string longer than the buffer: it must be contiguous to be decoded
+        ByteBuffer grown =
+            ByteBuffer.allocateDirect(Math.max(receiveBuffer.capacity() * 2, remaining + wanted));
+        grown.put(receiveBuffer);
+        if (receiveBuffer.capacity() == BUFFER_SIZE) {
+          BUFFER_POOL.release(receiveBuffer);
+        }
+        receiveBuffer = grown;
+        this.receiveBuffer = grown;
+      } else {
+        receiveBuffer.compact();
+      }
+      receiveBuffer.flip();
+    }
+    int position = receiveBuffer.position();
+    receiveBuffer.position(receiveBuffer.limit());
+    receiveBuffer.limit(receiveBuffer.capacity());
+    try {
+      SelectionKey readKey = readKey();
+      int read = channel.read(receiveBuffer);
+      while (read == 0) {
+        if (!await(readKey, channel.socket().getSoTimeout())) {
+          throw new SocketTimeoutException("Read timed out");
+        }
+        read = channel.read(receiveBuffer);
+      }
+      return read > 0;
+    } finally {
+      receiveBuffer.limit(receiveBuffer.position());
+      receiveBuffer.position(position);
+    }
+  }
+
+  private void drain() throws IOException {
+    ByteBuffer sendBuffer = sendBuffer();
+    sendBuffer.flip();
+    try {
+      SelectionKey writeKey = writeKey();
+      while (sendBuffer.hasRemaining()) {
+        if (channel.write(sendBuffer) == 0) {
+          await(writeKey, 0);
+        }
+      }
+    } finally {
+      sendBuffer.compact();
+    }
+  }
+
+  /**
+   * Reads the messages from the receive buffer. The strings are decoded from the array returned by
+   * {@link #getBuffer()}, which holds a copy of the bytes made available by the last call of
+   * {@link #ensureBytes(int, boolean)} or {@link #scanCStringLength()}.
+   */
+  private class ChannelInputStream extends VisibleBufferedInputStream {
+    private static final int STRING_SCAN_SPAN = 1024;
+
+    private boolean timeoutRequested;
+    // Number of bytes getBuffer() copies, and the copy
+    private int ensured;
+    private byte[] strings = new byte[0];
+
+    /**
+     * Reads more data, like {@link VisibleBufferedInputStream#ensureBytes(int, boolean)} does.
+     *
+     * @return true if some data might have been read, false on end of stream or if {@code block}
+     *     is false and the read timed out
+     */
+    private boolean readMore(int wanted, boolean block) throws IOException {
+      try {
+        return fill(wanted);
+      } catch (SocketTimeoutException e) {
+        if (!block) {
+          return false;
+        }
+        if (timeoutRequested) {
+          throw e;
+        }
+        return true;
+      }
+    }
+
+    @Override
+    public boolean ensureBytes(int n, boolean block) throws IOException {
+      ensured = n;
+      while (receiveBuffer().remaining() < n) {
+        if (!readMore(n - receiveBuffer().remaining(), block)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public boolean readAhead() throws IOException {
+      return readMore(1, false);
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!ensureBytes(1)) {
+        return -1;
+      }
+      return receiveBuffer().get() & 0xFF;
+    }
+
+    @Override
+    public int peek() throws IOException {
+      if (!ensureBytes(1)) {
+        return -1;
+      }
+      ByteBuffer receiveBuffer = receiveBuffer();
+      return receiveBuffer.get(receiveBuffer.position()) & 0xFF;
+    }
+
+    @Override
+    public byte readRaw() {
+      return castNonNull(receiveBuffer).get();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+        throw new IndexOutOfBoundsException();
+      }
+      int read = 0;
+      while (read < len) {
+        ByteBuffer receiveBuffer = receiveBuffer();
+        if (!receiveBuffer.hasRemaining()) {
+          try {
+            if (!fill(1)) {
+              return read == 0 ? -1 : read;
+            }
+          } catch (SocketTimeoutException e) {
+            if (read == 0 && timeoutRequested) {
+              throw e;
+            }
+            return read;
+          }
+          continue;
+        }
+        int count = Math.min(len - read, receiveBuffer.remaining());
+        receiveBuffer.get(b, off + read, count);
+        read += count;
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      if (n <= 0) {
+        return 0;
+      }
+      ByteBuffer receiveBuffer = receiveBuffer();
+      if (!receiveBuffer.hasRemaining()) {
+        if (!fill(1)) {
+          return 0;
+        }
+        receiveBuffer = receiveBuffer();
+      }
+      int count = (int) Math.min(n, receiveBuffer.remaining());
+      receiveBuffer.position(receiveBuffer.position() + count);
+      return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return receiveBuffer().remaining();
+    }
+
+    @Override
+    public int scanCStringLength() throws IOException {
+      int scanned = 0;
+      while (true) {
+        ByteBuffer receiveBuffer = receiveBuffer();
+        int position = receiveBuffer.position();
+        for (int i = position + scanned; i < receiveBuffer.limit(); i++) {
+          if (receiveBuffer.get(i) == '\0') {
+            ensured = i - position + 1;
+            return ensured;
+          }
+        }
+        scanned = receiveBuffer.remaining();
+        if (!readMore(STRING_SCAN_SPAN, true)) {
+          throw new EOFException();
+        }
+      }
+    }
+
+    @Override
+    public byte[] getBuffer() {
+      ByteBuffer receiveBuffer = castNonNull(SocketChannelTransport.this.receiveBuffer);
+      int length = Math.min(ensured, receiveBuffer.remaining());
+      if (strings.length < length) {
+        strings = new byte[Math.max(length, strings.length * 2)];
+      }
+      receiveBuffer.duplicate().get(strings, 0, length);
+      return strings;
+    }
+
+    @Override
+    public int getIndex() {
+      return 0;
+    }
+
+    @Override
+    public void setTimeoutRequested(boolean timeoutRequested) {
+      this.timeoutRequested = timeoutRequested;
+    }
+
+    @Override
+    public InputStream getWrapped() {
+      // Layers such as GSS encryption read the data through this stream, the buffered data first
+      return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  private class ChannelOutputStream extends OutputStream {
+    @Override
+    public void write(int b) throws IOException {
+      ByteBuffer sendBuffer = sendBuffer();
+      if (!sendBuffer.hasRemaining()) {
+        drain();
+      }
+      sendBuffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      ByteBuffer sendBuffer = sendBuffer();
+      while (len > 0) {
+        if (!sendBuffer.hasRemaining()) {
+          drain();
+        }
+        int count = Math.min(len, sendBuffer.remaining());
+        sendBuffer.put(b, off, count);
+        off += count;
+        len -= count;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      ByteBuffer sendBuffer = SocketChannelTransport.this.sendBuffer;
+      if (sendBuffer != null && sendBuffer.position() > 0) {
+        drain();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (channel.isOpen()) {
+        flush();
+      }
+    }
+  }
+}
@@ -33,6 +33,9 @@ public class SocketFactoryFactory {
     // Socket factory
     String socketFactoryClassName = PGProperty.SOCKET_FACTORY.get(info);
     if (socketFactoryClassName == null) {
+      if (PGProperty.SOCKET_CHANNEL.getBoolean(info)) {
+        return SocketChannelSocketFactory.INSTANCE;
+      }
       return SocketFactory.getDefault();
     }
     try {
@@ -5,16 +5,31 @@
 
 package org.postgresql.core;
 
+import static org.postgresql.util.internal.Nullness.castNonNull;
+
+import org.postgresql.util.ByteConverter;
+
 import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.checkerframework.dataflow.qual.Pure;
 
+import java.util.Arrays;
+
 /**
- * Class representing a row in a {@link java.sql.ResultSet}.
+ * <p>Class representing a row in a {@link java.sql.ResultSet}.</p>
+ *
+ * <p>The field values are either stored as one {@code byte[]} per field, or as a region of a shared
+ * slab (see {@link TupleSlab}) that holds the raw DataRow payload. In the latter case the slab
+ * contains the 4-byte length prefix of each field right before the field data, and the tuple only
+ * keeps the offsets of the field data. {@link #fieldBuffer(int)}, {@link #fieldOffset(int)} and
+ * {@link #fieldLength(int)} give access to the value without copying it, and {@link #get(int)}
+ * copies the value out of the slab.</p>
  */
 public class Tuple {
   private final boolean forUpdate;
   final byte[] @Nullable [] data;
+  private final byte @Nullable [] slab;
+  private final int @Nullable [] offsets;
 
   /**
    * Construct an empty tuple. Used in updatable result sets.
@@ -32,8 +47,23 @@ public class Tuple {
     this(data, false);
   }
 
+  /**
+   * Construct a read-only tuple backed by a slab. The 4 bytes before each offset hold the length of
+   * the field data, {@code -1} meaning SQL NULL.
+   * @param slab the buffer that holds the field lengths and data
+   * @param offsets offsets of the field data in the slab
+   */
+  Tuple(byte[] slab, int[] offsets) {
+    this.data = null;
+    this.slab = slab;
+    this.offsets = offsets;
+    this.forUpdate = false;
+  }
+
   private Tuple(byte[] @Nullable [] data, boolean forUpdate) {
     this.data = data;
+    this.slab = null;
+    this.offsets = null;
     this.forUpdate = forUpdate;
   }
 
@@ -42,6 +72,10 @@ public class Tuple {
    * @return number of fields
    */
   public @NonNegative int fieldCount() {
+    byte[][] data = this.data;
+    if (data == null) {
+      return castNonNull(offsets).length;
+    }
     return data.length;
   }
 
@@ -51,6 +85,16 @@ public class Tuple {
    */
   public @NonNegative int length() {
     int length = 0;
+    byte[][] data = this.data;
+    if (data == null) {
+      for (int i = 0; i < castNonNull(offsets).length; i++) {
+        int fieldLength = fieldLength(i);
+        if (fieldLength > 0) {
+          length += fieldLength;
+        }
+      }
+      return length;
+    }
     for (byte[] field : data) {
       if (field != null) {
         length += field.length;
@@ -60,13 +104,67 @@ public class Tuple {
   }
 
   /**
-   * Get the data for the given field
+   * Get the data for the given field. For slab-backed tuples the data is copied into a new array.
    * @param index 0-based field position in the tuple
    * @return byte array of the data
    */
   @Pure
   public byte @Nullable [] get(@NonNegative int index) {
-    return data[index];
+    byte[][] data = this.data;
+    if (data != null) {
+      return data[index];
+    }
+    int length = fieldLength(index);
+    if (length < 0) {
+      return null;
+    }
+    int offset = castNonNull(offsets)[index];
+    return Arrays.copyOfRange(castNonNull(slab), offset, offset + length);
+  }
+
+  /**
+   * Returns the length of the given field without copying its data.
+   * @param index 0-based field position in the tuple
+   * @return length of the field data in bytes, or -1 if the field is SQL NULL
+   */
+  @Pure
+  public int fieldLength(@NonNegative int index) {
+    byte[][] data = this.data;
+    if (data != null) {
+      byte[] field = data[index];
+      return field == null ? -1 : field.length;
+    }
+    return ByteConverter.int4(castNonNull(slab), castNonNull(offsets)[index] - 4);
+  }
+
+  /**
+   * Returns the array that holds the data of the given field. The data starts at
+   * {@link #fieldOffset(int)} and spans {@link #fieldLength(int)} bytes. The array must not be
+   * modified.
+   * @param index 0-based field position in the tuple, the field must not be SQL NULL
+   * @return the array that holds the field data
+   */
+  @Pure
+  public byte[] fieldBuffer(@NonNegative int index) {
+    byte[][] data = this.data;
+    if (data != null) {
+      return castNonNull(data[index]);
+    }
+    return castNonNull(slab);
+  }
+
+  /**
+   * Returns the position of the data of the given field in {@link #fieldBuffer(int)}.
+   * @param index 0-based field position in the tuple
+   * @return offset of the field data
+   */
+  @Pure
+  public int fieldOffset(@NonNegative int index) {
+    int[] offsets = this.offsets;
+    if (offsets == null) {
+      return 0;
+    }
+    return offsets[index];
   }
 
   /**
@@ -86,6 +184,18 @@ public class Tuple {
   }
 
   private Tuple copy(boolean forUpdate) {
+    byte[][] data = this.data;
+    if (data == null) {
+      if (!forUpdate) {
+        // slab-backed tuples are immutable, so they can be shared
+        return this;
+      }
+      byte[][] dataCopy = new byte[fieldCount()][];
+      for (int i = 0; i < dataCopy.length; i++) {
+        dataCopy[i] = get(i);
+      }
+      return new Tuple(dataCopy, true);
+    }
     byte[][] dataCopy = new byte[data.length][];
     System.arraycopy(data, 0, dataCopy, 0, data.length);
     return new Tuple(dataCopy, forUpdate);
@@ -100,6 +210,6 @@ public class Tuple {
     if (!forUpdate) {
       throw new IllegalArgumentException("Attempted to write to readonly tuple");
     }
-    data[index] = fieldData;
+    castNonNull(data)[index] = fieldData;
   }
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * <p>Hands out regions of large shared {@code byte[]} chunks for DataRow payloads, so a batch of rows
+ * costs a few chunk allocations instead of one array per field.</p>
+ *
+ * <p>A chunk stays reachable as long as any {@link Tuple} that points into it, so a slab should be
+ * scoped to a single fetch batch. Rows that would occupy a large part of a chunk get a dedicated
+ * array to avoid wasting the chunk tail.</p>
+ *
+ * @see org.postgresql.PGProperty#ROW_STORAGE
+ */
+public class TupleSlab {
+  private static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+  private final int chunkSize;
+  private byte @Nullable [] chunk;
+  private int chunkPosition;
+  private int offset;
+
+  public TupleSlab() {
+    this(DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * @param chunkSize size of the shared chunks in bytes
+   */
+  public TupleSlab(int chunkSize) {
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Reserves {@code size} bytes. The reserved region starts at {@link #offset()} in the returned
+   * array.
+   *
+   * @param size number of bytes needed
+   * @return the array that holds the reserved region
+   */
+  byte[] allocate(int size) {
+    if (size > chunkSize / 4) {
+      offset = 0;
+      return new byte[size];
+    }
+    byte[] chunk = this.chunk;
+    if (chunk == null || chunk.length - chunkPosition < size) {
+      chunk = new byte[chunkSize];
+      this.chunk = chunk;
+      chunkPosition = 0;
+    }
+    offset = chunkPosition;
+    chunkPosition += size;
+    return chunk;
+  }
+
+  /**
+   * @return the offset of the region reserved by the last {@link #allocate(int)} call
+   */
+  int offset() {
+    return offset;
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import org.postgresql.codec.TypeCodec;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link TypeCodec}s registered on a connection, keyed by type OID. Lookups are lock-free, as
+ * they happen for every result set.
+ */
+public class TypeCodecRegistry {
+  private final Map<Integer, TypeCodec> codecsByOid = new ConcurrentHashMap<Integer, TypeCodec>();
+  private final Map<Class<?>, Integer> oidsByJavaType = new ConcurrentHashMap<Class<?>, Integer>();
+
+  /**
+   * Registers a codec, replacing the codec previously registered for the OID if any.
+   *
+   * @param oid OID of the type
+   * @param codec codec for the type
+   */
+  public void register(int oid, TypeCodec codec) {
+    TypeCodec previous = codecsByOid.put(oid, codec);
+    if (previous != null) {
+      oidsByJavaType.remove(previous.getJavaType(), oid);
+    }
+    oidsByJavaType.put(codec.getJavaType(), oid);
+  }
+
+  /**
+   * @return true if no codec is registered, so lookups can be skipped
+   */
+  public boolean isEmpty() {
+    return codecsByOid.isEmpty();
+  }
+
+  /**
+   * @param oid OID of the type
+   * @return the codec for the type, or null if the built-in conversions apply
+   */
+  public @Nullable TypeCodec get(int oid) {
+    if (codecsByOid.isEmpty()) {
+      return null;
+    }
+    return codecsByOid.get(oid);
+  }
+
+  /**
+   * Finds the type a Java object is sent as. The codecs registered for the exact class of the
+   * object take precedence over the ones registered for a superclass or interface of it.
+   *
+   * @param value value of a parameter
+   * @return the OID of the type of a codec that accepts the value, or {@link Oid#UNSPECIFIED}
+   */
+  public int getOid(Object value) {
+    if (oidsByJavaType.isEmpty()) {
+      return Oid.UNSPECIFIED;
+    }
+    Integer oid = oidsByJavaType.get(value.getClass());
+    if (oid != null) {
+      return oid;
+    }
+    for (Map.Entry<Class<?>, Integer> entry : oidsByJavaType.entrySet()) {
+      if (entry.getKey().isInstance(value)) {
+        return entry.getValue();
+      }
+    }
+    return Oid.UNSPECIFIED;
+  }
+}
@@ -66,6 +66,17 @@ public class VisibleBufferedInputStream extends InputStream {
     buffer = new byte[bufferSize < MINIMUM_READ ? MINIMUM_READ : bufferSize];
   }
 
+  /**
+   * Creates a stream that keeps the data in a buffer of its own, for a subclass that overrides all
+   * the methods that read, including {@link #getBuffer()}, {@link #getIndex()} and
+   * {@link #getWrapped()}.
+   */
+  @SuppressWarnings("assignment.type.incompatible")
+  VisibleBufferedInputStream() {
+    wrapped = this;
+    buffer = new byte[0];
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -177,6 +188,18 @@ public class VisibleBufferedInputStream extends InputStream {
     return true;
   }
 
+  /**
+   * Reads the data that is available into the buffer, without consuming it, or waits for some until
+   * the socket timeout. The buffer grows if it is full, so the caller keeps the data in memory
+   * until it is read.
+   *
+   * @return true if some data might have been read, false on end of stream or on timeout
+   * @throws IOException If reading of the wrapped stream failed.
+   */
+  public boolean readAhead() throws IOException {
+    return readMore(1, false);
+  }
+
   /**
    * Doubles the size of the buffer.
    */
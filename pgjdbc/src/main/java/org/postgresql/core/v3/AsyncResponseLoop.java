@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core.v3;
+
+import org.postgresql.core.PGStream;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Driver-managed threads that process the responses of asynchronous executions.</p>
+ *
+ * <p>When the connection is driven through a {@link SocketChannel} (see the {@code socketChannel}
+ * connection property), waiting for the response costs no thread: a single selector thread watches
+ * all the connections, and the response is processed by a worker thread once the backend has sent
+ * data. For regular sockets there is no way to wait for data without a thread, so a worker thread
+ * blocks on the socket read instead.</p>
+ *
+ * <p>The selector thread stops when it has nothing to watch, and the worker threads stop when they
+ * have been idle for a minute, so the loop does not keep resources when asynchronous execution is
+ * not used.</p>
+ */
+final class AsyncResponseLoop {
+  private static final Logger LOGGER = Logger.getLogger(AsyncResponseLoop.class.getName());
+
+  private static final AsyncResponseLoop INSTANCE = new AsyncResponseLoop();
+
+  private static final long SELECTOR_IDLE_MILLIS = 1000;
+
+  private final Queue<Registration> registrations = new ConcurrentLinkedQueue<Registration>();
+  private final ThreadPoolExecutor workers;
+  private @Nullable Selector selector;
+
+  private static class Registration {
+    final SocketChannel channel;
+    final Runnable task;
+
+    Registration(SocketChannel channel, Runnable task) {
+      this.channel = channel;
+      this.task = task;
+    }
+  }
+
+  private AsyncResponseLoop() {
+    workers = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+        new SynchronousQueue<Runnable>(), new DaemonThreadFactory("PostgreSQL-JDBC-AsyncWorker-"));
+  }
+
+  static AsyncResponseLoop getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return executor that runs tasks on the worker threads of the loop
+   */
+  Executor getWorkers() {
+    return workers;
+  }
+
+  /**
+   * Runs the task on a worker thread once the backend has sent data on the given stream.
+   *
+   * @param stream stream to watch
+   * @param task task that reads the response
+   */
+  void whenReadable(PGStream stream, Runnable task) {
+    SocketChannel channel = stream.getReadableChannel();
+    boolean buffered;
+    try {
+      buffered = stream.hasBufferedInput();
+    } catch (IOException e) {
+      // Let the task observe the failure
+      buffered = true;
+    }
+    if (channel == null || buffered) {
+      workers.execute(task);
+      return;
+    }
+    registrations.add(new Registration(channel, task));
+    wakeup();
+  }
+
+  private synchronized void wakeup() {
+    Selector selector = this.selector;
+    if (selector != null) {
+      selector.wakeup();
+      return;
+    }
+    try {
+      selector = Selector.open();
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Unable to open a selector, falling back to blocking reads", e);
+      Registration registration;
+      while ((registration = registrations.poll()) != null) {
+        workers.execute(registration.task);
+      }
+      return;
+    }
+    this.selector = selector;
+    final Selector loopSelector = selector;
+    Thread thread = new DaemonThreadFactory("PostgreSQL-JDBC-AsyncIO-").newThread(new Runnable() {
+      @Override
+      public void run() {
+        loop(loopSelector);
+      }
+    });
+    thread.start();
+  }
+
+  /**
+   * Stops the loop if there is nothing to watch.
+   *
+   * @return true if the loop has been stopped
+   */
+  private synchronized boolean stopIfIdle(Selector selector) {
+    if (!selector.keys().isEmpty() || !registrations.isEmpty()) {
+      return false;
+    }
+    stop(selector);
+    return true;
+  }
+
+  private synchronized void stop(Selector selector) {
+    this.selector = null;
+    try {
+      selector.close();
+    } catch (IOException e) {
+      LOGGER.log(Level.FINEST, "Unable to close the selector", e);
+    }
+    if (!registrations.isEmpty()) {
+      // Registrations that raced with a failure get a fresh selector
+      wakeup();
+    }
+  }
+
+  private void loop(Selector selector) {
+    List<Runnable> ready = new ArrayList<Runnable>();
+    while (true) {
+      Registration registration;
+      while ((registration = registrations.poll()) != null) {
+        register(selector, registration);
+      }
+      try {
+        selector.select(SELECTOR_IDLE_MILLIS);
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Selector failed, falling back to blocking reads", e);
+        for (SelectionKey key : selector.keys()) {
+          workers.execute((Runnable) key.attachment());
+        }
+        stop(selector);
+        return;
+      }
+      Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+      while (it.hasNext()) {
+        SelectionKey key = it.next();
+        it.remove();
+        // The response is read by the worker, so stop watching the channel
+        key.cancel();
+        ready.add((Runnable) key.attachment());
+      }
+      if (!ready.isEmpty()) {
+        try {
+          // Deregister the channels right away, so the workers may change their blocking mode
+          selector.selectNow();
+        } catch (IOException e) {
+          LOGGER.log(Level.FINEST, "Unable to deregister the channels", e);
+        }
+        for (Runnable task : ready) {
+          workers.execute(task);
+        }
+        ready.clear();
+      }
+      if (selector.keys().isEmpty() && registrations.isEmpty() && stopIfIdle(selector)) {
+        return;
+      }
+    }
+  }
+
+  private void register(Selector selector, Registration registration) {
+    try {
+      SocketChannel channel = registration.channel;
+      synchronized (channel.blockingLock()) {
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, registration.task);
+      }
+    } catch (IOException e) {
+      // The task will observe the failure, e.g. a closed connection
+      workers.execute(registration.task);
+    }
+  }
+
+  private static class DaemonThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    DaemonThreadFactory(String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+      thread.setDaemon(true);
+      // Do not keep the context class loader of the application that happened to trigger the
+      // thread creation
+      thread.setContextClassLoader(null);
+      return thread;
+    }
+  }
+}
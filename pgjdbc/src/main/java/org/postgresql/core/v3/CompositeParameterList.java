@@ -136,6 +136,12 @@ class CompositeParameterList implements V3ParameterList {
     }
   }
 
+  @Override
+  public @Nullable String getTextValue(@Positive int index) throws SQLException {
+    int sub = findSubParam(index);
+    return subparams[sub].getTextValue(index - offsets[sub]);
+  }
+
   public ParameterList copy() {
     SimpleParameterList[] copySub = new SimpleParameterList[subparams.length];
     for (int sub = 0; sub < subparams.length; ++sub) {
@@ -24,6 +24,7 @@ import org.postgresql.hostchooser.HostChooser;
 import org.postgresql.hostchooser.HostChooserFactory;
 import org.postgresql.hostchooser.HostRequirement;
 import org.postgresql.hostchooser.HostStatus;
+import org.postgresql.hostchooser.HostStatusProber;
 import org.postgresql.jdbc.GSSEncMode;
 import org.postgresql.jdbc.SslMode;
 import org.postgresql.sspi.ISSPIClient;
@@ -163,6 +164,70 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
     return newStream;
   }
 
+  /**
+   * Connects to the host with {@link #tryConnect}, and tries again with or without SSL when
+   * {@code sslMode} allows it and the server rejected the first attempt.
+   */
+  private PGStream tryConnectWithFallback(String user, String database,
+      Properties info, SocketFactory socketFactory, HostSpec hostSpec,
+      SslMode sslMode, GSSEncMode gssEncMode)
+      throws SQLException, IOException {
+    PGStream newStream = null;
+    try {
+      newStream = tryConnect(user, database, info, socketFactory, hostSpec, sslMode, gssEncMode);
+    } catch (SQLException e) {
+      if (sslMode == SslMode.PREFER
+          && PSQLState.INVALID_AUTHORIZATION_SPECIFICATION.getState().equals(e.getSQLState())) {
+        // Try non-SSL connection to cover case like "non-ssl only db"
+        // Note: PREFER allows loss of encryption, so no significant harm is made
+        Throwable ex = null;
+        try {
+          newStream =
+              tryConnect(user, database, info, socketFactory, hostSpec, SslMode.DISABLE,gssEncMode);
+          LOGGER.log(Level.FINE, "Downgraded to non-encrypted connection for host {0}",
+              hostSpec);
+        } catch (SQLException ee) {
+          ex = ee;
+        } catch (IOException ee) {
+          ex = ee; // Can't use multi-catch in Java 6 :(
+        }
+        if (ex != null) {
+          log(Level.FINE, "sslMode==PREFER, however non-SSL connection failed as well", ex);
+          // non-SSL failed as well, so re-throw original exception
+          // Add non-SSL exception as suppressed
+          e.addSuppressed(ex);
+          throw e;
+        }
+      } else if (sslMode == SslMode.ALLOW
+          && PSQLState.INVALID_AUTHORIZATION_SPECIFICATION.getState().equals(e.getSQLState())) {
+        // Try using SSL
+        Throwable ex = null;
+        try {
+          newStream =
+              tryConnect(user, database, info, socketFactory, hostSpec, SslMode.REQUIRE, gssEncMode);
+          LOGGER.log(Level.FINE, "Upgraded to encrypted connection for host {0}",
+              hostSpec);
+        } catch (SQLException ee) {
+          ex = ee;
+        } catch (IOException ee) {
+          ex = ee; // Can't use multi-catch in Java 6 :(
+        }
+        if (ex != null) {
+          log(Level.FINE, "sslMode==ALLOW, however SSL connection failed as well", ex);
+          // non-SSL failed as well, so re-throw original exception
+          // Add SSL exception as suppressed
+          e.addSuppressed(ex);
+          throw e;
+        }
+
+      } else {
+        throw e;
+      }
+    }
+    // CheckerFramework can't infer newStream is non-nullable
+    return castNonNull(newStream);
+  }
+
   @Override
   public QueryExecutor openConnectionImpl(HostSpec[] hostSpecs, String user, String database,
       Properties info) throws SQLException {
@@ -181,9 +246,18 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
 
     SocketFactory socketFactory = SocketFactoryFactory.getSocketFactory(info);
 
+    int hostProbeSeconds = PGProperty.HOST_PROBE_SECONDS.getInt(info);
+    if (hostSpecs.length > 1 && hostProbeSeconds > 0) {
+      HostStatusProber.register(hostSpecs, user, database, info, hostProbeSeconds);
+    }
+
     HostChooser hostChooser =
         HostChooserFactory.createHostChooser(hostSpecs, targetServerType, info);
     Iterator<CandidateHost> hostIter = hostChooser.iterator();
+    if (hostSpecs.length > 1 && PGProperty.PARALLEL_CONNECT.getBoolean(info)) {
+      return openConnectionsInParallel(hostIter, targetServerType, user, database, info,
+          socketFactory, sslMode, gssEncMode);
+    }
     Map<HostSpec, HostStatus> knownStates = new HashMap<HostSpec, HostStatus>();
     while (hostIter.hasNext()) {
       CandidateHost candidateHost = hostIter.next();
@@ -209,62 +283,11 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
 
       PGStream newStream = null;
       try {
-        try {
-          newStream = tryConnect(user, database, info, socketFactory, hostSpec, sslMode, gssEncMode);
-        } catch (SQLException e) {
-          if (sslMode == SslMode.PREFER
-              && PSQLState.INVALID_AUTHORIZATION_SPECIFICATION.getState().equals(e.getSQLState())) {
-            // Try non-SSL connection to cover case like "non-ssl only db"
-            // Note: PREFER allows loss of encryption, so no significant harm is made
-            Throwable ex = null;
-            try {
-              newStream =
-                  tryConnect(user, database, info, socketFactory, hostSpec, SslMode.DISABLE,gssEncMode);
-              LOGGER.log(Level.FINE, "Downgraded to non-encrypted connection for host {0}",
-                  hostSpec);
-            } catch (SQLException ee) {
-              ex = ee;
-            } catch (IOException ee) {
-              ex = ee; // Can't use multi-catch in Java 6 :(
-            }
-            if (ex != null) {
-              log(Level.FINE, "sslMode==PREFER, however non-SSL connection failed as well", ex);
-              // non-SSL failed as well, so re-throw original exception
-              // Add non-SSL exception as suppressed
-              e.addSuppressed(ex);
-              throw e;
-            }
-          } else if (sslMode == SslMode.ALLOW
-              && PSQLState.INVALID_AUTHORIZATION_SPECIFICATION.getState().equals(e.getSQLState())) {
-            // Try using SSL
-            Throwable ex = null;
-            try {
-              newStream =
-                  tryConnect(user, database, info, socketFactory, hostSpec, SslMode.REQUIRE, gssEncMode);
-              LOGGER.log(Level.FINE, "Upgraded to encrypted connection for host {0}",
-                  hostSpec);
-            } catch (SQLException ee) {
-              ex = ee;
-            } catch (IOException ee) {
-              ex = ee; // Can't use multi-catch in Java 6 :(
-            }
-            if (ex != null) {
-              log(Level.FINE, "sslMode==ALLOW, however SSL connection failed as well", ex);
-              // non-SSL failed as well, so re-throw original exception
-              // Add SSL exception as suppressed
-              e.addSuppressed(ex);
-              throw e;
-            }
-
-          } else {
-            throw e;
-          }
-        }
+        newStream = tryConnectWithFallback(user, database, info, socketFactory, hostSpec, sslMode,
+            gssEncMode);
 
         int cancelSignalTimeout = PGProperty.CANCEL_SIGNAL_TIMEOUT.getInt(info) * 1000;
 
-        // CheckerFramework can't infer newStream is non-nullable
-        castNonNull(newStream);
         // Do final startup.
         QueryExecutor queryExecutor = new QueryExecutorImpl(newStream, user, database,
             cancelSignalTimeout, info);
@@ -327,6 +350,54 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
         PSQLState.CONNECTION_UNABLE_TO_CONNECT);
   }
 
+  /**
+   * Connects to several of the candidate hosts concurrently, see {@link ParallelConnector}.
+   */
+  private QueryExecutor openConnectionsInParallel(Iterator<CandidateHost> hostIter,
+      HostRequirement targetServerType, final String user, final String database,
+      final Properties info, final SocketFactory socketFactory, final SslMode sslMode,
+      final GSSEncMode gssEncMode) throws SQLException {
+    final int cancelSignalTimeout = PGProperty.CANCEL_SIGNAL_TIMEOUT.getInt(info) * 1000;
+    int delay = PGProperty.PARALLEL_CONNECT_DELAY.getInt(info);
+    if (delay < 0) {
+      throw new PSQLException(GT.tr("Invalid parallelConnectDelay value: {0}", String.valueOf(delay)),
+          PSQLState.INVALID_PARAMETER_VALUE);
+    }
+    ParallelConnector<QueryExecutor> connector =
+        new ParallelConnector<QueryExecutor>(targetServerType, delay) {
+          @Override
+          QueryExecutor openConnection(HostSpec hostSpec) throws SQLException, IOException {
+            PGStream newStream = tryConnectWithFallback(user, database, info, socketFactory,
+                hostSpec, sslMode, gssEncMode);
+            try {
+              return new QueryExecutorImpl(newStream, user, database, cancelSignalTimeout, info);
+            } catch (SQLException e) {
+              closeStream(newStream);
+              throw e;
+            } catch (IOException e) {
+              closeStream(newStream);
+              throw e;
+            }
+          }
+
+          @Override
+          boolean isPrimary(QueryExecutor queryExecutor) throws SQLException, IOException {
+            return ConnectionFactoryImpl.this.isPrimary(queryExecutor);
+          }
+
+          @Override
+          void runInitialQueries(QueryExecutor queryExecutor) throws SQLException {
+            ConnectionFactoryImpl.this.runInitialQueries(queryExecutor, info);
+          }
+
+          @Override
+          void closeConnection(QueryExecutor queryExecutor) {
+            queryExecutor.close();
+          }
+        };
+    return connector.connect(hostIter);
+  }
+
   private List<String[]> getParametersForStartup(String user, String database, Properties info) {
     List<String[]> paramList = new ArrayList<String[]>();
     paramList.add(new String[]{"user", user});
@@ -829,7 +900,11 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
   }
 
   private boolean isPrimary(QueryExecutor queryExecutor) throws SQLException, IOException {
+    long start = System.nanoTime();
     Tuple results = SetupQueryRunner.run(queryExecutor, "show transaction_read_only", true);
+    // The round trip weights the host when loadBalanceByLatency is enabled
+    GlobalHostStatusTracker.reportHostLatency(queryExecutor.getHostSpec(),
+        System.nanoTime() - start);
     Tuple nonNullResults = castNonNull(results);
     String value = queryExecutor.getEncoding().decode(castNonNull(nonNullResults.get(0)));
     return value.equalsIgnoreCase("off");
@@ -18,6 +18,12 @@ import java.util.Queue;
 public class CopyDualImpl extends CopyOperationImpl implements CopyDual {
   private final Queue<byte[]> received = new ArrayDeque<byte[]>();
 
+  // Array the data is received in by readFromCopyIntoBuffer, reused by the next calls
+  private byte @Nullable [] reusableBuffer;
+  private boolean reuseBuffer;
+  private byte @Nullable [] currentDataRow;
+  private int currentDataLength;
+
   public void writeToCopy(byte[] data, int off, int siz) throws SQLException {
     getQueryExecutor().writeToCopy(this, data, off, siz);
   }
@@ -47,10 +53,68 @@ public class CopyDualImpl extends CopyOperationImpl implements CopyDual {
     return received.poll();
   }
 
+  /**
+   * Like {@link #readFromCopy(boolean)}, but the data is received in an array that is reused by
+   * the next calls of this method, rather than in a new array. The array can be longer than the
+   * data, see {@link #getDataLength()}.
+   *
+   * @param block whether to block waiting for input
+   * @return array holding the data from offset 0, or null when the copy is done or, if not
+   *     blocking, no data is available yet
+   * @throws SQLException if the operation fails
+   */
+  public byte @Nullable [] readFromCopyIntoBuffer(boolean block) throws SQLException {
+    byte[] queued = received.poll();
+    if (queued != null) {
+      currentDataLength = queued.length;
+      return queued;
+    }
+    currentDataRow = null;
+    currentDataLength = 0;
+    reuseBuffer = true;
+    try {
+      getQueryExecutor().readFromCopy(this, block);
+    } finally {
+      reuseBuffer = false;
+    }
+    return currentDataRow;
+  }
+
+  /**
+   * @return length of the data returned by the last {@link #readFromCopyIntoBuffer(boolean)}
+   */
+  public int getDataLength() {
+    return currentDataLength;
+  }
+
   @Override
   public void handleCommandStatus(String status) throws PSQLException {
   }
 
+  @Override
+  byte[] getCopyDataBuffer(int length) {
+    if (!reuseBuffer || currentDataRow != null) {
+      // the reused array already holds a message that was not handed out yet
+      return super.getCopyDataBuffer(length);
+    }
+    byte[] buffer = reusableBuffer;
+    if (buffer == null || buffer.length < length) {
+      buffer = new byte[Math.max(length, buffer == null ? 0 : buffer.length * 2)];
+      reusableBuffer = buffer;
+    }
+    return buffer;
+  }
+
+  @Override
+  void handleCopydata(byte[] data, int length) {
+    if (data == reusableBuffer && currentDataRow == null) {
+      currentDataRow = data;
+      currentDataLength = length;
+    } else {
+      received.add(data);
+    }
+  }
+
   protected void handleCopydata(byte[] data) {
     received.add(data);
   }
@@ -11,6 +11,8 @@ import org.postgresql.util.GT;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import java.sql.SQLException;
 
 /**
@@ -33,6 +35,13 @@ import java.sql.SQLException;
  * CopyInImpl.getUpdatedRowCount()</p>
  */
 public class CopyInImpl extends CopyOperationImpl implements CopyIn {
+  /**
+   * Small writes not sent yet, they are coalesced into a single CopyData message. See
+   * {@link org.postgresql.PGProperty#COPY_FRAME_SIZE}.
+   */
+  byte @Nullable [] frame;
+  int frameLength;
+
   public void writeToCopy(byte[] data, int off, int siz) throws SQLException {
     getQueryExecutor().writeToCopy(this, data, off, siz);
   }
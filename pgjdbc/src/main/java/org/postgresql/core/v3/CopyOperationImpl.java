@@ -49,9 +49,7 @@ public abstract class CopyOperationImpl implements CopyOperation {
   }
 
   public boolean isActive() {
-    synchronized (castNonNull(queryExecutor)) {
-      return queryExecutor.hasLock(this);
-    }
+    return castNonNull(queryExecutor).hasLock(this);
   }
 
   public void handleCommandStatus(String status) throws PSQLException {
@@ -72,6 +70,28 @@ public abstract class CopyOperationImpl implements CopyOperation {
    */
   protected abstract void handleCopydata(byte[] data) throws PSQLException;
 
+  /**
+   * Returns the array the next CopyData message is received in. By default a new array is
+   * allocated, as the data is handed out to the caller of {@code readFromCopy}.
+   *
+   * @param length length of the data
+   * @return array of at least {@code length} bytes
+   */
+  byte[] getCopyDataBuffer(int length) {
+    return new byte[length];
+  }
+
+  /**
+   * Consume received copy data.
+   *
+   * @param data array returned by {@link #getCopyDataBuffer(int)}
+   * @param length length of the data, starting at offset 0
+   * @throws PSQLException if some internal problem occurs
+   */
+  void handleCopydata(byte[] data, int length) throws PSQLException {
+    handleCopydata(data);
+  }
+
   public long getHandledRowCount() {
     return handledRowCount;
   }
@@ -27,6 +27,11 @@ import java.sql.SQLException;
  */
 public class CopyOutImpl extends CopyOperationImpl implements CopyOut {
   private byte @Nullable [] currentDataRow;
+  private int currentDataLength;
+
+  // Array the data is received in by readFromCopyIntoBuffer, reused by the next calls
+  private byte @Nullable [] reusableBuffer;
+  private boolean reuseBuffer;
 
   public byte @Nullable [] readFromCopy() throws SQLException {
     return readFromCopy(true);
@@ -39,7 +44,55 @@ public class CopyOutImpl extends CopyOperationImpl implements CopyOut {
     return currentDataRow;
   }
 
-  protected void handleCopydata(byte[] data) {
+  /**
+   * Like {@link #readFromCopy(boolean)}, but the data is received in an array that is reused by
+   * the next calls of this method, rather than in a new array. The array can be longer than the
+   * data, see {@link #getDataLength()}.
+   *
+   * @param block whether to block waiting for input
+   * @return array holding the data from offset 0, or null when the copy is done or, if not
+   *     blocking, no data is available yet
+   * @throws SQLException if the operation fails
+   */
+  public byte @Nullable [] readFromCopyIntoBuffer(boolean block) throws SQLException {
+    currentDataRow = null;
+    currentDataLength = 0;
+    reuseBuffer = true;
+    try {
+      getQueryExecutor().readFromCopy(this, block);
+    } finally {
+      reuseBuffer = false;
+    }
+    return currentDataRow;
+  }
+
+  /**
+   * @return length of the data returned by the last {@link #readFromCopyIntoBuffer(boolean)}
+   */
+  public int getDataLength() {
+    return currentDataLength;
+  }
+
+  @Override
+  byte[] getCopyDataBuffer(int length) {
+    if (!reuseBuffer) {
+      return super.getCopyDataBuffer(length);
+    }
+    byte[] buffer = reusableBuffer;
+    if (buffer == null || buffer.length < length) {
+      buffer = new byte[Math.max(length, buffer == null ? 0 : buffer.length * 2)];
+      reusableBuffer = buffer;
+    }
+    return buffer;
+  }
+
+  @Override
+  void handleCopydata(byte[] data, int length) {
     currentDataRow = data;
+    currentDataLength = length;
+  }
+
+  protected void handleCopydata(byte[] data) {
+    handleCopydata(data, data.length);
   }
 }
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core.v3;
+
+import static org.postgresql.util.internal.Nullness.castNonNull;
+
+import org.postgresql.hostchooser.CandidateHost;
+import org.postgresql.hostchooser.GlobalHostStatusTracker;
+import org.postgresql.hostchooser.HostRequirement;
+import org.postgresql.hostchooser.HostStatus;
+import org.postgresql.util.GT;
+import org.postgresql.util.HostSpec;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Connects to several hosts concurrently and keeps the first suitable connection, in the manner
+ * of the "happy eyeballs" algorithm (RFC 8305): the attempts are started in the order of the
+ * candidates, each one a delay after the previous one, or as soon as all the running attempts have
+ * failed. A dead or slow host thus costs that delay instead of the whole connect timeout.</p>
+ *
+ * <p>The candidates keep their meaning: a host that satisfies an earlier requirement of the
+ * candidate list (e.g. the secondaries of {@code preferSecondary}) is preferred to a host that
+ * only satisfies a later one, so a connection to the latter is only kept once the hosts that could
+ * satisfy the former have failed. The other attempts are abandoned, and their connections are
+ * closed as soon as they are established.</p>
+ *
+ * @param <C> type of the connections
+ */
+abstract class ParallelConnector<C> {
+  private static final Logger LOGGER = Logger.getLogger(ParallelConnector.class.getName());
+
+  private static final ThreadPoolExecutor CONNECTORS = new ThreadPoolExecutor(0,
+      Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+      new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "PostgreSQL-JDBC-Connect-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          // Do not keep the context class loader of the application that opened the connection
+          thread.setContextClassLoader(null);
+          return thread;
+        }
+      });
+
+  private final HostRequirement targetServerType;
+  private final long delayNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition attemptDone = lock.newCondition();
+
+  /**
+   * @param targetServerType value of the {@code targetServerType} connection property
+   * @param delayMillis delay between the start of two attempts, 0 to start them all at once
+   */
+  ParallelConnector(HostRequirement targetServerType, long delayMillis) {
+    this.targetServerType = targetServerType;
+    this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+  }
+
+  /**
+   * Opens a connection to the host, and authenticates.
+   *
+   * @param hostSpec the host to connect to
+   * @return the connection
+   * @throws SQLException if the connection cannot be established
+   * @throws IOException if the connection cannot be established
+   */
+  abstract C openConnection(HostSpec hostSpec) throws SQLException, IOException;
+
+  /**
+   * @param connection a connection opened by {@link #openConnection(HostSpec)}
+   * @return true if the server accepts writes, false if it is a secondary
+   * @throws SQLException if the status cannot be read
+   * @throws IOException if the status cannot be read
+   */
+  abstract boolean isPrimary(C connection) throws SQLException, IOException;
+
+  /**
+   * Prepares a connection to a suitable host for use.
+   *
+   * @param connection a connection opened by {@link #openConnection(HostSpec)}
+   * @throws SQLException if the connection cannot be prepared
+   */
+  abstract void runInitialQueries(C connection) throws SQLException;
+
+  /**
+   * Closes a connection that is not used.
+   *
+   * @param connection a connection opened by {@link #openConnection(HostSpec)}
+   */
+  abstract void closeConnection(C connection);
+
+  /**
+   * Connects to the candidate hosts, and returns the first suitable connection.
+   *
+   * @param candidates the candidate hosts, in the order of preference
+   * @return a connection to a suitable host
+   * @throws SQLException if none of the hosts is suitable
+   */
+  C connect(Iterator<CandidateHost> candidates) throws SQLException {
+    List<Attempt> attempts = createAttempts(candidates);
+    int started = 0;
+    long nextStart = System.nanoTime();
+    Attempt winner = null;
+    C result;
+    List<C> unused = new ArrayList<C>();
+    lock.lock();
+    try {
+      while (true) {
+        int running = 0;
+        winner = null;
+        int bestPendingTier = Integer.MAX_VALUE;
+        for (Attempt attempt : attempts) {
+          if (!attempt.done) {
+            if (attempt.started) {
+              running++;
+            }
+            bestPendingTier = Math.min(bestPendingTier, attempt.bestTier);
+          } else if (attempt.connection != null
+              && (winner == null || attempt.tier < winner.tier)) {
+            winner = attempt;
+          }
+        }
+        if (winner != null && winner.tier <= bestPendingTier) {
+          result = castNonNull(winner.connection);
+          break;
+        }
+        winner = null;
+
+        // Start the next attempt when it is due, or when all the running ones have failed
+        long now = System.nanoTime();
+        if (started < attempts.size() && (running == 0 || now - nextStart >= 0)) {
+          Attempt attempt = attempts.get(started++);
+          LOGGER.log(Level.FINE, "Trying to establish a protocol version 3 connection to {0}",
+              attempt.hostSpec);
+          attempt.started = true;
+          nextStart = now + delayNanos;
+          CONNECTORS.execute(attempt);
+          continue;
+        }
+        if (running == 0) {
+          throw noSuitableHost(attempts);
+        }
+
+        if (started < attempts.size()) {
+          attemptDone.awaitNanos(nextStart - now);
+        } else {
+          attemptDone.await();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PSQLException(GT.tr("Interrupted while attempting to connect."),
+          PSQLState.CONNECTION_UNABLE_TO_CONNECT, e);
+    } finally {
+      for (Attempt attempt : attempts) {
+        if (attempt == winner) {
+          continue;
+        }
+        attempt.abandoned = true;
+        C connection = attempt.connection;
+        if (connection != null) {
+          attempt.connection = null;
+          unused.add(connection);
+        }
+      }
+      lock.unlock();
+      for (C connection : unused) {
+        closeConnection(connection);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Creates an attempt per distinct host, in the order of the candidates. The candidates are
+   * split in tiers at each change of requirement, so the tier of a host reflects the preference
+   * of the requirement it satisfies.
+   */
+  private List<Attempt> createAttempts(Iterator<CandidateHost> candidates) {
+    Map<HostSpec, Attempt> attempts = new LinkedHashMap<HostSpec, Attempt>();
+    HostRequirement previous = null;
+    int tier = -1;
+    while (candidates.hasNext()) {
+      CandidateHost candidate = candidates.next();
+      if (candidate.targetServerType != previous) {
+        previous = candidate.targetServerType;
+        tier++;
+      }
+      Attempt attempt = attempts.get(candidate.hostSpec);
+      if (attempt == null) {
+        attempt = new Attempt(candidate.hostSpec, tier);
+        attempts.put(candidate.hostSpec, attempt);
+      }
+      attempt.requirements.add(candidate.targetServerType);
+      attempt.tiers.add(tier);
+    }
+    return new ArrayList<Attempt>(attempts.values());
+  }
+
+  private SQLException noSuitableHost(List<Attempt> attempts) {
+    Attempt last = null;
+    for (Attempt attempt : attempts) {
+      if (attempt.failure != null) {
+        last = attempt;
+      }
+    }
+    if (last == null) {
+      return new PSQLException(GT
+          .tr("Could not find a server with specified targetServerType: {0}", targetServerType),
+          PSQLState.CONNECTION_UNABLE_TO_CONNECT);
+    }
+    Exception failure = castNonNull(last.failure);
+    SQLException result;
+    if (failure instanceof SQLException) {
+      result = (SQLException) failure;
+    } else if (failure instanceof ConnectException) {
+      result = new PSQLException(GT.tr(
+          "Connection to {0} refused. Check that the hostname and port are correct and that the postmaster is accepting TCP/IP connections.",
+          last.hostSpec), PSQLState.CONNECTION_UNABLE_TO_CONNECT, failure);
+    } else {
+      result = new PSQLException(GT.tr("The connection attempt failed."),
+          PSQLState.CONNECTION_UNABLE_TO_CONNECT, failure);
+    }
+    for (Attempt attempt : attempts) {
+      if (attempt != last && attempt.failure != null) {
+        result.addSuppressed(attempt.failure);
+      }
+    }
+    return result;
+  }
+
+  private final class Attempt implements Runnable {
+    final HostSpec hostSpec;
+    final int bestTier;
+    final List<HostRequirement> requirements = new ArrayList<HostRequirement>();
+    final List<Integer> tiers = new ArrayList<Integer>();
+    // Guarded by lock
+    boolean started;
+    boolean done;
+    boolean abandoned;
+    int tier = Integer.MAX_VALUE;
+    @Nullable C connection;
+    @Nullable Exception failure;
+
+    Attempt(HostSpec hostSpec, int bestTier) {
+      this.hostSpec = hostSpec;
+      this.bestTier = bestTier;
+    }
+
+    private boolean checkPrimary() {
+      for (HostRequirement requirement : requirements) {
+        if (requirement != HostRequirement.any) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private int tierOf(HostStatus status) {
+      for (int i = 0; i < requirements.size(); i++) {
+        if (requirements.get(i).allowConnectingTo(status)) {
+          return tiers.get(i);
+        }
+      }
+      return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void run() {
+      C connection = null;
+      Exception failure = null;
+      int tier = Integer.MAX_VALUE;
+      try {
+        connection = openConnection(hostSpec);
+        HostStatus status = HostStatus.ConnectOK;
+        if (checkPrimary()) {
+          status = isPrimary(connection) ? HostStatus.Primary : HostStatus.Secondary;
+        }
+        GlobalHostStatusTracker.reportHostStatus(hostSpec, status);
+        tier = tierOf(status);
+        if (tier == Integer.MAX_VALUE) {
+          closeConnection(connection);
+          connection = null;
+        } else {
+          runInitialQueries(connection);
+        }
+      } catch (Exception e) {
+        if (LOGGER.isLoggable(Level.FINE)) {
+          LOGGER.log(Level.FINE, "Connection attempt to " + hostSpec + " failed", e);
+        }
+        if (connection != null) {
+          closeConnection(connection);
+          connection = null;
+        }
+        failure = e;
+        GlobalHostStatusTracker.reportHostStatus(hostSpec, HostStatus.ConnectFail);
+      }
+
+      lock.lock();
+      try {
+        done = true;
+        this.failure = failure;
+        this.tier = tier;
+        if (!abandoned) {
+          this.connection = connection;
+          connection = null;
+        }
+        attemptDone.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      if (connection != null) {
+        // Another host was chosen in the meantime
+        closeConnection(connection);
+      }
+    }
+  }
+}
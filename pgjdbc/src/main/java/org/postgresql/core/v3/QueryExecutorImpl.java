@@ -34,10 +34,11 @@ import org.postgresql.core.SqlCommand;
 import org.postgresql.core.SqlCommandType;
 import org.postgresql.core.TransactionState;
 import org.postgresql.core.Tuple;
+import org.postgresql.core.TupleSlab;
 import org.postgresql.core.Utils;
 import org.postgresql.core.v3.replication.V3ReplicationProtocol;
 import org.postgresql.jdbc.AutoSave;
-import org.postgresql.jdbc.BatchResultHandler;
+import org.postgresql.jdbc.ResourceLock;
 import org.postgresql.jdbc.TimestampUtils;
 import org.postgresql.util.ByteStreamWriter;
 import org.postgresql.util.GT;
@@ -52,8 +53,6 @@ import java.io.IOException;
 import java.lang.ref.PhantomReference;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
-import java.net.Socket;
-import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
@@ -67,6 +66,7 @@ import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
@@ -81,6 +81,12 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
   private static final Field[] NO_FIELDS = new Field[0];
 
+  /**
+   * Amount of data that might wait for the background task before the writes block. Batches read
+   * the responses once half of it is used, see {@link #flushIfDeadlockRisk}.
+   */
+  private static final int BACKGROUND_SEND_QUEUE_BYTES = 2 * 1024 * 1024;
+
   /**
    * TimeZone of the current connection (TimeZone backend parameter).
    */
@@ -129,6 +135,54 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
   private final ReplicationProtocol replicationProtocol;
 
+  /**
+   * Receive DataRow messages into a {@link TupleSlab} rather than into one array per field.
+   */
+  private final boolean slabRowStorage;
+
+  /**
+   * Send batches in the background while reading their results, see
+   * {@link PGProperty#BATCH_PIPELINING}.
+   */
+  private final boolean batchPipelining;
+
+  /**
+   * True while a batch is sent in the background: the results are read concurrently, so there is
+   * no need to guess when the socket buffers are about to fill up.
+   */
+  private boolean sendingInBackground;
+
+  /**
+   * Largest CopyData message the small writes to a COPY FROM STDIN are coalesced into, see
+   * {@link PGProperty#COPY_FRAME_SIZE}.
+   */
+  private final int copyFrameSize;
+
+  /**
+   * Send the data of COPY FROM STDIN from a background task, see
+   * {@link PGProperty#COPY_BACKGROUND_SEND}.
+   */
+  private final boolean copyBackgroundSend;
+
+  /**
+   * Size the fetches from portals after the width of the rows, see
+   * {@link PGProperty#ADAPTIVE_FETCH}.
+   */
+  private final boolean adaptiveFetch;
+  private final int adaptiveFetchMinimum;
+  private final int adaptiveFetchMaximum;
+
+  /**
+   * Number of rows a streamed execution reads per fetch when the fetch size is not set, see
+   * {@link QueryExecutor#QUERY_STREAM_ROWS}.
+   */
+  private static final int STREAM_ROWS = 256;
+
+  /**
+   * Execution whose rows are still on the wire, see {@link QueryExecutor#QUERY_STREAM_ROWS}.
+   */
+  private @Nullable RowStream rowStream;
+
   /**
    * {@code CommandComplete(B)} messages are quite common, so we reuse instance to parse those
    */
@@ -142,6 +196,13 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
     this.allowEncodingChanges = PGProperty.ALLOW_ENCODING_CHANGES.getBoolean(info);
     this.cleanupSavePoints = PGProperty.CLEANUP_SAVEPOINTS.getBoolean(info);
+    this.slabRowStorage = "slab".equals(PGProperty.ROW_STORAGE.get(info));
+    this.batchPipelining = PGProperty.BATCH_PIPELINING.getBoolean(info);
+    this.copyFrameSize = PGProperty.COPY_FRAME_SIZE.getInt(info);
+    this.copyBackgroundSend = PGProperty.COPY_BACKGROUND_SEND.getBoolean(info);
+    this.adaptiveFetch = PGProperty.ADAPTIVE_FETCH.getBoolean(info);
+    this.adaptiveFetchMinimum = PGProperty.ADAPTIVE_FETCH_MINIMUM.getInt(info);
+    this.adaptiveFetchMaximum = PGProperty.ADAPTIVE_FETCH_MAXIMUM.getInt(info);
     // assignment.type.incompatible, argument.type.incompatible
     this.replicationProtocol = new V3ReplicationProtocol(this, pgStream);
     readStartupMessages();
@@ -159,8 +220,8 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    * such as COPY subprotocol. waitOnLock() must be called at beginning of each connection access
    * point.</p>
    *
-   * <p>Public methods sharing that state must then be synchronized among themselves. Normal method
-   * synchronization typically suffices for that.</p>
+   * <p>Public methods sharing that state must then be guarded by {@link #lock} among themselves.
+   * Holding the lock for the duration of the method typically suffices for that.</p>
    *
    * <p>See notes on related methods as well as currentCopy() below.</p>
    */
@@ -194,17 +255,18 @@ public class QueryExecutorImpl extends QueryExecutorBase {
           PSQLState.OBJECT_NOT_IN_STATE);
     }
     lockedFor = null;
-    this.notify();
+    lockCondition.signal();
   }
 
   /**
-   * Wait until our lock is released. Execution of a single synchronized method can then continue
-   * without further ado. Must be called at beginning of each synchronized public method.
+   * Wait until our lock is released. Execution of a single guarded method can then continue
+   * without further ado. Must be called at beginning of each guarded public method.
    */
   private void waitOnLock() throws PSQLException {
+    finishRowStream();
     while (lockedFor != null) {
       try {
-        this.wait();
+        lockCondition.await();
       } catch (InterruptedException ie) {
         Thread.currentThread().interrupt();
         throw new PSQLException(
@@ -219,7 +281,9 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    * @return whether given object actually holds the lock
    */
   boolean hasLock(@Nullable Object holder) {
-    return lockedFor == holder;
+    try (ResourceLock ignore = lock.obtain()) {
+      return lockedFor == holder;
+    }
   }
 
   //
@@ -283,81 +347,286 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     }
   }
 
-  public synchronized void execute(Query query, @Nullable ParameterList parameters,
+  public void execute(Query query, @Nullable ParameterList parameters,
       ResultHandler handler,
       int maxRows, int fetchSize, int flags) throws SQLException {
-    waitOnLock();
+    try (ResourceLock ignore = lock.obtain()) {
+      waitOnLock();
+      if (LOGGER.isLoggable(Level.FINEST)) {
+        LOGGER.log(Level.FINEST, "  simple execute, handler={0}, maxRows={1}, fetchSize={2}, flags={3}",
+            new Object[]{handler, maxRows, fetchSize, flags});
+      }
+
+      if (parameters == null) {
+        parameters = SimpleQuery.NO_PARAMETERS;
+      }
+
+      flags = updateQueryMode(flags);
+
+      boolean describeOnly = (QUERY_DESCRIBE_ONLY & flags) != 0;
+
+      ((V3ParameterList) parameters).convertFunctionOutParameters();
+
+      // Check parameters are all set..
+      if (!describeOnly) {
+        ((V3ParameterList) parameters).checkAllParametersSet();
+      }
+
+      boolean autosave = false;
+      try {
+        try {
+          handler = sendQueryPreamble(handler, flags);
+          autosave = sendAutomaticSavepoint(query, flags);
+          sendQuery(query, (V3ParameterList) parameters, maxRows, fetchSize, flags,
+              handler, null);
+          if ((flags & QueryExecutor.QUERY_EXECUTE_AS_SIMPLE) != 0) {
+            // Sync message is not required for 'Q' execution as 'Q' ends with ReadyForQuery message
+            // on its own
+          } else {
+            sendSync();
+          }
+          // The savepoint must be released after the execution, so the rows cannot be streamed
+          int streamRows = autosave ? 0 : streamRows(query, flags, fetchSize);
+          processResults(handler, flags, streamRows);
+          estimatedReceiveBufferBytes = 0;
+        } catch (PGBindException se) {
+          // There are three causes of this error, an
+          // invalid total Bind message length, a
+          // BinaryStream that cannot provide the amount
+          // of data claimed by the length argument, and
+          // a BinaryStream that throws an Exception
+          // when reading.
+          //
+          // We simply do not send the Execute message
+          // so we can just continue on as if nothing
+          // has happened. Perhaps we need to
+          // introduce an error here to force the
+          // caller to rollback if there is a
+          // transaction in progress?
+          //
+          sendSync();
+          processResults(handler, flags);
+          estimatedReceiveBufferBytes = 0;
+          handler
+              .handleError(new PSQLException(GT.tr("Unable to bind parameter values for statement."),
+                  PSQLState.INVALID_PARAMETER_VALUE, se.getIOException()));
+        }
+      } catch (IOException e) {
+        abort();
+        handler.handleError(
+            new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+                PSQLState.CONNECTION_FAILURE, e));
+      }
+
+      try {
+        handler.handleCompletion();
+        if (cleanupSavePoints) {
+          releaseSavePoint(autosave, flags);
+        }
+      } catch (SQLException e) {
+        rollbackIfRequired(autosave, e);
+      }
+    }
+  }
+
+  /**
+   * An asynchronous execution: the query is sent by the submitting thread, and the response is
+   * processed by {@link AsyncResponseLoop}. The execution holds the connection lock from the moment
+   * the query is sent until the response is processed.
+   */
+  private final class AsyncExecution implements Runnable {
+    final Query query;
+    final V3ParameterList parameters;
+    ResultHandler handler;
+    final int maxRows;
+    final int fetchSize;
+    final int flags;
+    final CompletableFuture<Void> future = new CompletableFuture<Void>();
+    boolean sendFailed;
+    @Nullable PGBindException bindException;
+
+    AsyncExecution(Query query, V3ParameterList parameters, ResultHandler handler, int maxRows,
+        int fetchSize, int flags) {
+      this.query = query;
+      this.parameters = parameters;
+      this.handler = handler;
+      this.maxRows = maxRows;
+      this.fetchSize = fetchSize;
+      this.flags = flags;
+    }
+
+    @Override
+    public void run() {
+      receiveAsync(this);
+    }
+  }
+
+  /**
+   * The asynchronous execution that owns the connection or waits for the lock, if any.
+   */
+  private @Nullable AsyncExecution activeAsyncExecution;
+
+  /**
+   * Asynchronous executions that wait for {@link #activeAsyncExecution}, in submission order.
+   */
+  private final Deque<AsyncExecution> pendingAsyncExecutions = new ArrayDeque<AsyncExecution>();
+
+  @Override
+  public CompletableFuture<Void> executeAsync(Query query, @Nullable ParameterList parameters,
+      ResultHandler handler, int maxRows, int fetchSize, int flags) throws SQLException {
     if (LOGGER.isLoggable(Level.FINEST)) {
-      LOGGER.log(Level.FINEST, "  simple execute, handler={0}, maxRows={1}, fetchSize={2}, flags={3}",
+      LOGGER.log(Level.FINEST, "  async execute, handler={0}, maxRows={1}, fetchSize={2}, flags={3}",
           new Object[]{handler, maxRows, fetchSize, flags});
     }
 
     if (parameters == null) {
       parameters = SimpleQuery.NO_PARAMETERS;
     }
-
-    flags = updateQueryMode(flags);
-
-    boolean describeOnly = (QUERY_DESCRIBE_ONLY & flags) != 0;
-
     ((V3ParameterList) parameters).convertFunctionOutParameters();
+    ((V3ParameterList) parameters).checkAllParametersSet();
+
+    AsyncExecution execution;
+    try (ResourceLock ignore = lock.obtain()) {
+      execution = new AsyncExecution(query, (V3ParameterList) parameters, handler, maxRows,
+          fetchSize, updateQueryMode(flags));
+      if (activeAsyncExecution != null) {
+        pendingAsyncExecutions.add(execution);
+      } else {
+        activeAsyncExecution = execution;
+        scheduleAsync(execution);
+      }
+    }
+    return execution.future;
+  }
 
-    // Check parameters are all set..
-    if (!describeOnly) {
-      ((V3ParameterList) parameters).checkAllParametersSet();
+  /**
+   * Sends the query of the active asynchronous execution, or waits for the connection on a worker
+   * thread if it is locked by another operation, such as COPY.
+   */
+  private void scheduleAsync(final AsyncExecution execution) {
+    if (lockedFor == null) {
+      sendAsync(execution);
+      return;
     }
+    AsyncResponseLoop.getInstance().getWorkers().execute(new Runnable() {
+      @Override
+      public void run() {
+        try (ResourceLock ignore = lock.obtain()) {
+          try {
+            waitOnLock();
+          } catch (PSQLException e) {
+            execution.sendFailed = true;
+            execution.handler.handleError(e);
+            execution.run();
+            return;
+          }
+          sendAsync(execution);
+        }
+      }
+    });
+  }
 
-    boolean autosave = false;
+  private void sendAsync(AsyncExecution execution) {
+    int flags = execution.flags;
     try {
-      try {
-        handler = sendQueryPreamble(handler, flags);
-        autosave = sendAutomaticSavepoint(query, flags);
-        sendQuery(query, (V3ParameterList) parameters, maxRows, fetchSize, flags,
-            handler, null);
-        if ((flags & QueryExecutor.QUERY_EXECUTE_AS_SIMPLE) != 0) {
-          // Sync message is not required for 'Q' execution as 'Q' ends with ReadyForQuery message
-          // on its own
-        } else {
-          sendSync();
+      lock(execution);
+      execution.handler = sendQueryPreamble(execution.handler, flags);
+      // Deadlock avoidance (see flushIfDeadlockRisk) is not needed for a single query, and a Sync
+      // here would make the submitting thread wait for the backend
+      Query[] subqueries = execution.query.getSubqueries();
+      if (subqueries == null) {
+        sendOneQuery((SimpleQuery) execution.query, (SimpleParameterList) execution.parameters,
+            execution.maxRows, execution.fetchSize, flags);
+      } else {
+        SimpleParameterList[] subparams = execution.parameters.getSubparams();
+        for (int i = 0; i < subqueries.length; ++i) {
+          SimpleParameterList subparam = SimpleQuery.NO_PARAMETERS;
+          if (subparams != null) {
+            subparam = subparams[i];
+          }
+          sendOneQuery((SimpleQuery) subqueries[i], subparam, execution.maxRows,
+              execution.fetchSize, flags);
         }
-        processResults(handler, flags);
-        estimatedReceiveBufferBytes = 0;
-      } catch (PGBindException se) {
-        // There are three causes of this error, an
-        // invalid total Bind message length, a
-        // BinaryStream that cannot provide the amount
-        // of data claimed by the length argument, and
-        // a BinaryStream that throws an Exception
-        // when reading.
-        //
-        // We simply do not send the Execute message
-        // so we can just continue on as if nothing
-        // has happened. Perhaps we need to
-        // introduce an error here to force the
-        // caller to rollback if there is a
-        // transaction in progress?
-        //
+      }
+      if ((flags & QueryExecutor.QUERY_EXECUTE_AS_SIMPLE) == 0) {
         sendSync();
-        processResults(handler, flags);
-        estimatedReceiveBufferBytes = 0;
-        handler
-            .handleError(new PSQLException(GT.tr("Unable to bind parameter values for statement."),
-                PSQLState.INVALID_PARAMETER_VALUE, se.getIOException()));
+      } else {
+        pgStream.flush();
+      }
+    } catch (PGBindException se) {
+      // See execute(Query, ...): the Execute message is not sent, the error is reported once
+      // the backend acknowledges the Sync
+      execution.bindException = se;
+      try {
+        sendSync();
+      } catch (IOException e) {
+        abort();
+        execution.sendFailed = true;
+        execution.handler.handleError(
+            new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+                PSQLState.CONNECTION_FAILURE, e));
       }
     } catch (IOException e) {
       abort();
-      handler.handleError(
+      execution.sendFailed = true;
+      execution.handler.handleError(
           new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
               PSQLState.CONNECTION_FAILURE, e));
+    } catch (PSQLException e) {
+      execution.sendFailed = true;
+      execution.handler.handleError(e);
+    }
+    if (execution.sendFailed) {
+      AsyncResponseLoop.getInstance().getWorkers().execute(execution);
+    } else {
+      AsyncResponseLoop.getInstance().whenReadable(pgStream, execution);
     }
+  }
 
+  /**
+   * Processes the response of an asynchronous execution, starts the next pending one, and
+   * completes the future. Runs on a worker thread of {@link AsyncResponseLoop}.
+   */
+  private void receiveAsync(AsyncExecution execution) {
+    ResultHandler handler = execution.handler;
+    try (ResourceLock ignore = lock.obtain()) {
+      if (!execution.sendFailed) {
+        try {
+          processResults(handler, execution.flags);
+          estimatedReceiveBufferBytes = 0;
+          PGBindException bindException = execution.bindException;
+          if (bindException != null) {
+            handler.handleError(
+                new PSQLException(GT.tr("Unable to bind parameter values for statement."),
+                    PSQLState.INVALID_PARAMETER_VALUE, bindException.getIOException()));
+          }
+        } catch (IOException e) {
+          abort();
+          handler.handleError(
+              new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+                  PSQLState.CONNECTION_FAILURE, e));
+        }
+      }
+      if (hasLock(execution)) {
+        try {
+          unlock(execution);
+        } catch (PSQLException e) {
+          // not reachable as the lock is held by the execution
+        }
+      }
+      AsyncExecution next = pendingAsyncExecutions.poll();
+      activeAsyncExecution = next;
+      if (next != null) {
+        scheduleAsync(next);
+      }
+    }
     try {
       handler.handleCompletion();
-      if (cleanupSavePoints) {
-        releaseSavePoint(autosave, flags);
-      }
+      execution.future.complete(null);
     } catch (SQLException e) {
-      rollbackIfRequired(autosave, e);
+      execution.future.completeExceptionally(e);
+    } catch (RuntimeException e) {
+      execution.future.completeExceptionally(e);
     }
   }
 
@@ -460,6 +729,11 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   //
   // See github issue #194 and #195 .
   //
+  // With batchPipelining=true the batch is written by a background task while the
+  // results are read, which removes the deadlock altogether, so no estimation is done.
+  // The batch is only split once the data waiting for the background task fills half
+  // of BACKGROUND_SEND_QUEUE_BYTES, that is when the backend falls behind.
+  //
   // Assume 64k server->client buffering, which is extremely conservative. A typical
   // system will have 200kb or more of buffers for its receive buffers, and the sending
   // system will typically have the same on the send side, giving us 400kb or to work
@@ -470,71 +744,94 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   private static final int MAX_BUFFERED_RECV_BYTES = 64000;
   private static final int NODATA_QUERY_RESPONSE_SIZE_BYTES = 250;
 
-  public synchronized void execute(Query[] queries, @Nullable ParameterList[] parameterLists,
-      BatchResultHandler batchHandler, int maxRows, int fetchSize, int flags) throws SQLException {
-    waitOnLock();
-    if (LOGGER.isLoggable(Level.FINEST)) {
-      LOGGER.log(Level.FINEST, "  batch execute {0} queries, handler={1}, maxRows={2}, fetchSize={3}, flags={4}",
-          new Object[]{queries.length, batchHandler, maxRows, fetchSize, flags});
-    }
+  public void execute(Query[] queries, @Nullable ParameterList[] parameterLists,
+      ResultHandler batchHandler, int maxRows, int fetchSize, int flags) throws SQLException {
+    try (ResourceLock ignore = lock.obtain()) {
+      waitOnLock();
+      if (LOGGER.isLoggable(Level.FINEST)) {
+        LOGGER.log(Level.FINEST, "  batch execute {0} queries, handler={1}, maxRows={2}, fetchSize={3}, flags={4}",
+            new Object[]{queries.length, batchHandler, maxRows, fetchSize, flags});
+      }
 
-    flags = updateQueryMode(flags);
+      flags = updateQueryMode(flags);
 
-    boolean describeOnly = (QUERY_DESCRIBE_ONLY & flags) != 0;
-    // Check parameters and resolve OIDs.
-    if (!describeOnly) {
-      for (ParameterList parameterList : parameterLists) {
-        if (parameterList != null) {
-          ((V3ParameterList) parameterList).checkAllParametersSet();
+      boolean describeOnly = (QUERY_DESCRIBE_ONLY & flags) != 0;
+      // Check parameters and resolve OIDs.
+      if (!describeOnly) {
+        for (ParameterList parameterList : parameterLists) {
+          if (parameterList != null) {
+            ((V3ParameterList) parameterList).checkAllParametersSet();
+          }
         }
       }
-    }
-
-    boolean autosave = false;
-    ResultHandler handler = batchHandler;
-    try {
-      handler = sendQueryPreamble(batchHandler, flags);
-      autosave = sendAutomaticSavepoint(queries[0], flags);
-      estimatedReceiveBufferBytes = 0;
 
-      for (int i = 0; i < queries.length; ++i) {
-        Query query = queries[i];
-        V3ParameterList parameters = (V3ParameterList) parameterLists[i];
-        if (parameters == null) {
-          parameters = SimpleQuery.NO_PARAMETERS;
+      boolean autosave = false;
+      ResultHandler handler = batchHandler;
+      @SuppressWarnings("deprecation")
+      boolean backgroundSend = batchPipelining && queries.length > 1
+          && (flags & (QueryExecutor.QUERY_EXECUTE_AS_SIMPLE | QueryExecutor.QUERY_DISALLOW_BATCHING)) == 0
+          && pgStream.isBackgroundSendSupported();
+      try {
+        handler = sendQueryPreamble(batchHandler, flags);
+        autosave = sendAutomaticSavepoint(queries[0], flags);
+        estimatedReceiveBufferBytes = 0;
+        if (backgroundSend) {
+          pgStream.startBackgroundSend(AsyncResponseLoop.getInstance().getWorkers(),
+              BACKGROUND_SEND_QUEUE_BYTES);
+          sendingInBackground = true;
         }
 
-        sendQuery(query, parameters, maxRows, fetchSize, flags, handler, batchHandler);
+        for (int i = 0; i < queries.length; ++i) {
+          Query query = queries[i];
+          V3ParameterList parameters = (V3ParameterList) parameterLists[i];
+          if (parameters == null) {
+            parameters = SimpleQuery.NO_PARAMETERS;
+          }
 
-        if (handler.getException() != null) {
-          break;
+          sendQuery(query, parameters, maxRows, fetchSize, flags, handler, batchHandler);
+
+          if (handler.getException() != null) {
+            break;
+          }
         }
-      }
 
-      if (handler.getException() == null) {
-        if ((flags & QueryExecutor.QUERY_EXECUTE_AS_SIMPLE) != 0) {
-          // Sync message is not required for 'Q' execution as 'Q' ends with ReadyForQuery message
-          // on its own
-        } else {
-          sendSync();
+        if (handler.getException() == null) {
+          if ((flags & QueryExecutor.QUERY_EXECUTE_AS_SIMPLE) != 0) {
+            // Sync message is not required for 'Q' execution as 'Q' ends with ReadyForQuery message
+            // on its own
+          } else {
+            sendSync();
+          }
+          processResults(handler, flags);
+          estimatedReceiveBufferBytes = 0;
+        }
+        if (backgroundSend) {
+          sendingInBackground = false;
+          pgStream.finishBackgroundSend();
+        }
+      } catch (IOException e) {
+        abort();
+        handler.handleError(
+            new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+                PSQLState.CONNECTION_FAILURE, e));
+      } finally {
+        if (sendingInBackground) {
+          // The batch failed: the backend might not read the queued data until its responses are
+          // read, so waiting for it to be sent could block forever
+          sendingInBackground = false;
+          pgStream.abortBackgroundSend();
+          abort();
         }
-        processResults(handler, flags);
-        estimatedReceiveBufferBytes = 0;
       }
-    } catch (IOException e) {
-      abort();
-      handler.handleError(
-          new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
-              PSQLState.CONNECTION_FAILURE, e));
-    }
 
-    try {
-      handler.handleCompletion();
-      if (cleanupSavePoints) {
-        releaseSavePoint(autosave, flags);
+      try {
+        handler.handleCompletion();
+        if (cleanupSavePoints) {
+          releaseSavePoint(autosave, flags);
+        }
+      } catch (SQLException e) {
+        rollbackIfRequired(autosave, e);
       }
-    } catch (SQLException e) {
-      rollbackIfRequired(autosave, e);
     }
   }
 
@@ -593,20 +890,22 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   // Fastpath
   //
 
-  public synchronized byte @Nullable [] fastpathCall(int fnid, ParameterList parameters,
+  public byte @Nullable [] fastpathCall(int fnid, ParameterList parameters,
       boolean suppressBegin)
       throws SQLException {
-    waitOnLock();
-    if (!suppressBegin) {
-      doSubprotocolBegin();
-    }
-    try {
-      sendFastpathCall(fnid, (SimpleParameterList) parameters);
-      return receiveFastpathResult();
-    } catch (IOException ioe) {
-      abort();
-      throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
-          PSQLState.CONNECTION_FAILURE, ioe);
+    try (ResourceLock ignore = lock.obtain()) {
+      waitOnLock();
+      if (!suppressBegin) {
+        doSubprotocolBegin();
+      }
+      try {
+        sendFastpathCall(fnid, (SimpleParameterList) parameters);
+        return receiveFastpathResult();
+      } catch (IOException ioe) {
+        abort();
+        throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      }
     }
   }
 
@@ -709,8 +1008,10 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   }
 
   // Just for API compatibility with previous versions.
-  public synchronized void processNotifies() throws SQLException {
-    processNotifies(-1);
+  public void processNotifies() throws SQLException {
+    try (ResourceLock ignore = lock.obtain()) {
+      processNotifies(-1);
+    }
   }
 
   /**
@@ -718,81 +1019,135 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    *                      when =0, block forever
    *                      when &lt; 0, don't block
    */
-  public synchronized void processNotifies(int timeoutMillis) throws SQLException {
-    waitOnLock();
-    // Asynchronous notifies only arrive when we are not in a transaction
-    if (getTransactionState() != TransactionState.IDLE) {
-      return;
-    }
+  public void processNotifies(int timeoutMillis) throws SQLException {
+    try (ResourceLock ignore = lock.obtain()) {
+      waitOnLock();
+      // Asynchronous notifies only arrive when we are not in a transaction
+      if (getTransactionState() != TransactionState.IDLE) {
+        return;
+      }
+
+      if (hasNotifications()) {
+        // No need to timeout when there are already notifications. We just check for more in this case.
+        timeoutMillis = -1;
+      }
+
+      boolean useTimeout = timeoutMillis > 0;
+      long startTime = 0;
+      int oldTimeout = 0;
+      if (useTimeout) {
+        startTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+        try {
+          oldTimeout = pgStream.getNetworkTimeout();
+        } catch (IOException e) {
+          throw new PSQLException(GT.tr("An error occurred while trying to get the socket "
+            + "timeout."), PSQLState.CONNECTION_FAILURE, e);
+        }
+      }
 
-    if (hasNotifications()) {
-      // No need to timeout when there are already notifications. We just check for more in this case.
-      timeoutMillis = -1;
+      try {
+        while (timeoutMillis >= 0 || pgStream.hasMessagePending()) {
+          if (useTimeout && timeoutMillis >= 0) {
+            setSocketTimeout(timeoutMillis);
+          }
+          int c = pgStream.receiveChar();
+          if (useTimeout && timeoutMillis >= 0) {
+            setSocketTimeout(0); // Don't timeout after first char
+          }
+          switch (c) {
+            case 'A': // Asynchronous Notify
+              receiveAsyncNotify();
+              timeoutMillis = -1;
+              continue;
+            case 'E':
+              // Error Response (response to pretty much everything; backend then skips until Sync)
+              throw receiveErrorResponse();
+            case 'N': // Notice Response (warnings / info)
+              SQLWarning warning = receiveNoticeResponse();
+              addWarning(warning);
+              if (useTimeout) {
+                long newTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+                timeoutMillis += startTime - newTimeMillis; // Overflows after 49 days, ignore that
+                startTime = newTimeMillis;
+                if (timeoutMillis == 0) {
+                  timeoutMillis = -1; // Don't accidentially wait forever
+                }
+              }
+              break;
+            default:
+              throw new PSQLException(GT.tr("Unknown Response Type {0}.", (char) c),
+                  PSQLState.CONNECTION_FAILURE);
+          }
+        }
+      } catch (SocketTimeoutException ioe) {
+        // No notifications this time...
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      } finally {
+        if (useTimeout) {
+          setSocketTimeout(oldTimeout);
+        }
+      }
     }
+  }
 
-    boolean useTimeout = timeoutMillis > 0;
-    long startTime = 0;
-    int oldTimeout = 0;
-    if (useTimeout) {
-      startTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+  @Override
+  public void ping(int timeoutMillis) throws SQLException {
+    try (ResourceLock ignore = lock.obtain()) {
+      waitOnLock();
+      int oldTimeout;
       try {
-        oldTimeout = pgStream.getSocket().getSoTimeout();
-      } catch (SocketException e) {
+        oldTimeout = pgStream.getNetworkTimeout();
+      } catch (IOException e) {
         throw new PSQLException(GT.tr("An error occurred while trying to get the socket "
           + "timeout."), PSQLState.CONNECTION_FAILURE, e);
       }
-    }
-
-    try {
-      while (timeoutMillis >= 0 || pgStream.hasMessagePending()) {
-        if (useTimeout && timeoutMillis >= 0) {
-          setSocketTimeout(timeoutMillis);
-        }
-        int c = pgStream.receiveChar();
-        if (useTimeout && timeoutMillis >= 0) {
-          setSocketTimeout(0); // Don't timeout after first char
+      setSocketTimeout(timeoutMillis);
+      try {
+        LOGGER.log(Level.FINEST, " FE=> Sync");
+        // Not sendSync(), as no query is pending
+        pgStream.sendChar('S');
+        pgStream.sendInteger4(4);
+        pgStream.flush();
+        while (true) {
+          int c = pgStream.receiveChar();
+          switch (c) {
+            case 'A': // Asynchronous Notify
+              receiveAsyncNotify();
+              break;
+            case 'N': // Notice Response (warnings / info)
+              addWarning(receiveNoticeResponse());
+              break;
+            case 'S': // Parameter Status
+              receiveParameterStatus();
+              break;
+            case 'E':
+              throw receiveErrorResponse();
+            case 'Z': // Ready For Query
+              receiveRFQ();
+              return;
+            default:
+              throw new PSQLException(GT.tr("Unknown Response Type {0}.", (char) c),
+                  PSQLState.CONNECTION_FAILURE);
+          }
         }
-        switch (c) {
-          case 'A': // Asynchronous Notify
-            receiveAsyncNotify();
-            timeoutMillis = -1;
-            continue;
-          case 'E':
-            // Error Response (response to pretty much everything; backend then skips until Sync)
-            throw receiveErrorResponse();
-          case 'N': // Notice Response (warnings / info)
-            SQLWarning warning = receiveNoticeResponse();
-            addWarning(warning);
-            if (useTimeout) {
-              long newTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
-              timeoutMillis += startTime - newTimeMillis; // Overflows after 49 days, ignore that
-              startTime = newTimeMillis;
-              if (timeoutMillis == 0) {
-                timeoutMillis = -1; // Don't accidentially wait forever
-              }
-            }
-            break;
-          default:
-            throw new PSQLException(GT.tr("Unknown Response Type {0}.", (char) c),
-                PSQLState.CONNECTION_FAILURE);
+      } catch (IOException ioe) {
+        // A timeout leaves the answer in flight, so the connection cannot be used any longer
+        abort();
+        throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      } finally {
+        if (!pgStream.isClosed()) {
+          setSocketTimeout(oldTimeout);
         }
       }
-    } catch (SocketTimeoutException ioe) {
-      // No notifications this time...
-    } catch (IOException ioe) {
-      throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
-          PSQLState.CONNECTION_FAILURE, ioe);
-    } finally {
-      if (useTimeout) {
-        setSocketTimeout(oldTimeout);
-      }
     }
   }
 
   private void setSocketTimeout(int millis) throws PSQLException {
     try {
-      Socket s = pgStream.getSocket();
-      if (!s.isClosed()) { // Is this check required?
+      if (!pgStream.isClosed()) { // Is this check required?
         pgStream.setNetworkTimeout(millis);
       }
     } catch (IOException e) {
@@ -874,28 +1229,30 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    * @return CopyIn or CopyOut operation object
    * @throws SQLException on failure
    */
-  public synchronized CopyOperation startCopy(String sql, boolean suppressBegin)
+  public CopyOperation startCopy(String sql, boolean suppressBegin)
       throws SQLException {
-    waitOnLock();
-    if (!suppressBegin) {
-      doSubprotocolBegin();
-    }
-    byte[] buf = Utils.encodeUTF8(sql);
+    try (ResourceLock ignore = lock.obtain()) {
+      waitOnLock();
+      if (!suppressBegin) {
+        doSubprotocolBegin();
+      }
+      byte[] buf = Utils.encodeUTF8(sql);
 
-    try {
-      LOGGER.log(Level.FINEST, " FE=> Query(CopyStart)");
+      try {
+        LOGGER.log(Level.FINEST, " FE=> Query(CopyStart)");
 
-      pgStream.sendChar('Q');
-      pgStream.sendInteger4(buf.length + 4 + 1);
-      pgStream.send(buf);
-      pgStream.sendChar(0);
-      pgStream.flush();
+        pgStream.sendChar('Q');
+        pgStream.sendInteger4(buf.length + 4 + 1);
+        pgStream.send(buf);
+        pgStream.sendChar(0);
+        pgStream.flush();
 
-      return castNonNull(processCopyResults(null, true));
-      // expect a CopyInResponse or CopyOutResponse to our query above
-    } catch (IOException ioe) {
-      throw new PSQLException(GT.tr("Database connection failed when starting copy"),
-          PSQLState.CONNECTION_FAILURE, ioe);
+        return castNonNull(processCopyResults(null, true));
+        // expect a CopyInResponse or CopyOutResponse to our query above
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("Database connection failed when starting copy"),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      }
     }
   }
 
@@ -907,18 +1264,20 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    * @throws SQLException on locking failure
    * @throws IOException on database connection failure
    */
-  private synchronized void initCopy(CopyOperationImpl op) throws SQLException, IOException {
-    pgStream.receiveInteger4(); // length not used
-    int rowFormat = pgStream.receiveChar();
-    int numFields = pgStream.receiveInteger2();
-    int[] fieldFormats = new int[numFields];
+  private void initCopy(CopyOperationImpl op) throws SQLException, IOException {
+    try (ResourceLock ignore = lock.obtain()) {
+      pgStream.receiveInteger4(); // length not used
+      int rowFormat = pgStream.receiveChar();
+      int numFields = pgStream.receiveInteger2();
+      int[] fieldFormats = new int[numFields];
+
+      for (int i = 0; i < numFields; i++) {
+        fieldFormats[i] = pgStream.receiveInteger2();
+      }
 
-    for (int i = 0; i < numFields; i++) {
-      fieldFormats[i] = pgStream.receiveInteger2();
+      lock(op);
+      op.init(this, rowFormat, fieldFormats);
     }
-
-    lock(op);
-    op.init(this, rowFormat, fieldFormats);
   }
 
   /**
@@ -938,7 +1297,10 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
     try {
       if (op instanceof CopyIn) {
-        synchronized (this) {
+        try (ResourceLock ignore = lock.obtain()) {
+          if (op instanceof CopyInImpl) {
+            ((CopyInImpl) op).frameLength = 0; // the server discards the data anyway
+          }
           LOGGER.log(Level.FINEST, "FE => CopyFail");
           final byte[] msg = Utils.encodeUTF8("Copy cancel requested");
           pgStream.sendChar('f'); // CopyFail
@@ -946,6 +1308,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
           pgStream.send(msg);
           pgStream.sendChar(0);
           pgStream.flush();
+          pgStream.finishBackgroundSend();
           do {
             try {
               processCopyResults(op, true); // discard rest of input
@@ -975,7 +1338,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
       // future operations, rather than failing due to the
       // broken connection, will simply hang waiting for this
       // lock.
-      synchronized (this) {
+      try (ResourceLock ignore = lock.obtain()) {
         if (hasLock(op)) {
           unlock(op);
         }
@@ -1001,25 +1364,30 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    * @return number of rows updated for server versions 8.2 or newer
    * @throws SQLException on failure
    */
-  public synchronized long endCopy(CopyOperationImpl op) throws SQLException {
-    if (!hasLock(op)) {
-      throw new PSQLException(GT.tr("Tried to end inactive copy"), PSQLState.OBJECT_NOT_IN_STATE);
-    }
+  public long endCopy(CopyOperationImpl op) throws SQLException {
+    try (ResourceLock ignore = lock.obtain()) {
+      if (!hasLock(op)) {
+        throw new PSQLException(GT.tr("Tried to end inactive copy"), PSQLState.OBJECT_NOT_IN_STATE);
+      }
 
-    try {
-      LOGGER.log(Level.FINEST, " FE=> CopyDone");
+      try {
+        sendCopyFrame(op);
 
-      pgStream.sendChar('c'); // CopyDone
-      pgStream.sendInteger4(4);
-      pgStream.flush();
+        LOGGER.log(Level.FINEST, " FE=> CopyDone");
 
-      do {
-        processCopyResults(op, true);
-      } while (hasLock(op));
-      return op.getHandledRowCount();
-    } catch (IOException ioe) {
-      throw new PSQLException(GT.tr("Database connection failed when ending copy"),
-          PSQLState.CONNECTION_FAILURE, ioe);
+        pgStream.sendChar('c'); // CopyDone
+        pgStream.sendInteger4(4);
+        pgStream.flush();
+        pgStream.finishBackgroundSend();
+
+        do {
+          processCopyResults(op, true);
+        } while (hasLock(op));
+        return op.getHandledRowCount();
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("Database connection failed when ending copy"),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      }
     }
   }
 
@@ -1033,22 +1401,35 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    * @param siz number of bytes to send (usually data.length)
    * @throws SQLException on failure
    */
-  public synchronized void writeToCopy(CopyOperationImpl op, byte[] data, int off, int siz)
+  public void writeToCopy(CopyOperationImpl op, byte[] data, int off, int siz)
       throws SQLException {
-    if (!hasLock(op)) {
-      throw new PSQLException(GT.tr("Tried to write to an inactive copy operation"),
-          PSQLState.OBJECT_NOT_IN_STATE);
-    }
-
-    LOGGER.log(Level.FINEST, " FE=> CopyData({0})", siz);
+    try (ResourceLock ignore = lock.obtain()) {
+      if (!hasLock(op)) {
+        throw new PSQLException(GT.tr("Tried to write to an inactive copy operation"),
+            PSQLState.OBJECT_NOT_IN_STATE);
+      }
 
-    try {
-      pgStream.sendChar('d');
-      pgStream.sendInteger4(siz + 4);
-      pgStream.send(data, off, siz);
-    } catch (IOException ioe) {
-      throw new PSQLException(GT.tr("Database connection failed when writing to copy"),
-          PSQLState.CONNECTION_FAILURE, ioe);
+      try {
+        if (siz < copyFrameSize && op instanceof CopyInImpl) {
+          CopyInImpl copyIn = (CopyInImpl) op;
+          if (copyIn.frameLength + siz > copyFrameSize) {
+            sendCopyFrame(copyIn);
+          }
+          byte[] frame = copyIn.frame;
+          if (frame == null) {
+            frame = new byte[copyFrameSize];
+            copyIn.frame = frame;
+          }
+          System.arraycopy(data, off, frame, copyIn.frameLength, siz);
+          copyIn.frameLength += siz;
+        } else {
+          sendCopyFrame(op);
+          sendCopyData(data, off, siz);
+        }
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("Database connection failed when writing to copy"),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      }
     }
   }
 
@@ -1060,37 +1441,67 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    * @param from the source of bytes, e.g. a ByteBufferByteStreamWriter
    * @throws SQLException on failure
    */
-  public synchronized void writeToCopy(CopyOperationImpl op, ByteStreamWriter from)
+  public void writeToCopy(CopyOperationImpl op, ByteStreamWriter from)
       throws SQLException {
-    if (!hasLock(op)) {
-      throw new PSQLException(GT.tr("Tried to write to an inactive copy operation"),
-          PSQLState.OBJECT_NOT_IN_STATE);
-    }
+    try (ResourceLock ignore = lock.obtain()) {
+      if (!hasLock(op)) {
+        throw new PSQLException(GT.tr("Tried to write to an inactive copy operation"),
+            PSQLState.OBJECT_NOT_IN_STATE);
+      }
 
-    int siz = from.getLength();
-    LOGGER.log(Level.FINEST, " FE=> CopyData({0})", siz);
+      int siz = from.getLength();
 
-    try {
-      pgStream.sendChar('d');
-      pgStream.sendInteger4(siz + 4);
-      pgStream.send(from);
-    } catch (IOException ioe) {
-      throw new PSQLException(GT.tr("Database connection failed when writing to copy"),
-          PSQLState.CONNECTION_FAILURE, ioe);
+      try {
+        sendCopyFrame(op);
+        LOGGER.log(Level.FINEST, " FE=> CopyData({0})", siz);
+        pgStream.sendChar('d');
+        pgStream.sendInteger4(siz + 4);
+        pgStream.send(from);
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("Database connection failed when writing to copy"),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      }
     }
   }
 
-  public synchronized void flushCopy(CopyOperationImpl op) throws SQLException {
-    if (!hasLock(op)) {
-      throw new PSQLException(GT.tr("Tried to write to an inactive copy operation"),
-          PSQLState.OBJECT_NOT_IN_STATE);
+  public void flushCopy(CopyOperationImpl op) throws SQLException {
+    try (ResourceLock ignore = lock.obtain()) {
+      if (!hasLock(op)) {
+        throw new PSQLException(GT.tr("Tried to write to an inactive copy operation"),
+            PSQLState.OBJECT_NOT_IN_STATE);
+      }
+
+      try {
+        sendCopyFrame(op);
+        pgStream.flush();
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("Database connection failed when writing to copy"),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      }
     }
+  }
 
-    try {
-      pgStream.flush();
-    } catch (IOException ioe) {
-      throw new PSQLException(GT.tr("Database connection failed when writing to copy"),
-          PSQLState.CONNECTION_FAILURE, ioe);
+  private void sendCopyData(byte[] data, int off, int siz) throws IOException {
+    LOGGER.log(Level.FINEST, " FE=> CopyData({0})", siz);
+
+    pgStream.sendChar('d');
+    pgStream.sendInteger4(siz + 4);
+    pgStream.send(data, off, siz);
+  }
+
+  /**
+   * Sends the writes coalesced by a COPY FROM STDIN, if any.
+   *
+   * @param op the copy operation holding the lock on this connection
+   * @throws IOException if the data cannot be sent
+   */
+  private void sendCopyFrame(CopyOperationImpl op) throws IOException {
+    if (op instanceof CopyInImpl) {
+      CopyInImpl copyIn = (CopyInImpl) op;
+      if (copyIn.frameLength > 0) {
+        sendCopyData(castNonNull(copyIn.frame), 0, copyIn.frameLength);
+        copyIn.frameLength = 0;
+      }
     }
   }
 
@@ -1102,17 +1513,19 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    * @param block whether to block waiting for input
    * @throws SQLException on any failure
    */
-  synchronized void readFromCopy(CopyOperationImpl op, boolean block) throws SQLException {
-    if (!hasLock(op)) {
-      throw new PSQLException(GT.tr("Tried to read from inactive copy"),
-          PSQLState.OBJECT_NOT_IN_STATE);
-    }
+  void readFromCopy(CopyOperationImpl op, boolean block) throws SQLException {
+    try (ResourceLock ignore = lock.obtain()) {
+      if (!hasLock(op)) {
+        throw new PSQLException(GT.tr("Tried to read from inactive copy"),
+            PSQLState.OBJECT_NOT_IN_STATE);
+      }
 
-    try {
-      processCopyResults(op, block); // expect a call to handleCopydata() to store the data
-    } catch (IOException ioe) {
-      throw new PSQLException(GT.tr("Database connection failed when reading from copy"),
-          PSQLState.CONNECTION_FAILURE, ioe);
+      try {
+        processCopyResults(op, block); // expect a call to handleCopydata() to store the data
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("Database connection failed when reading from copy"),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      }
     }
   }
 
@@ -1227,6 +1640,11 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
             op = new CopyInImpl();
             initCopy(op);
+            if (copyBackgroundSend && pgStream.isBackgroundSendSupported()) {
+              // The data is sent by the background task until endCopy or cancelCopy
+              pgStream.startBackgroundSend(AsyncResponseLoop.getInstance().getWorkers(),
+                  BACKGROUND_SEND_QUEUE_BYTES);
+            }
             endReceiving = true;
             break;
 
@@ -1266,16 +1684,19 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
             assert len > 0 : "Copy Data length must be greater than 4";
 
-            byte[] buf = pgStream.receive(len);
             if (op == null) {
+              pgStream.skip(len);
               error = new PSQLException(GT.tr("Got CopyData without an active copy operation"),
                   PSQLState.OBJECT_NOT_IN_STATE);
             } else if (!(op instanceof CopyOut)) {
+              pgStream.skip(len);
               error = new PSQLException(
                   GT.tr("Unexpected copydata from server for {0}", op.getClass().getName()),
                   PSQLState.COMMUNICATION_ERROR);
             } else {
-              op.handleCopydata(buf);
+              byte[] buf = op.getCopyDataBuffer(len);
+              pgStream.receive(buf, 0, len);
+              op.handleCopydata(buf, len);
             }
             endReceiving = true;
             break;
@@ -1366,8 +1787,20 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    */
   private void flushIfDeadlockRisk(Query query, boolean disallowBatching,
       ResultHandler resultHandler,
-      @Nullable BatchResultHandler batchHandler,
+      @Nullable ResultHandler batchHandler,
       final int flags) throws IOException {
+    if (sendingInBackground) {
+      // The socket buffers cannot cause a deadlock, yet the queue of the background task is bounded
+      if (pgStream.isBackgroundSendFillingUp()) {
+        LOGGER.log(Level.FINEST, "Forcing Sync, background send queue is filling up");
+        sendSync();
+        processResults(resultHandler, flags);
+        if (batchHandler != null) {
+          batchHandler.secureProgress();
+        }
+      }
+      return;
+    }
     // Assume all statements need at least this much reply buffer space,
     // plus params
     estimatedReceiveBufferBytes += NODATA_QUERY_RESPONSE_SIZE_BYTES;
@@ -1415,7 +1848,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    */
   private void sendQuery(Query query, V3ParameterList parameters, int maxRows, int fetchSize,
       int flags, ResultHandler resultHandler,
-      @Nullable BatchResultHandler batchHandler) throws IOException, SQLException {
+      @Nullable ResultHandler batchHandler) throws IOException, SQLException {
     // Now the query itself.
     Query[] subqueries = query.getSubqueries();
     SimpleParameterList[] subparams = parameters.getSubparams();
@@ -1473,6 +1906,15 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     pendingDescribePortalQueue.add(sync);
   }
 
+  /**
+   * Tells the queries of the caller from the ones the driver adds: BEGIN, automatic savepoints and
+   * Sync.
+   */
+  private boolean isRequestedQuery(SimpleQuery query) {
+    return query != sync && query != beginTransactionQuery && query != beginReadOnlyTransactionQuery
+        && query != autoSaveQuery && query != releaseAutoSave && query != restoreToAutoSave;
+  }
+
   private void sendParse(SimpleQuery query, SimpleParameterList params, boolean oneShot)
       throws IOException {
     // Already parsed, or we have a Parse pending and the types are right?
@@ -1857,6 +2299,10 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
     // Work out how many rows to fetch in this pass.
 
+    if (usePortal) {
+      fetchSize = adaptiveFetchSize(query, fetchSize);
+    }
+
     int rows;
     if (noResults) {
       rows = 1; // We're discarding any results anyway, so limit data transfer to a minimum
@@ -2038,10 +2484,22 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   }
 
   protected void processResults(ResultHandler handler, int flags) throws IOException {
+    processResults(handler, flags, 0);
+  }
+
+  /**
+   * @param streamRows if positive, the number of rows after which the rows received so far are
+   *     handed to the handler along with a {@link RowStream}, leaving the remaining messages on the
+   *     wire. The rows are handed over sooner if no more data has been received yet.
+   * @return true if the processing was suspended with rows left on the wire
+   */
+  private boolean processResults(ResultHandler handler, int flags, int streamRows)
+      throws IOException {
     boolean noResults = (flags & QueryExecutor.QUERY_NO_RESULTS) != 0;
     boolean bothRowsAndStatus = (flags & QueryExecutor.QUERY_BOTH_ROWS_AND_STATUS) != 0;
 
     List<Tuple> tuples = null;
+    TupleSlab tupleSlab = null;
 
     int c;
     boolean endQuery = false;
@@ -2053,6 +2511,12 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     // from there.
     boolean doneAfterRowDescNoData = false;
 
+    // Widest row of the current Execute, remembered by the query for adaptive fetch
+    int widestRow = 0;
+
+    // Whether an error was received since the last ReadyForQuery
+    boolean failed = false;
+
     while (!endQuery) {
       c = pgStream.receiveChar();
       switch (c) {
@@ -2153,6 +2617,16 @@ public class QueryExecutorImpl extends QueryExecutorBase {
           SimpleQuery currentQuery = executeData.query;
           Portal currentPortal = executeData.portal;
 
+          if (adaptiveFetch) {
+            // The next fetch is a new round trip sized after maxResultBuffer, so the limit applies
+            // to it afresh
+            pgStream.clearResultBufferCount();
+          }
+          if (widestRow > 0) {
+            currentQuery.setAdaptiveRowSize(widestRow);
+            widestRow = 0;
+          }
+
           Field[] fields = currentQuery.getFields();
           if (fields != null && tuples == null) {
             // When no results expected, pretend an empty resultset was returned
@@ -2176,6 +2650,10 @@ public class QueryExecutorImpl extends QueryExecutorBase {
           }
 
           doneAfterRowDescNoData = false;
+          if (adaptiveFetch) {
+            pgStream.clearResultBufferCount();
+          }
+          widestRow = 0;
 
           ExecuteRequest executeData = castNonNull(pendingExecuteQueue.peekFirst());
           SimpleQuery currentQuery = executeData.query;
@@ -2249,7 +2727,14 @@ public class QueryExecutorImpl extends QueryExecutorBase {
         case 'D': // Data Transfer (ongoing Execute response)
           Tuple tuple = null;
           try {
-            tuple = pgStream.receiveTupleV3();
+            if (slabRowStorage) {
+              if (tupleSlab == null) {
+                tupleSlab = new TupleSlab();
+              }
+              tuple = pgStream.receiveTupleV3(tupleSlab);
+            } else {
+              tuple = pgStream.receiveTupleV3();
+            }
           } catch (OutOfMemoryError oome) {
             if (!noResults) {
               handler.handleError(
@@ -2267,6 +2752,24 @@ public class QueryExecutorImpl extends QueryExecutorBase {
               tuples.add(tuple);
             }
           }
+          if (adaptiveFetch && tuple != null) {
+            widestRow = Math.max(widestRow, tuple.length());
+          }
+
+          if (streamRows > 0 && tuples != null
+              && (tuples.size() >= streamRows || !pgStream.hasBufferedInput())) {
+            // Hand over the rows received so far, the remaining ones stay on the wire until
+            // they are fetched
+            RowStream stream = rowStream;
+            if (stream == null) {
+              SimpleQuery currentQuery = castNonNull(pendingExecuteQueue.peekFirst()).query;
+              stream = new RowStream(this, currentQuery, castNonNull(currentQuery.getFields()),
+                  flags);
+              rowStream = stream;
+            }
+            handler.handleResultRows(stream.query, stream.fields, tuples, stream);
+            return true;
+          }
 
           if (LOGGER.isLoggable(Level.FINEST)) {
             int length;
@@ -2284,6 +2787,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
           // Error Response (response to pretty much everything; backend then skips until Sync)
           SQLException error = receiveErrorResponse();
           handler.handleError(error);
+          failed = true;
           if (willHealViaReparse(error)) {
             // prepared statement ... is not valid kind of error
             // Technically speaking, the error is unexpected, thus we invalidate other
@@ -2354,6 +2858,11 @@ public class QueryExecutorImpl extends QueryExecutorBase {
             pgStream.clearResultBufferCount();
 
             ExecuteRequest executeRequest = pendingExecuteQueue.removeFirst();
+            if (failed && isRequestedQuery(executeRequest.query)) {
+              // Each simple 'Q' ends with its own ReadyForQuery, only the failed one is abandoned
+              handler.handleAbandonedQueries(1);
+            }
+            failed = false;
             // Simple queries might return several resultsets, thus we clear
             // fields, so queries like "select 1;update; select2" will properly
             // identify that "update" did not return any results
@@ -2361,7 +2870,8 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
             pendingDescribePortalQueue.removeFirst();
             if (!pendingExecuteQueue.isEmpty()) {
-              if (getTransactionState() == TransactionState.IDLE) {
+              // Does not read the rest of the row stream that may be processed right now
+              if (super.getTransactionState() == TransactionState.IDLE) {
                 handler.secureProgress();
               }
               // process subsequent results (e.g. for cases like batched execution of simple 'Q' queries)
@@ -2391,6 +2901,19 @@ public class QueryExecutorImpl extends QueryExecutorBase {
             describePortalQuery.setPortalDescribed(false);
           }
           pendingBindQueue.clear(); // No more BindComplete messages expected.
+          if (failed) {
+            // The backend skipped the failed query and the ones up to Sync
+            int abandoned = 0;
+            for (ExecuteRequest request : pendingExecuteQueue) {
+              if (isRequestedQuery(request.query)) {
+                abandoned++;
+              }
+            }
+            if (abandoned > 0) {
+              handler.handleAbandonedQueries(abandoned);
+            }
+            failed = false;
+          }
           pendingExecuteQueue.clear(); // No more query executions expected.
           break;
 
@@ -2438,6 +2961,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
       }
 
     }
+    return false;
   }
 
   /**
@@ -2453,43 +2977,206 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     pgStream.skip(len - 4);
   }
 
-  public synchronized void fetch(ResultCursor cursor, ResultHandler handler, int fetchSize)
+  @Override
+  public int getAdaptiveFetchSize(ResultCursor cursor, int fetchSize) {
+    if (!(cursor instanceof Portal)) {
+      return fetchSize;
+    }
+    SimpleQuery query = ((Portal) cursor).getQuery();
+    return query == null ? fetchSize : adaptiveFetchSize(query, fetchSize);
+  }
+
+  /**
+   * Computes the number of rows that fit in half of {@code maxResultBuffer}, so rows up to twice as
+   * wide as the widest row seen so far do not exceed the limit.
+   *
+   * @param query query the rows are fetched for
+   * @param fetchSize fetch size requested by the application
+   * @return the number of rows to request
+   */
+  private int adaptiveFetchSize(SimpleQuery query, int fetchSize) {
+    long budget = pgStream.getMaxResultBuffer();
+    int rowSize = query.getAdaptiveRowSize();
+    if (!adaptiveFetch || fetchSize <= 0 || budget <= 0 || rowSize <= 0) {
+      return fetchSize;
+    }
+    long rows = Math.max(budget / 2 / rowSize, Math.max(1, adaptiveFetchMinimum));
+    if (adaptiveFetchMaximum > 0) {
+      rows = Math.min(rows, adaptiveFetchMaximum);
+    }
+    return (int) Math.min(rows, Integer.MAX_VALUE);
+  }
+
+  public void fetch(ResultCursor cursor, ResultHandler handler, int fetchSize)
       throws SQLException {
-    waitOnLock();
-    final Portal portal = (Portal) cursor;
+    try (ResourceLock ignore = lock.obtain()) {
+      if (cursor instanceof RowStream) {
+        fetchRowStream((RowStream) cursor, handler, fetchSize);
+        return;
+      }
+      waitOnLock();
+      final Portal portal = (Portal) cursor;
+
+      // Insert a ResultHandler that turns bare command statuses into empty datasets
+      // (if the fetch returns no rows, we see just a CommandStatus..)
+      final ResultHandler delegateHandler = handler;
+      final SimpleQuery query = castNonNull(portal.getQuery());
+      handler = new ResultHandlerDelegate(delegateHandler) {
+        @Override
+        public void handleCommandStatus(String status, long updateCount, long insertOID) {
+          handleResultRows(query, NO_FIELDS, new ArrayList<Tuple>(), null);
+        }
+      };
 
-    // Insert a ResultHandler that turns bare command statuses into empty datasets
-    // (if the fetch returns no rows, we see just a CommandStatus..)
-    final ResultHandler delegateHandler = handler;
-    final SimpleQuery query = castNonNull(portal.getQuery());
-    handler = new ResultHandlerDelegate(delegateHandler) {
-      @Override
-      public void handleCommandStatus(String status, long updateCount, long insertOID) {
-        handleResultRows(query, NO_FIELDS, new ArrayList<Tuple>(), null);
+      // Now actually run it.
+
+      try {
+        processDeadParsedQueries();
+        processDeadPortals();
+
+        sendExecute(query, portal, fetchSize);
+        sendSync();
+
+        processResults(handler, 0);
+        estimatedReceiveBufferBytes = 0;
+      } catch (IOException e) {
+        abort();
+        handler.handleError(
+            new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+                PSQLState.CONNECTION_FAILURE, e));
       }
-    };
 
-    // Now actually run it.
+      handler.handleCompletion();
+    }
+  }
 
-    try {
-      processDeadParsedQueries();
-      processDeadPortals();
+  /**
+   * Returns the number of rows a streamed execution should hand over at once, or 0 if the rows of
+   * the execution cannot be streamed.
+   */
+  private static int streamRows(Query query, int flags, int fetchSize) {
+    int excluded = QUERY_EXECUTE_AS_SIMPLE | QUERY_NO_RESULTS | QUERY_DESCRIBE_ONLY
+        | QUERY_FORWARD_CURSOR | QUERY_BOTH_ROWS_AND_STATUS;
+    if ((flags & QUERY_STREAM_ROWS) == 0 || (flags & excluded) != 0
+        || query.getSubqueries() != null) {
+      return 0;
+    }
+    return fetchSize > 0 ? fetchSize : STREAM_ROWS;
+  }
 
-      sendExecute(query, portal, fetchSize);
-      sendSync();
+  private void fetchRowStream(RowStream stream, ResultHandler handler, int fetchSize)
+      throws SQLException {
+    if (stream != rowStream) {
+      // The remaining rows were read ahead when the connection was used for something else
+      List<Tuple> rows = stream.bufferedRows;
+      stream.bufferedRows = null;
+      SQLWarning warning = stream.bufferedWarning;
+      stream.bufferedWarning = null;
+      if (warning != null) {
+        handler.handleWarning(warning);
+      }
+      // Hand out the rows first, so the error is raised after the rows that preceded it
+      SQLException error = stream.bufferedError;
+      boolean last = rows == null || error == null;
+      if (last && error != null) {
+        stream.bufferedError = null;
+        handler.handleError(error);
+      }
+      handler.handleResultRows(stream.query, stream.fields,
+          rows == null ? new ArrayList<Tuple>() : rows, last ? null : stream);
+      handler.handleCompletion();
+      return;
+    }
 
-      processResults(handler, 0);
-      estimatedReceiveBufferBytes = 0;
+    try {
+      if (!processResults(handler, stream.flags, fetchSize > 0 ? fetchSize : STREAM_ROWS)) {
+        rowStream = null;
+      }
     } catch (IOException e) {
+      rowStream = null;
       abort();
       handler.handleError(
           new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
               PSQLState.CONNECTION_FAILURE, e));
     }
-
     handler.handleCompletion();
   }
 
+  /**
+   * Reads the remaining rows of the streamed execution, if any, so the connection can be used for
+   * something else. The rows are kept by the {@link RowStream} unless it is closed.
+   */
+  private void finishRowStream() throws PSQLException {
+    final RowStream stream = rowStream;
+    if (stream == null) {
+      return;
+    }
+    rowStream = null;
+    ResultHandler handler = new ResultHandlerBase() {
+      @Override
+      public void handleResultRows(Query fromQuery, Field[] fields, List<Tuple> tuples,
+          @Nullable ResultCursor cursor) {
+        stream.bufferRows(tuples);
+      }
+
+      @Override
+      public void handleCommandStatus(String status, long updateCount, long insertOID) {
+      }
+
+      @Override
+      public void handleWarning(SQLWarning warning) {
+        stream.bufferWarning(warning);
+      }
+
+      @Override
+      public void handleError(SQLException error) {
+        stream.bufferError(error);
+      }
+    };
+    try {
+      processResults(handler, stream.flags);
+    } catch (IOException e) {
+      abort();
+      PSQLException error =
+          new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+              PSQLState.CONNECTION_FAILURE, e);
+      stream.bufferError(error);
+      throw error;
+    }
+  }
+
+  /**
+   * {@inheritDoc} The ReadyForQuery message that ends a streamed execution comes after its last
+   * rows, so they are read first: until then, a transaction started by the streamed statement
+   * would be reported as idle, and commit or rollback skipped.
+   */
+  @Override
+  public TransactionState getTransactionState() {
+    try (ResourceLock ignore = lock.obtain()) {
+      try {
+        finishRowStream();
+      } catch (PSQLException e) {
+        // The failure is reported by the result set, and an I/O failure closed the connection
+        LOGGER.log(Level.FINE, "Unable to read the remaining rows of a streamed result set", e);
+      }
+      return super.getTransactionState();
+    }
+  }
+
+  void closeRowStream(RowStream stream) {
+    try (ResourceLock ignore = lock.obtain()) {
+      stream.closed = true;
+      stream.bufferedRows = null;
+      if (stream == rowStream) {
+        try {
+          finishRowStream();
+        } catch (PSQLException e) {
+          LOGGER.log(Level.FINE, "Unable to read the remaining rows of a closed result set", e);
+        }
+      }
+    }
+  }
+
   /*
    * Receive the field descriptions from the back end.
    */
@@ -2808,6 +3495,28 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     useBinarySendForOids.addAll(oids);
   }
 
+  @Override
+  public void setBinaryReceiveOid(int oid, boolean binary) {
+    try (ResourceLock ignore = lock.obtain()) {
+      if (binary) {
+        useBinaryReceiveForOids.add(oid);
+      } else {
+        useBinaryReceiveForOids.remove(oid);
+      }
+    }
+  }
+
+  @Override
+  public void setBinarySendOid(int oid, boolean binary) {
+    try (ResourceLock ignore = lock.obtain()) {
+      if (binary) {
+        useBinarySendForOids.add(oid);
+      } else {
+        useBinarySendForOids.remove(oid);
+      }
+    }
+  }
+
   private void setIntegerDateTimes(boolean state) {
     integerDateTimes = state;
   }
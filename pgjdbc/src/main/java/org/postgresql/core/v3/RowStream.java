@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core.v3;
+
+import org.postgresql.core.Field;
+import org.postgresql.core.ResultCursor;
+import org.postgresql.core.Tuple;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * V3 ResultCursor over the rows of an execution that are still being received, see
+ * {@link org.postgresql.core.QueryExecutor#QUERY_STREAM_ROWS}. While the rows are on the wire, the
+ * connection can not be used for anything else: any other use first reads the remaining rows into
+ * this object, and they are handed out by the next fetches.
+ */
+class RowStream implements ResultCursor {
+  private final QueryExecutorImpl executor;
+  final SimpleQuery query;
+  final Field[] fields;
+  final int flags;
+
+  /**
+   * Rows read ahead because the connection was needed for something else.
+   */
+  @Nullable List<Tuple> bufferedRows;
+  @Nullable SQLException bufferedError;
+  @Nullable SQLWarning bufferedWarning;
+  boolean closed;
+
+  RowStream(QueryExecutorImpl executor, SimpleQuery query, Field[] fields, int flags) {
+    this.executor = executor;
+    this.query = query;
+    this.fields = fields;
+    this.flags = flags;
+  }
+
+  void bufferRows(List<Tuple> tuples) {
+    if (closed || tuples.isEmpty()) {
+      return;
+    }
+    List<Tuple> bufferedRows = this.bufferedRows;
+    if (bufferedRows == null) {
+      this.bufferedRows = bufferedRows = new ArrayList<Tuple>(tuples.size());
+    }
+    bufferedRows.addAll(tuples);
+  }
+
+  void bufferError(SQLException error) {
+    SQLException bufferedError = this.bufferedError;
+    if (bufferedError == null) {
+      this.bufferedError = error;
+    } else {
+      bufferedError.setNextException(error);
+    }
+  }
+
+  void bufferWarning(SQLWarning warning) {
+    SQLWarning bufferedWarning = this.bufferedWarning;
+    if (bufferedWarning == null) {
+      this.bufferedWarning = warning;
+    } else {
+      bufferedWarning.setNextWarning(warning);
+    }
+  }
+
+  /**
+   * Reads and discards the rows that are still on the wire, so the connection can be used again.
+   */
+  @Override
+  public void close() {
+    executor.closeRowStream(this);
+  }
+
+  @Override
+  public String toString() {
+    return "RowStream{" + query + "}";
+  }
+}
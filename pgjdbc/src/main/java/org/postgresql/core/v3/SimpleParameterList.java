@@ -268,6 +268,64 @@ class SimpleParameterList implements V3ParameterList {
     }
   }
 
+  @Override
+  public @Nullable String getTextValue(@Positive int index) throws SQLException {
+    --index;
+    Object paramValue = paramValues[index];
+    if (paramValue == null) {
+      throw new PSQLException(GT.tr("No value specified for parameter {0}.", index + 1),
+          PSQLState.INVALID_PARAMETER_VALUE);
+    } else if (paramValue == NULL_OBJECT) {
+      return null;
+    } else if ((flags[index] & BINARY) == 0) {
+      if (paramValue instanceof String) {
+        return (String) paramValue;
+      }
+    } else if (paramValue instanceof byte[]) {
+      byte[] data = (byte[]) paramValue;
+      switch (paramTypes[index]) {
+        case Oid.INT2:
+          return Short.toString(ByteConverter.int2(data, 0));
+        case Oid.INT4:
+          return Integer.toString(ByteConverter.int4(data, 0));
+        case Oid.INT8:
+          return Long.toString(ByteConverter.int8(data, 0));
+        case Oid.FLOAT4:
+          return Float.toString(ByteConverter.float4(data, 0));
+        case Oid.FLOAT8:
+          return Double.toString(ByteConverter.float8(data, 0));
+        case Oid.BOOL:
+          return ByteConverter.bool(data, 0) ? "t" : "f";
+        case Oid.NUMERIC:
+          return ByteConverter.numeric(data).toString();
+        case Oid.UUID:
+          return new UUIDArrayAssistant().buildElement(data, 0, 16).toString();
+        case Oid.BYTEA:
+          return toHex(data, 0, data.length);
+      }
+    } else if (paramValue instanceof StreamWrapper && paramTypes[index] == Oid.BYTEA) {
+      StreamWrapper wrapper = (StreamWrapper) paramValue;
+      byte[] data = wrapper.getBytes();
+      if (data != null) {
+        return toHex(data, wrapper.getOffset(), wrapper.getLength());
+      }
+    }
+    throw new PSQLException(GT.tr("The value of parameter {0} has no text form.", index + 1),
+        PSQLState.NOT_IMPLEMENTED);
+  }
+
+  private static String toHex(byte[] data, int offset, int length) {
+    char[] hex = new char[2 + 2 * length];
+    hex[0] = '\\';
+    hex[1] = 'x';
+    for (int i = 0; i < length; i++) {
+      int b = data[offset + i] & 0xff;
+      hex[2 + 2 * i] = Character.forDigit(b >> 4, 16);
+      hex[3 + 2 * i] = Character.forDigit(b & 0xf, 16);
+    }
+    return new String(hex);
+  }
+
   @Override
   public void checkAllParametersSet() throws SQLException {
     for (int i = 0; i < paramTypes.length; ++i) {
@@ -317,6 +317,14 @@ class SimpleQuery implements Query {
     return 1;
   }
 
+  int getAdaptiveRowSize() {
+    return adaptiveRowSize;
+  }
+
+  void setAdaptiveRowSize(int adaptiveRowSize) {
+    this.adaptiveRowSize = adaptiveRowSize;
+  }
+
   NativeQuery getNativeQuery() {
     return nativeQuery;
   }
@@ -368,5 +376,11 @@ class SimpleQuery implements Query {
 
   private @Nullable Integer cachedMaxResultRowSize;
 
+  /**
+   * Size in bytes of the widest row of the last round trip that fetched rows through a portal, or 0
+   * if unknown. Used to size the next fetches when adaptive fetch is enabled.
+   */
+  private int adaptiveRowSize;
+
   static final SimpleParameterList NO_PARAMETERS = new SimpleParameterList(0, null);
 }
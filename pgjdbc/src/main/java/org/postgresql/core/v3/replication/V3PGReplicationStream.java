@@ -5,10 +5,16 @@
 
 package org.postgresql.core.v3.replication;
 
+import static org.postgresql.util.internal.Nullness.castNonNull;
+
 import org.postgresql.copy.CopyDual;
+import org.postgresql.core.v3.CopyDualImpl;
+import org.postgresql.jdbc.ResourceLock;
 import org.postgresql.replication.LogSequenceNumber;
 import org.postgresql.replication.PGReplicationStream;
+import org.postgresql.replication.ReplicationMessage;
 import org.postgresql.replication.ReplicationType;
+import org.postgresql.util.ByteConverter;
 import org.postgresql.util.GT;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
@@ -18,7 +24,11 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -28,18 +38,55 @@ public class V3PGReplicationStream implements PGReplicationStream {
   private static final Logger LOGGER = Logger.getLogger(V3PGReplicationStream.class.getName());
   public static final long POSTGRES_EPOCH_2000_01_01 = 946684800000L;
   private static final long NANOS_PER_MILLISECOND = 1000000L;
+  /**
+   * Length of the header of an XLogData message: type, start LSN, end LSN and clock.
+   */
+  private static final int XLOG_DATA_HEADER_LENGTH = 1 + 8 + 8 + 8;
+
+  /**
+   * Sends the status updates of the streams that use background feedback. The tasks only do
+   * non-blocking reads and small writes, so one thread serves all the streams. It stops once no
+   * stream has used it for a minute.
+   */
+  private static final ScheduledThreadPoolExecutor FEEDBACK_SCHEDULER = createFeedbackScheduler();
 
   private final CopyDual copyDual;
+  /**
+   * Held while the stream reads or writes, so the consumer and the feedback thread do not use the
+   * connection at the same time.
+   */
+  private final ResourceLock lock = new ResourceLock();
+  private @Nullable ScheduledFuture<?> feedbackTask;
   private final long updateInterval;
   private final ReplicationType replicationType;
   private long lastStatusUpdate;
   private boolean closeFlag = false;
+  private final byte[] statusUpdate = new byte[1 + 8 + 8 + 8 + 8 + 1];
 
-  private LogSequenceNumber lastServerLSN = LogSequenceNumber.INVALID_LSN;
   /**
-   * Last receive LSN + payload size.
+   * Last message received, the payload of an XLogData message starts after the header.
    */
-  private volatile LogSequenceNumber lastReceiveLSN = LogSequenceNumber.INVALID_LSN;
+  private byte @Nullable [] message;
+  private int messageLength;
+  private boolean messageInReusedBuffer;
+  /**
+   * True if {@link #message} is an XLogData message that was not handed out yet, because the
+   * buffer given to {@link #read(ByteBuffer)} was too small.
+   */
+  private boolean pending;
+  /**
+   * Receive LSN of the pending message, published to {@link #lastReceiveLSN} once the message is
+   * handed out: the feedback thread receives messages ahead of the consumer, whose
+   * {@code setFlushedLSN(getLastReceiveLSN())} must not acknowledge a change it did not see.
+   */
+  private long pendingReceiveLSN;
+
+  private long lastServerLSN = LogSequenceNumber.INVALID_LSN.asLong();
+  /**
+   * Last receive LSN + payload size. The LSNs are kept as numbers, so receiving a message does not
+   * allocate a {@link LogSequenceNumber}.
+   */
+  private volatile long lastReceiveLSN = LogSequenceNumber.INVALID_LSN.asLong();
   private volatile LogSequenceNumber lastAppliedLSN = LogSequenceNumber.INVALID_LSN;
   private volatile LogSequenceNumber lastFlushedLSN = LogSequenceNumber.INVALID_LSN;
 
@@ -61,30 +108,162 @@ public class V3PGReplicationStream implements PGReplicationStream {
     this.copyDual = copyDual;
     this.updateInterval = updateIntervalMs * NANOS_PER_MILLISECOND;
     this.lastStatusUpdate = System.nanoTime() - (updateIntervalMs * NANOS_PER_MILLISECOND);
-    this.lastReceiveLSN = startLSN;
+    this.lastReceiveLSN = startLSN.asLong();
     this.replicationType = replicationType;
   }
 
+  private static ScheduledThreadPoolExecutor createFeedbackScheduler() {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "PostgreSQL-JDBC-ReplicationFeedback");
+            thread.setDaemon(true);
+            // Do not keep the context class loader of the application that started the stream
+            thread.setContextClassLoader(null);
+            return thread;
+          }
+        });
+    scheduler.setKeepAliveTime(60, TimeUnit.SECONDS);
+    scheduler.allowCoreThreadTimeOut(true);
+    scheduler.setRemoveOnCancelPolicy(true);
+    return scheduler;
+  }
+
+  /**
+   * Starts sending the status updates from the feedback thread while the stream is not being
+   * read. Has no effect if the periodic status updates are disabled.
+   */
+  void startBackgroundFeedback() {
+    if (updateInterval == 0) {
+      return;
+    }
+    long periodMs = Math.max(1, updateInterval / NANOS_PER_MILLISECOND / 2);
+    feedbackTask = FEEDBACK_SCHEDULER.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        sendBackgroundFeedback();
+      }
+    }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+  }
+
+  private void stopBackgroundFeedback() {
+    ScheduledFuture<?> feedbackTask = this.feedbackTask;
+    if (feedbackTask != null) {
+      feedbackTask.cancel(false);
+    }
+  }
+
+  /**
+   * Runs on the feedback thread. A consumer that is reading sends the status updates itself, so
+   * the stream is only used when the lock is free. The messages are received up to the next
+   * change, which stays pending for the consumer, so the keepalives that request a reply are
+   * answered.
+   */
+  private void sendBackgroundFeedback() {
+    if (!lock.tryLock()) {
+      return;
+    }
+    try {
+      if (isClosed()) {
+        stopBackgroundFeedback();
+        return;
+      }
+      if (!pending) {
+        receiveXLogData(false, false);
+      }
+      if (isTimeUpdate()) {
+        timeUpdateStatus();
+      }
+    } catch (SQLException e) {
+      // The connection is most likely broken, which the consumer sees on its next read
+      LOGGER.log(Level.FINE, "Stopping the background status updates of the replication stream",
+          e);
+      stopBackgroundFeedback();
+    } finally {
+      lock.unlock();
+    }
+  }
+
   @Override
   public @Nullable ByteBuffer read() throws SQLException {
-    checkClose();
+    try (ResourceLock ignore = lock.obtain()) {
+      checkClose();
 
-    ByteBuffer payload = null;
-    while (payload == null && copyDual.isActive()) {
-      payload = readInternal(true);
-    }
+      ByteBuffer payload = null;
+      while (payload == null && copyDual.isActive()) {
+        payload = readInternal(true);
+      }
 
-    return payload;
+      return payload;
+    }
   }
 
   public @Nullable ByteBuffer readPending() throws SQLException {
-    checkClose();
-    return readInternal(false);
+    try (ResourceLock ignore = lock.obtain()) {
+      checkClose();
+      return readInternal(false);
+    }
+  }
+
+  @Override
+  public @Nullable ReplicationMessage readMessage() throws SQLException {
+    try (ResourceLock ignore = lock.obtain()) {
+      checkClose();
+      // Returns once the socket timeout, that is the status interval, expires without a record
+      ByteBuffer payload = readInternal(true);
+      return payload == null ? null : new ReplicationMessage(payload, getLastReceiveLSN());
+    }
+  }
+
+  @Override
+  public int read(ByteBuffer target) throws SQLException {
+    try (ResourceLock ignore = lock.obtain()) {
+      checkClose();
+
+      while (!pending && copyDual.isActive()) {
+        receiveXLogData(true, true);
+      }
+
+      return copyPayload(target);
+    }
+  }
+
+  @Override
+  public int readPending(ByteBuffer target) throws SQLException {
+    try (ResourceLock ignore = lock.obtain()) {
+      checkClose();
+
+      if (!pending) {
+        receiveXLogData(false, true);
+      }
+
+      return copyPayload(target);
+    }
+  }
+
+  private int copyPayload(ByteBuffer target) throws SQLException {
+    byte[] message = this.message;
+    if (!pending || message == null) {
+      return -1;
+    }
+    int payloadLength = messageLength - XLOG_DATA_HEADER_LENGTH;
+    if (target.remaining() < payloadLength) {
+      // The record stays pending, for the next call with a larger buffer
+      throw new PSQLException(
+          GT.tr("The buffer has {0} bytes remaining, the WAL record needs {1}.",
+              String.valueOf(target.remaining()), String.valueOf(payloadLength)),
+          PSQLState.INVALID_PARAMETER_VALUE);
+    }
+    target.put(message, XLOG_DATA_HEADER_LENGTH, payloadLength);
+    pending = false;
+    lastReceiveLSN = pendingReceiveLSN;
+    return payloadLength;
   }
 
   @Override
   public LogSequenceNumber getLastReceiveLSN() {
-    return lastReceiveLSN;
+    return LogSequenceNumber.valueOf(lastReceiveLSN);
   }
 
   @Override
@@ -109,8 +288,10 @@ public class V3PGReplicationStream implements PGReplicationStream {
 
   @Override
   public void forceUpdateStatus() throws SQLException {
-    checkClose();
-    updateStatusInternal(lastReceiveLSN, lastFlushedLSN, lastAppliedLSN, true);
+    try (ResourceLock ignore = lock.obtain()) {
+      checkClose();
+      updateStatusInternal(lastReceiveLSN, lastFlushedLSN, lastAppliedLSN, true);
+    }
   }
 
   @Override
@@ -119,30 +300,56 @@ public class V3PGReplicationStream implements PGReplicationStream {
   }
 
   private @Nullable ByteBuffer readInternal(boolean block) throws SQLException {
+    if (!pending && !receiveXLogData(block, false)) {
+      return null;
+    }
+    byte[] message = castNonNull(this.message);
+    if (messageInReusedBuffer) {
+      // the array is reused by the next read(ByteBuffer)
+      message = Arrays.copyOf(message, messageLength);
+    }
+    pending = false;
+    lastReceiveLSN = pendingReceiveLSN;
+    ByteBuffer buffer = ByteBuffer.wrap(message);
+    buffer.position(XLOG_DATA_HEADER_LENGTH);
+    return buffer.slice();
+  }
+
+  /**
+   * Receives messages until an XLogData message, that is then pending in {@link #message}.
+   *
+   * @param block whether to block waiting for the next message
+   * @param reuseBuffer whether to receive the message in an array reused by the next calls
+   * @return true if an XLogData message was received
+   */
+  private boolean receiveXLogData(boolean block, boolean reuseBuffer) throws SQLException {
     boolean updateStatusRequired = false;
     while (copyDual.isActive()) {
 
-      ByteBuffer buffer = receiveNextData(block);
+      byte[] message = receiveNextData(block, reuseBuffer);
 
       if (updateStatusRequired || isTimeUpdate()) {
         timeUpdateStatus();
       }
 
-      if (buffer == null) {
-        return null;
+      if (message == null) {
+        return false;
       }
 
-      int code = buffer.get();
+      int code = message[0];
 
       switch (code) {
 
         case 'k': //KeepAlive message
-          updateStatusRequired = processKeepAliveMessage(buffer);
+          updateStatusRequired = processKeepAliveMessage(message);
           updateStatusRequired |= updateInterval == 0;
           break;
 
         case 'w': //XLogData
-          return processXLogData(buffer);
+          processXLogData(message, messageLength);
+          this.message = message;
+          pending = true;
+          return true;
 
         default:
           throw new PSQLException(
@@ -152,17 +359,24 @@ public class V3PGReplicationStream implements PGReplicationStream {
       }
     }
 
-    return null;
+    return false;
   }
 
-  private @Nullable ByteBuffer receiveNextData(boolean block) throws SQLException {
+  private byte @Nullable [] receiveNextData(boolean block, boolean reuseBuffer)
+      throws SQLException {
     try {
-      byte[] message = copyDual.readFromCopy(block);
-      if (message != null) {
-        return ByteBuffer.wrap(message);
+      byte[] message;
+      if (reuseBuffer && copyDual instanceof CopyDualImpl) {
+        CopyDualImpl copyDualImpl = (CopyDualImpl) copyDual;
+        message = copyDualImpl.readFromCopyIntoBuffer(block);
+        messageLength = copyDualImpl.getDataLength();
+        messageInReusedBuffer = true;
       } else {
-        return null;
+        message = copyDual.readFromCopy(block);
+        messageLength = message == null ? 0 : message.length;
+        messageInReusedBuffer = false;
       }
+      return message;
     } catch (PSQLException e) { //todo maybe replace on thread sleep?
       if (e.getCause() instanceof SocketTimeoutException) {
         //signal for keep alive
@@ -187,7 +401,7 @@ public class V3PGReplicationStream implements PGReplicationStream {
   }
 
   private void updateStatusInternal(
-      LogSequenceNumber received, LogSequenceNumber flushed, LogSequenceNumber applied,
+      long received, LogSequenceNumber flushed, LogSequenceNumber applied,
       boolean replyRequired)
       throws SQLException {
     byte[] reply = prepareUpdateStatus(received, flushed, applied, replyRequired);
@@ -197,9 +411,9 @@ public class V3PGReplicationStream implements PGReplicationStream {
     lastStatusUpdate = System.nanoTime();
   }
 
-  private byte[] prepareUpdateStatus(LogSequenceNumber received, LogSequenceNumber flushed,
+  private byte[] prepareUpdateStatus(long received, LogSequenceNumber flushed,
       LogSequenceNumber applied, boolean replyRequired) {
-    ByteBuffer byteBuffer = ByteBuffer.allocate(1 + 8 + 8 + 8 + 8 + 1);
+    byte[] reply = statusUpdate;
 
     long now = System.nanoTime() / NANOS_PER_MILLISECOND;
     long systemClock = TimeUnit.MICROSECONDS.convert((now - POSTGRES_EPOCH_2000_01_01),
@@ -207,66 +421,67 @@ public class V3PGReplicationStream implements PGReplicationStream {
 
     if (LOGGER.isLoggable(Level.FINEST)) {
       LOGGER.log(Level.FINEST, " FE=> StandbyStatusUpdate(received: {0}, flushed: {1}, applied: {2}, clock: {3})",
-          new Object[]{received.asString(), flushed.asString(), applied.asString(), new Date(now)});
+          new Object[]{LogSequenceNumber.valueOf(received).asString(), flushed.asString(),
+              applied.asString(), new Date(now)});
     }
 
-    byteBuffer.put((byte) 'r');
-    byteBuffer.putLong(received.asLong());
-    byteBuffer.putLong(flushed.asLong());
-    byteBuffer.putLong(applied.asLong());
-    byteBuffer.putLong(systemClock);
+    reply[0] = (byte) 'r';
+    ByteConverter.int8(reply, 1, received);
+    ByteConverter.int8(reply, 9, flushed.asLong());
+    ByteConverter.int8(reply, 17, applied.asLong());
+    ByteConverter.int8(reply, 25, systemClock);
     if (replyRequired) {
-      byteBuffer.put((byte) 1);
+      reply[33] = 1;
     } else {
-      byteBuffer.put(received == LogSequenceNumber.INVALID_LSN ? (byte) 1 : (byte) 0);
+      reply[33] = received == LogSequenceNumber.INVALID_LSN.asLong() ? (byte) 1 : (byte) 0;
     }
 
     lastStatusUpdate = now;
-    return byteBuffer.array();
+    return reply;
   }
 
-  private boolean processKeepAliveMessage(ByteBuffer buffer) {
-    lastServerLSN = LogSequenceNumber.valueOf(buffer.getLong());
-    if (lastServerLSN.asLong() > lastReceiveLSN.asLong()) {
+  private boolean processKeepAliveMessage(byte[] message) {
+    lastServerLSN = ByteConverter.int8(message, 1);
+    if (lastServerLSN > lastReceiveLSN) {
       lastReceiveLSN = lastServerLSN;
     }
 
-    long lastServerClock = buffer.getLong();
+    long lastServerClock = ByteConverter.int8(message, 9);
 
-    boolean replyRequired = buffer.get() != 0;
+    boolean replyRequired = message[17] != 0;
 
     if (LOGGER.isLoggable(Level.FINEST)) {
       Date clockTime = new Date(
           TimeUnit.MILLISECONDS.convert(lastServerClock, TimeUnit.MICROSECONDS)
           + POSTGRES_EPOCH_2000_01_01);
       LOGGER.log(Level.FINEST, "  <=BE Keepalive(lastServerWal: {0}, clock: {1} needReply: {2})",
-          new Object[]{lastServerLSN.asString(), clockTime, replyRequired});
+          new Object[]{LogSequenceNumber.valueOf(lastServerLSN).asString(), clockTime,
+              replyRequired});
     }
 
     return replyRequired;
   }
 
-  private ByteBuffer processXLogData(ByteBuffer buffer) {
-    long startLsn = buffer.getLong();
-    lastServerLSN = LogSequenceNumber.valueOf(buffer.getLong());
-    long systemClock = buffer.getLong();
+  private void processXLogData(byte[] message, int length) {
+    long startLsn = ByteConverter.int8(message, 1);
+    lastServerLSN = ByteConverter.int8(message, 9);
+    long systemClock = ByteConverter.int8(message, 17);
 
     switch (replicationType) {
       case LOGICAL:
-        lastReceiveLSN = LogSequenceNumber.valueOf(startLsn);
+        pendingReceiveLSN = startLsn;
         break;
       case PHYSICAL:
-        int payloadSize = buffer.limit() - buffer.position();
-        lastReceiveLSN = LogSequenceNumber.valueOf(startLsn + payloadSize);
+        int payloadSize = length - XLOG_DATA_HEADER_LENGTH;
+        pendingReceiveLSN = startLsn + payloadSize;
         break;
     }
 
     if (LOGGER.isLoggable(Level.FINEST)) {
       LOGGER.log(Level.FINEST, "  <=BE XLogData(currWal: {0}, lastServerWal: {1}, clock: {2})",
-          new Object[]{lastReceiveLSN.asString(), lastServerLSN.asString(), systemClock});
+          new Object[]{LogSequenceNumber.valueOf(pendingReceiveLSN).asString(),
+              LogSequenceNumber.valueOf(lastServerLSN).asString(), systemClock});
     }
-
-    return buffer.slice();
   }
 
   private void checkClose() throws PSQLException {
@@ -277,14 +492,17 @@ public class V3PGReplicationStream implements PGReplicationStream {
   }
 
   public void close() throws SQLException {
-    if (isClosed()) {
-      return;
-    }
+    stopBackgroundFeedback();
+    try (ResourceLock ignore = lock.obtain()) {
+      if (isClosed()) {
+        return;
+      }
 
-    LOGGER.log(Level.FINEST, " FE=> StopReplication");
+      LOGGER.log(Level.FINEST, " FE=> StopReplication");
 
-    copyDual.endCopy();
+      copyDual.endCopy();
 
-    closeFlag = true;
+      closeFlag = true;
+    }
   }
 }
@@ -59,12 +59,16 @@ public class V3ReplicationProtocol implements ReplicationProtocol {
     configureSocketTimeout(options);
     CopyDual copyDual = (CopyDual) queryExecutor.startCopy(query, true);
 
-    return new V3PGReplicationStream(
+    V3PGReplicationStream stream = new V3PGReplicationStream(
         castNonNull(copyDual),
         options.getStartLSNPosition(),
         options.getStatusInterval(),
         replicationType
     );
+    if (options.isBackgroundFeedback()) {
+      stream.startBackgroundFeedback();
+    }
+    return stream;
   }
 
   /**
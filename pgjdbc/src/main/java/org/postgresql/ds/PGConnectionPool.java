@@ -0,0 +1,927 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.ds;
+
+import org.postgresql.core.BaseConnection;
+import org.postgresql.ds.common.BaseDataSource;
+import org.postgresql.ds.common.DelegatingConnection;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.naming.NamingException;
+import javax.naming.Reference;
+import javax.naming.StringRefAddr;
+import javax.sql.DataSource;
+
+/**
+ * <p>DataSource with a built-in connection pool, for the applications that do not use an external
+ * one. Unlike {@link PGPoolingDataSource}, borrowing and returning a connection takes no lock:</p>
+ *
+ * <ul>
+ * <li>a thread first tries the connection it returned last, which is usually idle when the thread
+ * borrows connections one at a time;</li>
+ * <li>otherwise it claims any idle connection with a compare-and-set, starting the search at an
+ * offset derived from the thread, so concurrent threads do not race for the same connections;</li>
+ * <li>when all the connections are in use and the pool is full, it waits for a connection to be
+ * handed over by the thread that returns it.</li>
+ * </ul>
+ *
+ * <p>A connection that stayed idle for longer than {@link #getValidationInterval()} is checked with
+ * a single protocol round trip before it is handed out, without running a query. A background
+ * thread closes the connections that stayed idle for longer than {@link #getIdleTimeout()}, keeping
+ * {@link #getMinIdle()} of them, and the connections older than {@link #getMaxLifetime()}; the
+ * connections in use are closed when they are returned instead.</p>
+ *
+ * <p>The connections handed out are plain delegating wrappers, not dynamic proxies. Closing one
+ * rolls back the transaction in progress, restores the auto-commit, read-only and isolation
+ * settings, and returns the physical connection to the pool. The statements created through the
+ * connection should be closed by the application before.</p>
+ *
+ * <p>As with {@link PGPoolingDataSource}, only the connections of the default user are pooled,
+ * and the pool settings cannot be changed once the pool is initialized. The other properties are
+ * read whenever a physical connection is opened.</p>
+ */
+public class PGConnectionPool extends BaseDataSource implements DataSource, AutoCloseable {
+  private static final Logger LOGGER = Logger.getLogger(PGConnectionPool.class.getName());
+
+  /**
+   * Closes the idle and expired connections of all the pools, and opens the connections that keep
+   * {@link #getMinIdle()} of them. It stops once no pool has used it for a minute.
+   */
+  private static final ScheduledThreadPoolExecutor HOUSEKEEPER = createHousekeeper();
+
+  private static final PoolEntry[] NO_ENTRIES = new PoolEntry[0];
+
+  /**
+   * Attempts to hand a returned connection over to a waiting thread.
+   */
+  private static final int MAX_HANDOFF_SPINS = 1024;
+
+  // Pool settings
+  private int maxPoolSize = 10;
+  private int minIdle = 0;
+  private long connectionTimeout = 30000;
+  private long idleTimeout = 600000;
+  private long maxLifetime = 1800000;
+  private long validationInterval = 500;
+  private int validationTimeout = 5000;
+  private long housekeepingInterval = 30000;
+  private boolean defaultAutoCommit = true;
+
+  // State
+  private volatile boolean initialized;
+  private volatile boolean closed;
+  private final Object initLock = new Object();
+  private @Nullable ScheduledFuture<?> housekeeping;
+  /**
+   * The connections of the pool. The array is replaced, under {@link #entriesLock}, when a
+   * connection is added or removed, which is rare, so the borrowers scan it without locking.
+   */
+  private volatile PoolEntry[] entries = NO_ENTRIES;
+  private final Object entriesLock = new Object();
+  /**
+   * Number of connections, including the ones being opened.
+   */
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final SynchronousQueue<PoolEntry> handoff = new SynchronousQueue<PoolEntry>(true);
+  private final ThreadLocal<@Nullable WeakReference<PoolEntry>> lastReturned =
+      new ThreadLocal<@Nullable WeakReference<PoolEntry>>();
+
+  // Metrics
+  private final LongAdder borrowCount = new LongAdder();
+  private final LongAdder affinityBorrowCount = new LongAdder();
+  private final LongAdder borrowWaitNanos = new LongAdder();
+  private final AtomicLong borrowTimeoutCount = new AtomicLong();
+  private final AtomicLong createdCount = new AtomicLong();
+  private final AtomicLong closedCount = new AtomicLong();
+  private final AtomicLong validationFailureCount = new AtomicLong();
+
+  private static ScheduledThreadPoolExecutor createHousekeeper() {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "PostgreSQL-JDBC-PoolHousekeeper");
+            thread.setDaemon(true);
+            // Do not keep the context class loader of the application that created the pool
+            thread.setContextClassLoader(null);
+            return thread;
+          }
+        });
+    scheduler.setKeepAliveTime(60, TimeUnit.SECONDS);
+    scheduler.allowCoreThreadTimeOut(true);
+    scheduler.setRemoveOnCancelPolicy(true);
+    return scheduler;
+  }
+
+  /**
+   * A physical connection of the pool.
+   */
+  private static final class PoolEntry {
+    static final int IDLE = 0;
+    static final int IN_USE = 1;
+    /**
+     * Checked by the housekeeper.
+     */
+    static final int RESERVED = 2;
+    static final int REMOVED = 3;
+
+    final BaseConnection connection;
+    final AtomicInteger state = new AtomicInteger(IN_USE);
+    /**
+     * Kept by the threads that returned the connection last, allocated once.
+     */
+    final WeakReference<PoolEntry> reference = new WeakReference<PoolEntry>(this);
+    final long createdNanos;
+    final boolean defaultReadOnly;
+    final int defaultIsolation;
+    volatile long lastReturnedNanos;
+    /**
+     * Set when the connection raised a fatal error.
+     */
+    volatile boolean broken;
+
+    PoolEntry(BaseConnection connection) throws SQLException {
+      this.connection = connection;
+      this.createdNanos = System.nanoTime();
+      this.lastReturnedNanos = createdNanos;
+      this.defaultReadOnly = connection.isReadOnly();
+      this.defaultIsolation = connection.getTransactionIsolation();
+    }
+  }
+
+  /**
+   * The connection handed out to the application, one per borrow, so a handle that was closed
+   * cannot reach the physical connection once another thread borrowed it.
+   */
+  private final class PooledConnectionHandle extends DelegatingConnection {
+    private @Nullable PoolEntry entry;
+    private boolean isolationChanged;
+
+    PooledConnectionHandle(PoolEntry entry) {
+      this.entry = entry;
+    }
+
+    @Override
+    protected Connection getDelegate() throws SQLException {
+      PoolEntry entry = this.entry;
+      if (entry == null) {
+        throw new PSQLException(GT.tr("Connection has been closed."),
+            PSQLState.CONNECTION_DOES_NOT_EXIST);
+      }
+      return entry.connection;
+    }
+
+    @Override
+    protected void onError(SQLException e) {
+      PoolEntry entry = this.entry;
+      if (entry != null && PGPooledConnection.isFatalState(e.getSQLState())) {
+        entry.broken = true;
+      }
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+      super.setTransactionIsolation(level);
+      isolationChanged = true;
+    }
+
+    @Override
+    public void close() throws SQLException {
+      PoolEntry entry = this.entry;
+      if (entry == null) {
+        return;
+      }
+      this.entry = null;
+      release(entry, isolationChanged);
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+      PoolEntry entry = this.entry;
+      return entry == null || entry.connection.isClosed();
+    }
+
+    @Override
+    public String toString() {
+      PoolEntry entry = this.entry;
+      return "Pooled connection wrapping physical connection "
+          + (entry == null ? null : entry.connection);
+    }
+  }
+
+  /**
+   * Gets a description of this DataSource.
+   */
+  public String getDescription() {
+    return "Connection pool from " + org.postgresql.util.DriverInfo.DRIVER_FULL_NAME;
+  }
+
+  private void checkNotInitialized() {
+    if (initialized) {
+      throw new IllegalStateException(
+          "Cannot set Data Source properties after DataSource has been used");
+    }
+  }
+
+  /**
+   * @return maximum number of connections of the pool, 10 by default
+   */
+  public int getMaxPoolSize() {
+    return maxPoolSize;
+  }
+
+  /**
+   * Sets the maximum number of connections of the pool. The threads that borrow a connection while
+   * that many are in use wait for one to be returned, for up to {@link #getConnectionTimeout()}.
+   *
+   * @param maxPoolSize maximum number of connections, 10 by default
+   * @throws IllegalStateException if the pool is initialized
+   */
+  public void setMaxPoolSize(int maxPoolSize) {
+    checkNotInitialized();
+    if (maxPoolSize < 1) {
+      throw new IllegalArgumentException("maxPoolSize must be positive: " + maxPoolSize);
+    }
+    this.maxPoolSize = maxPoolSize;
+  }
+
+  /**
+   * @return number of idle connections the pool keeps open, 0 by default
+   */
+  public int getMinIdle() {
+    return minIdle;
+  }
+
+  /**
+   * Sets the number of idle connections the pool keeps open, within {@link #getMaxPoolSize()}.
+   * They are opened when the pool is initialized, and reopened in the background.
+   *
+   * @param minIdle number of idle connections, 0 by default
+   * @throws IllegalStateException if the pool is initialized
+   */
+  public void setMinIdle(int minIdle) {
+    checkNotInitialized();
+    this.minIdle = minIdle;
+  }
+
+  /**
+   * @return time to wait for a connection when the pool is exhausted, in milliseconds
+   */
+  public long getConnectionTimeout() {
+    return connectionTimeout;
+  }
+
+  /**
+   * Sets the time {@link #getConnection()} waits for a connection to be returned when all the
+   * connections are in use and the pool is full.
+   *
+   * @param connectionTimeout time to wait, in milliseconds, 30000 by default
+   * @throws IllegalStateException if the pool is initialized
+   */
+  public void setConnectionTimeout(long connectionTimeout) {
+    checkNotInitialized();
+    this.connectionTimeout = connectionTimeout;
+  }
+
+  /**
+   * @return time after which an idle connection is closed, in milliseconds, 0 if never
+   */
+  public long getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  /**
+   * Sets the time after which an idle connection is closed by the housekeeper, unless the pool
+   * would keep less than {@link #getMinIdle()} idle connections.
+   *
+   * @param idleTimeout time in milliseconds, 600000 (10 minutes) by default, 0 to keep the idle
+   *     connections
+   * @throws IllegalStateException if the pool is initialized
+   */
+  public void setIdleTimeout(long idleTimeout) {
+    checkNotInitialized();
+    this.idleTimeout = idleTimeout;
+  }
+
+  /**
+   * @return time after which a connection is closed, in milliseconds, 0 if never
+   */
+  public long getMaxLifetime() {
+    return maxLifetime;
+  }
+
+  /**
+   * Sets the time after which a connection is closed: by the housekeeper if it is idle, when it
+   * is returned otherwise. This lets the server side resources, such as the memory of the backend,
+   * be released from time to time.
+   *
+   * @param maxLifetime time in milliseconds, 1800000 (30 minutes) by default, 0 to keep the
+   *     connections
+   * @throws IllegalStateException if the pool is initialized
+   */
+  public void setMaxLifetime(long maxLifetime) {
+    checkNotInitialized();
+    this.maxLifetime = maxLifetime;
+  }
+
+  /**
+   * @return time a connection can stay idle before it is checked, in milliseconds
+   */
+  public long getValidationInterval() {
+    return validationInterval;
+  }
+
+  /**
+   * Sets the time a connection can stay idle before it is checked when it is borrowed. The check
+   * is a single round trip to the server, which neither runs a query nor starts a transaction.
+   *
+   * @param validationInterval time in milliseconds, 500 by default, 0 to check the connection on
+   *     every borrow
+   * @throws IllegalStateException if the pool is initialized
+   */
+  public void setValidationInterval(long validationInterval) {
+    checkNotInitialized();
+    this.validationInterval = validationInterval;
+  }
+
+  /**
+   * @return time to wait for the server when checking a connection, in milliseconds
+   */
+  public int getValidationTimeout() {
+    return validationTimeout;
+  }
+
+  /**
+   * Sets the time to wait for the server when checking a connection, after which the connection
+   * is closed and another one is borrowed.
+   *
+   * @param validationTimeout time in milliseconds, 5000 by default
+   * @throws IllegalStateException if the pool is initialized
+   */
+  public void setValidationTimeout(int validationTimeout) {
+    checkNotInitialized();
+    this.validationTimeout = validationTimeout;
+  }
+
+  /**
+   * @return interval between the runs of the housekeeper, in milliseconds
+   */
+  public long getHousekeepingInterval() {
+    return housekeepingInterval;
+  }
+
+  /**
+   * Sets the interval between the runs of the housekeeper, which closes the idle and expired
+   * connections.
+   *
+   * @param housekeepingInterval interval in milliseconds, 30000 by default
+   * @throws IllegalStateException if the pool is initialized
+   */
+  public void setHousekeepingInterval(long housekeepingInterval) {
+    checkNotInitialized();
+    if (housekeepingInterval < 1) {
+      throw new IllegalArgumentException(
+          "housekeepingInterval must be positive: " + housekeepingInterval);
+    }
+    this.housekeepingInterval = housekeepingInterval;
+  }
+
+  /**
+   * @return whether the connections are handed out in auto-commit mode, true by default
+   */
+  public boolean isDefaultAutoCommit() {
+    return defaultAutoCommit;
+  }
+
+  /**
+   * Sets whether the connections are handed out in auto-commit mode. The mode is restored when a
+   * connection is returned.
+   *
+   * @param defaultAutoCommit whether to hand out the connections in auto-commit mode
+   * @throws IllegalStateException if the pool is initialized
+   */
+  public void setDefaultAutoCommit(boolean defaultAutoCommit) {
+    checkNotInitialized();
+    this.defaultAutoCommit = defaultAutoCommit;
+  }
+
+  /**
+   * Initializes this pool: opens {@link #getMinIdle()} connections and starts the housekeeper.
+   * After this method is called, the pool settings cannot be changed. If you do not call this
+   * explicitly, it will be called the first time you get a connection from the pool.
+   *
+   * @throws SQLException if the pool is closed, or if the connections cannot be opened
+   */
+  public void initialize() throws SQLException {
+    synchronized (initLock) {
+      checkOpen();
+      if (initialized) {
+        return;
+      }
+      initialized = true;
+      while (size.get() < Math.min(minIdle, maxPoolSize)) {
+        PoolEntry entry = tryCreate();
+        if (entry == null) {
+          break;
+        }
+        publish(entry);
+      }
+      housekeeping = HOUSEKEEPER.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          houseKeep();
+        }
+      }, housekeepingInterval, housekeepingInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void checkOpen() throws SQLException {
+    if (closed) {
+      throw new PSQLException(GT.tr("DataSource has been closed."),
+          PSQLState.CONNECTION_DOES_NOT_EXIST);
+    }
+  }
+
+  /**
+   * Gets a <b>non-pooled</b> connection, unless the user and password are the same as the default
+   * values for this connection pool.
+   *
+   * @return a pooled connection
+   * @throws SQLException if no connection is available in time, or if a new physical connection
+   *     cannot be opened
+   */
+  @Override
+  public Connection getConnection(@Nullable String user, @Nullable String password)
+      throws SQLException {
+    if (user == null || (user.equals(getUser()) && ((password == null && getPassword() == null)
+        || (password != null && password.equals(getPassword()))))) {
+      return getConnection();
+    }
+    return super.getConnection(user, password);
+  }
+
+  /**
+   * Borrows a connection from the pool, opening a new one if none is idle and the pool is not
+   * full, or waiting for one to be returned otherwise.
+   *
+   * @return a pooled connection, which is returned to the pool when it is closed
+   * @throws SQLException if no connection is available in time, or if a new physical connection
+   *     cannot be opened
+   */
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (!initialized) {
+      initialize();
+    }
+    checkOpen();
+    long start = System.nanoTime();
+    PoolEntry entry;
+    do {
+      entry = acquire(start + TimeUnit.MILLISECONDS.toNanos(connectionTimeout));
+    } while (!isUsable(entry));
+    borrowWaitNanos.add(System.nanoTime() - start);
+    borrowCount.increment();
+    return new PooledConnectionHandle(entry);
+  }
+
+  /**
+   * @return a connection the caller owns, in the {@link PoolEntry#IN_USE} state
+   */
+  private PoolEntry acquire(long deadline) throws SQLException {
+    WeakReference<PoolEntry> last = lastReturned.get();
+    if (last != null) {
+      PoolEntry entry = last.get();
+      if (entry != null && entry.state.compareAndSet(PoolEntry.IDLE, PoolEntry.IN_USE)) {
+        affinityBorrowCount.increment();
+        return entry;
+      }
+    }
+    PoolEntry entry = claimIdle();
+    if (entry != null) {
+      return entry;
+    }
+    entry = tryCreate();
+    if (entry != null) {
+      return entry;
+    }
+
+    waiters.incrementAndGet();
+    try {
+      while (true) {
+        // A connection may have been returned or closed before this thread was counted
+        entry = claimIdle();
+        if (entry == null) {
+          entry = tryCreate();
+        }
+        if (entry != null) {
+          return entry;
+        }
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          borrowTimeoutCount.incrementAndGet();
+          throw new PSQLException(
+              GT.tr("Timed out after {0} ms waiting for a pooled connection.",
+                  String.valueOf(connectionTimeout)),
+              PSQLState.CONNECTION_UNABLE_TO_CONNECT);
+        }
+        // Wake up every second at a minimum, to notice that the pool is closed
+        entry = handoff.poll(Math.min(remaining, TimeUnit.SECONDS.toNanos(1)),
+            TimeUnit.NANOSECONDS);
+        if (entry != null && entry.state.compareAndSet(PoolEntry.IDLE, PoolEntry.IN_USE)) {
+          return entry;
+        }
+        checkOpen();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new PSQLException(GT.tr("Interrupted while waiting for a pooled connection."),
+          PSQLState.UNEXPECTED_ERROR, e);
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  private @Nullable PoolEntry claimIdle() {
+    PoolEntry[] entries = this.entries;
+    int count = entries.length;
+    if (count == 0) {
+      return null;
+    }
+    int start = (int) (Thread.currentThread().getId() % count);
+    for (int i = 0; i < count; i++) {
+      PoolEntry entry = entries[(start + i) % count];
+      if (entry.state.get() == PoolEntry.IDLE
+          && entry.state.compareAndSet(PoolEntry.IDLE, PoolEntry.IN_USE)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Opens a connection if the pool is not full.
+   *
+   * @return the new connection, in the {@link PoolEntry#IN_USE} state, or null if the pool is full
+   */
+  private @Nullable PoolEntry tryCreate() throws SQLException {
+    while (true) {
+      int current = size.get();
+      if (current >= maxPoolSize) {
+        return null;
+      }
+      if (size.compareAndSet(current, current + 1)) {
+        break;
+      }
+    }
+    PoolEntry entry;
+    try {
+      BaseConnection connection =
+          super.getConnection(getUser(), getPassword()).unwrap(BaseConnection.class);
+      try {
+        connection.setAutoCommit(defaultAutoCommit);
+        entry = new PoolEntry(connection);
+      } catch (SQLException e) {
+        connection.close();
+        throw e;
+      }
+    } catch (SQLException e) {
+      size.decrementAndGet();
+      throw e;
+    } catch (RuntimeException e) {
+      size.decrementAndGet();
+      throw e;
+    }
+    createdCount.incrementAndGet();
+    synchronized (entriesLock) {
+      PoolEntry[] entries = Arrays.copyOf(this.entries, this.entries.length + 1);
+      entries[entries.length - 1] = entry;
+      this.entries = entries;
+    }
+    if (closed) {
+      remove(entry);
+      checkOpen();
+    }
+    return entry;
+  }
+
+  private boolean isUsable(PoolEntry entry) {
+    long now = System.nanoTime();
+    if (entry.broken || isExpired(entry, now)) {
+      remove(entry);
+      return false;
+    }
+    if (now - entry.lastReturnedNanos > TimeUnit.MILLISECONDS.toNanos(validationInterval)) {
+      try {
+        entry.connection.getQueryExecutor().ping(validationTimeout);
+      } catch (SQLException e) {
+        LOGGER.log(Level.FINE, "Closing a pooled connection that failed validation", e);
+        validationFailureCount.incrementAndGet();
+        remove(entry);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isExpired(PoolEntry entry, long now) {
+    return maxLifetime > 0
+        && now - entry.createdNanos > TimeUnit.MILLISECONDS.toNanos(maxLifetime);
+  }
+
+  /**
+   * Called when a handle is closed: resets the connection and makes it available.
+   */
+  private void release(PoolEntry entry, boolean isolationChanged) {
+    BaseConnection connection = entry.connection;
+    if (!entry.broken) {
+      try {
+        if (!connection.getAutoCommit()) {
+          connection.rollback();
+        }
+        if (connection.getAutoCommit() != defaultAutoCommit) {
+          connection.setAutoCommit(defaultAutoCommit);
+        }
+        if (connection.isReadOnly() != entry.defaultReadOnly) {
+          connection.setReadOnly(entry.defaultReadOnly);
+        }
+        if (isolationChanged) {
+          connection.setTransactionIsolation(entry.defaultIsolation);
+        }
+        connection.clearWarnings();
+      } catch (SQLException e) {
+        LOGGER.log(Level.FINE, "Closing a pooled connection that could not be reset", e);
+        entry.broken = true;
+      }
+    }
+    long now = System.nanoTime();
+    if (closed || entry.broken || connection.getQueryExecutor().isClosed()
+        || isExpired(entry, now)) {
+      remove(entry);
+      return;
+    }
+    entry.lastReturnedNanos = now;
+    lastReturned.set(entry.reference);
+    publish(entry);
+  }
+
+  /**
+   * Makes a connection owned by the caller idle, handing it over to a waiting thread if any.
+   */
+  private void publish(PoolEntry entry) {
+    entry.state.set(PoolEntry.IDLE);
+    // Covers a waiting thread that scanned the pool before the connection became idle and is about
+    // to poll. The spin gives up on a thread that is opening a connection, which scans again
+    for (int i = 0; i < MAX_HANDOFF_SPINS && waiters.get() > 0; i++) {
+      if (entry.state.get() != PoolEntry.IDLE || handoff.offer(entry)) {
+        // Taken by a thread that scanned the pool, or handed over to a waiting one
+        return;
+      }
+      if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+  }
+
+  /**
+   * Closes a connection owned by the caller, and asks the housekeeper to replace it if threads
+   * are waiting for a connection.
+   */
+  private void remove(PoolEntry entry) {
+    entry.state.set(PoolEntry.REMOVED);
+    synchronized (entriesLock) {
+      List<PoolEntry> remaining = new ArrayList<PoolEntry>(Arrays.asList(entries));
+      if (!remaining.remove(entry)) {
+        return;
+      }
+      entries = remaining.toArray(NO_ENTRIES);
+    }
+    size.decrementAndGet();
+    closedCount.incrementAndGet();
+    try {
+      entry.connection.close();
+    } catch (SQLException e) {
+      LOGGER.log(Level.FINE, "Failed to close a pooled connection", e);
+    }
+    if (!closed && waiters.get() > 0) {
+      HOUSEKEEPER.execute(new Runnable() {
+        @Override
+        public void run() {
+          fill();
+        }
+      });
+    }
+  }
+
+  /**
+   * Closes the idle connections that expired or stayed idle for too long, then opens the
+   * connections that are needed.
+   */
+  private void houseKeep() {
+    long now = System.nanoTime();
+    long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+    for (PoolEntry entry : entries) {
+      if (!entry.state.compareAndSet(PoolEntry.IDLE, PoolEntry.RESERVED)) {
+        continue;
+      }
+      if (entry.broken || isExpired(entry, now)
+          || (idleTimeout > 0 && now - entry.lastReturnedNanos > idleNanos
+              && getIdleConnections() >= minIdle)) {
+        remove(entry);
+      } else {
+        publish(entry);
+      }
+    }
+    fill();
+  }
+
+  /**
+   * Opens connections while threads are waiting, or while there are less than
+   * {@link #getMinIdle()} idle connections.
+   */
+  private void fill() {
+    try {
+      while (!closed && (waiters.get() > 0 || getIdleConnections() < minIdle)) {
+        PoolEntry entry = tryCreate();
+        if (entry == null) {
+          return;
+        }
+        publish(entry);
+      }
+    } catch (SQLException e) {
+      LOGGER.log(Level.FINE, "Failed to open a pooled connection", e);
+    }
+  }
+
+  /**
+   * Closes this pool and its idle connections. The connections in use are closed when they are
+   * returned.
+   */
+  @Override
+  public void close() {
+    synchronized (initLock) {
+      closed = true;
+      ScheduledFuture<?> housekeeping = this.housekeeping;
+      if (housekeeping != null) {
+        housekeeping.cancel(false);
+        this.housekeeping = null;
+      }
+    }
+    for (PoolEntry entry : entries) {
+      if (entry.state.compareAndSet(PoolEntry.IDLE, PoolEntry.RESERVED)) {
+        remove(entry);
+      }
+    }
+  }
+
+  /**
+   * @return true if {@link #close()} was called
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  private int countEntries(int state) {
+    int count = 0;
+    for (PoolEntry entry : entries) {
+      if (entry.state.get() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return number of connections handed out
+   */
+  public int getActiveConnections() {
+    return countEntries(PoolEntry.IN_USE);
+  }
+
+  /**
+   * @return number of connections available in the pool
+   */
+  public int getIdleConnections() {
+    return countEntries(PoolEntry.IDLE);
+  }
+
+  /**
+   * @return number of connections of the pool, including the ones being opened
+   */
+  public int getTotalConnections() {
+    return size.get();
+  }
+
+  /**
+   * @return number of threads waiting for a connection to be returned
+   */
+  public int getThreadsAwaitingConnection() {
+    return waiters.get();
+  }
+
+  /**
+   * @return number of connections handed out since the pool was created
+   */
+  public long getBorrowCount() {
+    return borrowCount.sum();
+  }
+
+  /**
+   * @return number of borrows served with the connection the same thread returned last
+   */
+  public long getAffinityBorrowCount() {
+    return affinityBorrowCount.sum();
+  }
+
+  /**
+   * @return total time spent in {@link #getConnection()} by the borrowers, in milliseconds,
+   *     including the time to open and check the connections
+   */
+  public long getTotalBorrowTime() {
+    return TimeUnit.NANOSECONDS.toMillis(borrowWaitNanos.sum());
+  }
+
+  /**
+   * @return number of borrows that timed out because the pool was exhausted
+   */
+  public long getBorrowTimeoutCount() {
+    return borrowTimeoutCount.get();
+  }
+
+  /**
+   * @return number of physical connections opened since the pool was created
+   */
+  public long getCreatedConnectionCount() {
+    return createdCount.get();
+  }
+
+  /**
+   * @return number of physical connections closed since the pool was created
+   */
+  public long getClosedConnectionCount() {
+    return closedCount.get();
+  }
+
+  /**
+   * @return number of connections closed because they failed the validation
+   */
+  public long getValidationFailureCount() {
+    return validationFailureCount.get();
+  }
+
+  /**
+   * Adds custom properties for this DataSource to the properties defined in the superclass.
+   */
+  @Override
+  public Reference getReference() throws NamingException {
+    Reference ref = super.getReference();
+    ref.add(new StringRefAddr("maxPoolSize", Integer.toString(maxPoolSize)));
+    ref.add(new StringRefAddr("minIdle", Integer.toString(minIdle)));
+    ref.add(new StringRefAddr("connectionTimeout", Long.toString(connectionTimeout)));
+    ref.add(new StringRefAddr("idleTimeout", Long.toString(idleTimeout)));
+    ref.add(new StringRefAddr("maxLifetime", Long.toString(maxLifetime)));
+    ref.add(new StringRefAddr("validationInterval", Long.toString(validationInterval)));
+    ref.add(new StringRefAddr("validationTimeout", Integer.toString(validationTimeout)));
+    ref.add(new StringRefAddr("housekeepingInterval", Long.toString(housekeepingInterval)));
+    ref.add(new StringRefAddr("defaultAutoCommit", Boolean.toString(defaultAutoCommit)));
+    return ref;
+  }
+
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isAssignableFrom(getClass());
+  }
+
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isAssignableFrom(getClass())) {
+      return iface.cast(this);
+    }
+    throw new SQLException("Cannot unwrap to " + iface.getName());
+  }
+}
@@ -7,22 +7,15 @@ package org.postgresql.ds;
 
 import static org.postgresql.util.internal.Nullness.castNonNull;
 
-import org.postgresql.PGConnection;
+import org.postgresql.ds.common.DelegatingConnection;
 import org.postgresql.util.GT;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
-import java.sql.CallableStatement;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -42,7 +35,7 @@ import javax.sql.StatementEventListener;
 public class PGPooledConnection implements PooledConnection {
   private final List<ConnectionEventListener> listeners = new LinkedList<ConnectionEventListener>();
   private @Nullable Connection con;
-  private @Nullable ConnectionHandler last;
+  private @Nullable ConnectionHandle last;
   private final boolean autoCommit;
   private final boolean isXA;
 
@@ -86,7 +79,7 @@ public class PGPooledConnection implements PooledConnection {
   @Override
   public void close() throws SQLException {
     if (last != null) {
-      last.close();
+      last.invalidate();
       if (con != null && !con.isClosed()) {
         if (!con.getAutoCommit()) {
           try {
@@ -134,7 +127,7 @@ public class PGPooledConnection implements PooledConnection {
       // Only one connection can be open at a time from this PooledConnection. See JDBC 2.0 Optional
       // Package spec section 6.2.3
       if (last != null) {
-        last.close();
+        last.invalidate();
         if (con != null) {
           if (!con.getAutoCommit()) {
             try {
@@ -156,13 +149,9 @@ public class PGPooledConnection implements PooledConnection {
       fireConnectionFatalError(sqlException);
       throw (SQLException) sqlException.fillInStackTrace();
     }
-    ConnectionHandler handler = new ConnectionHandler(castNonNull(con));
-    last = handler;
-
-    Connection proxyCon = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
-        new Class[]{Connection.class, PGConnection.class}, handler);
-    handler.setProxy(proxyCon);
-    return proxyCon;
+    ConnectionHandle handle = createConnectionHandle(castNonNull(con));
+    last = handle;
+    return handle;
   }
 
   /**
@@ -218,7 +207,7 @@ public class PGPooledConnection implements PooledConnection {
       "XX", // internal error (backend)
   };
 
-  private static boolean isFatalState(@Nullable String state) {
+  static boolean isFatalState(@Nullable String state) {
     if (state == null) {
       // no info, assume fatal
       return true;
@@ -251,202 +240,97 @@ public class PGPooledConnection implements PooledConnection {
   }
 
   /**
-   * Instead of declaring a class implementing Connection, which would have to be updated for every
-   * JDK rev, use a dynamic proxy to handle all calls through the Connection interface. This is the
-   * part that requires JDK 1.3 or higher, though JDK 1.2 could be supported with a 3rd-party proxy
-   * package.
+   * Creates the handle returned by {@link #getConnection()}. Subclasses can return their own
+   * handle to intercept some of the calls.
+   *
+   * @param con the physical connection
+   * @return the handle for the client to use
+   */
+  protected ConnectionHandle createConnectionHandle(Connection con) {
+    return new ConnectionHandle(con);
+  }
+
+  /**
+   * The connection a client is currently using. Closing it returns the physical connection to the
+   * pool instead of closing it, the statements it creates return it from their
+   * {@code getConnection()} method, and the fatal errors raised by the physical connection or its
+   * statements are reported to the listeners.
    */
-  private class ConnectionHandler implements InvocationHandler {
+  protected class ConnectionHandle extends DelegatingConnection {
     private @Nullable Connection con;
-    private @Nullable Connection proxy; // the Connection the client is currently using, which is a proxy
     private boolean automatic = false;
 
-    ConnectionHandler(Connection con) {
+    /**
+     * @param con the physical connection
+     */
+    protected ConnectionHandle(Connection con) {
       this.con = con;
     }
 
     @Override
-    @SuppressWarnings("throwing.nullable")
-    public @Nullable Object invoke(Object proxy, Method method, @Nullable Object[] args) throws Throwable {
-      final String methodName = method.getName();
-      // From Object
-      if (method.getDeclaringClass() == Object.class) {
-        if (methodName.equals("toString")) {
-          return "Pooled connection wrapping physical connection " + con;
-        }
-        if (methodName.equals("equals")) {
-          return proxy == args[0];
-        }
-        if (methodName.equals("hashCode")) {
-          return System.identityHashCode(proxy);
-        }
-        try {
-          return method.invoke(con, args);
-        } catch (InvocationTargetException e) {
-          // throwing.nullable
-          throw e.getTargetException();
-        }
-      }
-
-      // All the rest is from the Connection or PGConnection interface
-      if (methodName.equals("isClosed")) {
-        return con == null || con.isClosed();
-      }
-      if (methodName.equals("close")) {
-        // we are already closed and a double close
-        // is not an error.
-        if (con == null) {
-          return null;
-        }
-
-        SQLException ex = null;
-        if (!con.isClosed()) {
-          if (!isXA && !con.getAutoCommit()) {
-            try {
-              con.rollback();
-            } catch (SQLException e) {
-              ex = e;
-            }
-          }
-          con.clearWarnings();
-        }
-        con = null;
-        this.proxy = null;
-        last = null;
-        fireConnectionClosed();
-        if (ex != null) {
-          throw ex;
-        }
-        return null;
-      }
+    protected Connection getDelegate() throws SQLException {
+      Connection con = this.con;
       if (con == null || con.isClosed()) {
         throw new PSQLException(automatic
             ? GT.tr(
                 "Connection has been closed automatically because a new connection was opened for the same PooledConnection or the PooledConnection has been closed.")
             : GT.tr("Connection has been closed."), PSQLState.CONNECTION_DOES_NOT_EXIST);
       }
+      return con;
+    }
+
+    @Override
+    protected void onError(SQLException e) {
+      // Tell listeners about exception if it's fatal
+      fireConnectionError(e);
+    }
+
+    @Override
+    public void close() throws SQLException {
+      Connection con = this.con;
+      // we are already closed and a double close
+      // is not an error.
+      if (con == null) {
+        return;
+      }
 
-      // From here on in, we invoke via reflection, catch exceptions,
-      // and check if they're fatal before rethrowing.
-      try {
-        if (methodName.equals("createStatement")) {
-          Statement st = castNonNull((Statement) method.invoke(con, args));
-          return Proxy.newProxyInstance(getClass().getClassLoader(),
-              new Class[]{Statement.class, org.postgresql.PGStatement.class},
-              new StatementHandler(this, st));
-        } else if (methodName.equals("prepareCall")) {
-          Statement st = castNonNull((Statement) method.invoke(con, args));
-          return Proxy.newProxyInstance(getClass().getClassLoader(),
-              new Class[]{CallableStatement.class, org.postgresql.PGStatement.class},
-              new StatementHandler(this, st));
-        } else if (methodName.equals("prepareStatement")) {
-          Statement st = castNonNull((Statement) method.invoke(con, args));
-          return Proxy.newProxyInstance(getClass().getClassLoader(),
-              new Class[]{PreparedStatement.class, org.postgresql.PGStatement.class},
-              new StatementHandler(this, st));
-        } else {
-          return method.invoke(con, args);
-        }
-      } catch (final InvocationTargetException ite) {
-        final Throwable te = ite.getTargetException();
-        if (te instanceof SQLException) {
-          fireConnectionError((SQLException) te); // Tell listeners about exception if it's fatal
+      SQLException ex = null;
+      if (!con.isClosed()) {
+        if (!isXA && !con.getAutoCommit()) {
+          try {
+            con.rollback();
+          } catch (SQLException e) {
+            ex = e;
+          }
         }
-        throw te;
+        con.clearWarnings();
+      }
+      this.con = null;
+      last = null;
+      fireConnectionClosed();
+      if (ex != null) {
+        throw ex;
       }
     }
 
-    Connection getProxy() {
-      return castNonNull(proxy);
+    @Override
+    public boolean isClosed() throws SQLException {
+      Connection con = this.con;
+      return con == null || con.isClosed();
     }
 
-    void setProxy(Connection proxy) {
-      this.proxy = proxy;
+    @Override
+    public String toString() {
+      return "Pooled connection wrapping physical connection " + con;
     }
 
-    public void close() {
+    void invalidate() {
       if (con != null) {
         automatic = true;
       }
       con = null;
-      proxy = null;
       // No close event fired here: see JDBC 2.0 Optional Package spec section 6.3
     }
-
-    public boolean isClosed() {
-      return con == null;
-    }
-  }
-
-  /**
-   * <p>Instead of declaring classes implementing Statement, PreparedStatement, and CallableStatement,
-   * which would have to be updated for every JDK rev, use a dynamic proxy to handle all calls
-   * through the Statement interfaces. This is the part that requires JDK 1.3 or higher, though JDK
-   * 1.2 could be supported with a 3rd-party proxy package.</p>
-   *
-   * <p>The StatementHandler is required in order to return the proper Connection proxy for the
-   * getConnection method.</p>
-   */
-  private class StatementHandler implements InvocationHandler {
-    private @Nullable ConnectionHandler con;
-    private @Nullable Statement st;
-
-    StatementHandler(ConnectionHandler con, Statement st) {
-      this.con = con;
-      this.st = st;
-    }
-
-    @Override
-    @SuppressWarnings("throwing.nullable")
-    public @Nullable Object invoke(Object proxy, Method method, @Nullable Object[] args)
-        throws Throwable {
-      final String methodName = method.getName();
-      // From Object
-      if (method.getDeclaringClass() == Object.class) {
-        if (methodName.equals("toString")) {
-          return "Pooled statement wrapping physical statement " + st;
-        }
-        if (methodName.equals("hashCode")) {
-          return System.identityHashCode(proxy);
-        }
-        if (methodName.equals("equals")) {
-          return proxy == args[0];
-        }
-        return method.invoke(st, args);
-      }
-
-      // All the rest is from the Statement interface
-      if (methodName.equals("isClosed")) {
-        return st == null || st.isClosed();
-      }
-      if (methodName.equals("close")) {
-        if (st == null || st.isClosed()) {
-          return null;
-        }
-        con = null;
-        final Statement oldSt = st;
-        st = null;
-        oldSt.close();
-        return null;
-      }
-      if (st == null || st.isClosed()) {
-        throw new PSQLException(GT.tr("Statement has been closed."), PSQLState.OBJECT_NOT_IN_STATE);
-      }
-      if (methodName.equals("getConnection")) {
-        return castNonNull(con).getProxy(); // the proxied connection, not a physical connection
-      }
-
-      // Delegate the call to the proxied Statement.
-      try {
-        return method.invoke(st, args);
-      } catch (final InvocationTargetException ite) {
-        final Throwable te = ite.getTargetException();
-        if (te instanceof SQLException) {
-          fireConnectionError((SQLException) te); // Tell listeners about exception if it's fatal
-        }
-        throw te;
-      }
-    }
   }
 
   @Override
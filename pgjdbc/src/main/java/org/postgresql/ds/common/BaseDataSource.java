@@ -354,6 +354,55 @@ public abstract class BaseDataSource implements CommonDataSource, Referenceable
     PGProperty.CONNECT_TIMEOUT.set(properties, connectTimeout);
   }
 
+  /**
+   * @return true if the data of COPY FROM STDIN is sent from a background thread
+   * @see PGProperty#COPY_BACKGROUND_SEND
+   */
+  public boolean getCopyBackgroundSend() {
+    return PGProperty.COPY_BACKGROUND_SEND.getBoolean(properties);
+  }
+
+  /**
+   * @param enabled if the data of COPY FROM STDIN should be sent from a background thread
+   * @see PGProperty#COPY_BACKGROUND_SEND
+   */
+  public void setCopyBackgroundSend(boolean enabled) {
+    PGProperty.COPY_BACKGROUND_SEND.set(properties, enabled);
+  }
+
+  /**
+   * @return true if the batches of plain INSERT statements are executed as a COPY
+   * @see PGProperty#COPY_BATCHED_INSERTS
+   */
+  public boolean getCopyBatchedInserts() {
+    return PGProperty.COPY_BATCHED_INSERTS.getBoolean(properties);
+  }
+
+  /**
+   * @param enabled if the batches of plain INSERT statements should be executed as a COPY
+   * @see PGProperty#COPY_BATCHED_INSERTS
+   */
+  public void setCopyBatchedInserts(boolean enabled) {
+    PGProperty.COPY_BATCHED_INSERTS.set(properties, enabled);
+  }
+
+  /**
+   * @return largest CopyData message the small writes to COPY FROM STDIN are coalesced into
+   * @see PGProperty#COPY_FRAME_SIZE
+   */
+  public int getCopyFrameSize() {
+    return PGProperty.COPY_FRAME_SIZE.getIntNoCheck(properties);
+  }
+
+  /**
+   * @param copyFrameSize largest CopyData message the small writes to COPY FROM STDIN are
+   *     coalesced into, 0 to send a message per write
+   * @see PGProperty#COPY_FRAME_SIZE
+   */
+  public void setCopyFrameSize(int copyFrameSize) {
+    PGProperty.COPY_FRAME_SIZE.set(properties, copyFrameSize);
+  }
+
   /**
    * @return protocol version
    * @see PGProperty#PROTOCOL_VERSION
@@ -767,6 +816,22 @@ public abstract class BaseDataSource implements CommonDataSource, Referenceable
     return PGProperty.LOAD_BALANCE_HOSTS.isPresent(properties);
   }
 
+  /**
+   * @param loadBalanceByLatency true to choose the hosts that answer faster more often
+   * @see PGProperty#LOAD_BALANCE_BY_LATENCY
+   */
+  public void setLoadBalanceByLatency(boolean loadBalanceByLatency) {
+    PGProperty.LOAD_BALANCE_BY_LATENCY.set(properties, loadBalanceByLatency);
+  }
+
+  /**
+   * @return true if the hosts that answer faster are chosen more often
+   * @see PGProperty#LOAD_BALANCE_BY_LATENCY
+   */
+  public boolean getLoadBalanceByLatency() {
+    return PGProperty.LOAD_BALANCE_BY_LATENCY.getBoolean(properties);
+  }
+
   /**
    * @param hostRecheckSeconds host recheck seconds
    * @see PGProperty#HOST_RECHECK_SECONDS
@@ -783,6 +848,71 @@ public abstract class BaseDataSource implements CommonDataSource, Referenceable
     return PGProperty.HOST_RECHECK_SECONDS.getIntNoCheck(properties);
   }
 
+  /**
+   * @param hostProbeSeconds period of the background probes of the hosts, 0 to disable them
+   * @see PGProperty#HOST_PROBE_SECONDS
+   */
+  public void setHostProbeSeconds(int hostProbeSeconds) {
+    PGProperty.HOST_PROBE_SECONDS.set(properties, hostProbeSeconds);
+  }
+
+  /**
+   * @return period of the background probes of the hosts, 0 if they are disabled
+   * @see PGProperty#HOST_PROBE_SECONDS
+   */
+  public int getHostProbeSeconds() {
+    return PGProperty.HOST_PROBE_SECONDS.getIntNoCheck(properties);
+  }
+
+  /**
+   * @param maxReplicationLagSeconds highest replication lag of the secondaries to connect to, 0 to
+   *     accept any lag
+   * @see PGProperty#MAX_REPLICATION_LAG_SECONDS
+   */
+  public void setMaxReplicationLagSeconds(int maxReplicationLagSeconds) {
+    PGProperty.MAX_REPLICATION_LAG_SECONDS.set(properties, maxReplicationLagSeconds);
+  }
+
+  /**
+   * @return highest replication lag of the secondaries to connect to, 0 if any lag is accepted
+   * @see PGProperty#MAX_REPLICATION_LAG_SECONDS
+   */
+  public int getMaxReplicationLagSeconds() {
+    return PGProperty.MAX_REPLICATION_LAG_SECONDS.getIntNoCheck(properties);
+  }
+
+  /**
+   * @param parallelConnect true to connect to several hosts concurrently
+   * @see PGProperty#PARALLEL_CONNECT
+   */
+  public void setParallelConnect(boolean parallelConnect) {
+    PGProperty.PARALLEL_CONNECT.set(properties, parallelConnect);
+  }
+
+  /**
+   * @return true if several hosts are connected to concurrently
+   * @see PGProperty#PARALLEL_CONNECT
+   */
+  public boolean getParallelConnect() {
+    return PGProperty.PARALLEL_CONNECT.getBoolean(properties);
+  }
+
+  /**
+   * @param parallelConnectDelay delay in milliseconds between two connection attempts
+   * @see PGProperty#PARALLEL_CONNECT_DELAY
+   */
+  public void setParallelConnectDelay(int parallelConnectDelay) {
+    PGProperty.PARALLEL_CONNECT_DELAY.set(properties, parallelConnectDelay);
+  }
+
+  /**
+   * @return delay in milliseconds between two connection attempts
+   * @see PGProperty#PARALLEL_CONNECT_DELAY
+   */
+  public int getParallelConnectDelay() {
+    return PGProperty.PARALLEL_CONNECT_DELAY.getIntNoCheck(properties);
+  }
+
   /**
    * @param enabled if TCP keep alive should be enabled
    * @see PGProperty#TCP_KEEP_ALIVE
@@ -1111,6 +1241,38 @@ public abstract class BaseDataSource implements CommonDataSource, Referenceable
     PGProperty.ALLOW_ENCODING_CHANGES.set(properties, allow);
   }
 
+  /**
+   * @return true if socket I/O goes through a SocketChannel
+   * @see PGProperty#SOCKET_CHANNEL
+   */
+  public boolean getSocketChannel() {
+    return PGProperty.SOCKET_CHANNEL.getBoolean(properties);
+  }
+
+  /**
+   * @param enabled if socket I/O should go through a SocketChannel
+   * @see PGProperty#SOCKET_CHANNEL
+   */
+  public void setSocketChannel(boolean enabled) {
+    PGProperty.SOCKET_CHANNEL.set(properties, enabled);
+  }
+
+  /**
+   * @return row storage mode
+   * @see PGProperty#ROW_STORAGE
+   */
+  public @Nullable String getRowStorage() {
+    return PGProperty.ROW_STORAGE.get(properties);
+  }
+
+  /**
+   * @param rowStorage row storage mode: arrays or slab
+   * @see PGProperty#ROW_STORAGE
+   */
+  public void setRowStorage(@Nullable String rowStorage) {
+    PGProperty.ROW_STORAGE.set(properties, rowStorage);
+  }
+
   /**
    * @return socket factory class name
    * @see PGProperty#SOCKET_FACTORY
@@ -1510,6 +1672,22 @@ public abstract class BaseDataSource implements CommonDataSource, Referenceable
     PGProperty.CLEANUP_SAVEPOINTS.set(properties, cleanupSavepoints);
   }
 
+  /**
+   * @return true if batches are executed as a single statement over array parameters
+   * @see PGProperty#REWRITE_BATCHED_AS_ARRAYS
+   */
+  public boolean getReWriteBatchedAsArrays() {
+    return PGProperty.REWRITE_BATCHED_AS_ARRAYS.getBoolean(properties);
+  }
+
+  /**
+   * @param enabled true to execute batches as a single statement over array parameters
+   * @see PGProperty#REWRITE_BATCHED_AS_ARRAYS
+   */
+  public void setReWriteBatchedAsArrays(boolean enabled) {
+    PGProperty.REWRITE_BATCHED_AS_ARRAYS.set(properties, enabled);
+  }
+
   /**
    * @return boolean indicating property is enabled or not.
    * @see PGProperty#REWRITE_BATCHED_INSERTS
@@ -1526,6 +1704,22 @@ public abstract class BaseDataSource implements CommonDataSource, Referenceable
     PGProperty.REWRITE_BATCHED_INSERTS.set(properties, reWrite);
   }
 
+  /**
+   * @return true if batches are sent in the background while the results are read
+   * @see PGProperty#BATCH_PIPELINING
+   */
+  public boolean getBatchPipelining() {
+    return PGProperty.BATCH_PIPELINING.getBoolean(properties);
+  }
+
+  /**
+   * @param enabled if batches should be sent in the background while the results are read
+   * @see PGProperty#BATCH_PIPELINING
+   */
+  public void setBatchPipelining(boolean enabled) {
+    PGProperty.BATCH_PIPELINING.set(properties, enabled);
+  }
+
   /**
    * @return boolean indicating property is enabled or not.
    * @see PGProperty#HIDE_UNPRIVILEGED_OBJECTS
@@ -1550,6 +1744,70 @@ public abstract class BaseDataSource implements CommonDataSource, Referenceable
     PGProperty.MAX_RESULT_BUFFER.set(properties, maxResultBuffer);
   }
 
+  /**
+   * @return true if the rows of forward-only result sets are streamed
+   * @see PGProperty#STREAM_RESULTS
+   */
+  public boolean getStreamResults() {
+    return PGProperty.STREAM_RESULTS.getBoolean(properties);
+  }
+
+  /**
+   * @param streamResults true if the rows of forward-only result sets should be streamed
+   * @see PGProperty#STREAM_RESULTS
+   */
+  public void setStreamResults(boolean streamResults) {
+    PGProperty.STREAM_RESULTS.set(properties, streamResults);
+  }
+
+  /**
+   * @return true if the fetch size adapts to the width of the rows
+   * @see PGProperty#ADAPTIVE_FETCH
+   */
+  public boolean getAdaptiveFetch() {
+    return PGProperty.ADAPTIVE_FETCH.getBoolean(properties);
+  }
+
+  /**
+   * @param adaptiveFetch true if the fetch size should adapt to the width of the rows
+   * @see PGProperty#ADAPTIVE_FETCH
+   */
+  public void setAdaptiveFetch(boolean adaptiveFetch) {
+    PGProperty.ADAPTIVE_FETCH.set(properties, adaptiveFetch);
+  }
+
+  /**
+   * @return lowest number of rows an adaptive fetch requests
+   * @see PGProperty#ADAPTIVE_FETCH_MINIMUM
+   */
+  public int getAdaptiveFetchMinimum() {
+    return PGProperty.ADAPTIVE_FETCH_MINIMUM.getIntNoCheck(properties);
+  }
+
+  /**
+   * @param adaptiveFetchMinimum lowest number of rows an adaptive fetch requests
+   * @see PGProperty#ADAPTIVE_FETCH_MINIMUM
+   */
+  public void setAdaptiveFetchMinimum(int adaptiveFetchMinimum) {
+    PGProperty.ADAPTIVE_FETCH_MINIMUM.set(properties, adaptiveFetchMinimum);
+  }
+
+  /**
+   * @return highest number of rows an adaptive fetch requests, -1 for no limit
+   * @see PGProperty#ADAPTIVE_FETCH_MAXIMUM
+   */
+  public int getAdaptiveFetchMaximum() {
+    return PGProperty.ADAPTIVE_FETCH_MAXIMUM.getIntNoCheck(properties);
+  }
+
+  /**
+   * @param adaptiveFetchMaximum highest number of rows an adaptive fetch requests, -1 for no limit
+   * @see PGProperty#ADAPTIVE_FETCH_MAXIMUM
+   */
+  public void setAdaptiveFetchMaximum(int adaptiveFetchMaximum) {
+    PGProperty.ADAPTIVE_FETCH_MAXIMUM.set(properties, adaptiveFetchMaximum);
+  }
+
   @Override
   public java.util.logging.Logger getParentLogger() {
     return Logger.getLogger("org.postgresql");
@@ -0,0 +1,1416 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.ds.common;
+
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLType;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.Map;
+
+/**
+ * Callable statement created by a {@link DelegatingConnection}.
+ */
+public class DelegatingCallableStatement extends DelegatingPreparedStatement
+    implements CallableStatement {
+
+  /**
+   * @param connection the handle the statement was created from
+   * @param delegate the physical statement
+   */
+  public DelegatingCallableStatement(DelegatingConnection connection, CallableStatement delegate) {
+    super(connection, delegate);
+  }
+
+  private CallableStatement getCallableStatement() throws SQLException {
+    return (CallableStatement) getDelegate();
+  }
+
+  @Override
+  public void registerOutParameter(@Positive int parameterIndex, int sqlType) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.registerOutParameter(parameterIndex, sqlType);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void registerOutParameter(@Positive int parameterIndex, int sqlType, int scale)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.registerOutParameter(parameterIndex, sqlType, scale);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean wasNull() throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.wasNull();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable String getString(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getString(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean getBoolean(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getBoolean(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public byte getByte(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getByte(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public short getShort(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getShort(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getInt(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getInt(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public long getLong(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getLong(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public float getFloat(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getFloat(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public double getDouble(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getDouble(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  @Deprecated
+  public @Nullable BigDecimal getBigDecimal(@Positive int parameterIndex, int scale)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getBigDecimal(parameterIndex, scale);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public byte @Nullable [] getBytes(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getBytes(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Date getDate(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getDate(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Time getTime(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getTime(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Timestamp getTimestamp(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getTimestamp(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Object getObject(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getObject(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public BigDecimal getBigDecimal(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getBigDecimal(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Object getObject(@Positive int i, @Nullable Map<String, Class<?>> map)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getObject(i, map);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Ref getRef(int i) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getRef(i);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Blob getBlob(int i) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getBlob(i);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Clob getClob(int i) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getClob(i);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Array getArray(int i) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getArray(i);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Date getDate(int i, @Nullable Calendar cal) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getDate(i, cal);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Time getTime(int i, @Nullable Calendar cal) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getTime(i, cal);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Timestamp getTimestamp(int i, @Nullable Calendar cal) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getTimestamp(i, cal);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void registerOutParameter(@Positive int parameterIndex, int sqlType, String typeName)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.registerOutParameter(parameterIndex, sqlType, typeName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void registerOutParameter(String parameterName, int sqlType) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.registerOutParameter(parameterName, sqlType);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void registerOutParameter(String parameterName, int sqlType, int scale)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.registerOutParameter(parameterName, sqlType, scale);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void registerOutParameter(String parameterName, int sqlType, String typeName)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.registerOutParameter(parameterName, sqlType, typeName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public java.net.@Nullable URL getURL(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getURL(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setURL(String parameterName, java.net.@Nullable URL val) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setURL(parameterName, val);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNull(String parameterName, int sqlType) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setNull(parameterName, sqlType);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBoolean(String parameterName, boolean x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setBoolean(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setByte(String parameterName, byte x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setByte(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setShort(String parameterName, short x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setShort(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setInt(String parameterName, int x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setInt(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setLong(String parameterName, long x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setLong(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setFloat(String parameterName, float x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setFloat(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setDouble(String parameterName, double x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setDouble(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBigDecimal(String parameterName, @Nullable BigDecimal x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setBigDecimal(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setString(String parameterName, @Nullable String x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setString(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBytes(String parameterName, byte @Nullable [] x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setBytes(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setDate(String parameterName, @Nullable Date x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setDate(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setTime(String parameterName, @Nullable Time x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setTime(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setTimestamp(String parameterName, @Nullable Timestamp x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setTimestamp(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setAsciiStream(String parameterName, @Nullable InputStream x, int length)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setAsciiStream(parameterName, x, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBinaryStream(String parameterName, @Nullable InputStream x, int length)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setBinaryStream(parameterName, x, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setObject(String parameterName, @Nullable Object x, int targetSqlType, int scale)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setObject(parameterName, x, targetSqlType, scale);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setObject(String parameterName, @Nullable Object x, int targetSqlType)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setObject(parameterName, x, targetSqlType);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setObject(String parameterName, @Nullable Object x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setObject(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setCharacterStream(String parameterName, @Nullable Reader reader, int length)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setCharacterStream(parameterName, reader, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setDate(String parameterName, @Nullable Date x, @Nullable Calendar cal)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setDate(parameterName, x, cal);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setTime(String parameterName, @Nullable Time x, @Nullable Calendar cal)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setTime(parameterName, x, cal);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setTimestamp(String parameterName, @Nullable Timestamp x, @Nullable Calendar cal)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setTimestamp(parameterName, x, cal);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNull(String parameterName, int sqlType, String typeName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setNull(parameterName, sqlType, typeName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable String getString(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getString(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean getBoolean(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getBoolean(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public byte getByte(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getByte(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public short getShort(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getShort(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getInt(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getInt(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public long getLong(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getLong(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public float getFloat(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getFloat(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public double getDouble(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getDouble(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public byte @Nullable [] getBytes(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getBytes(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Date getDate(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getDate(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public Time getTime(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getTime(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Timestamp getTimestamp(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getTimestamp(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Object getObject(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getObject(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable BigDecimal getBigDecimal(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getBigDecimal(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Object getObject(String s, @Nullable Map<String, Class<?>> map)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getObject(s, map);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Ref getRef(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getRef(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Blob getBlob(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getBlob(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Clob getClob(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getClob(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Array getArray(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getArray(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Date getDate(String parameterName, @Nullable Calendar cal) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getDate(parameterName, cal);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Time getTime(String parameterName, @Nullable Calendar cal) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getTime(parameterName, cal);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Timestamp getTimestamp(String parameterName, @Nullable Calendar cal)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getTimestamp(parameterName, cal);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public java.net.@Nullable URL getURL(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getURL(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable RowId getRowId(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getRowId(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable RowId getRowId(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getRowId(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setRowId(String parameterName, @Nullable RowId x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setRowId(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNString(String parameterName, @Nullable String value) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setNString(parameterName, value);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNCharacterStream(String parameterName, @Nullable Reader value, long length)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setNCharacterStream(parameterName, value, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNClob(String parameterName, @Nullable NClob value) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setNClob(parameterName, value);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setClob(String parameterName, @Nullable Reader reader, long length)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setClob(parameterName, reader, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBlob(String parameterName, @Nullable InputStream inputStream, long length)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setBlob(parameterName, inputStream, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNClob(String parameterName, @Nullable Reader reader, long length)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setNClob(parameterName, reader, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable NClob getNClob(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getNClob(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable NClob getNClob(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getNClob(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setSQLXML(String parameterName, @Nullable SQLXML xmlObject) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setSQLXML(parameterName, xmlObject);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable SQLXML getSQLXML(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getSQLXML(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable SQLXML getSQLXML(String parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getSQLXML(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public String getNString(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getNString(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable String getNString(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getNString(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Reader getNCharacterStream(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getNCharacterStream(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Reader getNCharacterStream(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getNCharacterStream(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Reader getCharacterStream(@Positive int parameterIndex) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getCharacterStream(parameterIndex);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable Reader getCharacterStream(String parameterName) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getCharacterStream(parameterName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBlob(String parameterName, @Nullable Blob x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setBlob(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setClob(String parameterName, @Nullable Clob x) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setClob(parameterName, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setAsciiStream(String parameterName, @Nullable InputStream value, long length)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setAsciiStream(parameterName, value, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBinaryStream(String parameterName, @Nullable InputStream value, long length)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setBinaryStream(parameterName, value, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setCharacterStream(String parameterName, @Nullable Reader value, long length)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setCharacterStream(parameterName, value, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setAsciiStream(String parameterName, @Nullable InputStream value)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setAsciiStream(parameterName, value);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBinaryStream(String parameterName, @Nullable InputStream value)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setBinaryStream(parameterName, value);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setCharacterStream(String parameterName, @Nullable Reader value) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setCharacterStream(parameterName, value);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNCharacterStream(String parameterName, @Nullable Reader value)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setNCharacterStream(parameterName, value);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setClob(String parameterName, @Nullable Reader reader) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setClob(parameterName, reader);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBlob(String parameterName, @Nullable InputStream inputStream) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setBlob(parameterName, inputStream);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNClob(String parameterName, @Nullable Reader reader) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setNClob(parameterName, reader);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public <T> @Nullable T getObject(@Positive int parameterIndex, Class<T> type)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getObject(parameterIndex, type);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public <T> @Nullable T getObject(String parameterName, Class<T> type) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      return cs.getObject(parameterName, type);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setObject(String parameterName, @Nullable Object x, SQLType targetSqlType,
+      int scaleOrLength)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setObject(parameterName, x, targetSqlType, scaleOrLength);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setObject(String parameterName, @Nullable Object x, SQLType targetSqlType)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.setObject(parameterName, x, targetSqlType);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void registerOutParameter(@Positive int parameterIndex, SQLType sqlType)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.registerOutParameter(parameterIndex, sqlType);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void registerOutParameter(@Positive int parameterIndex, SQLType sqlType, int scale)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.registerOutParameter(parameterIndex, sqlType, scale);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void registerOutParameter(@Positive int parameterIndex, SQLType sqlType, String typeName)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.registerOutParameter(parameterIndex, sqlType, typeName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void registerOutParameter(String parameterName, SQLType sqlType) throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.registerOutParameter(parameterName, sqlType);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void registerOutParameter(String parameterName, SQLType sqlType, int scale)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.registerOutParameter(parameterName, sqlType, scale);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void registerOutParameter(String parameterName, SQLType sqlType, String typeName)
+      throws SQLException {
+    CallableStatement cs = getCallableStatement();
+    try {
+      cs.registerOutParameter(parameterName, sqlType, typeName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+}
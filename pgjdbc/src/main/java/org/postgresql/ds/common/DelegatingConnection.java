@@ -0,0 +1,885 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.ds.common;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.postgresql.PGPipeline;
+import org.postgresql.codec.TypeCodec;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.fastpath.Fastpath;
+import org.postgresql.jdbc.AutoSave;
+import org.postgresql.jdbc.PreferQueryMode;
+import org.postgresql.largeobject.LargeObjectManager;
+import org.postgresql.replication.PGReplicationConnection;
+import org.postgresql.util.PGobject;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.ClientInfoStatus;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * <p>Connection handle that forwards the calls to a physical connection, for the data sources that
+ * hand out logical connections. The statements it creates are wrapped in
+ * {@link DelegatingStatement} and its subclasses, so their {@code getConnection()} returns this
+ * handle rather than the physical connection.</p>
+ *
+ * <p>The subclasses decide what closing the handle means, and are told about the errors raised by
+ * the physical connection and its statements through {@link #onError(SQLException)}. Unlike a
+ * dynamic proxy, every call is a plain virtual call: no reflection and no boxing of the
+ * arguments.</p>
+ */
+public abstract class DelegatingConnection implements Connection, PGConnection {
+
+  /**
+   * Returns the physical connection the calls are forwarded to.
+   *
+   * @return the physical connection
+   * @throws SQLException if this handle is closed
+   */
+  protected abstract Connection getDelegate() throws SQLException;
+
+  /**
+   * Called with the exceptions thrown by the physical connection or by the statements of this
+   * handle, before they are rethrown to the caller. Does nothing by default.
+   *
+   * @param e the exception thrown by the physical connection or statement
+   */
+  protected void onError(SQLException e) {
+  }
+
+  @Override
+  public abstract void close() throws SQLException;
+
+  @Override
+  public abstract boolean isClosed() throws SQLException;
+
+  private PGConnection getPGConnection() throws SQLException {
+    return getDelegate().unwrap(PGConnection.class);
+  }
+
+  /**
+   * For the methods of {@link PGConnection} that do not declare {@link SQLException}.
+   */
+  private PGConnection getPGConnectionUnchecked() {
+    try {
+      return getPGConnection();
+    } catch (SQLException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+  }
+
+  private Connection getDelegateForClientInfo() throws SQLClientInfoException {
+    try {
+      return getDelegate();
+    } catch (SQLException e) {
+      throw new SQLClientInfoException(e.getMessage(), e.getSQLState(),
+          Collections.<String, ClientInfoStatus>emptyMap(), e);
+    }
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+    return getDelegate().unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(this) || getDelegate().isWrapperFor(iface);
+  }
+
+  @Override
+  public Statement createStatement() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return new DelegatingStatement(this, con.createStatement());
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return new DelegatingPreparedStatement(this, con.prepareStatement(sql));
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return new DelegatingCallableStatement(this, con.prepareCall(sql));
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public String nativeSQL(String sql) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.nativeSQL(sql);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setAutoCommit(boolean autoCommit) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      con.setAutoCommit(autoCommit);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean getAutoCommit() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.getAutoCommit();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void commit() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      con.commit();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void rollback() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      con.rollback();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public DatabaseMetaData getMetaData() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.getMetaData();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setReadOnly(boolean readOnly) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      con.setReadOnly(readOnly);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean isReadOnly() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.isReadOnly();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setCatalog(String catalog) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      con.setCatalog(catalog);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public String getCatalog() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.getCatalog();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setTransactionIsolation(int level) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      con.setTransactionIsolation(level);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getTransactionIsolation() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.getTransactionIsolation();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable SQLWarning getWarnings() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.getWarnings();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void clearWarnings() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      con.clearWarnings();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public Statement createStatement(int resultSetType, int resultSetConcurrency)
+      throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return new DelegatingStatement(this, con.createStatement(resultSetType,
+          resultSetConcurrency));
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+      throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return new DelegatingPreparedStatement(this, con.prepareStatement(sql, resultSetType,
+          resultSetConcurrency));
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency)
+      throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return new DelegatingCallableStatement(this, con.prepareCall(sql, resultSetType,
+          resultSetConcurrency));
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public Map<String, Class<?>> getTypeMap() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.getTypeMap();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      con.setTypeMap(map);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setHoldability(int holdability) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      con.setHoldability(holdability);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getHoldability() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.getHoldability();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public Savepoint setSavepoint() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.setSavepoint();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public Savepoint setSavepoint(String name) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.setSavepoint(name);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void rollback(Savepoint savepoint) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      con.rollback(savepoint);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      con.releaseSavepoint(savepoint);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public Statement createStatement(int resultSetType, int resultSetConcurrency,
+      int resultSetHoldability)
+      throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return new DelegatingStatement(this, con.createStatement(resultSetType, resultSetConcurrency,
+          resultSetHoldability));
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int resultSetType,
+      int resultSetConcurrency, int resultSetHoldability)
+      throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return new DelegatingPreparedStatement(this, con.prepareStatement(sql, resultSetType,
+          resultSetConcurrency, resultSetHoldability));
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency,
+      int resultSetHoldability)
+      throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return new DelegatingCallableStatement(this, con.prepareCall(sql, resultSetType,
+          resultSetConcurrency, resultSetHoldability));
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return new DelegatingPreparedStatement(this, con.prepareStatement(sql, autoGeneratedKeys));
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, int @Nullable [] columnIndexes)
+      throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return new DelegatingPreparedStatement(this, con.prepareStatement(sql, columnIndexes));
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public PreparedStatement prepareStatement(String sql, String @Nullable [] columnNames)
+      throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return new DelegatingPreparedStatement(this, con.prepareStatement(sql, columnNames));
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public Clob createClob() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.createClob();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public Blob createBlob() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.createBlob();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public NClob createNClob() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.createNClob();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public SQLXML createSQLXML() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.createSQLXML();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean isValid(int timeout) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.isValid(timeout);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setClientInfo(String name, @Nullable String value) throws SQLClientInfoException {
+    Connection con = getDelegateForClientInfo();
+    try {
+      con.setClientInfo(name, value);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setClientInfo(Properties properties) throws SQLClientInfoException {
+    Connection con = getDelegateForClientInfo();
+    try {
+      con.setClientInfo(properties);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable String getClientInfo(String name) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.getClientInfo(name);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public Properties getClientInfo() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.getClientInfo();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public Array createArrayOf(String typeName, @Nullable Object @Nullable [] elements)
+      throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.createArrayOf(typeName, elements);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.createStruct(typeName, attributes);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setSchema(@Nullable String schema) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      con.setSchema(schema);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable String getSchema() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.getSchema();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void abort(Executor executor) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      con.abort(executor);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNetworkTimeout(@Nullable Executor executor, int milliseconds) throws SQLException {
+    Connection con = getDelegate();
+    try {
+      con.setNetworkTimeout(executor, milliseconds);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getNetworkTimeout() throws SQLException {
+    Connection con = getDelegate();
+    try {
+      return con.getNetworkTimeout();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public Array createArrayOf(String typeName, @Nullable Object elements) throws SQLException {
+    PGConnection con = getPGConnection();
+    try {
+      return con.createArrayOf(typeName, elements);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public PGNotification[] getNotifications() throws SQLException {
+    PGConnection con = getPGConnection();
+    try {
+      return con.getNotifications();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public PGNotification[] getNotifications(int timeoutMillis) throws SQLException {
+    PGConnection con = getPGConnection();
+    try {
+      return con.getNotifications(timeoutMillis);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public CopyManager getCopyAPI() throws SQLException {
+    PGConnection con = getPGConnection();
+    try {
+      return con.getCopyAPI();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public LargeObjectManager getLargeObjectAPI() throws SQLException {
+    PGConnection con = getPGConnection();
+    try {
+      return con.getLargeObjectAPI();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  @Deprecated
+  @SuppressWarnings("deprecation")
+  public Fastpath getFastpathAPI() throws SQLException {
+    PGConnection con = getPGConnection();
+    try {
+      return con.getFastpathAPI();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  @Deprecated
+  public void addDataType(String type, String className) {
+    getPGConnectionUnchecked().addDataType(type, className);
+  }
+
+  @Override
+  public void addDataType(String type, Class<? extends PGobject> klass) throws SQLException {
+    PGConnection con = getPGConnection();
+    try {
+      con.addDataType(type, klass);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void registerTypeCodec(String type, TypeCodec codec) throws SQLException {
+    PGConnection con = getPGConnection();
+    try {
+      con.registerTypeCodec(type, codec);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setPrepareThreshold(int threshold) {
+    getPGConnectionUnchecked().setPrepareThreshold(threshold);
+  }
+
+  @Override
+  public int getPrepareThreshold() {
+    return getPGConnectionUnchecked().getPrepareThreshold();
+  }
+
+  @Override
+  public void setDefaultFetchSize(int fetchSize) throws SQLException {
+    PGConnection con = getPGConnection();
+    try {
+      con.setDefaultFetchSize(fetchSize);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getDefaultFetchSize() {
+    return getPGConnectionUnchecked().getDefaultFetchSize();
+  }
+
+  @Override
+  public int getBackendPID() {
+    return getPGConnectionUnchecked().getBackendPID();
+  }
+
+  @Override
+  public void cancelQuery() throws SQLException {
+    PGConnection con = getPGConnection();
+    try {
+      con.cancelQuery();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public String escapeIdentifier(String identifier) throws SQLException {
+    PGConnection con = getPGConnection();
+    try {
+      return con.escapeIdentifier(identifier);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public String escapeLiteral(String literal) throws SQLException {
+    PGConnection con = getPGConnection();
+    try {
+      return con.escapeLiteral(literal);
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public PreferQueryMode getPreferQueryMode() {
+    return getPGConnectionUnchecked().getPreferQueryMode();
+  }
+
+  @Override
+  public AutoSave getAutosave() {
+    return getPGConnectionUnchecked().getAutosave();
+  }
+
+  @Override
+  public void setAutosave(AutoSave autoSave) {
+    getPGConnectionUnchecked().setAutosave(autoSave);
+  }
+
+  @Override
+  public PGReplicationConnection getReplicationAPI() {
+    return getPGConnectionUnchecked().getReplicationAPI();
+  }
+
+  @Override
+  public PGPipeline createPipeline() throws SQLException {
+    PGConnection con = getPGConnection();
+    try {
+      return con.createPipeline();
+    } catch (SQLException e) {
+      onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public Map<String, String> getParameterStatuses() {
+    return getPGConnectionUnchecked().getParameterStatuses();
+  }
+
+  @Override
+  public @Nullable String getParameterStatus(String parameterName) {
+    return getPGConnectionUnchecked().getParameterStatus(parameterName);
+  }
+
+}
@@ -0,0 +1,729 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.ds.common;
+
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.index.qual.Positive;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.checkerframework.common.value.qual.IntRange;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLType;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+/**
+ * Prepared statement created by a {@link DelegatingConnection}.
+ */
+public class DelegatingPreparedStatement extends DelegatingStatement implements PreparedStatement {
+
+  /**
+   * @param connection the handle the statement was created from
+   * @param delegate the physical statement
+   */
+  public DelegatingPreparedStatement(DelegatingConnection connection, PreparedStatement delegate) {
+    super(connection, delegate);
+  }
+
+  private PreparedStatement getPreparedStatement() throws SQLException {
+    return (PreparedStatement) getDelegate();
+  }
+
+  @Override
+  public ResultSet executeQuery() throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      return ps.executeQuery();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int executeUpdate() throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      return ps.executeUpdate();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNull(int parameterIndex, int sqlType) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setNull(parameterIndex, sqlType);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBoolean(@Positive int parameterIndex, boolean x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setBoolean(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setByte(@Positive int parameterIndex, byte x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setByte(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setShort(@Positive int parameterIndex, short x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setShort(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setInt(@Positive int parameterIndex, int x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setInt(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setLong(@Positive int parameterIndex, long x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setLong(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setFloat(@Positive int parameterIndex, float x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setFloat(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setDouble(@Positive int parameterIndex, double x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setDouble(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBigDecimal(@Positive int parameterIndex, @Nullable BigDecimal x)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setBigDecimal(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setString(@Positive int parameterIndex, @Nullable String x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setString(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBytes(@Positive int parameterIndex, byte @Nullable [] x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setBytes(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setDate(@Positive int parameterIndex, @Nullable Date x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setDate(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setTime(@Positive int parameterIndex, @Nullable Time x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setTime(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setTimestamp(@Positive int parameterIndex, @Nullable Timestamp x)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setTimestamp(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setAsciiStream(@Positive int parameterIndex, @Nullable InputStream x,
+      @NonNegative int length)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setAsciiStream(parameterIndex, x, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  @Deprecated
+  public void setUnicodeStream(@Positive int parameterIndex, @Nullable InputStream x,
+      @NonNegative int length)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setUnicodeStream(parameterIndex, x, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBinaryStream(@Positive int parameterIndex, @Nullable InputStream x,
+      @NonNegative int length)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setBinaryStream(parameterIndex, x, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void clearParameters() throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.clearParameters();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setObject(@Positive int parameterIndex, @Nullable Object x, int targetSqlType)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setObject(parameterIndex, x, targetSqlType);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setObject(@Positive int parameterIndex, @Nullable Object x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setObject(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean execute() throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      return ps.execute();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void addBatch() throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.addBatch();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setCharacterStream(@Positive int i, @Nullable Reader x, @NonNegative int length)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setCharacterStream(i, x, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setRef(@Positive int i, @Nullable Ref x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setRef(i, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBlob(@Positive int i, @Nullable Blob x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setBlob(i, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setClob(@Positive int i, @Nullable Clob x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setClob(i, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setArray(int i, @Nullable Array x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setArray(i, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable ResultSetMetaData getMetaData() throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      return ps.getMetaData();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setDate(@Positive int i, @Nullable Date d, @Nullable Calendar cal)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setDate(i, d, cal);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setTime(@Positive int i, @Nullable Time t, @Nullable Calendar cal)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setTime(i, t, cal);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setTimestamp(@Positive int i, @Nullable Timestamp t, @Nullable Calendar cal)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setTimestamp(i, t, cal);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNull(@Positive int parameterIndex, int t, @Nullable String typeName)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setNull(parameterIndex, t, typeName);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setURL(@Positive int parameterIndex, java.net.@Nullable URL x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setURL(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public ParameterMetaData getParameterMetaData() throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      return ps.getParameterMetaData();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setRowId(@Positive int parameterIndex, @Nullable RowId x) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setRowId(parameterIndex, x);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNString(@Positive int parameterIndex, @Nullable String value) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setNString(parameterIndex, value);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNCharacterStream(@Positive int parameterIndex, @Nullable Reader value, long length)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setNCharacterStream(parameterIndex, value, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNClob(@Positive int parameterIndex, @Nullable NClob value) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setNClob(parameterIndex, value);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setClob(@Positive int parameterIndex, @Nullable Reader reader,
+      @NonNegative long length)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setClob(parameterIndex, reader, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBlob(@Positive int parameterIndex, @Nullable InputStream inputStream,
+      @NonNegative long length)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setBlob(parameterIndex, inputStream, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNClob(@Positive int parameterIndex, @Nullable Reader reader,
+      @NonNegative long length)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setNClob(parameterIndex, reader, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setSQLXML(@Positive int parameterIndex, @Nullable SQLXML xmlObject)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setSQLXML(parameterIndex, xmlObject);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setObject(@Positive int parameterIndex, @Nullable Object in, int targetSqlType,
+      int scale)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setObject(parameterIndex, in, targetSqlType, scale);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setAsciiStream(@Positive int parameterIndex, @Nullable InputStream value,
+      @NonNegative long length)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setAsciiStream(parameterIndex, value, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBinaryStream(@Positive int parameterIndex, @Nullable InputStream value,
+      @NonNegative @IntRange(from = 0, to = Integer.MAX_VALUE) long length)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setBinaryStream(parameterIndex, value, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setCharacterStream(@Positive int parameterIndex, @Nullable Reader value,
+      @NonNegative long length)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setCharacterStream(parameterIndex, value, length);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setAsciiStream(@Positive int parameterIndex, @Nullable InputStream value)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setAsciiStream(parameterIndex, value);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBinaryStream(@Positive int parameterIndex, @Nullable InputStream value)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setBinaryStream(parameterIndex, value);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setCharacterStream(@Positive int parameterIndex, @Nullable Reader value)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setCharacterStream(parameterIndex, value);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNCharacterStream(@Positive int parameterIndex, @Nullable Reader value)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setNCharacterStream(parameterIndex, value);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setClob(@Positive int parameterIndex, @Nullable Reader reader) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setClob(parameterIndex, reader);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setBlob(@Positive int parameterIndex, @Nullable InputStream inputStream)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setBlob(parameterIndex, inputStream);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setNClob(@Positive int parameterIndex, @Nullable Reader reader) throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setNClob(parameterIndex, reader);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setObject(@Positive int parameterIndex, @Nullable Object x, SQLType targetSqlType,
+      int scaleOrLength)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setObject(parameterIndex, x, targetSqlType, scaleOrLength);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setObject(@Positive int parameterIndex, @Nullable Object x, SQLType targetSqlType)
+      throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      ps.setObject(parameterIndex, x, targetSqlType);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public long executeLargeUpdate() throws SQLException {
+    PreparedStatement ps = getPreparedStatement();
+    try {
+      return ps.executeLargeUpdate();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+}
@@ -0,0 +1,670 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.ds.common;
+
+import org.postgresql.PGStatement;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import org.checkerframework.checker.index.qual.NonNegative;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+
+/**
+ * Statement created by a {@link DelegatingConnection}: forwards the calls to the physical
+ * statement, returns the handle from {@link #getConnection()}, and reports the errors to the
+ * handle.
+ */
+public class DelegatingStatement implements Statement, PGStatement {
+  final DelegatingConnection connection;
+  private @Nullable Statement delegate;
+
+  /**
+   * @param connection the handle the statement was created from
+   * @param delegate the physical statement
+   */
+  public DelegatingStatement(DelegatingConnection connection, Statement delegate) {
+    this.connection = connection;
+    this.delegate = delegate;
+  }
+
+  /**
+   * Returns the physical statement the calls are forwarded to.
+   *
+   * @return the physical statement
+   * @throws SQLException if this statement is closed
+   */
+  protected Statement getDelegate() throws SQLException {
+    Statement st = delegate;
+    if (st == null || st.isClosed()) {
+      throw new PSQLException(GT.tr("Statement has been closed."), PSQLState.OBJECT_NOT_IN_STATE);
+    }
+    return st;
+  }
+
+  private PGStatement getPGStatement() throws SQLException {
+    return getDelegate().unwrap(PGStatement.class);
+  }
+
+  /**
+   * For the methods of {@link PGStatement} that do not declare {@link SQLException}.
+   */
+  private PGStatement getPGStatementUnchecked() {
+    try {
+      return getPGStatement();
+    } catch (SQLException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    getDelegate();
+    return connection;
+  }
+
+  @Override
+  public void close() throws SQLException {
+    Statement st = delegate;
+    if (st == null || st.isClosed()) {
+      return;
+    }
+    delegate = null;
+    st.close();
+  }
+
+  @Override
+  public boolean isClosed() throws SQLException {
+    Statement st = delegate;
+    return st == null || st.isClosed();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    if (iface.isInstance(this)) {
+      return iface.cast(this);
+    }
+    return getDelegate().unwrap(iface);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return iface.isInstance(this) || getDelegate().isWrapperFor(iface);
+  }
+
+  @Override
+  public String toString() {
+    return "Pooled statement wrapping physical statement " + delegate;
+  }
+
+  @Override
+  public ResultSet executeQuery(String sql) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.executeQuery(sql);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int executeUpdate(String sql) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.executeUpdate(sql);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getMaxFieldSize() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getMaxFieldSize();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setMaxFieldSize(int max) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      st.setMaxFieldSize(max);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getMaxRows() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getMaxRows();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setMaxRows(int max) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      st.setMaxRows(max);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setEscapeProcessing(boolean enable) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      st.setEscapeProcessing(enable);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getQueryTimeout() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getQueryTimeout();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setQueryTimeout(int seconds) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      st.setQueryTimeout(seconds);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void cancel() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      st.cancel();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable SQLWarning getWarnings() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getWarnings();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void clearWarnings() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      st.clearWarnings();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setCursorName(String name) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      st.setCursorName(name);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean execute(String sql) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.execute(sql);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @Nullable ResultSet getResultSet() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getResultSet();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getUpdateCount() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getUpdateCount();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean getMoreResults() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getMoreResults();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setFetchDirection(int direction) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      st.setFetchDirection(direction);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getFetchDirection() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getFetchDirection();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setFetchSize(@NonNegative int rows) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      st.setFetchSize(rows);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public @NonNegative int getFetchSize() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getFetchSize();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getResultSetConcurrency() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getResultSetConcurrency();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getResultSetType() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getResultSetType();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void addBatch(String sql) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      st.addBatch(sql);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void clearBatch() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      st.clearBatch();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int[] executeBatch() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.executeBatch();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean getMoreResults(int current) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getMoreResults(current);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public ResultSet getGeneratedKeys() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getGeneratedKeys();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.executeUpdate(sql, autoGeneratedKeys);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.executeUpdate(sql, columnIndexes);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int executeUpdate(String sql, String @Nullable [] columnNames) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.executeUpdate(sql, columnNames);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.execute(sql, autoGeneratedKeys);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean execute(String sql, int @Nullable [] columnIndexes) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.execute(sql, columnIndexes);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean execute(String sql, String @Nullable [] columnNames) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.execute(sql, columnNames);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getResultSetHoldability() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getResultSetHoldability();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setPoolable(boolean poolable) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      st.setPoolable(poolable);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean isPoolable() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.isPoolable();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void closeOnCompletion() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      st.closeOnCompletion();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean isCloseOnCompletion() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.isCloseOnCompletion();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public long getLargeUpdateCount() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getLargeUpdateCount();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public void setLargeMaxRows(long max) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      st.setLargeMaxRows(max);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public long getLargeMaxRows() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.getLargeMaxRows();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public long[] executeLargeBatch() throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.executeLargeBatch();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public long executeLargeUpdate(String sql) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.executeLargeUpdate(sql);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.executeLargeUpdate(sql, autoGeneratedKeys);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.executeLargeUpdate(sql, columnIndexes);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public long executeLargeUpdate(String sql, String @Nullable [] columnNames) throws SQLException {
+    Statement st = getDelegate();
+    try {
+      return st.executeLargeUpdate(sql, columnNames);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public long getLastOID() throws SQLException {
+    PGStatement st = getPGStatement();
+    try {
+      return st.getLastOID();
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  @Deprecated
+  public void setUseServerPrepare(boolean flag) throws SQLException {
+    PGStatement st = getPGStatement();
+    try {
+      st.setUseServerPrepare(flag);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean isUseServerPrepare() {
+    return getPGStatementUnchecked().isUseServerPrepare();
+  }
+
+  @Override
+  public void setPrepareThreshold(int threshold) throws SQLException {
+    PGStatement st = getPGStatement();
+    try {
+      st.setPrepareThreshold(threshold);
+    } catch (SQLException e) {
+      connection.onError(e);
+      throw e;
+    }
+  }
+
+  @Override
+  public int getPrepareThreshold() {
+    return getPGStatementUnchecked().getPrepareThreshold();
+  }
+
+}
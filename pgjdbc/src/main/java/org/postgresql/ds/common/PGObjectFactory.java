@@ -5,6 +5,7 @@
 
 package org.postgresql.ds.common;
 
+import org.postgresql.ds.PGConnectionPool;
 import org.postgresql.ds.PGConnectionPoolDataSource;
 import org.postgresql.ds.PGPoolingDataSource;
 import org.postgresql.ds.PGSimpleDataSource;
@@ -50,6 +51,8 @@ public class PGObjectFactory implements ObjectFactory {
         || className.equals("org.postgresql.jdbc2.optional.PoolingDataSource")
         || className.equals("org.postgresql.jdbc3.Jdbc3PoolingDataSource")) {
       return loadPoolingDataSource(ref);
+    } else if (className.equals("org.postgresql.ds.PGConnectionPool")) {
+      return loadPool(ref);
     } else {
       return null;
     }
@@ -77,6 +80,48 @@ public class PGObjectFactory implements ObjectFactory {
     return pds;
   }
 
+  private Object loadPool(Reference ref) {
+    PGConnectionPool pool = new PGConnectionPool();
+    loadBaseDataSource(pool, ref);
+    String value = getProperty(ref, "maxPoolSize");
+    if (value != null) {
+      pool.setMaxPoolSize(Integer.parseInt(value));
+    }
+    value = getProperty(ref, "minIdle");
+    if (value != null) {
+      pool.setMinIdle(Integer.parseInt(value));
+    }
+    value = getProperty(ref, "connectionTimeout");
+    if (value != null) {
+      pool.setConnectionTimeout(Long.parseLong(value));
+    }
+    value = getProperty(ref, "idleTimeout");
+    if (value != null) {
+      pool.setIdleTimeout(Long.parseLong(value));
+    }
+    value = getProperty(ref, "maxLifetime");
+    if (value != null) {
+      pool.setMaxLifetime(Long.parseLong(value));
+    }
+    value = getProperty(ref, "validationInterval");
+    if (value != null) {
+      pool.setValidationInterval(Long.parseLong(value));
+    }
+    value = getProperty(ref, "validationTimeout");
+    if (value != null) {
+      pool.setValidationTimeout(Integer.parseInt(value));
+    }
+    value = getProperty(ref, "housekeepingInterval");
+    if (value != null) {
+      pool.setHousekeepingInterval(Long.parseLong(value));
+    }
+    value = getProperty(ref, "defaultAutoCommit");
+    if (value != null) {
+      pool.setDefaultAutoCommit(Boolean.parseBoolean(value));
+    }
+    return pool;
+  }
+
   private Object loadSimpleDataSource(Reference ref) {
     PGSimpleDataSource ds = new PGSimpleDataSource();
     return loadBaseDataSource(ds, ref);
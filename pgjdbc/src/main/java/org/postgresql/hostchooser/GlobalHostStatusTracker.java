@@ -7,19 +7,28 @@ package org.postgresql.hostchooser;
 
 import org.postgresql.util.HostSpec;
 
-import org.checkerframework.checker.nullness.qual.Nullable;
-
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Keeps track of HostSpec targets in a global map.
+ * Keeps track of HostSpec targets in a global map. The statuses are immutable and replaced
+ * atomically, so neither the connection attempts nor the {@link HostStatusProber} take a lock.
  */
 public class GlobalHostStatusTracker {
-  private static final Map<HostSpec, HostSpecStatus> hostStatusMap =
-      new HashMap<HostSpec, HostSpecStatus>();
+  /**
+   * Replication lag reported when it is not known.
+   */
+  public static final long UNKNOWN_REPLICATION_LAG = -1;
+
+  /**
+   * Round-trip latency of a host that was never measured.
+   */
+  static final long UNKNOWN_LATENCY = -1;
+
+  private static final ConcurrentMap<HostSpec, HostSpecStatus> hostStatusMap =
+      new ConcurrentHashMap<HostSpec, HostSpecStatus>();
 
   /**
    * Store the actual observed host status.
@@ -28,51 +37,121 @@ public class GlobalHostStatusTracker {
    * @param hostStatus Latest known status for the host.
    */
   public static void reportHostStatus(HostSpec hostSpec, HostStatus hostStatus) {
+    reportHostStatus(hostSpec, hostStatus, UNKNOWN_REPLICATION_LAG);
+  }
+
+  /**
+   * Store the actual observed host status, and the replication lag of a secondary. When the lag is
+   * unknown, the lag measured earlier is kept unless the host failed or became a primary.
+   *
+   * @param hostSpec The host whose status is known.
+   * @param hostStatus Latest known status for the host.
+   * @param replicationLagMillis Replay lag of the host, in milliseconds, or
+   *     {@link #UNKNOWN_REPLICATION_LAG}.
+   */
+  public static void reportHostStatus(HostSpec hostSpec, HostStatus hostStatus,
+      long replicationLagMillis) {
     long now = System.nanoTime() / 1000000;
-    synchronized (hostStatusMap) {
-      HostSpecStatus hostSpecStatus = hostStatusMap.get(hostSpec);
-      if (hostSpecStatus == null) {
-        hostSpecStatus = new HostSpecStatus(hostSpec);
-        hostStatusMap.put(hostSpec, hostSpecStatus);
+    while (true) {
+      HostSpecStatus current = hostStatusMap.get(hostSpec);
+      long lag = replicationLagMillis;
+      if (lag < 0 && current != null
+          && (hostStatus == HostStatus.Secondary || hostStatus == HostStatus.ConnectOK)) {
+        lag = current.replicationLag;
+      }
+      long latency = current == null ? UNKNOWN_LATENCY : current.latencyNanos;
+      HostSpecStatus updated = new HostSpecStatus(hostSpec, hostStatus, now, lag, latency);
+      if (current == null
+          ? hostStatusMap.putIfAbsent(hostSpec, updated) == null
+          : hostStatusMap.replace(hostSpec, current, updated)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Store the round-trip time of a query sent to the host. The latency of the host is a moving
+   * average of the round trips, so a single slow query does not make a host look slow.
+   *
+   * @param hostSpec The host the query was sent to.
+   * @param roundTripNanos Time between sending the query and receiving its result.
+   */
+  public static void reportHostLatency(HostSpec hostSpec, long roundTripNanos) {
+    while (true) {
+      HostSpecStatus current = hostStatusMap.get(hostSpec);
+      HostSpecStatus updated;
+      if (current == null) {
+        // The status is reported once the connection attempt completes, until then the host is
+        // as unknown as if it was never seen
+        updated = new HostSpecStatus(hostSpec, HostStatus.ConnectOK, Long.MIN_VALUE,
+            UNKNOWN_REPLICATION_LAG, roundTripNanos);
+      } else {
+        long latency = current.latencyNanos < 0 ? roundTripNanos
+            : current.latencyNanos + (roundTripNanos - current.latencyNanos) / 4;
+        updated = new HostSpecStatus(hostSpec, current.status, current.lastUpdated,
+            current.replicationLag, latency);
+      }
+      if (current == null
+          ? hostStatusMap.putIfAbsent(hostSpec, updated) == null
+          : hostStatusMap.replace(hostSpec, current, updated)) {
+        return;
       }
-      hostSpecStatus.status = hostStatus;
-      hostSpecStatus.lastUpdated = now;
     }
   }
 
   /**
-   * Returns a list of candidate hosts that have the required targetServerType.
+   * Returns a list of candidate hosts that have the required targetServerType, leaving out the
+   * secondaries known to lag behind the primary by more than the given time.
    *
    * @param hostSpecs The potential list of hosts.
    * @param targetServerType The required target server type.
    * @param hostRecheckMillis How stale information is allowed.
+   * @param maxReplicationLagMillis Highest replication lag allowed, or 0 to allow any lag.
    * @return candidate hosts to connect to.
    */
   static List<HostSpec> getCandidateHosts(HostSpec[] hostSpecs,
-      HostRequirement targetServerType, long hostRecheckMillis) {
+      HostRequirement targetServerType, long hostRecheckMillis, long maxReplicationLagMillis) {
     List<HostSpec> candidates = new ArrayList<HostSpec>(hostSpecs.length);
     long latestAllowedUpdate = System.nanoTime() / 1000000 - hostRecheckMillis;
-    synchronized (hostStatusMap) {
-      for (HostSpec hostSpec : hostSpecs) {
-        HostSpecStatus hostInfo = hostStatusMap.get(hostSpec);
-        // candidates are nodes we do not know about and the nodes with correct type
-        if (hostInfo == null
-            || hostInfo.lastUpdated < latestAllowedUpdate
-            || targetServerType.allowConnectingTo(hostInfo.status)) {
-          candidates.add(hostSpec);
-        }
+    for (HostSpec hostSpec : hostSpecs) {
+      HostSpecStatus hostInfo = hostStatusMap.get(hostSpec);
+      // candidates are nodes we do not know about and the nodes with correct type
+      if (hostInfo == null || hostInfo.lastUpdated < latestAllowedUpdate) {
+        candidates.add(hostSpec);
+      } else if (targetServerType.allowConnectingTo(hostInfo.status)
+          && (maxReplicationLagMillis <= 0
+              || hostInfo.replicationLag <= maxReplicationLagMillis)) {
+        candidates.add(hostSpec);
       }
     }
     return candidates;
   }
 
+  /**
+   * Returns the moving average of the round trips to the host.
+   *
+   * @param hostSpec The host.
+   * @return latency of the host in nanoseconds, or {@link #UNKNOWN_LATENCY}.
+   */
+  static long getLatency(HostSpec hostSpec) {
+    HostSpecStatus hostInfo = hostStatusMap.get(hostSpec);
+    return hostInfo == null ? UNKNOWN_LATENCY : hostInfo.latencyNanos;
+  }
+
   static class HostSpecStatus {
     final HostSpec host;
-    @Nullable HostStatus status;
-    long lastUpdated;
+    final HostStatus status;
+    final long lastUpdated;
+    final long replicationLag;
+    final long latencyNanos;
 
-    HostSpecStatus(HostSpec host) {
+    HostSpecStatus(HostSpec host, HostStatus status, long lastUpdated,
+        long replicationLag, long latencyNanos) {
       this.host = host;
+      this.status = status;
+      this.lastUpdated = lastUpdated;
+      this.replicationLag = replicationLag;
+      this.latencyNanos = latencyNanos;
     }
 
     @Override
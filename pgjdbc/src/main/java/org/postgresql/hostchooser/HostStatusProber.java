@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.hostchooser;
+
+import static org.postgresql.util.internal.Nullness.castNonNull;
+
+import org.postgresql.PGProperty;
+import org.postgresql.core.ConnectionFactory;
+import org.postgresql.core.QueryExecutor;
+import org.postgresql.core.ServerVersion;
+import org.postgresql.core.SetupQueryRunner;
+import org.postgresql.core.Tuple;
+import org.postgresql.util.HostSpec;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Checks the hosts of multi-host URLs in the background, so {@link GlobalHostStatusTracker}
+ * knows which hosts are down, which one is the primary, how far behind the secondaries are, and
+ * how long each host takes to answer, before a connection attempt needs it. See the
+ * {@code hostProbeSeconds} connection property.</p>
+ *
+ * <p>Each host is probed over a connection of its own, opened with the properties of the
+ * connection that registered the host, and kept open between the probes. A probe that fails
+ * reports the host as {@link HostStatus#ConnectFail}, and the next probe opens a new connection.
+ * The probes of a host stop once no connection attempt registered it for {@value #IDLE_PERIODS}
+ * periods, and at least {@value #MIN_IDLE_SECONDS} seconds, so the connection and the credentials
+ * of an application that no longer connects are not kept. {@link #shutdown()} stops all the
+ * probes.</p>
+ */
+public final class HostStatusProber {
+  private static final Logger LOGGER = Logger.getLogger(HostStatusProber.class.getName());
+
+  /**
+   * Most hosts probed at the same time: a host that does not answer only delays its own probes.
+   */
+  private static final int MAX_PROBE_THREADS = 8;
+
+  /**
+   * Number of periods without a connection attempt to the host after which its probes stop.
+   */
+  private static final int IDLE_PERIODS = 10;
+
+  /**
+   * Shortest time, in seconds, without a connection attempt to the host after which its probes
+   * stop, so the probes survive the usual gaps between the connections of a pool.
+   */
+  private static final int MIN_IDLE_SECONDS = 600;
+
+  private static final ScheduledThreadPoolExecutor SCHEDULER = createScheduler();
+
+  private static final ConcurrentMap<HostSpec, Probe> PROBES =
+      new ConcurrentHashMap<HostSpec, Probe>();
+
+  private HostStatusProber() {
+  }
+
+  private static ScheduledThreadPoolExecutor createScheduler() {
+    ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "PostgreSQL-JDBC-HostProber");
+            thread.setDaemon(true);
+            // Do not keep the context class loader of the application that opened the connection
+            thread.setContextClassLoader(null);
+            return thread;
+          }
+        });
+    scheduler.setKeepAliveTime(60, TimeUnit.SECONDS);
+    scheduler.allowCoreThreadTimeOut(true);
+    scheduler.setRemoveOnCancelPolicy(true);
+    return scheduler;
+  }
+
+  /**
+   * Starts probing the hosts that are not probed yet. The first probe of each host runs at once.
+   * The hosts that are probed already are kept from stopping as idle.
+   *
+   * @param hostSpecs the hosts to probe
+   * @param user the username to authenticate with
+   * @param database the database to connect to
+   * @param info the properties of the connection
+   * @param periodSeconds time between two probes of a host
+   */
+  public static void register(HostSpec[] hostSpecs, String user, String database,
+      Properties info, int periodSeconds) {
+    for (HostSpec hostSpec : hostSpecs) {
+      while (true) {
+        Probe probe = PROBES.get(hostSpec);
+        if (probe != null) {
+          if (probe.touch()) {
+            break;
+          }
+          // The probe stopped, a new one replaces it
+          PROBES.remove(hostSpec, probe);
+          continue;
+        }
+        probe = new Probe(hostSpec, user, database, info, periodSeconds);
+        if (PROBES.putIfAbsent(hostSpec, probe) != null) {
+          continue;
+        }
+        synchronized (SCHEDULER) {
+          int threads = Math.min(PROBES.size(), MAX_PROBE_THREADS);
+          if (SCHEDULER.getCorePoolSize() < threads) {
+            SCHEDULER.setCorePoolSize(threads);
+          }
+        }
+        probe.start();
+        break;
+      }
+    }
+  }
+
+  /**
+   * Stops all the probes, and closes their connections. The hosts are probed again when a
+   * connection registers them.
+   */
+  public static void shutdown() {
+    for (HostSpec hostSpec : PROBES.keySet()) {
+      Probe probe = PROBES.remove(hostSpec);
+      if (probe != null) {
+        probe.stop();
+      }
+    }
+  }
+
+  private static final class Probe implements Runnable {
+    /**
+     * Value of {@link #lastUsed} once the probe stopped as idle.
+     */
+    private static final long IDLE = Long.MIN_VALUE;
+
+    private final HostSpec hostSpec;
+    private final String user;
+    private final String database;
+    private final Properties info;
+    private final int periodSeconds;
+    private final long idleNanos;
+    /**
+     * {@link System#nanoTime()} of the last registration of the host.
+     */
+    private final AtomicLong lastUsed = new AtomicLong(System.nanoTime());
+    private volatile @Nullable ScheduledFuture<?> future;
+    // Guarded by this
+    private @Nullable QueryExecutor queryExecutor;
+    private volatile boolean stopped;
+
+    Probe(HostSpec hostSpec, String user, String database, Properties info, int periodSeconds) {
+      this.hostSpec = hostSpec;
+      this.user = user;
+      this.database = database;
+      this.periodSeconds = periodSeconds;
+      this.idleNanos = TimeUnit.SECONDS.toNanos(
+          Math.max((long) IDLE_PERIODS * periodSeconds, MIN_IDLE_SECONDS));
+      Properties probeInfo = new Properties(info);
+      PGProperty.TARGET_SERVER_TYPE.set(probeInfo, HostRequirement.any.name());
+      PGProperty.PARALLEL_CONNECT.set(probeInfo, false);
+      PGProperty.HOST_PROBE_SECONDS.set(probeInfo, 0);
+      PGProperty.APPLICATION_NAME.set(probeInfo, "PgJDBC host prober");
+      // A host that hangs must not stop the probes for longer than a period
+      PGProperty.SOCKET_TIMEOUT.set(probeInfo, periodSeconds);
+      this.info = probeInfo;
+    }
+
+    void start() {
+      future = SCHEDULER.scheduleWithFixedDelay(this, 0, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records a connection attempt to the host.
+     *
+     * @return false if the probe is stopped, and must be replaced
+     */
+    boolean touch() {
+      while (!stopped) {
+        long lastUsed = this.lastUsed.get();
+        if (lastUsed == IDLE) {
+          return false;
+        }
+        if (this.lastUsed.compareAndSet(lastUsed, System.nanoTime())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Stops the probe if no connection attempt registered the host for long enough. Once stopped,
+     * {@link #touch()} fails, so the host gets a new probe.
+     *
+     * @return true if the probe stopped
+     */
+    private boolean stopIfIdle() {
+      long lastUsed = this.lastUsed.get();
+      if (System.nanoTime() - lastUsed < idleNanos
+          || !this.lastUsed.compareAndSet(lastUsed, IDLE)) {
+        return false;
+      }
+      LOGGER.log(Level.FINE, "Stopping the probes of idle host {0}", hostSpec);
+      stopped = true;
+      PROBES.remove(hostSpec, this);
+      return true;
+    }
+
+    void stop() {
+      stopped = true;
+      ScheduledFuture<?> future = this.future;
+      if (future != null) {
+        future.cancel(false);
+      }
+      // Does not wait for a running probe, which closes the connection once it completes
+      SCHEDULER.execute(new Runnable() {
+        @Override
+        public void run() {
+          closeConnection();
+        }
+      });
+    }
+
+    private synchronized void closeConnection() {
+      QueryExecutor queryExecutor = this.queryExecutor;
+      if (queryExecutor != null) {
+        this.queryExecutor = null;
+        queryExecutor.close();
+      }
+    }
+
+    @Override
+    public synchronized void run() {
+      if (stopped || stopIfIdle()) {
+        // stop() may have been called before the task was scheduled, or the host is idle
+        ScheduledFuture<?> future = this.future;
+        if (future != null) {
+          future.cancel(false);
+        }
+        closeConnection();
+        return;
+      }
+      try {
+        QueryExecutor queryExecutor = this.queryExecutor;
+        if (queryExecutor == null || queryExecutor.isClosed()) {
+          queryExecutor = ConnectionFactory.openConnection(new HostSpec[]{hostSpec}, user,
+              database, info);
+          this.queryExecutor = queryExecutor;
+        }
+        long start = System.nanoTime();
+        Tuple row = castNonNull(SetupQueryRunner.run(queryExecutor, probeQuery(queryExecutor),
+            true));
+        GlobalHostStatusTracker.reportHostLatency(hostSpec, System.nanoTime() - start);
+        boolean readOnly = "on".equalsIgnoreCase(decode(queryExecutor, row.get(0)));
+        String lag = decode(queryExecutor, row.get(1));
+        GlobalHostStatusTracker.reportHostStatus(hostSpec,
+            readOnly ? HostStatus.Secondary : HostStatus.Primary,
+            lag == null ? GlobalHostStatusTracker.UNKNOWN_REPLICATION_LAG : Long.parseLong(lag));
+      } catch (SQLException e) {
+        LOGGER.log(Level.FINE, "Probe of host " + hostSpec + " failed", e);
+        closeConnection();
+        GlobalHostStatusTracker.reportHostStatus(hostSpec, HostStatus.ConnectFail);
+      } catch (IOException e) {
+        LOGGER.log(Level.FINE, "Probe of host " + hostSpec + " failed", e);
+        closeConnection();
+        GlobalHostStatusTracker.reportHostStatus(hostSpec, HostStatus.ConnectFail);
+      } catch (RuntimeException e) {
+        // The task must not end, or the host would no longer be probed
+        LOGGER.log(Level.WARNING, "Probe of host " + hostSpec + " failed", e);
+        closeConnection();
+      }
+    }
+
+    private static @Nullable String decode(QueryExecutor queryExecutor, byte @Nullable [] value)
+        throws IOException {
+      return value == null ? null : queryExecutor.getEncoding().decode(value);
+    }
+
+    /**
+     * The primary/secondary distinction follows the one of {@code targetServerType}: it is done by
+     * observing if the server allows writes. The lag is the time since the last transaction
+     * replayed by a secondary, or 0 when it replayed all the WAL it received while its WAL receiver
+     * is running: a secondary that lost its primary replays all it received, yet falls behind.
+     * Before 9.6 the state of the WAL receiver is not known, so the lag is always the time since
+     * the last replayed transaction.
+     */
+    private static String probeQuery(QueryExecutor queryExecutor) {
+      int version = queryExecutor.getServerVersionNum();
+      if (version >= ServerVersion.v10.getVersionNum()) {
+        return "SELECT pg_catalog.current_setting('transaction_read_only'),"
+            + " CASE WHEN NOT pg_catalog.pg_is_in_recovery()"
+            + " OR pg_catalog.pg_last_wal_receive_lsn() = pg_catalog.pg_last_wal_replay_lsn()"
+            + " AND EXISTS (SELECT 1 FROM pg_catalog.pg_stat_wal_receiver)"
+            + " THEN 0 ELSE (EXTRACT(EPOCH FROM pg_catalog.now()"
+            + " - pg_catalog.pg_last_xact_replay_timestamp()) * 1000)::int8 END";
+      }
+      if (version >= ServerVersion.v9_6.getVersionNum()) {
+        return "SELECT pg_catalog.current_setting('transaction_read_only'),"
+            + " CASE WHEN NOT pg_catalog.pg_is_in_recovery()"
+            + " OR pg_catalog.pg_last_xlog_receive_location()"
+            + " = pg_catalog.pg_last_xlog_replay_location()"
+            + " AND EXISTS (SELECT 1 FROM pg_catalog.pg_stat_wal_receiver)"
+            + " THEN 0 ELSE (EXTRACT(EPOCH FROM pg_catalog.now()"
+            + " - pg_catalog.pg_last_xact_replay_timestamp()) * 1000)::int8 END";
+      }
+      if (version >= ServerVersion.v9_0.getVersionNum()) {
+        return "SELECT pg_catalog.current_setting('transaction_read_only'),"
+            + " CASE WHEN NOT pg_catalog.pg_is_in_recovery()"
+            + " THEN 0 ELSE (EXTRACT(EPOCH FROM pg_catalog.now()"
+            + " - pg_catalog.pg_last_xact_replay_timestamp()) * 1000)::int8 END";
+      }
+      return "SELECT pg_catalog.current_setting('transaction_read_only'), NULL";
+    }
+  }
+}
@@ -6,6 +6,7 @@
 package org.postgresql.hostchooser;
 
 import static java.util.Collections.shuffle;
+import static org.postgresql.util.internal.Nullness.castNonNull;
 
 import org.postgresql.PGProperty;
 import org.postgresql.util.HostSpec;
@@ -15,9 +16,14 @@ import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * HostChooser that keeps track of known host statuses.
@@ -27,6 +33,8 @@ class MultiHostChooser implements HostChooser {
   private final HostRequirement targetServerType;
   private int hostRecheckTime;
   private boolean loadBalance;
+  private boolean loadBalanceByLatency;
+  private long maxReplicationLag;
 
   MultiHostChooser(HostSpec[] hostSpecs, HostRequirement targetServerType,
       Properties info) {
@@ -35,6 +43,8 @@ class MultiHostChooser implements HostChooser {
     try {
       hostRecheckTime = PGProperty.HOST_RECHECK_SECONDS.getInt(info) * 1000;
       loadBalance = PGProperty.LOAD_BALANCE_HOSTS.getBoolean(info);
+      loadBalanceByLatency = PGProperty.LOAD_BALANCE_BY_LATENCY.getBoolean(info);
+      maxReplicationLag = PGProperty.MAX_REPLICATION_LAG_SECONDS.getInt(info) * 1000L;
     } catch (PSQLException e) {
       throw new RuntimeException(e);
     }
@@ -48,7 +58,7 @@ class MultiHostChooser implements HostChooser {
       List<HostSpec> allHosts = Arrays.asList(hostSpecs);
       if (loadBalance) {
         allHosts = new ArrayList<HostSpec>(allHosts);
-        Collections.shuffle(allHosts);
+        balance(allHosts);
       }
       res = withReqStatus(targetServerType, allHosts).iterator();
     }
@@ -86,13 +96,63 @@ class MultiHostChooser implements HostChooser {
 
   private List<CandidateHost> getCandidateHosts(HostRequirement hostRequirement) {
     List<HostSpec> candidates =
-        GlobalHostStatusTracker.getCandidateHosts(hostSpecs, hostRequirement, hostRecheckTime);
+        GlobalHostStatusTracker.getCandidateHosts(hostSpecs, hostRequirement, hostRecheckTime,
+            maxReplicationLag);
     if (loadBalance) {
-      shuffle(candidates);
+      balance(candidates);
     }
     return withReqStatus(hostRequirement, candidates);
   }
 
+  private void balance(List<HostSpec> hosts) {
+    if (loadBalanceByLatency) {
+      shuffleByLatency(hosts, ThreadLocalRandom.current());
+    } else {
+      shuffle(hosts);
+    }
+  }
+
+  /**
+   * Shuffles the hosts so the probability of a host to come first is inversely proportional to its
+   * latency. Each host draws an exponentially distributed key with the inverse of its latency as
+   * rate, and the hosts are sorted by key (weighted random sampling by Efraimidis and Spirakis).
+   * Hosts whose latency is unknown get the average weight, so new hosts are still tried.
+   *
+   * @param hosts the hosts to shuffle
+   * @param random source of randomness
+   */
+  static void shuffleByLatency(List<HostSpec> hosts, Random random) {
+    int size = hosts.size();
+    double[] weights = new double[size];
+    double knownWeights = 0;
+    int known = 0;
+    for (int i = 0; i < size; i++) {
+      long latency = GlobalHostStatusTracker.getLatency(hosts.get(i));
+      if (latency >= 0) {
+        // A round trip under a microsecond is not measured accurately anyway
+        weights[i] = 1.0 / Math.max(latency, 1000);
+        knownWeights += weights[i];
+        known++;
+      }
+    }
+    if (known == 0) {
+      shuffle(hosts, random);
+      return;
+    }
+    final Map<HostSpec, Double> keys = new HashMap<HostSpec, Double>(size * 2);
+    for (int i = 0; i < size; i++) {
+      double weight = weights[i] > 0 ? weights[i] : knownWeights / known;
+      // 1 - nextDouble() is in (0, 1], so the logarithm is finite
+      keys.put(hosts.get(i), -Math.log(1 - random.nextDouble()) / weight);
+    }
+    Collections.sort(hosts, new Comparator<HostSpec>() {
+      @Override
+      public int compare(HostSpec a, HostSpec b) {
+        return Double.compare(castNonNull(keys.get(a)), castNonNull(keys.get(b)));
+      }
+    });
+  }
+
   private List<CandidateHost> withReqStatus(final HostRequirement requirement, final List<HostSpec> hosts) {
     return new AbstractList<CandidateHost>() {
       @Override
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Encoding;
+import org.postgresql.core.ParameterList;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+import org.postgresql.util.ServerErrorMessage;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Executes the batch of a plain {@code INSERT INTO table (columns) VALUES (?, ...)} as a single
+ * {@code COPY table (columns) FROM STDIN} in text format, see
+ * {@link org.postgresql.PGProperty#COPY_BATCHED_INSERTS}.
+ */
+class CopyBatchedInsert {
+  private static final String IDENTIFIER = "(?:\"(?:[^\"]|\"\")*\"|[\\p{L}_][\\p{L}\\p{N}_$]*)";
+  private static final Pattern IDENTIFIERS = Pattern.compile(IDENTIFIER);
+  private static final Pattern INSERT = Pattern.compile(
+      "\\s*insert\\s+into\\s+(" + IDENTIFIER + "(?:\\s*\\.\\s*" + IDENTIFIER + ")*)"
+          + "\\s*\\(((?:\\s*" + IDENTIFIER + "\\s*,)*\\s*" + IDENTIFIER + "\\s*)\\)"
+          + "\\s*values\\s*\\(([\\s$0-9,]*)\\)\\s*;?\\s*",
+      Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Line of the rejected row in the context of a COPY error, e.g. "COPY measurement, line 3".
+   */
+  private static final Pattern LINE = Pattern.compile(", line (\\d+)");
+
+  private static final int CHUNK_SIZE = 65536;
+
+  private CopyBatchedInsert() {
+  }
+
+  /**
+   * Returns the COPY statement equivalent to the given INSERT, when each of its values is a
+   * parameter, in the order of the parameters. Other statements, e.g. with expressions, several
+   * rows, {@code ON CONFLICT} or {@code RETURNING}, are not supported.
+   *
+   * @param nativeSql INSERT statement, with {@code $n} parameter placeholders
+   * @param parameterCount number of parameters of the statement
+   * @return the COPY statement, null if the INSERT cannot be executed as a COPY
+   */
+  static @Nullable String getCopySql(String nativeSql, int parameterCount) {
+    Matcher insert = INSERT.matcher(nativeSql);
+    if (parameterCount == 0 || !insert.matches()) {
+      return null;
+    }
+    String[] values = insert.group(3).split(",", -1);
+    if (values.length != parameterCount) {
+      return null;
+    }
+    for (int i = 0; i < values.length; i++) {
+      if (!values[i].trim().equals("$" + (i + 1))) {
+        return null;
+      }
+    }
+    String columns = insert.group(2).trim();
+    Matcher column = IDENTIFIERS.matcher(columns);
+    int columnCount = 0;
+    while (column.find()) {
+      columnCount++;
+    }
+    if (columnCount != parameterCount) {
+      return null;
+    }
+    return "COPY " + insert.group(1) + " (" + columns + ") FROM STDIN";
+  }
+
+  /**
+   * Encodes the rows of the batch as COPY data in text format.
+   *
+   * @param encoding encoding of the connection
+   * @param rows parameters of the batch entries
+   * @return the COPY data, split in chunks, null if a value has no text form on the client
+   * @throws SQLException if a parameter is not bound
+   * @throws IOException if a value cannot be encoded
+   */
+  static @Nullable List<byte[]> encode(Encoding encoding, List<@Nullable ParameterList> rows)
+      throws SQLException, IOException {
+    List<byte[]> chunks = new ArrayList<byte[]>();
+    StringBuilder sb = new StringBuilder();
+    for (ParameterList row : rows) {
+      if (row == null) {
+        return null;
+      }
+      int count = row.getParameterCount();
+      for (int i = 1; i <= count; i++) {
+        String value;
+        try {
+          value = row.getTextValue(i);
+        } catch (PSQLException e) {
+          if (PSQLState.NOT_IMPLEMENTED.getState().equals(e.getSQLState())) {
+            return null;
+          }
+          throw e;
+        }
+        if (i > 1) {
+          sb.append('\t');
+        }
+        if (value == null) {
+          sb.append("\\N");
+        } else {
+          appendEscaped(sb, value);
+        }
+      }
+      sb.append('\n');
+      if (sb.length() >= CHUNK_SIZE) {
+        chunks.add(encoding.encode(sb.toString()));
+        sb.setLength(0);
+      }
+    }
+    if (sb.length() > 0) {
+      chunks.add(encoding.encode(sb.toString()));
+    }
+    return chunks;
+  }
+
+  private static void appendEscaped(StringBuilder sb, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        case '\t':
+          sb.append("\\t");
+          break;
+        default:
+          sb.append(c);
+      }
+    }
+  }
+
+  /**
+   * Runs the COPY with the given data.
+   *
+   * @param connection connection to use
+   * @param copySql COPY FROM STDIN statement
+   * @param chunks COPY data
+   * @return number of rows inserted
+   * @throws SQLException if the COPY fails
+   */
+  static long copy(BaseConnection connection, String copySql, List<byte[]> chunks)
+      throws SQLException {
+    CopyIn copyIn = new CopyManager(connection).copyIn(copySql);
+    try {
+      for (byte[] chunk : chunks) {
+        copyIn.writeToCopy(chunk, 0, chunk.length);
+      }
+      return copyIn.endCopy();
+    } catch (SQLException e) {
+      if (copyIn.isActive()) {
+        try {
+          copyIn.cancelCopy();
+        } catch (SQLException ignore) {
+          // The original failure is reported
+        }
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the index of the batch entry the server rejected.
+   *
+   * @param e failure of the COPY
+   * @return 0-based index of the rejected entry, -1 if the server does not tell it
+   */
+  static int getFailedRow(SQLException e) {
+    ServerErrorMessage serverError =
+        e instanceof PSQLException ? ((PSQLException) e).getServerErrorMessage() : null;
+    String where = serverError == null ? null : serverError.getWhere();
+    if (where == null) {
+      return -1;
+    }
+    Matcher line = LINE.matcher(where);
+    return line.find() ? Integer.parseInt(line.group(1)) - 1 : -1;
+  }
+}
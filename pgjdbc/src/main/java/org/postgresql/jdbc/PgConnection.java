@@ -9,7 +9,9 @@ import static org.postgresql.util.internal.Nullness.castNonNull;
 
 import org.postgresql.Driver;
 import org.postgresql.PGNotification;
+import org.postgresql.PGPipeline;
 import org.postgresql.PGProperty;
+import org.postgresql.codec.TypeCodec;
 import org.postgresql.copy.CopyManager;
 import org.postgresql.core.BaseConnection;
 import org.postgresql.core.BaseStatement;
@@ -25,6 +27,7 @@ import org.postgresql.core.ResultHandlerBase;
 import org.postgresql.core.ServerVersion;
 import org.postgresql.core.SqlCommand;
 import org.postgresql.core.TransactionState;
+import org.postgresql.core.TypeCodecRegistry;
 import org.postgresql.core.TypeInfo;
 import org.postgresql.core.Utils;
 import org.postgresql.core.Version;
@@ -81,6 +84,7 @@ import java.util.TimeZone;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -148,6 +152,14 @@ public class PgConnection implements BaseConnection {
   private boolean  hideUnprivilegedObjects ;
   // Bind String to UNSPECIFIED or VARCHAR?
   private final boolean bindStringAsVarchar;
+  // Codecs registered by the application, see registerTypeCodec
+  private final TypeCodecRegistry typeCodecRegistry = new TypeCodecRegistry();
+  // Whether registered codecs may use the binary format
+  private final boolean binaryTransfer;
+
+  // Guards the connection-level state below, and the cancel state of the statements.
+  private final ResourceLock lock = new ResourceLock();
+  private final Condition lockCondition = lock.newCondition();
 
   // Current warnings; there might be more on queryExecutor too.
   private @Nullable SQLWarning firstWarning;
@@ -239,6 +251,7 @@ public class PgConnection implements BaseConnection {
 
     this.hideUnprivilegedObjects = PGProperty.HIDE_UNPRIVILEGED_OBJECTS.getBoolean(info);
 
+    this.binaryTransfer = PGProperty.BINARY_TRANSFER.getBoolean(info);
     Set<Integer> binaryOids = getBinaryOids(info);
 
     // split for receive and send for better control
@@ -698,6 +711,23 @@ public class PgConnection implements BaseConnection {
     typeCache.addDataType(type, klass);
   }
 
+  @Override
+  public void registerTypeCodec(String type, TypeCodec codec) throws SQLException {
+    checkClosed();
+    int oid = typeCache.getPGType(type);
+    if (oid == Oid.UNSPECIFIED) {
+      throw new PSQLException(GT.tr("Unknown type {0}.", type), PSQLState.INVALID_PARAMETER_TYPE);
+    }
+    typeCodecRegistry.register(oid, codec);
+    queryExecutor.setBinaryReceiveOid(oid, binaryTransfer && codec.supportsBinaryReceive());
+    queryExecutor.setBinarySendOid(oid, binaryTransfer && codec.supportsBinarySend());
+  }
+
+  @Override
+  public TypeCodecRegistry getTypeCodecRegistry() {
+    return typeCodecRegistry;
+  }
+
   // This initialises the objectTypes hash map
   private void initObjectTypes(Properties info) throws SQLException {
     // Add in the types that come packaged with the driver.
@@ -761,24 +791,28 @@ public class PgConnection implements BaseConnection {
   }
 
   @Override
-  public synchronized @Nullable SQLWarning getWarnings() throws SQLException {
-    checkClosed();
-    SQLWarning newWarnings = queryExecutor.getWarnings(); // NB: also clears them.
-    if (firstWarning == null) {
-      firstWarning = newWarnings;
-    } else if (newWarnings != null) {
-      firstWarning.setNextWarning(newWarnings); // Chain them on.
-    }
+  public @Nullable SQLWarning getWarnings() throws SQLException {
+    try (ResourceLock ignore = lock.obtain()) {
+      checkClosed();
+      SQLWarning newWarnings = queryExecutor.getWarnings(); // NB: also clears them.
+      if (firstWarning == null) {
+        firstWarning = newWarnings;
+      } else if (newWarnings != null) {
+        firstWarning.setNextWarning(newWarnings); // Chain them on.
+      }
 
-    return firstWarning;
+      return firstWarning;
+    }
   }
 
   @Override
-  public synchronized void clearWarnings() throws SQLException {
-    checkClosed();
-    //noinspection ThrowableNotThrown
-    queryExecutor.getWarnings(); // Clear and discard.
-    firstWarning = null;
+  public void clearWarnings() throws SQLException {
+    try (ResourceLock ignore = lock.obtain()) {
+      checkClosed();
+      //noinspection ThrowableNotThrown
+      queryExecutor.getWarnings(); // Clear and discard.
+      firstWarning = null;
+    }
   }
 
   @Override
@@ -1220,17 +1254,21 @@ public class PgConnection implements BaseConnection {
     queryExecutor.abort();
   }
 
-  private synchronized Timer getTimer() {
-    if (cancelTimer == null) {
-      cancelTimer = Driver.getSharedTimer().getTimer();
+  private Timer getTimer() {
+    try (ResourceLock ignore = lock.obtain()) {
+      if (cancelTimer == null) {
+        cancelTimer = Driver.getSharedTimer().getTimer();
+      }
+      return cancelTimer;
     }
-    return cancelTimer;
   }
 
-  private synchronized void releaseTimer() {
-    if (cancelTimer != null) {
-      cancelTimer = null;
-      Driver.getSharedTimer().releaseTimer();
+  private void releaseTimer() {
+    try (ResourceLock ignore = lock.obtain()) {
+      if (cancelTimer != null) {
+        cancelTimer = null;
+        Driver.getSharedTimer().releaseTimer();
+      }
     }
   }
 
@@ -1269,6 +1307,12 @@ public class PgConnection implements BaseConnection {
     return new PGReplicationConnectionImpl(this);
   }
 
+  @Override
+  public PGPipeline createPipeline() throws SQLException {
+    checkClosed();
+    return new PgPipeline(this);
+  }
+
   // Parse a "dirty" integer surrounded by non-numeric characters
   private static int integerPart(String dirtyString) {
     int start = 0;
@@ -1829,4 +1873,14 @@ public class PgConnection implements BaseConnection {
     this.xmlFactoryFactory = xmlFactoryFactory;
     return xmlFactoryFactory;
   }
+
+  @Override
+  public ResourceLock obtainLock() {
+    return lock.obtain();
+  }
+
+  @Override
+  public Condition lockCondition() {
+    return lockCondition;
+  }
 }
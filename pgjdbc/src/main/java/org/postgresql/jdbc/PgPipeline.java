@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import static org.postgresql.util.internal.Nullness.castNonNull;
+
+import org.postgresql.PGPipeline;
+import org.postgresql.core.Field;
+import org.postgresql.core.ParameterList;
+import org.postgresql.core.Query;
+import org.postgresql.core.QueryExecutor;
+import org.postgresql.core.ResultCursor;
+import org.postgresql.core.ResultHandlerBase;
+import org.postgresql.core.Tuple;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Implementation of {@link PGPipeline} on top of the batch execution of {@link QueryExecutor}.
+ */
+class PgPipeline implements PGPipeline {
+  private final PgConnection connection;
+  private final List<Entry> entries = new ArrayList<Entry>();
+  private final Set<PgPreparedStatement> queued =
+      Collections.newSetFromMap(new IdentityHashMap<PgPreparedStatement, Boolean>());
+
+  /**
+   * A statement execution that waits for its results.
+   */
+  private static class Entry {
+    final PreparedStatement userStatement;
+    final PgPreparedStatement statement;
+    final Query query;
+    final ParameterList parameters;
+    final boolean oneShot;
+    final CompletableFuture<PreparedStatement> future = new CompletableFuture<PreparedStatement>();
+    /**
+     * Number of results that are still expected: one per statement in the query text.
+     */
+    int pendingResults;
+    /**
+     * Whether the backend skipped a statement of the query text after an error.
+     */
+    boolean abandoned;
+    @Nullable ResultWrapper results;
+    @Nullable ResultWrapper lastResult;
+    @Nullable SQLException error;
+
+    Entry(PreparedStatement userStatement, PgPreparedStatement statement, boolean oneShot) {
+      this.userStatement = userStatement;
+      this.statement = statement;
+      this.query = statement.preparedQuery.query;
+      this.parameters = statement.preparedParameters.copy();
+      this.oneShot = oneShot;
+      Query[] subqueries = query.getSubqueries();
+      this.pendingResults = subqueries == null ? 1 : subqueries.length;
+    }
+
+    void append(ResultWrapper result) {
+      if (results == null) {
+        results = lastResult = result;
+      } else {
+        castNonNull(lastResult).append(result);
+        lastResult = result;
+      }
+    }
+  }
+
+  PgPipeline(PgConnection connection) {
+    this.connection = connection;
+  }
+
+  @Override
+  public CompletableFuture<PreparedStatement> add(PreparedStatement statement)
+      throws SQLException {
+    connection.checkClosed();
+    if (!statement.isWrapperFor(PgPreparedStatement.class)) {
+      throw new PSQLException(GT.tr("Only statements of the PostgreSQL driver can be pipelined."),
+          PSQLState.INVALID_PARAMETER_TYPE);
+    }
+    PgPreparedStatement pgStatement = statement.unwrap(PgPreparedStatement.class);
+    pgStatement.checkClosed();
+    if (pgStatement.getPGConnection() != connection) {
+      throw new PSQLException(
+          GT.tr("The statement was created by a different connection than the pipeline."),
+          PSQLState.INVALID_PARAMETER_VALUE);
+    }
+    if (pgStatement instanceof PgCallableStatement
+        || pgStatement.wantsGeneratedKeysOnce || pgStatement.wantsGeneratedKeysAlways) {
+      throw new PSQLException(
+          GT.tr("Callable statements and statements returning generated keys cannot be pipelined."),
+          PSQLState.NOT_IMPLEMENTED);
+    }
+    if (!queued.add(pgStatement)) {
+      throw new PSQLException(
+          GT.tr("The statement is already queued in the pipeline, call sync() before adding it again."),
+          PSQLState.OBJECT_NOT_IN_STATE);
+    }
+    // Same as for a regular execution: previous results are closed
+    pgStatement.closeForNextExecution();
+    Entry entry = new Entry(statement, pgStatement, pgStatement.isOneShotQuery(null));
+    entries.add(entry);
+    return entry.future;
+  }
+
+  @Override
+  public int getPendingCount() {
+    return entries.size();
+  }
+
+  @Override
+  public void sync() throws SQLException {
+    if (entries.isEmpty()) {
+      return;
+    }
+    Entry[] entries = this.entries.toArray(new Entry[0]);
+    this.entries.clear();
+    queued.clear();
+    try {
+      connection.checkClosed();
+    } catch (SQLException e) {
+      fail(entries, e);
+      throw e;
+    }
+
+    Query[] queries = new Query[entries.length];
+    ParameterList[] parameterLists = new ParameterList[entries.length];
+    boolean oneShot = true;
+    boolean noBinaryTransfer = false;
+    for (int i = 0; i < entries.length; i++) {
+      Entry entry = entries[i];
+      queries[i] = entry.query;
+      parameterLists[i] = entry.parameters;
+      oneShot &= entry.oneShot;
+      noBinaryTransfer |= entry.statement.getResultSetConcurrency() != ResultSet.CONCUR_READ_ONLY;
+    }
+
+    int flags = 0;
+    if (oneShot) {
+      flags |= QueryExecutor.QUERY_ONESHOT;
+    }
+    if (noBinaryTransfer) {
+      // updateable result sets do not yet support binary updates
+      flags |= QueryExecutor.QUERY_NO_BINARY_TRANSFER;
+    }
+    if (connection.getPreferQueryMode() == PreferQueryMode.SIMPLE) {
+      flags |= QueryExecutor.QUERY_EXECUTE_AS_SIMPLE;
+    }
+    if (connection.getAutoCommit()) {
+      flags |= QueryExecutor.QUERY_SUPPRESS_BEGIN;
+    }
+    if (connection.hintReadOnly()) {
+      flags |= QueryExecutor.QUERY_READ_ONLY_HINT;
+    }
+
+    PipelineResultHandler handler = new PipelineResultHandler(entries);
+    try {
+      connection.getQueryExecutor().execute(queries, parameterLists, handler, 0, 0, flags);
+    } catch (SQLException e) {
+      if (e != handler.getException()) {
+        // The failure is not related to a particular statement
+        fail(entries, e);
+        throw e;
+      }
+      // Otherwise the errors are reported via the futures of the entries
+    }
+    complete(entries);
+  }
+
+  private static void fail(Entry[] entries, SQLException e) {
+    for (Entry entry : entries) {
+      entry.future.completeExceptionally(e);
+    }
+  }
+
+  private static void complete(Entry[] entries) {
+    SQLException failure = null;
+    for (Entry entry : entries) {
+      SQLException error = entry.error;
+      if (error == null && (entry.abandoned || entry.pendingResults > 0)) {
+        error = new PSQLException(
+            GT.tr("The statement was not executed because an earlier statement in the pipeline failed."),
+            PSQLState.IN_FAILED_SQL_TRANSACTION, failure);
+      }
+      if (error == null) {
+        try {
+          entry.statement.setResults(entry.results);
+        } catch (SQLException e) {
+          error = e;
+        }
+      }
+      if (error != null) {
+        if (failure == null) {
+          failure = error;
+        }
+        entry.future.completeExceptionally(error);
+      } else {
+        entry.future.complete(entry.userStatement);
+      }
+    }
+  }
+
+  /**
+   * Routes the results to the entries. Each statement of the query text produces exactly one
+   * result (rows or command status), or is abandoned after an error, so the entry is known from the
+   * number of results and abandoned statements seen so far. The backend resumes executing at the
+   * next Sync, so only the statements up to there are abandoned.
+   */
+  private static class PipelineResultHandler extends ResultHandlerBase {
+    private final Entry[] entries;
+    private int current;
+
+    PipelineResultHandler(Entry[] entries) {
+      this.entries = entries;
+    }
+
+    private @Nullable Entry currentEntry() {
+      return current < entries.length ? entries[current] : null;
+    }
+
+    private void advance(Entry entry) {
+      if (--entry.pendingResults == 0) {
+        current++;
+      }
+    }
+
+    @Override
+    public void handleResultRows(Query fromQuery, Field[] fields, List<Tuple> tuples,
+        @Nullable ResultCursor cursor) {
+      Entry entry = currentEntry();
+      if (entry == null) {
+        return;
+      }
+      try {
+        ResultSet rs = entry.statement.createResultSet(fromQuery, fields, tuples, cursor);
+        entry.append(new ResultWrapper(rs));
+      } catch (SQLException e) {
+        handleError(e);
+      }
+      advance(entry);
+    }
+
+    @Override
+    public void handleCommandStatus(String status, long updateCount, long insertOID) {
+      Entry entry = currentEntry();
+      if (entry == null) {
+        return;
+      }
+      entry.append(new ResultWrapper(updateCount, insertOID));
+      advance(entry);
+    }
+
+    @Override
+    public void handleAbandonedQueries(int count) {
+      for (int i = 0; i < count; i++) {
+        Entry entry = currentEntry();
+        if (entry == null) {
+          return;
+        }
+        entry.abandoned = true;
+        advance(entry);
+      }
+    }
+
+    @Override
+    public void handleWarning(SQLWarning warning) {
+      Entry entry = currentEntry();
+      if (entry != null) {
+        entry.statement.addWarning(warning);
+      }
+    }
+
+    @Override
+    public void handleError(SQLException error) {
+      super.handleError(error);
+      Entry entry = currentEntry();
+      if (entry != null && entry.error == null) {
+        entry.error = error;
+      }
+    }
+  }
+}
@@ -8,6 +8,8 @@ package org.postgresql.jdbc;
 import static org.postgresql.util.internal.Nullness.castNonNull;
 
 import org.postgresql.Driver;
+import org.postgresql.PGPreparedStatement;
+import org.postgresql.codec.TypeCodec;
 import org.postgresql.core.BaseConnection;
 import org.postgresql.core.CachedQuery;
 import org.postgresql.core.Oid;
@@ -15,6 +17,9 @@ import org.postgresql.core.ParameterList;
 import org.postgresql.core.Query;
 import org.postgresql.core.QueryExecutor;
 import org.postgresql.core.ServerVersion;
+import org.postgresql.core.SqlCommand;
+import org.postgresql.core.SqlCommandType;
+import org.postgresql.core.TypeCodecRegistry;
 import org.postgresql.core.TypeInfo;
 import org.postgresql.core.v3.BatchedQuery;
 import org.postgresql.largeobject.LargeObject;
@@ -50,6 +55,7 @@ import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.nio.charset.Charset;
 import java.sql.Array;
+import java.sql.BatchUpdateException;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.NClob;
@@ -62,22 +68,41 @@ import java.sql.RowId;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLXML;
+import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
 
-class PgPreparedStatement extends PgStatement implements PreparedStatement {
+class PgPreparedStatement extends PgStatement implements PreparedStatement, PGPreparedStatement {
 
   protected final CachedQuery preparedQuery; // Query fragments for prepared statement.
   protected final ParameterList preparedParameters; // Parameter values for prepared statement.
 
   private @Nullable TimeZone defaultTimeZone;
 
+  /**
+   * COPY statement the batches are executed with, empty if the statement cannot be executed as a
+   * COPY, see {@link CopyBatchedInsert}.
+   */
+  private @Nullable String copySql;
+
+  /**
+   * Statement the batches are executed with over array parameters, empty if the statement cannot
+   * be rewritten, see {@link UnnestBatchedQuery}.
+   */
+  private @Nullable String unnestSql;
+
   PgPreparedStatement(PgConnection connection, String sql, int rsType, int rsConcurrency,
       int rsHoldability) throws SQLException {
     this(connection, connection.borrowQuery(sql), rsType, rsConcurrency, rsHoldability);
@@ -170,6 +195,73 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
     }
   }
 
+  @Override
+  public CompletionStage<ResultSet> executeQueryAsync() throws SQLException {
+    return executeAsyncWithFlags(0).thenApply(new Function<Boolean, ResultSet>() {
+      @Override
+      public ResultSet apply(Boolean hasResultSet) {
+        try {
+          if (!hasResultSet) {
+            throw new PSQLException(GT.tr("No results were returned by the query."),
+                PSQLState.NO_DATA);
+          }
+          return getSingleResultSet();
+        } catch (SQLException e) {
+          throw new CompletionException(e);
+        }
+      }
+    });
+  }
+
+  @Override
+  public CompletionStage<Integer> executeUpdateAsync() throws SQLException {
+    return executeAsyncWithFlags(QueryExecutor.QUERY_NO_RESULTS).thenApply(
+        new Function<Boolean, Integer>() {
+          @Override
+          public Integer apply(Boolean hasResultSet) {
+            try {
+              checkNoResultUpdate();
+              return getUpdateCount();
+            } catch (SQLException e) {
+              throw new CompletionException(e);
+            }
+          }
+        });
+  }
+
+  @Override
+  public CompletionStage<Boolean> executeAsync() throws SQLException {
+    return executeAsyncWithFlags(0);
+  }
+
+  private CompletableFuture<Boolean> executeAsyncWithFlags(int flags) throws SQLException {
+    try {
+      checkClosed();
+      if (this instanceof PgCallableStatement) {
+        throw new PSQLException(GT.tr("Callable statements cannot be executed asynchronously."),
+            PSQLState.NOT_IMPLEMENTED);
+      }
+
+      if (connection.getPreferQueryMode() == PreferQueryMode.SIMPLE) {
+        flags |= QueryExecutor.QUERY_EXECUTE_AS_SIMPLE;
+      }
+
+      // The caller may bind new values while the execution is pending
+      ParameterList parameters = preparedParameters.copy();
+      return executeAsync(preparedQuery, parameters, flags).thenApply(
+          new Function<Void, Boolean>() {
+            @Override
+            public Boolean apply(Void ignored) {
+              synchronized (PgPreparedStatement.this) {
+                return result != null && result.getResultSet() != null;
+              }
+            }
+          });
+    } finally {
+      defaultTimeZone = null;
+    }
+  }
+
   protected boolean isOneShotQuery(@Nullable CachedQuery cachedQuery) {
     if (cachedQuery == null) {
       cachedQuery = preparedQuery;
@@ -925,6 +1017,8 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
     checkClosed();
     if (x == null) {
       setNull(parameterIndex, Types.OTHER);
+    } else if (setObjectWithCodec(parameterIndex, x)) {
+      // encoded by a codec registered on the connection
     } else if (x instanceof UUID && connection.haveMinimumServerVersion(ServerVersion.v8_3)) {
       setUuid(parameterIndex, (UUID) x);
     } else if (x instanceof SQLXML) {
@@ -995,6 +1089,29 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
     }
   }
 
+  /**
+   * Binds a value with the codec registered on the connection for its Java type.
+   *
+   * @return false if no codec is registered for the type of the value
+   */
+  private boolean setObjectWithCodec(@Positive int parameterIndex, Object x) throws SQLException {
+    TypeCodecRegistry registry = connection.getTypeCodecRegistry();
+    if (registry.isEmpty()) {
+      return false;
+    }
+    int oid = registry.getOid(x);
+    TypeCodec codec = oid == Oid.UNSPECIFIED ? null : registry.get(oid);
+    if (codec == null) {
+      return false;
+    }
+    if (codec.supportsBinarySend() && connection.binaryTransferSend(oid)) {
+      preparedParameters.setBinaryParameter(parameterIndex, codec.encodeBinary(x), oid);
+    } else {
+      preparedParameters.setStringParameter(parameterIndex, codec.encodeText(x), oid);
+    }
+    return true;
+  }
+
   /**
    * Returns the SQL statement with the current template values substituted.
    *
@@ -1608,6 +1725,13 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
   @Override
   public int[] executeBatch() throws SQLException {
     try {
+      int batchSize = batchParameters == null ? 0 : batchParameters.size();
+      long rows = executeBatchAsSingleStatement();
+      if (rows >= 0) {
+        int[] updateCounts = new int[batchSize];
+        Arrays.fill(updateCounts, getEntryUpdateCount(batchSize, rows));
+        return updateCounts;
+      }
       // Note: in batch prepared statements batchStatements == 1, and batchParameters is equal
       // to the number of addBatch calls
       // batchParameters might be empty in case of empty batch
@@ -1624,6 +1748,177 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
     }
   }
 
+  @Override
+  public long[] executeLargeBatch() throws SQLException {
+    int batchSize = batchParameters == null ? 0 : batchParameters.size();
+    long rows = executeBatchAsSingleStatement();
+    if (rows >= 0) {
+      long[] updateCounts = new long[batchSize];
+      Arrays.fill(updateCounts, getEntryUpdateCount(batchSize, rows));
+      return updateCounts;
+    }
+    return super.executeLargeBatch();
+  }
+
+  /**
+   * Returns the update count of each entry of a batch executed as a single statement. Only the
+   * entries of a plain INSERT are known to affect one row each: the entries of an UPDATE or a
+   * DELETE might affect as many rows in total, yet not one row each.
+   *
+   * @param batchSize number of entries of the batch
+   * @param rows number of rows affected by the statement
+   * @return {@code 1} or {@link Statement#SUCCESS_NO_INFO}
+   */
+  private int getEntryUpdateCount(int batchSize, long rows) {
+    SqlCommand command = preparedQuery.query.getSqlCommand();
+    boolean insert = command != null && command.getType() == SqlCommandType.INSERT;
+    return insert && rows == batchSize ? 1 : Statement.SUCCESS_NO_INFO;
+  }
+
+  /**
+   * Executes the batch as a single COPY or as a single statement over array parameters, when
+   * enabled and supported by the statement.
+   *
+   * @return number of rows affected, -1 if the batch must be executed as usual
+   * @throws SQLException if the execution fails
+   */
+  private long executeBatchAsSingleStatement() throws SQLException {
+    long rows = executeBatchAsCopy();
+    if (rows < 0) {
+      rows = executeBatchAsArrays();
+    }
+    return rows;
+  }
+
+  /**
+   * Executes the batch as a single COPY when {@code copyBatchedInserts} is enabled and the
+   * statement is a plain INSERT of parameters, see {@link CopyBatchedInsert}.
+   *
+   * @return number of rows inserted, -1 if the batch must be executed as usual
+   * @throws SQLException if the COPY fails
+   */
+  private long executeBatchAsCopy() throws SQLException {
+    ArrayList<@Nullable ParameterList> batchParameters = this.batchParameters;
+    if (batchParameters == null || batchParameters.size() <= 1 || wantsGeneratedKeysAlways
+        || !connection.getQueryExecutor().isCopyBatchedInsertsEnabled()
+        || preparedQuery.query.getSubqueries() != null) {
+      return -1;
+    }
+    String copySql = this.copySql;
+    if (copySql == null) {
+      copySql = CopyBatchedInsert.getCopySql(preparedQuery.query.getNativeSql(),
+          preparedParameters.getParameterCount());
+      if (copySql == null) {
+        copySql = "";
+      }
+      this.copySql = copySql;
+    }
+    if (copySql.isEmpty()) {
+      return -1;
+    }
+    checkClosed();
+    closeForNextExecution();
+    List<byte[]> data;
+    try {
+      data = CopyBatchedInsert.encode(connection.getEncoding(), batchParameters);
+    } catch (IOException e) {
+      throw new PSQLException(GT.tr("Unable to translate data into the desired encoding."),
+          PSQLState.DATA_ERROR, e);
+    }
+    if (data == null) {
+      // A value has no text form, e.g. a stream
+      return -1;
+    }
+    List<@Nullable ParameterList> entries = new ArrayList<@Nullable ParameterList>(batchParameters);
+    batchParameters.clear();
+    ArrayList<Query> batchStatements = this.batchStatements;
+    if (batchStatements != null) {
+      batchStatements.clear();
+    }
+
+    try {
+      startTimer();
+      return CopyBatchedInsert.copy(connection, copySql, data);
+    } catch (SQLException e) {
+      throw createBatchUpdateException(entries, CopyBatchedInsert.getFailedRow(e), e);
+    } finally {
+      killTimerTask();
+    }
+  }
+
+  /**
+   * Executes the batch as a single statement over {@code unnest} of array parameters when
+   * {@code reWriteBatchedAsArrays} is enabled, see {@link UnnestBatchedQuery}.
+   *
+   * @return number of rows affected, -1 if the batch must be executed as usual
+   * @throws SQLException if the statement fails
+   */
+  private long executeBatchAsArrays() throws SQLException {
+    ArrayList<@Nullable ParameterList> batchParameters = this.batchParameters;
+    QueryExecutor queryExecutor = connection.getQueryExecutor();
+    if (batchParameters == null || batchParameters.size() <= 1 || wantsGeneratedKeysAlways
+        || !queryExecutor.isReWriteBatchedAsArraysEnabled()
+        || preparedQuery.query.getSubqueries() != null) {
+      return -1;
+    }
+    String unnestSql = this.unnestSql;
+    if (unnestSql == null) {
+      unnestSql = UnnestBatchedQuery.rewrite(preparedQuery.query.getNativeSql(),
+          preparedParameters.getParameterCount(), connection.getStandardConformingStrings());
+      if (unnestSql == null) {
+        unnestSql = "";
+      }
+      this.unnestSql = unnestSql;
+    }
+    if (unnestSql.isEmpty()) {
+      return -1;
+    }
+    checkClosed();
+    CachedQuery cachedQuery =
+        queryExecutor.borrowQueryByKey(queryExecutor.createQueryKey(unnestSql, false, true));
+    try {
+      ParameterList arrays = cachedQuery.query.createParameterList();
+      if (!UnnestBatchedQuery.bind(connection, batchParameters, arrays)) {
+        // e.g. a value of unspecified type
+        return -1;
+      }
+      List<@Nullable ParameterList> entries = new ArrayList<@Nullable ParameterList>(batchParameters);
+      batchParameters.clear();
+      ArrayList<Query> batchStatements = this.batchStatements;
+      if (batchStatements != null) {
+        batchStatements.clear();
+      }
+
+      try {
+        execute(cachedQuery, arrays, QueryExecutor.QUERY_NO_RESULTS);
+      } catch (SQLException e) {
+        throw createBatchUpdateException(entries, -1, e);
+      }
+      return getLargeUpdateCount();
+    } finally {
+      queryExecutor.releaseQuery(cachedQuery);
+    }
+  }
+
+  /**
+   * Reports the failure of a batch executed as a single statement: no entry of the batch is
+   * applied.
+   */
+  private BatchUpdateException createBatchUpdateException(List<@Nullable ParameterList> entries,
+      int failedEntry, SQLException e) {
+    long[] updateCounts = new long[entries.size()];
+    Arrays.fill(updateCounts, Statement.EXECUTE_FAILED);
+    String entry = failedEntry >= 0 && failedEntry < entries.size()
+        ? failedEntry + " " + preparedQuery.query.toString(entries.get(failedEntry))
+        : "<unknown>";
+    BatchUpdateException batchException = new BatchUpdateException(
+        GT.tr("Batch entry {0} was aborted: {1}  Call getNextException to see other errors in the batch.",
+            entry, e.getMessage()),
+        e.getSQLState(), 0, updateCounts, e);
+    batchException.setNextException(e);
+    return batchException;
+  }
+
   private Calendar getDefaultCalendar() {
     TimestampUtils timestampUtils = connection.getTimestampUtils();
     if (timestampUtils.hasFastDefaultTimeZone()) {
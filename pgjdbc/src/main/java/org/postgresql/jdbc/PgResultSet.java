@@ -9,6 +9,7 @@ import static org.postgresql.util.internal.Nullness.castNonNull;
 
 import org.postgresql.PGResultSetMetaData;
 import org.postgresql.PGStatement;
+import org.postgresql.codec.TypeCodec;
 import org.postgresql.core.BaseConnection;
 import org.postgresql.core.BaseStatement;
 import org.postgresql.core.Encoding;
@@ -18,6 +19,7 @@ import org.postgresql.core.Query;
 import org.postgresql.core.ResultCursor;
 import org.postgresql.core.ResultHandlerBase;
 import org.postgresql.core.Tuple;
+import org.postgresql.core.TypeCodecRegistry;
 import org.postgresql.core.TypeInfo;
 import org.postgresql.core.Utils;
 import org.postgresql.util.ByteConverter;
@@ -69,6 +71,7 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -80,7 +83,8 @@ import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
-public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultSet {
+public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultSet,
+    org.postgresql.PGResultSet {
 
   // needed for updateable result set support
   private boolean updateable = false;
@@ -125,6 +129,19 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
   // Speed up findColumn by caching lookups
   private @Nullable Map<String, Integer> columnNameIndexMap;
 
+  private static final @Nullable TypeCodec[] NO_CODECS = new TypeCodec[0];
+
+  // 2000-01-01 00:00:00 UTC, the epoch of binary timestamps, in microseconds since 1970-01-01
+  private static final long PG_EPOCH_MICROS = 946684800L * 1000000L;
+
+  // Codecs registered for the column types, resolved on first use; empty if there are none
+  private @Nullable TypeCodec @Nullable [] columnCodecs;
+
+  // Rows of the batch of the last nextRows(), from batchStart to batchEnd (exclusive)
+  private @Nullable List<Tuple> batchRows;
+  private int batchStart;
+  private int batchEnd;
+
   private @Nullable ResultSetMetaData rsMetaData;
 
   protected ResultSetMetaData createMetaData() throws SQLException {
@@ -173,9 +190,35 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
     return getURL(findColumn(columnName));
   }
 
+  /**
+   * @param col the column index, starting from 0
+   * @return the codec registered for the type of the column, or null if there is none
+   */
+  private @Nullable TypeCodec getTypeCodec(int col) {
+    @Nullable TypeCodec[] codecs = columnCodecs;
+    if (codecs == null) {
+      codecs = NO_CODECS;
+      TypeCodecRegistry registry = connection.getTypeCodecRegistry();
+      if (!registry.isEmpty()) {
+        codecs = new TypeCodec[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+          codecs[i] = registry.get(fields[i].getOID());
+        }
+      }
+      columnCodecs = codecs;
+    }
+    return col < codecs.length ? codecs[col] : null;
+  }
+
   @RequiresNonNull({"thisRow"})
   protected @Nullable Object internalGetObject(@Positive int columnIndex, Field field) throws SQLException {
     castNonNull(thisRow, "thisRow");
+    int col = columnIndex - 1;
+    TypeCodec codec = getTypeCodec(col);
+    if (codec != null) {
+      return codec.decode(thisRow.fieldBuffer(col), thisRow.fieldOffset(col),
+          thisRow.fieldLength(col), isBinary(columnIndex), connection.getEncoding());
+    }
     switch (getSQLType(columnIndex)) {
       case Types.BOOLEAN:
       case Types.BIT:
@@ -850,7 +893,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
     rowOffset += rows_size - 1; // Discarding all but one row.
 
     // Work out how many rows maxRows will let us fetch.
-    int fetchRows = fetchSize;
+    int fetchRows = connection.getQueryExecutor().getAdaptiveFetchSize(cursor, fetchSize);
     if (maxRows != 0) {
       if (fetchRows == 0 || rowOffset + fetchRows > maxRows) {
         // Fetch would exceed maxRows, limit it.
@@ -1937,7 +1980,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       // Ask for some more data.
       rowOffset += rows.size(); // We are discarding some data.
 
-      int fetchRows = fetchSize;
+      int fetchRows = connection.getQueryExecutor().getAdaptiveFetchSize(cursor, fetchSize);
       if (maxRows != 0) {
         if (fetchRows == 0 || rowOffset + fetchRows > maxRows) {
           // Fetch would exceed maxRows, limit it.
@@ -1964,6 +2007,213 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
     return true;
   }
 
+  @Override
+  public int nextRows(int rowCount) throws SQLException {
+    if (rowCount <= 0) {
+      throw new PSQLException(GT.tr("The number of rows must be a value greater than 0."),
+          PSQLState.INVALID_PARAMETER_VALUE);
+    }
+    batchRows = null;
+    if (!next()) {
+      return 0;
+    }
+    List<Tuple> rows = castNonNull(this.rows);
+    int start = currentRow;
+    int count = Math.min(rowCount, rows.size() - start);
+    currentRow = start + count - 1;
+    initRowBuffer();
+    batchRows = rows;
+    batchStart = start;
+    batchEnd = start + count;
+    return count;
+  }
+
+  /**
+   * Checks that the result set is positioned by {@link #nextRows(int)}, and that the arrays hold
+   * the batch.
+   */
+  private List<Tuple> getBatchRows(@Positive int columnIndex, int length,
+      boolean @Nullable [] nulls) throws SQLException {
+    checkClosed();
+    List<Tuple> batchRows = this.batchRows;
+    if (batchRows == null || batchRows != rows || currentRow != batchEnd - 1) {
+      throw new PSQLException(
+          GT.tr("ResultSet not positioned properly, perhaps you need to call nextRows."),
+          PSQLState.INVALID_CURSOR_STATE);
+    }
+    checkColumnIndex(columnIndex);
+    int count = batchEnd - batchStart;
+    if (length < count || nulls != null && nulls.length < count) {
+      throw new PSQLException(GT.tr("The array is too small for {0} rows.", count),
+          PSQLState.INVALID_PARAMETER_VALUE);
+    }
+    return batchRows;
+  }
+
+  @Override
+  public int readColumn(@Positive int columnIndex, int[] values, boolean @Nullable [] nulls)
+      throws SQLException {
+    List<Tuple> batchRows = getBatchRows(columnIndex, values.length, nulls);
+    int col = columnIndex - 1;
+    int count = batchEnd - batchStart;
+    int oid = fields[col].getOID();
+    if (!isBinary(columnIndex) || getTypeCodec(col) != null
+        || (oid != Oid.INT4 && oid != Oid.INT2)) {
+      @Nullable Tuple current = thisRow;
+      try {
+        for (int i = 0; i < count; i++) {
+          thisRow = batchRows.get(batchStart + i);
+          values[i] = getInt(columnIndex);
+          if (nulls != null) {
+            nulls[i] = wasNullFlag;
+          }
+        }
+      } finally {
+        thisRow = current;
+      }
+      return count;
+    }
+    for (int i = 0; i < count; i++) {
+      Tuple row = batchRows.get(batchStart + i);
+      boolean isNull = row.fieldLength(col) < 0;
+      if (isNull) {
+        values[i] = 0;
+      } else if (oid == Oid.INT4) {
+        values[i] = ByteConverter.int4(row.fieldBuffer(col), row.fieldOffset(col));
+      } else {
+        values[i] = ByteConverter.int2(row.fieldBuffer(col), row.fieldOffset(col));
+      }
+      if (nulls != null) {
+        nulls[i] = isNull;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public int readColumn(@Positive int columnIndex, long[] values, boolean @Nullable [] nulls)
+      throws SQLException {
+    List<Tuple> batchRows = getBatchRows(columnIndex, values.length, nulls);
+    int col = columnIndex - 1;
+    int count = batchEnd - batchStart;
+    int oid = fields[col].getOID();
+    boolean timestamp = oid == Oid.TIMESTAMP || oid == Oid.TIMESTAMPTZ;
+    if (!isBinary(columnIndex) || getTypeCodec(col) != null
+        || (timestamp && !connection.getQueryExecutor().getIntegerDateTimes())
+        || (!timestamp && oid != Oid.INT8 && oid != Oid.INT4 && oid != Oid.INT2)) {
+      @Nullable Calendar utc =
+          timestamp ? new GregorianCalendar(TimeZone.getTimeZone("UTC")) : null;
+      @Nullable Tuple current = thisRow;
+      try {
+        for (int i = 0; i < count; i++) {
+          thisRow = batchRows.get(batchStart + i);
+          values[i] = utc != null ? toEpochMicros(getTimestamp(columnIndex, utc))
+              : getLong(columnIndex);
+          if (nulls != null) {
+            nulls[i] = wasNullFlag;
+          }
+        }
+      } finally {
+        thisRow = current;
+      }
+      return count;
+    }
+    for (int i = 0; i < count; i++) {
+      Tuple row = batchRows.get(batchStart + i);
+      boolean isNull = row.fieldLength(col) < 0;
+      if (isNull) {
+        values[i] = 0;
+      } else if (oid == Oid.INT4) {
+        values[i] = ByteConverter.int4(row.fieldBuffer(col), row.fieldOffset(col));
+      } else if (oid == Oid.INT2) {
+        values[i] = ByteConverter.int2(row.fieldBuffer(col), row.fieldOffset(col));
+      } else {
+        long value = ByteConverter.int8(row.fieldBuffer(col), row.fieldOffset(col));
+        if (timestamp && value != Long.MAX_VALUE && value != Long.MIN_VALUE) {
+          // microseconds since 2000-01-01
+          value += PG_EPOCH_MICROS;
+        }
+        values[i] = value;
+      }
+      if (nulls != null) {
+        nulls[i] = isNull;
+      }
+    }
+    return count;
+  }
+
+  private static long toEpochMicros(@Nullable Timestamp timestamp) {
+    if (timestamp == null) {
+      return 0;
+    }
+    long millis = timestamp.getTime();
+    if (millis == PGStatement.DATE_POSITIVE_INFINITY) {
+      return Long.MAX_VALUE;
+    }
+    if (millis == PGStatement.DATE_NEGATIVE_INFINITY) {
+      return Long.MIN_VALUE;
+    }
+    // getTime() includes the milliseconds of getNanos()
+    return Math.floorDiv(millis, 1000L) * 1000000L + timestamp.getNanos() / 1000;
+  }
+
+  @Override
+  public int readColumn(@Positive int columnIndex, double[] values, boolean @Nullable [] nulls)
+      throws SQLException {
+    List<Tuple> batchRows = getBatchRows(columnIndex, values.length, nulls);
+    int col = columnIndex - 1;
+    int count = batchEnd - batchStart;
+    int oid = fields[col].getOID();
+    if (!isBinary(columnIndex) || getTypeCodec(col) != null
+        || (oid != Oid.FLOAT8 && oid != Oid.FLOAT4 && oid != Oid.INT8 && oid != Oid.INT4
+            && oid != Oid.INT2)) {
+      @Nullable Tuple current = thisRow;
+      try {
+        for (int i = 0; i < count; i++) {
+          thisRow = batchRows.get(batchStart + i);
+          values[i] = getDouble(columnIndex);
+          if (nulls != null) {
+            nulls[i] = wasNullFlag;
+          }
+        }
+      } finally {
+        thisRow = current;
+      }
+      return count;
+    }
+    for (int i = 0; i < count; i++) {
+      Tuple row = batchRows.get(batchStart + i);
+      boolean isNull = row.fieldLength(col) < 0;
+      if (isNull) {
+        values[i] = 0;
+      } else {
+        byte[] buffer = row.fieldBuffer(col);
+        int offset = row.fieldOffset(col);
+        switch (oid) {
+          case Oid.FLOAT8:
+            values[i] = ByteConverter.float8(buffer, offset);
+            break;
+          case Oid.FLOAT4:
+            values[i] = ByteConverter.float4(buffer, offset);
+            break;
+          case Oid.INT8:
+            values[i] = ByteConverter.int8(buffer, offset);
+            break;
+          case Oid.INT4:
+            values[i] = ByteConverter.int4(buffer, offset);
+            break;
+          default:
+            values[i] = ByteConverter.int2(buffer, offset);
+            break;
+        }
+      }
+      if (nulls != null) {
+        nulls[i] = isNull;
+      }
+    }
+    return count;
+  }
+
   public void close() throws SQLException {
     try {
       closeInternally();
@@ -1998,11 +2248,18 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
   @Override
   public @Nullable String getString(@Positive int columnIndex) throws SQLException {
     connection.getLogger().log(Level.FINEST, "  getString columnIndex: {0}", columnIndex);
-    byte[] value = getRawValue(columnIndex);
-    if (value == null) {
+    int length = getRawValueLength(columnIndex);
+    if (length < 0) {
       return null;
     }
 
+    TypeCodec codec = getTypeCodec(columnIndex - 1);
+    if (codec != null && isBinary(columnIndex)) {
+      int col = columnIndex - 1;
+      return codec.encodeText(codec.decode(thisRow.fieldBuffer(col), thisRow.fieldOffset(col),
+          length, true, connection.getEncoding()));
+    }
+
     // varchar in binary is same as text, other binary fields are converted to their text format
     if (isBinary(columnIndex) && getSQLType(columnIndex) != Types.VARCHAR) {
       Field field = fields[columnIndex - 1];
@@ -2030,7 +2287,9 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
 
     Encoding encoding = connection.getEncoding();
     try {
-      return trimString(columnIndex, encoding.decode(value));
+      int col = columnIndex - 1;
+      return trimString(columnIndex,
+          encoding.decode(thisRow.fieldBuffer(col), thisRow.fieldOffset(col), length));
     } catch (IOException ioe) {
       throw new PSQLException(
           GT.tr(
@@ -2139,18 +2398,18 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
   @Override
   public short getShort(@Positive int columnIndex) throws SQLException {
     connection.getLogger().log(Level.FINEST, "  getShort columnIndex: {0}", columnIndex);
-    byte[] value = getRawValue(columnIndex);
-    if (value == null) {
+    int length = getRawValueLength(columnIndex);
+    if (length < 0) {
       return 0; // SQL NULL
     }
 
+    int col = columnIndex - 1;
     if (isBinary(columnIndex)) {
-      int col = columnIndex - 1;
       int oid = fields[col].getOID();
       if (oid == Oid.INT2) {
-        return ByteConverter.int2(value, 0);
+        return ByteConverter.int2(thisRow.fieldBuffer(col), thisRow.fieldOffset(col));
       }
-      return (short) readLongValue(value, oid, Short.MIN_VALUE, Short.MAX_VALUE, "short");
+      return (short) readLongValue(castNonNull(thisRow.get(col)), oid, Short.MIN_VALUE, Short.MAX_VALUE, "short");
     }
 
     return toShort(getFixedString(columnIndex));
@@ -2160,24 +2419,29 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
   @Override
   public int getInt(@Positive int columnIndex) throws SQLException {
     connection.getLogger().log(Level.FINEST, "  getInt columnIndex: {0}", columnIndex);
-    byte[] value = getRawValue(columnIndex);
-    if (value == null) {
+    int length = getRawValueLength(columnIndex);
+    if (length < 0) {
       return 0; // SQL NULL
     }
 
+    int col = columnIndex - 1;
+    TypeCodec codec = getTypeCodec(col);
+    if (codec != null) {
+      return codec.decodeInt(thisRow.fieldBuffer(col), thisRow.fieldOffset(col), length,
+          isBinary(columnIndex), connection.getEncoding());
+    }
     if (isBinary(columnIndex)) {
-      int col = columnIndex - 1;
       int oid = fields[col].getOID();
       if (oid == Oid.INT4) {
-        return ByteConverter.int4(value, 0);
+        return ByteConverter.int4(thisRow.fieldBuffer(col), thisRow.fieldOffset(col));
       }
-      return (int) readLongValue(value, oid, Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
+      return (int) readLongValue(castNonNull(thisRow.get(col)), oid, Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
     }
 
     Encoding encoding = connection.getEncoding();
     if (encoding.hasAsciiNumbers()) {
       try {
-        return getFastInt(value);
+        return getFastInt(thisRow.fieldBuffer(col), thisRow.fieldOffset(col), length);
       } catch (NumberFormatException ignored) {
       }
     }
@@ -2188,24 +2452,29 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
   @Override
   public long getLong(@Positive int columnIndex) throws SQLException {
     connection.getLogger().log(Level.FINEST, "  getLong columnIndex: {0}", columnIndex);
-    byte[] value = getRawValue(columnIndex);
-    if (value == null) {
+    int length = getRawValueLength(columnIndex);
+    if (length < 0) {
       return 0; // SQL NULL
     }
 
+    int col = columnIndex - 1;
+    TypeCodec codec = getTypeCodec(col);
+    if (codec != null) {
+      return codec.decodeLong(thisRow.fieldBuffer(col), thisRow.fieldOffset(col), length,
+          isBinary(columnIndex), connection.getEncoding());
+    }
     if (isBinary(columnIndex)) {
-      int col = columnIndex - 1;
       int oid = fields[col].getOID();
       if (oid == Oid.INT8) {
-        return ByteConverter.int8(value, 0);
+        return ByteConverter.int8(thisRow.fieldBuffer(col), thisRow.fieldOffset(col));
       }
-      return readLongValue(value, oid, Long.MIN_VALUE, Long.MAX_VALUE, "long");
+      return readLongValue(castNonNull(thisRow.get(col)), oid, Long.MIN_VALUE, Long.MAX_VALUE, "long");
     }
 
     Encoding encoding = connection.getEncoding();
     if (encoding.hasAsciiNumbers()) {
       try {
-        return getFastLong(value);
+        return getFastLong(thisRow.fieldBuffer(col), thisRow.fieldOffset(col), length);
       } catch (NumberFormatException ignored) {
       }
     }
@@ -2234,34 +2503,37 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
    * Optimised byte[] to number parser. This code does not handle null values, so the caller must do
    * checkResultSet and handle null values prior to calling this function.
    *
-   * @param bytes integer represented as a sequence of ASCII bytes
+   * @param bytes buffer that holds the integer represented as a sequence of ASCII bytes
+   * @param offset position of the first byte of the integer
+   * @param length number of bytes of the integer
    * @return The parsed number.
    * @throws NumberFormatException If the number is invalid or the out of range for fast parsing.
    *         The value must then be parsed by {@link #toLong(String)}.
    */
-  private long getFastLong(byte[] bytes) throws NumberFormatException {
-    if (bytes.length == 0) {
+  private long getFastLong(byte[] bytes, int offset, int length) throws NumberFormatException {
+    if (length == 0) {
       throw FAST_NUMBER_FAILED;
     }
 
     long val = 0;
     int start;
     boolean neg;
-    if (bytes[0] == '-') {
+    if (bytes[offset] == '-') {
       neg = true;
-      start = 1;
-      if (bytes.length == 1 || bytes.length > 19) {
+      start = offset + 1;
+      if (length == 1 || length > 19) {
         throw FAST_NUMBER_FAILED;
       }
     } else {
-      start = 0;
+      start = offset;
       neg = false;
-      if (bytes.length > 18) {
+      if (length > 18) {
         throw FAST_NUMBER_FAILED;
       }
     }
 
-    while (start < bytes.length) {
+    int end = offset + length;
+    while (start < end) {
       byte b = bytes[start++];
       if (b < '0' || b > '9') {
         throw FAST_NUMBER_FAILED;
@@ -2282,34 +2554,37 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
    * Optimised byte[] to number parser. This code does not handle null values, so the caller must do
    * checkResultSet and handle null values prior to calling this function.
    *
-   * @param bytes integer represented as a sequence of ASCII bytes
+   * @param bytes buffer that holds the integer represented as a sequence of ASCII bytes
+   * @param offset position of the first byte of the integer
+   * @param length number of bytes of the integer
    * @return The parsed number.
    * @throws NumberFormatException If the number is invalid or the out of range for fast parsing.
    *         The value must then be parsed by {@link #toInt(String)}.
    */
-  private int getFastInt(byte[] bytes) throws NumberFormatException {
-    if (bytes.length == 0) {
+  private int getFastInt(byte[] bytes, int offset, int length) throws NumberFormatException {
+    if (length == 0) {
       throw FAST_NUMBER_FAILED;
     }
 
     int val = 0;
     int start;
     boolean neg;
-    if (bytes[0] == '-') {
+    if (bytes[offset] == '-') {
       neg = true;
-      start = 1;
-      if (bytes.length == 1 || bytes.length > 10) {
+      start = offset + 1;
+      if (length == 1 || length > 10) {
         throw FAST_NUMBER_FAILED;
       }
     } else {
-      start = 0;
+      start = offset;
       neg = false;
-      if (bytes.length > 9) {
+      if (length > 9) {
         throw FAST_NUMBER_FAILED;
       }
     }
 
-    while (start < bytes.length) {
+    int end = offset + length;
+    while (start < end) {
       byte b = bytes[start++];
       if (b < '0' || b > '9') {
         throw FAST_NUMBER_FAILED;
@@ -2390,18 +2665,25 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
   @Override
   public float getFloat(@Positive int columnIndex) throws SQLException {
     connection.getLogger().log(Level.FINEST, "  getFloat columnIndex: {0}", columnIndex);
-    byte[] value = getRawValue(columnIndex);
-    if (value == null) {
+    int length = getRawValueLength(columnIndex);
+    if (length < 0) {
       return 0; // SQL NULL
     }
 
+    TypeCodec codec = getTypeCodec(columnIndex - 1);
+    if (codec != null) {
+      int col = columnIndex - 1;
+      return (float) codec.decodeDouble(thisRow.fieldBuffer(col), thisRow.fieldOffset(col), length,
+          isBinary(columnIndex), connection.getEncoding());
+    }
+
     if (isBinary(columnIndex)) {
       int col = columnIndex - 1;
       int oid = fields[col].getOID();
       if (oid == Oid.FLOAT4) {
-        return ByteConverter.float4(value, 0);
+        return ByteConverter.float4(thisRow.fieldBuffer(col), thisRow.fieldOffset(col));
       }
-      return (float) readDoubleValue(value, oid, "float");
+      return (float) readDoubleValue(castNonNull(thisRow.get(col)), oid, "float");
     }
 
     return toFloat(getFixedString(columnIndex));
@@ -2411,18 +2693,25 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
   @Override
   public double getDouble(@Positive int columnIndex) throws SQLException {
     connection.getLogger().log(Level.FINEST, "  getDouble columnIndex: {0}", columnIndex);
-    byte[] value = getRawValue(columnIndex);
-    if (value == null) {
+    int length = getRawValueLength(columnIndex);
+    if (length < 0) {
       return 0; // SQL NULL
     }
 
+    TypeCodec codec = getTypeCodec(columnIndex - 1);
+    if (codec != null) {
+      int col = columnIndex - 1;
+      return codec.decodeDouble(thisRow.fieldBuffer(col), thisRow.fieldOffset(col), length,
+          isBinary(columnIndex), connection.getEncoding());
+    }
+
     if (isBinary(columnIndex)) {
       int col = columnIndex - 1;
       int oid = fields[col].getOID();
       if (oid == Oid.FLOAT8) {
-        return ByteConverter.float8(value, 0);
+        return ByteConverter.float8(thisRow.fieldBuffer(col), thisRow.fieldOffset(col));
       }
-      return readDoubleValue(value, oid, "double");
+      return readDoubleValue(castNonNull(thisRow.get(col)), oid, "double");
     }
 
     return toDouble(getFixedString(columnIndex));
@@ -2941,6 +3230,28 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
     return bytes;
   }
 
+  /**
+   * Same as {@link #getRawValue(int)}, but returns the length of the value instead of the value
+   * itself, so the caller can read it from {@link Tuple#fieldBuffer(int)} without copying.
+   *
+   * @param column The column number to check. Range starts from 1.
+   * @return length of the raw value in bytes, or -1 if the value is null
+   * @throws SQLException If state or column is invalid.
+   */
+  @EnsuresNonNull("thisRow")
+  private int getRawValueLength(@Positive int column) throws SQLException {
+    checkClosed();
+    if (thisRow == null) {
+      throw new PSQLException(
+          GT.tr("ResultSet not positioned properly, perhaps you need to call next."),
+          PSQLState.INVALID_CURSOR_STATE);
+    }
+    checkColumnIndex(column);
+    int length = thisRow.fieldLength(column - 1);
+    wasNullFlag = length < 0;
+    return length;
+  }
+
   /**
    * Returns true if the value of the given column is in binary format.
    *
@@ -36,8 +36,12 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.TimerTask;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
 
 public class PgStatement implements Statement, BaseStatement {
   private static final String[] NO_RETURNING_COLUMNS = new String[0];
@@ -368,6 +372,20 @@ public class PgStatement implements Statement, BaseStatement {
     }
   }
 
+  /**
+   * Makes the results of an execution that was performed by a {@link PgPipeline} available via
+   * {@link #getResultSet()} and {@link #getUpdateCount()}.
+   *
+   * @param results results of the execution
+   * @throws SQLException if the statement has been closed meanwhile
+   */
+  void setResults(@Nullable ResultWrapper results) throws SQLException {
+    synchronized (this) {
+      checkClosed();
+      result = firstUnclosedResult = results;
+    }
+  }
+
   /**
    * Returns true if query is unlikely to be reused.
    *
@@ -408,10 +426,104 @@ public class PgStatement implements Statement, BaseStatement {
       throws SQLException {
     closeForNextExecution();
 
+    flags = executionFlags(cachedQuery, flags);
+    Query queryToExecute = cachedQuery.query;
+
+    if (!queryToExecute.isStatementDescribed() && forceBinaryTransfers
+        && (flags & QueryExecutor.QUERY_EXECUTE_AS_SIMPLE) == 0) {
+      // Simple 'Q' execution does not need to know parameter types
+      // When binaryTransfer is forced, then we need to know resulting parameter and column types,
+      // thus sending a describe request.
+      int flags2 = flags | QueryExecutor.QUERY_DESCRIBE_ONLY;
+      StatementResultHandler handler2 = new StatementResultHandler();
+      connection.getQueryExecutor().execute(queryToExecute, queryParameters, handler2, 0, 0,
+          flags2);
+      ResultWrapper result2 = handler2.getResults();
+      if (result2 != null) {
+        castNonNull(result2.getResultSet(), "result2.getResultSet()").close();
+      }
+    }
+
+    StatementResultHandler handler = new StatementResultHandler();
+    synchronized (this) {
+      result = null;
+    }
+    try {
+      startTimer();
+      connection.getQueryExecutor().execute(queryToExecute, queryParameters, handler, maxrows,
+          fetchSize, flags);
+    } finally {
+      killTimerTask();
+    }
+    synchronized (this) {
+      checkClosed();
+      setExecutionResults(handler.getResults());
+    }
+  }
+
+  /**
+   * Executes the query without waiting for the results, see
+   * {@link QueryExecutor#executeAsync(Query, ParameterList, ResultHandler, int, int, int)}. The
+   * results are made available via {@link #getResultSet()} and {@link #getUpdateCount()} before
+   * the returned future completes.
+   *
+   * @param cachedQuery query to execute
+   * @param queryParameters parameters of the query, they must not be modified until the future
+   *     completes
+   * @param flags execution flags
+   * @return future that completes once the results are available
+   * @throws SQLException if the query cannot be submitted
+   */
+  protected final CompletableFuture<Void> executeAsync(CachedQuery cachedQuery,
+      @Nullable ParameterList queryParameters, int flags) throws SQLException {
+    closeForNextExecution();
+
+    flags = executionFlags(cachedQuery, flags);
+    final StatementResultHandler handler = new StatementResultHandler();
+    synchronized (this) {
+      result = null;
+    }
+    return connection.getQueryExecutor().executeAsync(cachedQuery.query, queryParameters, handler,
+        maxrows, fetchSize, flags).thenApply(new Function<Void, Void>() {
+          @Override
+          public Void apply(Void ignored) {
+            synchronized (PgStatement.this) {
+              try {
+                checkClosed();
+              } catch (SQLException e) {
+                throw new CompletionException(e);
+              }
+              setExecutionResults(handler.getResults());
+            }
+            return null;
+          }
+        });
+  }
+
+  /**
+   * Installs the results of an execution. The caller must hold the lock of the statement.
+   */
+  private void setExecutionResults(@Nullable ResultWrapper currentResult) {
+    result = firstUnclosedResult = currentResult;
+
+    if (wantsGeneratedKeysOnce || wantsGeneratedKeysAlways) {
+      generatedKeys = currentResult;
+      result = castNonNull(currentResult, "handler.getResults()").getNext();
+
+      if (wantsGeneratedKeysOnce) {
+        wantsGeneratedKeysOnce = false;
+      }
+    }
+  }
+
+  private int executionFlags(CachedQuery cachedQuery, int flags) throws SQLException {
     // Enable cursor-based resultset if possible.
     if (fetchSize > 0 && !wantsScrollableResultSet() && !connection.getAutoCommit()
         && !wantsHoldableResultSet()) {
       flags |= QueryExecutor.QUERY_FORWARD_CURSOR;
+    } else if (connection.getQueryExecutor().isStreamResultsEnabled()
+        && !wantsScrollableResultSet() && concurrency == ResultSet.CONCUR_READ_ONLY) {
+      flags |= QueryExecutor.QUERY_STREAM_ROWS;
     }
 
     if (wantsGeneratedKeysOnce || wantsGeneratedKeysAlways) {
@@ -443,53 +555,10 @@ public class PgStatement implements Statement, BaseStatement {
       flags |= QueryExecutor.QUERY_NO_BINARY_TRANSFER;
     }
 
-    Query queryToExecute = cachedQuery.query;
-
-    if (queryToExecute.isEmpty()) {
+    if (cachedQuery.query.isEmpty()) {
       flags |= QueryExecutor.QUERY_SUPPRESS_BEGIN;
     }
-
-    if (!queryToExecute.isStatementDescribed() && forceBinaryTransfers
-        && (flags & QueryExecutor.QUERY_EXECUTE_AS_SIMPLE) == 0) {
-      // Simple 'Q' execution does not need to know parameter types
-      // When binaryTransfer is forced, then we need to know resulting parameter and column types,
-      // thus sending a describe request.
-      int flags2 = flags | QueryExecutor.QUERY_DESCRIBE_ONLY;
-      StatementResultHandler handler2 = new StatementResultHandler();
-      connection.getQueryExecutor().execute(queryToExecute, queryParameters, handler2, 0, 0,
-          flags2);
-      ResultWrapper result2 = handler2.getResults();
-      if (result2 != null) {
-        castNonNull(result2.getResultSet(), "result2.getResultSet()").close();
-      }
-    }
-
-    StatementResultHandler handler = new StatementResultHandler();
-    synchronized (this) {
-      result = null;
-    }
-    try {
-      startTimer();
-      connection.getQueryExecutor().execute(queryToExecute, queryParameters, handler, maxrows,
-          fetchSize, flags);
-    } finally {
-      killTimerTask();
-    }
-    synchronized (this) {
-      checkClosed();
-
-      ResultWrapper currentResult = handler.getResults();
-      result = firstUnclosedResult = currentResult;
-
-      if (wantsGeneratedKeysOnce || wantsGeneratedKeysAlways) {
-        generatedKeys = currentResult;
-        result = castNonNull(currentResult, "handler.getResults()").getNext();
-
-        if (wantsGeneratedKeysOnce) {
-          wantsGeneratedKeysOnce = false;
-        }
-      }
-    }
+    return flags;
   }
 
   public void setCursorName(String name) throws SQLException {
@@ -902,13 +971,13 @@ public class PgStatement implements Statement, BaseStatement {
       // Not in query, there's nothing to cancel
       return;
     }
-    // Synchronize on connection to avoid spinning in killTimerTask
-    synchronized (connection) {
+    // Lock the connection to avoid spinning in killTimerTask
+    try (ResourceLock ignore = connection.obtainLock()) {
       try {
         connection.cancelQuery();
       } finally {
         STATE_UPDATER.set(this, StatementCancelState.CANCELLED);
-        connection.notifyAll(); // wake-up killTimerTask
+        connection.lockCondition().signalAll(); // wake-up killTimerTask
       }
     }
   }
@@ -951,7 +1020,7 @@ public class PgStatement implements Statement, BaseStatement {
     fetchSize = rows;
   }
 
-  private void startTimer() {
+  void startTimer() {
     /*
      * there shouldn't be any previous timer active, but better safe than sorry.
      */
@@ -1002,7 +1071,7 @@ public class PgStatement implements Statement, BaseStatement {
     return true;
   }
 
-  private void killTimerTask() {
+  void killTimerTask() {
     boolean timerTaskIsClear = cleanupTimer();
     // The order is important here: in case we need to wait for the cancel task, the state must be
     // kept StatementCancelState.IN_QUERY, so cancelTask would be able to cancel the query.
@@ -1016,14 +1085,14 @@ public class PgStatement implements Statement, BaseStatement {
     // "timeout error"
     // We wait till state becomes "cancelled"
     boolean interrupted = false;
-    synchronized (connection) {
-      // state check is performed under synchronized so it detects "cancelled" state faster
-      // In other words, it prevents unnecessary ".wait()" call
+    try (ResourceLock ignore = connection.obtainLock()) {
+      // state check is performed under the lock so it detects "cancelled" state faster
+      // In other words, it prevents unnecessary ".await()" call
       while (!STATE_UPDATER.compareAndSet(this, StatementCancelState.CANCELLED, StatementCancelState.IDLE)) {
         try {
-          // Note: wait timeout here is irrelevant since synchronized(connection) would block until
+          // Note: wait timeout here is irrelevant since obtainLock() would block until
           // .cancel finishes
-          connection.wait(10);
+          connection.lockCondition().await(10, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) { // NOSONAR
           // Either re-interrupt this method or rethrow the "InterruptedException"
           interrupted = true;
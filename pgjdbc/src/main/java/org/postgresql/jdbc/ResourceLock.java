@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>Reentrant lock that can be used with try-with-resources:</p>
+ *
+ * <pre>
+ * try (ResourceLock ignore = lock.obtain()) {
+ *   // guarded code
+ * }
+ * </pre>
+ *
+ * <p>The driver uses it instead of {@code synchronized} blocks around network I/O: a virtual thread
+ * that blocks while holding a monitor pins its carrier thread, while it does not when holding a
+ * {@link java.util.concurrent.locks.Lock}.</p>
+ */
+public final class ResourceLock extends ReentrantLock implements AutoCloseable {
+  private static final long serialVersionUID = 8459051451899973878L;
+
+  /**
+   * Obtains the lock, waiting if necessary.
+   *
+   * @return this, so the lock is released when the try-with-resources block completes
+   */
+  public ResourceLock obtain() {
+    lock();
+    return this;
+  }
+
+  /**
+   * Releases the lock.
+   */
+  @Override
+  public void close() {
+    unlock();
+  }
+}
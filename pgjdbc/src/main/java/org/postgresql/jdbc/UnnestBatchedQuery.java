@@ -0,0 +1,404 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Oid;
+import org.postgresql.core.ParameterList;
+import org.postgresql.core.Parser;
+import org.postgresql.core.TypeInfo;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <p>Executes the batch of an INSERT, UPDATE or DELETE statement as a single statement that joins
+ * {@code unnest} of one array parameter per bind parameter of the original statement, see
+ * {@link org.postgresql.PGProperty#REWRITE_BATCHED_AS_ARRAYS}. For instance</p>
+ *
+ * <pre>
+ * UPDATE t SET v = $1 WHERE id = $2
+ * </pre>
+ *
+ * <p>is executed as</p>
+ *
+ * <pre>
+ * UPDATE t SET v = pgjdbc_batch.p1 FROM unnest($1, $2) AS pgjdbc_batch(p1, p2)
+ *   WHERE id = pgjdbc_batch.p2
+ * </pre>
+ *
+ * <p>The text of the rewritten statement does not depend on the size of the batch, so it is
+ * prepared once on the server.</p>
+ */
+class UnnestBatchedQuery {
+  private static final String ALIAS = "pgjdbc_batch";
+
+  private UnnestBatchedQuery() {
+  }
+
+  /**
+   * Returns the statement that executes a batch of the given statement over array parameters.
+   * The statement must be a single INSERT with one row of VALUES, and no parameter out of
+   * VALUES, or an UPDATE or DELETE with a WHERE clause that uses a parameter. Statements with
+   * {@code RETURNING}, with a {@code FROM} (UPDATE) or {@code USING} (DELETE) clause, or
+   * starting with {@code WITH}, are not supported. Neither is {@code ON CONFLICT}: the entries of a
+   * batch that conflict with each other would fail, or be handled differently, in a single
+   * statement.
+   *
+   * @param nativeSql statement, with {@code $n} parameter placeholders
+   * @param parameterCount number of parameters of the statement
+   * @param standardConformingStrings if backslashes are ordinary characters in string literals
+   * @return the rewritten statement, with {@code ?} placeholders, null if the statement is not
+   *     supported
+   */
+  static @Nullable String rewrite(String nativeSql, int parameterCount,
+      boolean standardConformingStrings) {
+    if (parameterCount == 0) {
+      return null;
+    }
+    char[] sql = nativeSql.toCharArray();
+    // parameter index of the placeholder starting at each offset, 0 if none
+    int[] placeholders = new int[sql.length];
+    int[] parameterOffsets = new int[parameterCount + 1];
+    Arrays.fill(parameterOffsets, -1);
+    boolean[] questionMarks = new boolean[sql.length];
+    List<String> words = new ArrayList<String>();
+    List<Integer> wordOffsets = new ArrayList<Integer>();
+    List<Integer> parentheses = new ArrayList<Integer>();
+    boolean hasDefault = false;
+    int depth = 0;
+    for (int i = 0; i < sql.length; i++) {
+      char c = sql[i];
+      switch (c) {
+        case '\'':
+          i = Parser.parseSingleQuotes(sql, i, standardConformingStrings);
+          break;
+        case '"':
+          i = Parser.parseDoubleQuotes(sql, i);
+          break;
+        case '-':
+          i = Parser.parseLineComment(sql, i);
+          break;
+        case '/':
+          i = Parser.parseBlockComment(sql, i);
+          break;
+        case '$':
+          if (i + 1 < sql.length && Character.isDigit(sql[i + 1])) {
+            int end = i + 1;
+            while (end < sql.length && Character.isDigit(sql[end])) {
+              end++;
+            }
+            int index = Integer.parseInt(nativeSql.substring(i + 1, end));
+            if (index == 0 || index > parameterCount || parameterOffsets[index] >= 0) {
+              return null;
+            }
+            placeholders[i] = index;
+            parameterOffsets[index] = i;
+            i = end - 1;
+          } else {
+            i = Parser.parseDollarQuotes(sql, i);
+          }
+          break;
+        case '(':
+          if (depth++ == 0) {
+            parentheses.add(i);
+          }
+          break;
+        case ')':
+          if (--depth == 0) {
+            parentheses.add(i);
+          } else if (depth < 0) {
+            return null;
+          }
+          break;
+        case '?':
+          questionMarks[i] = true;
+          break;
+        default:
+          if (Parser.isIdentifierStartChar(c)
+              && (i == 0 || !Parser.isIdentifierContChar(sql[i - 1]))) {
+            int end = i + 1;
+            while (end < sql.length && Parser.isIdentifierContChar(sql[end])) {
+              end++;
+            }
+            String word = nativeSql.substring(i, end).toLowerCase(Locale.ROOT);
+            hasDefault |= word.equals("default");
+            if (depth == 0) {
+              words.add(word);
+              wordOffsets.add(i);
+            }
+            i = end - 1;
+          }
+          break;
+      }
+    }
+    for (int index = 1; index <= parameterCount; index++) {
+      if (parameterOffsets[index] < 0) {
+        return null;
+      }
+    }
+    int conflict = words.lastIndexOf("conflict");
+    if (words.isEmpty() || words.contains("returning")
+        || conflict > 0 && words.get(conflict - 1).equals("on")) {
+      return null;
+    }
+
+    StringBuilder sb = new StringBuilder(nativeSql.length() + 16 * parameterCount + 64);
+    String command = words.get(0);
+    if (command.equals("insert")) {
+      int values = words.indexOf("values");
+      if (values < 0 || values != words.lastIndexOf("values") || words.contains("select")
+          || hasDefault) {
+        return null;
+      }
+      int valuesEnd = wordOffsets.get(values) + "values".length();
+      int open = parentheses.indexOf(nextNonSpace(sql, valuesEnd));
+      if (open < 0 || open + 1 >= parentheses.size()) {
+        return null;
+      }
+      int openOffset = parentheses.get(open);
+      int closeOffset = parentheses.get(open + 1);
+      int next = nextNonSpace(sql, closeOffset + 1);
+      if (next < sql.length && sql[next] == ',') {
+        // several rows
+        return null;
+      }
+      for (int index = 1; index <= parameterCount; index++) {
+        if (parameterOffsets[index] < openOffset || parameterOffsets[index] > closeOffset) {
+          return null;
+        }
+      }
+      append(sb, sql, 0, wordOffsets.get(values), placeholders, questionMarks);
+      sb.append("SELECT ");
+      append(sb, sql, openOffset + 1, closeOffset, placeholders, questionMarks);
+      sb.append(' ');
+      appendUnnest(sb, "FROM", parameterCount);
+      append(sb, sql, closeOffset + 1, sql.length, placeholders, questionMarks);
+      return sb.toString();
+    }
+
+    String join;
+    if (command.equals("update")) {
+      join = "FROM";
+    } else if (command.equals("delete")) {
+      join = "USING";
+    } else {
+      return null;
+    }
+    int where = words.indexOf("where");
+    if (where < 0 || where != words.lastIndexOf("where")
+        || words.subList(0, where).contains(join.toLowerCase(Locale.ROOT))
+        || (where + 1 < words.size() && words.get(where + 1).equals("current"))) {
+      return null;
+    }
+    int whereOffset = wordOffsets.get(where);
+    boolean filtered = false;
+    for (int index = 1; index <= parameterCount; index++) {
+      filtered |= parameterOffsets[index] > whereOffset;
+    }
+    if (!filtered) {
+      // every entry of the batch would apply to the same rows
+      return null;
+    }
+    append(sb, sql, 0, whereOffset, placeholders, questionMarks);
+    appendUnnest(sb, join, parameterCount);
+    sb.append(' ');
+    append(sb, sql, whereOffset, sql.length, placeholders, questionMarks);
+    return sb.toString();
+  }
+
+  private static int nextNonSpace(char[] sql, int offset) {
+    while (offset < sql.length && Parser.isSpace(sql[offset])) {
+      offset++;
+    }
+    return offset;
+  }
+
+  /**
+   * Appends a part of the native statement, with the placeholders replaced by the columns of the
+   * unnested arrays, and with the question marks escaped for the JDBC parser.
+   */
+  private static void append(StringBuilder sb, char[] sql, int start, int end, int[] placeholders,
+      boolean[] questionMarks) {
+    for (int i = start; i < end; i++) {
+      int index = placeholders[i];
+      if (index != 0) {
+        sb.append(ALIAS).append(".p").append(index);
+        i += Integer.toString(index).length();
+      } else if (questionMarks[i]) {
+        sb.append("??");
+      } else {
+        sb.append(sql[i]);
+      }
+    }
+  }
+
+  private static void appendUnnest(StringBuilder sb, String join, int parameterCount) {
+    sb.append(join).append(" unnest(");
+    for (int index = 1; index <= parameterCount; index++) {
+      sb.append(index == 1 ? "?" : ", ?");
+    }
+    sb.append(") AS ").append(ALIAS).append('(');
+    for (int index = 1; index <= parameterCount; index++) {
+      if (index > 1) {
+        sb.append(", ");
+      }
+      sb.append('p').append(index);
+    }
+    sb.append(')');
+  }
+
+  /**
+   * Binds the values of each parameter of the batch entries as one array. The values of a
+   * parameter must have the same type in all the entries, except for nulls of unspecified type.
+   *
+   * @param connection connection the statement is executed on
+   * @param rows parameters of the batch entries
+   * @param arrays parameters of the rewritten statement
+   * @return false if a parameter cannot be bound as an array, e.g. its type is not specified
+   * @throws SQLException if a parameter is not bound
+   */
+  static boolean bind(BaseConnection connection, List<@Nullable ParameterList> rows,
+      ParameterList arrays) throws SQLException {
+    int parameterCount = arrays.getParameterCount();
+    for (int index = 1; index <= parameterCount; index++) {
+      int oid = Oid.UNSPECIFIED;
+      @Nullable String[] values = new String[rows.size()];
+      for (int i = 0; i < values.length; i++) {
+        ParameterList row = rows.get(i);
+        if (row == null) {
+          return false;
+        }
+        String value;
+        try {
+          value = row.getTextValue(index);
+        } catch (PSQLException e) {
+          if (PSQLState.NOT_IMPLEMENTED.getState().equals(e.getSQLState())) {
+            return false;
+          }
+          throw e;
+        }
+        int rowOid = row.getTypeOIDs()[index - 1];
+        if (rowOid == Oid.UNSPECIFIED) {
+          if (value != null) {
+            return false;
+          }
+        } else if (oid == Oid.UNSPECIFIED) {
+          oid = rowOid;
+        } else if (oid != rowOid) {
+          return false;
+        }
+        values[i] = value;
+      }
+      if (oid == Oid.UNSPECIFIED || !bindArray(connection, arrays, index, oid, values)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean bindArray(BaseConnection connection, ParameterList arrays, int index,
+      int oid, @Nullable String[] values) throws SQLException {
+    try {
+      switch (oid) {
+        case Oid.INT2: {
+          Short[] array = new Short[values.length];
+          for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            array[i] = value == null ? null : Short.valueOf(value);
+          }
+          bindBinary(connection, arrays, index, array, Oid.INT2_ARRAY);
+          return true;
+        }
+        case Oid.INT4: {
+          Integer[] array = new Integer[values.length];
+          for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            array[i] = value == null ? null : Integer.valueOf(value);
+          }
+          bindBinary(connection, arrays, index, array, Oid.INT4_ARRAY);
+          return true;
+        }
+        case Oid.INT8: {
+          Long[] array = new Long[values.length];
+          for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            array[i] = value == null ? null : Long.valueOf(value);
+          }
+          bindBinary(connection, arrays, index, array, Oid.INT8_ARRAY);
+          return true;
+        }
+        case Oid.FLOAT4: {
+          Float[] array = new Float[values.length];
+          for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            array[i] = value == null ? null : Float.valueOf(value);
+          }
+          bindBinary(connection, arrays, index, array, Oid.FLOAT4_ARRAY);
+          return true;
+        }
+        case Oid.FLOAT8: {
+          Double[] array = new Double[values.length];
+          for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            array[i] = value == null ? null : Double.valueOf(value);
+          }
+          bindBinary(connection, arrays, index, array, Oid.FLOAT8_ARRAY);
+          return true;
+        }
+        case Oid.BOOL: {
+          Boolean[] array = new Boolean[values.length];
+          for (int i = 0; i < values.length; i++) {
+            String value = values[i];
+            array[i] = value == null ? null : BooleanTypeUtil.fromString(value);
+          }
+          bindBinary(connection, arrays, index, array, Oid.BOOL_ARRAY);
+          return true;
+        }
+        case Oid.TEXT:
+          bindBinary(connection, arrays, index, values, Oid.TEXT_ARRAY);
+          return true;
+        case Oid.VARCHAR:
+          bindBinary(connection, arrays, index, values, Oid.VARCHAR_ARRAY);
+          return true;
+        default:
+          break;
+      }
+    } catch (NumberFormatException e) {
+      // The text is not a number the client can parse, the server will tell
+      return false;
+    } catch (PSQLException e) {
+      // Not a boolean
+      return false;
+    }
+    // Other types are sent as array literals, built from the text form of their values
+    TypeInfo typeInfo = connection.getTypeInfo();
+    String typeName = typeInfo.getPGType(oid);
+    int arrayOid = typeName == null ? Oid.UNSPECIFIED : typeInfo.getPGArrayType(typeName);
+    if (arrayOid == Oid.UNSPECIFIED) {
+      return false;
+    }
+    arrays.setStringParameter(index,
+        ArrayEncoding.getArrayEncoder(values).toArrayString(typeInfo.getArrayDelimiter(oid), values),
+        arrayOid);
+    return true;
+  }
+
+  private static <A extends @NonNull Object> void bindBinary(BaseConnection connection,
+      ParameterList arrays, int index, A array, int arrayOid) throws SQLException {
+    arrays.setBinaryParameter(index,
+        ArrayEncoding.getArrayEncoder(array).toBinaryRepresentation(connection, array, arrayOid),
+        arrayOid);
+  }
+}
@@ -57,6 +57,60 @@ public interface PGReplicationStream
    */
   @Nullable ByteBuffer readPending() throws SQLException;
 
+  /**
+   * <p>Read next WAL record from backend into the given buffer, blocking like {@link #read()}.
+   * Unlike {@link #read()}, no array is allocated per message: the message is received in an array
+   * that the stream reuses, and its payload is copied to {@code target}, from its position, that
+   * is advanced by the length of the record.</p>
+   *
+   * <p>If {@code target} has less remaining space than the record, an exception is thrown and the
+   * record is kept: the next call of a read method returns it.</p>
+   *
+   * <p>The default implementation copies the result of {@link #read()}, so it allocates an array
+   * per message, and a record that does not fit in {@code target} is not kept.</p>
+   *
+   * @param target buffer the WAL record is copied to
+   * @return length of the record, or -1 if the stream ended
+   * @throws SQLException when some internal exception occurs during read from stream, or when the
+   *     record does not fit in {@code target}
+   */
+  default int read(ByteBuffer target) throws SQLException {
+    return ReplicationMessage.copyPayload(read(), target);
+  }
+
+  /**
+   * <p>Read next WAL record from backend into the given buffer, without blocking like {@link
+   * #readPending()}. See {@link #read(ByteBuffer)}.</p>
+   *
+   * <p>The default implementation copies the result of {@link #readPending()}, see
+   * {@link #read(ByteBuffer)}.</p>
+   *
+   * @param target buffer the WAL record is copied to
+   * @return length of the record, or -1 if no message from the server is pending
+   * @throws SQLException when some internal exception occurs during read from stream, or when the
+   *     record does not fit in {@code target}
+   */
+  default int readPending(ByteBuffer target) throws SQLException {
+    return ReplicationMessage.copyPayload(readPending(), target);
+  }
+
+  /**
+   * <p>Read next WAL record from backend together with its LSN. Unlike calling
+   * {@link #getLastReceiveLSN()} after {@link #read()}, the LSN cannot be changed in between by
+   * a thread that sends the status updates in the background, see {@link
+   * org.postgresql.replication.fluent.ChainedCommonStreamBuilder#withBackgroundFeedback}.</p>
+   *
+   * <p>This method blocks like {@link #read()}, but it may return null when no record arrived
+   * within the status interval, so the caller can check whether it should stop reading.</p>
+   *
+   * @return the WAL record and its LSN, or null if no record was received
+   * @throws SQLException when some internal exception occurs during read from stream
+   */
+  default @Nullable ReplicationMessage readMessage() throws SQLException {
+    ByteBuffer payload = read();
+    return payload == null ? null : new ReplicationMessage(payload, getLastReceiveLSN());
+  }
+
   /**
    * <p>Parameter updates by execute {@link PGReplicationStream#read()} method.</p>
    *
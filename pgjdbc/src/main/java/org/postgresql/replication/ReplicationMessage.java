@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication;
+
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+
+/**
+ * A WAL record read from a {@link PGReplicationStream}, with the LSN the stream reported for it.
+ *
+ * @see PGReplicationStream#readMessage()
+ */
+public final class ReplicationMessage {
+
+  private final ByteBuffer payload;
+  private final LogSequenceNumber receiveLSN;
+
+  public ReplicationMessage(ByteBuffer payload, LogSequenceNumber receiveLSN) {
+    this.payload = payload;
+    this.receiveLSN = receiveLSN;
+  }
+
+  /**
+   * Payload of the record, see {@link PGReplicationStream#read()}.
+   *
+   * @return the payload
+   */
+  public ByteBuffer getPayload() {
+    return payload;
+  }
+
+  /**
+   * LSN of the record, the value of {@link PGReplicationStream#getLastReceiveLSN()} once the record
+   * is read.
+   *
+   * @return the LSN to acknowledge once the record is processed
+   */
+  public LogSequenceNumber getReceiveLSN() {
+    return receiveLSN;
+  }
+
+  /**
+   * Copies a record returned by {@link PGReplicationStream#read()} or
+   * {@link PGReplicationStream#readPending()} to a buffer, for the default implementations of the
+   * methods that read into a buffer.
+   *
+   * @return length of the record, or -1 if there is no record
+   */
+  static int copyPayload(@Nullable ByteBuffer payload, ByteBuffer target) throws SQLException {
+    if (payload == null) {
+      return -1;
+    }
+    int length = payload.remaining();
+    if (target.remaining() < length) {
+      throw new PSQLException(
+          GT.tr("The buffer has {0} bytes remaining, the WAL record needs {1}.",
+              String.valueOf(target.remaining()), String.valueOf(length)),
+          PSQLState.INVALID_PARAMETER_VALUE);
+    }
+    target.put(payload);
+    return length;
+  }
+}
@@ -0,0 +1,399 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication;
+
+import static org.postgresql.util.internal.Nullness.castNonNull;
+
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Decodes the messages of a {@link PGReplicationStream} on several threads, and delivers them
+ * in the order of the stream, so the decoding is not limited to a single core.</p>
+ *
+ * <p>A reader thread reads the messages into a ring buffer, and a pool of workers decodes them
+ * concurrently. The thread calling {@link #run()} hands the decoded messages to the
+ * {@link Sink} in the order they were read, and only then sets the flushed and applied LSNs of
+ * the stream, so the server is never told that a message was processed before all the earlier
+ * ones were. The status updates are sent by the reader thread as it reads the stream, or in the
+ * background, see
+ * {@link org.postgresql.replication.fluent.ChainedCommonStreamBuilder#withBackgroundFeedback}.</p>
+ *
+ * <p>Each message is decoded independently of the other ones, by any of the workers: this suits
+ * output plugins whose messages are self-contained, such as {@code wal2json} or
+ * {@code test_decoding}, but not the {@code pgoutput} messages, which reference the relations
+ * described by earlier messages. The stream must not be read by other threads while the pipeline
+ * runs.</p>
+ *
+ * <pre>
+ * ReplicationPipeline&lt;Change&gt; pipeline = new ReplicationPipeline&lt;Change&gt;(stream,
+ *     new ReplicationPipeline.Decoder&lt;Change&gt;() {
+ *       public Change decode(ByteBuffer message, LogSequenceNumber lsn) throws Exception {
+ *         return parseJson(message);
+ *       }
+ *     },
+ *     new ReplicationPipeline.Sink&lt;Change&gt;() {
+ *       public void accept(Change change, LogSequenceNumber lsn) throws Exception {
+ *         publish(change);
+ *       }
+ *     }, 8);
+ * pipeline.run(); // until pipeline.stop() is called or the stream is closed
+ * </pre>
+ *
+ * @param <T> type of the decoded messages
+ */
+public class ReplicationPipeline<T> {
+  private static final Logger LOGGER = Logger.getLogger(ReplicationPipeline.class.getName());
+
+  /**
+   * Decodes the messages of the stream. It is called concurrently by the workers, in no
+   * particular order, so it must be thread-safe.
+   *
+   * @param <T> type of the decoded messages
+   */
+  public interface Decoder<T> {
+    /**
+     * @param message payload of the message, owned by the decoder
+     * @param lsn LSN of the message
+     * @return the decoded message, or null to skip it: its LSN is then acknowledged without
+     *     calling the sink
+     * @throws Exception if the message cannot be decoded, which stops the pipeline once the
+     *     earlier messages are delivered
+     */
+    @Nullable T decode(ByteBuffer message, LogSequenceNumber lsn) throws Exception;
+  }
+
+  /**
+   * Receives the decoded messages, in the order of the stream, on the thread that calls
+   * {@link ReplicationPipeline#run()}.
+   *
+   * @param <T> type of the decoded messages
+   */
+  public interface Sink<T> {
+    /**
+     * @param value the decoded message
+     * @param lsn LSN of the message, acknowledged to the server once this method returns
+     * @throws Exception if the message cannot be processed, which stops the pipeline
+     */
+    void accept(T value, LogSequenceNumber lsn) throws Exception;
+  }
+
+  private static final class Slot<T> {
+    @Nullable ByteBuffer message;
+    LogSequenceNumber lsn = LogSequenceNumber.INVALID_LSN;
+    @Nullable T value;
+    @Nullable Exception failure;
+    boolean decoded;
+  }
+
+  private final PGReplicationStream stream;
+  private final Decoder<? extends T> decoder;
+  private final Sink<? super T> sink;
+  private final int parallelism;
+  private int capacity = 1024;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition slotFreed = lock.newCondition();
+  private final Condition slotDecoded = lock.newCondition();
+  private final Slot<T> endOfStream = new Slot<T>();
+  private volatile boolean running;
+
+  // Guarded by lock
+  private List<Slot<T>> ring = new ArrayList<Slot<T>>();
+  private long produced;
+  private long committed;
+  private boolean readerDone;
+  private @Nullable SQLException readFailure;
+
+  /**
+   * @param stream stream to read the messages from
+   * @param decoder decodes the messages, on the worker threads
+   * @param sink receives the decoded messages, in order
+   * @param parallelism number of worker threads
+   */
+  public ReplicationPipeline(PGReplicationStream stream, Decoder<? extends T> decoder,
+      Sink<? super T> sink, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    this.stream = stream;
+    this.decoder = decoder;
+    this.sink = sink;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Sets the number of messages that can be read ahead of the sink, 1024 by default. The reader
+   * waits for the sink once that many messages are being decoded or waiting for delivery.
+   *
+   * @param capacity size of the ring buffer, in messages
+   */
+  public void setCapacity(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  /**
+   * Runs the pipeline until {@link #stop()} is called or the stream is closed. The messages that
+   * were read by then are delivered before this method returns.
+   *
+   * @throws SQLException if the stream cannot be read, or if a message cannot be decoded or
+   *     processed; the messages before it are delivered first
+   */
+  public void run() throws SQLException {
+    final BlockingQueue<Slot<T>> work = new ArrayBlockingQueue<Slot<T>>(capacity + parallelism);
+    lock.lock();
+    try {
+      if (running) {
+        throw new IllegalStateException("The pipeline is already running");
+      }
+      running = true;
+      ring = new ArrayList<Slot<T>>(capacity);
+      for (int i = 0; i < capacity; i++) {
+        ring.add(new Slot<T>());
+      }
+      produced = 0;
+      committed = 0;
+      readerDone = false;
+      readFailure = null;
+    } finally {
+      lock.unlock();
+    }
+
+    List<Thread> threads = new ArrayList<Thread>(parallelism + 1);
+    try {
+      threads.add(start(new Runnable() {
+        @Override
+        public void run() {
+          read(work);
+        }
+      }, "PgJDBC-replication-reader"));
+      for (int i = 0; i < parallelism; i++) {
+        threads.add(start(new Runnable() {
+          @Override
+          public void run() {
+            decode(work);
+          }
+        }, "PgJDBC-replication-decoder-" + i));
+      }
+      deliver();
+    } finally {
+      stop();
+      join(threads);
+    }
+  }
+
+  /**
+   * Stops reading the stream. Can be called from any thread, including from the sink. A reader
+   * waiting for the server notices it once a message arrives or the status interval expires.
+   */
+  public void stop() {
+    running = false;
+    lock.lock();
+    try {
+      slotFreed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static Thread start(Runnable task, String name) {
+    Thread thread = new Thread(task, name);
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  private static void join(List<Thread> threads) {
+    boolean interrupted = false;
+    for (Thread thread : threads) {
+      while (true) {
+        try {
+          thread.join();
+          break;
+        } catch (InterruptedException e) {
+          // The reader uses the stream, so it must complete before the stream is used again
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void read(BlockingQueue<Slot<T>> work) {
+    try {
+      while (running && !stream.isClosed()) {
+        // The message and its LSN are read at once: with background feedback, the LSN of the
+        // stream can move to the next message as soon as the stream is released
+        ReplicationMessage message = stream.readMessage();
+        if (message == null) {
+          // Nothing was received within the status interval, check whether to stop
+          continue;
+        }
+        Slot<T> slot = claim();
+        if (slot == null) {
+          // Stopped: the message is not acknowledged, so the server sends it again on restart
+          break;
+        }
+        slot.message = message.getPayload();
+        slot.lsn = message.getReceiveLSN();
+        work.put(slot);
+      }
+    } catch (SQLException e) {
+      lock.lock();
+      try {
+        readFailure = e;
+      } finally {
+        lock.unlock();
+      }
+    } catch (InterruptedException e) {
+      LOGGER.log(Level.FINE, "Interrupted while reading the replication stream", e);
+    } finally {
+      running = false;
+      lock.lock();
+      try {
+        readerDone = true;
+        slotDecoded.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      for (int i = 0; i < parallelism; i++) {
+        // The queue has room for the messages of the ring and for the markers
+        work.add(endOfStream);
+      }
+    }
+  }
+
+  private @Nullable Slot<T> claim() throws InterruptedException {
+    lock.lock();
+    try {
+      while (running && produced - committed == capacity) {
+        slotFreed.await();
+      }
+      if (!running) {
+        return null;
+      }
+      Slot<T> slot = ring.get((int) (produced % capacity));
+      slot.value = null;
+      slot.failure = null;
+      slot.decoded = false;
+      produced++;
+      return slot;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void decode(BlockingQueue<Slot<T>> work) {
+    try {
+      while (true) {
+        Slot<T> slot = work.take();
+        if (slot == endOfStream) {
+          return;
+        }
+        T value = null;
+        Exception failure = null;
+        try {
+          value = decoder.decode(castNonNull(slot.message), slot.lsn);
+        } catch (Exception e) {
+          failure = e;
+        }
+        lock.lock();
+        try {
+          slot.value = value;
+          slot.failure = failure;
+          slot.decoded = true;
+          slotDecoded.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+    } catch (InterruptedException e) {
+      LOGGER.log(Level.FINE, "Interrupted while decoding the replication messages", e);
+    }
+  }
+
+  private void deliver() throws SQLException {
+    while (true) {
+      Slot<T> slot = null;
+      lock.lock();
+      try {
+        while (slot == null) {
+          if (committed < produced) {
+            Slot<T> next = ring.get((int) (committed % capacity));
+            if (next.decoded) {
+              slot = next;
+              continue;
+            }
+          } else if (readerDone) {
+            SQLException failure = readFailure;
+            if (failure != null) {
+              throw failure;
+            }
+            return;
+          }
+          slotDecoded.await();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new PSQLException(GT.tr("Interrupted while processing the replication messages"),
+            PSQLState.UNEXPECTED_ERROR, e);
+      } finally {
+        lock.unlock();
+      }
+
+      LogSequenceNumber lsn = slot.lsn;
+      Exception failure = slot.failure;
+      if (failure != null) {
+        throw new PSQLException(
+            GT.tr("Unable to decode the replication message at LSN {0}", lsn.asString()),
+            PSQLState.DATA_ERROR, failure);
+      }
+      T value = slot.value;
+      if (value != null) {
+        try {
+          sink.accept(value, lsn);
+        } catch (SQLException e) {
+          throw e;
+        } catch (Exception e) {
+          throw new PSQLException(
+              GT.tr("Unable to process the replication message at LSN {0}", lsn.asString()),
+              PSQLState.UNEXPECTED_ERROR, e);
+        }
+      }
+      stream.setFlushedLSN(lsn);
+      stream.setAppliedLSN(lsn);
+
+      lock.lock();
+      try {
+        slot.message = null;
+        slot.value = null;
+        committed++;
+        slotFreed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
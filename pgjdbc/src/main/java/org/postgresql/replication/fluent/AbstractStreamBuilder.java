@@ -17,6 +17,7 @@ public abstract class AbstractStreamBuilder<T extends ChainedCommonStreamBuilder
   protected int statusIntervalMs = DEFAULT_STATUS_INTERVAL;
   protected LogSequenceNumber startPosition = LogSequenceNumber.INVALID_LSN;
   protected @Nullable String slotName;
+  protected boolean backgroundFeedback;
 
   protected abstract T self();
 
@@ -26,6 +27,12 @@ public abstract class AbstractStreamBuilder<T extends ChainedCommonStreamBuilder
     return self();
   }
 
+  @Override
+  public T withBackgroundFeedback(boolean backgroundFeedback) {
+    this.backgroundFeedback = backgroundFeedback;
+    return self();
+  }
+
   @Override
   public T withStartPosition(LogSequenceNumber lsn) {
     this.startPosition = lsn;
@@ -36,6 +36,18 @@ public interface ChainedCommonStreamBuilder<T extends ChainedCommonStreamBuilder
    */
   T withStatusInterval(int time, TimeUnit format);
 
+  /**
+   * Sends the status updates from a driver-managed thread while the stream is not being read,
+   * so a consumer that is slow to process the changes is not disconnected by the
+   * {@code wal_sender_timeout} of the server. The thread also answers the keepalive messages that
+   * request a reply, up to the next change, which is kept for the consumer. It has no effect when
+   * the status interval is zero. Disabled by default.
+   *
+   * @param backgroundFeedback true to send the status updates in the background
+   * @return not null fluent
+   */
+  T withBackgroundFeedback(boolean backgroundFeedback);
+
   /**
    * Specify start position from which backend will start stream changes. If parameter will not
    * specify, streaming starts from restart_lsn. For more details see pg_replication_slots
@@ -36,4 +36,11 @@ public interface CommonOptions {
    * @return the current status interval
    */
   int getStatusInterval();
+
+  /**
+   * @return true if the status updates are sent from a driver-managed thread while the stream is
+   *     not being read
+   * @see ChainedCommonStreamBuilder#withBackgroundFeedback(boolean)
+   */
+  boolean isBackgroundFeedback();
 }
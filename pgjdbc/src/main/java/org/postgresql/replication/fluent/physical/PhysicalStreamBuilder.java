@@ -50,4 +50,9 @@ public class PhysicalStreamBuilder extends AbstractStreamBuilder<ChainedPhysical
   public int getStatusInterval() {
     return statusIntervalMs;
   }
+
+  @Override
+  public boolean isBackgroundFeedback() {
+    return backgroundFeedback;
+  }
 }
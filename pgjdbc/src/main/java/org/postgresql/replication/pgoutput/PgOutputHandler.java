@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication.pgoutput;
+
+import org.postgresql.replication.LogSequenceNumber;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Receives the messages decoded by {@link PgOutputParser}, one method per message type.
+ *
+ * <p>The {@link TupleData} and {@link ByteBuffer} arguments are only valid until the method
+ * returns, as the parser reuses them for the next message.</p>
+ *
+ * @see PgOutputHandlerBase
+ */
+public interface PgOutputHandler {
+
+  /**
+   * Start of a transaction.
+   *
+   * @param finalLsn LSN of the commit record of the transaction
+   * @param commitTime commit time of the transaction
+   * @param xid id of the transaction
+   * @throws SQLException if the handler fails
+   */
+  void begin(LogSequenceNumber finalLsn, java.time.Instant commitTime, long xid)
+      throws SQLException;
+
+  /**
+   * End of a transaction.
+   *
+   * @param commitLsn LSN of the commit record
+   * @param endLsn end LSN of the transaction, to confirm once the transaction is processed
+   * @param commitTime commit time of the transaction
+   * @throws SQLException if the handler fails
+   */
+  void commit(LogSequenceNumber commitLsn, LogSequenceNumber endLsn, java.time.Instant commitTime)
+      throws SQLException;
+
+  /**
+   * Origin of the current transaction, sent when it was replicated from another node.
+   *
+   * @param commitLsn LSN of the commit on the origin server
+   * @param name name of the origin
+   * @throws SQLException if the handler fails
+   */
+  void origin(LogSequenceNumber commitLsn, String name) throws SQLException;
+
+  /**
+   * Description of a table, sent before the first change to it and after its definition changed.
+   * The parser keeps it for the changes that follow, see {@link PgOutputParser#getRelation(int)}.
+   *
+   * @param relation the table
+   * @throws SQLException if the handler fails
+   */
+  void relation(Relation relation) throws SQLException;
+
+  /**
+   * Description of a type that is not built in, sent before the first change that uses it.
+   *
+   * @param oid OID of the type
+   * @param namespace schema of the type
+   * @param name name of the type
+   * @throws SQLException if the handler fails
+   */
+  void type(int oid, String namespace, String name) throws SQLException;
+
+  /**
+   * @param relation the table
+   * @param newTuple the inserted row
+   * @throws SQLException if the handler fails
+   */
+  void insert(Relation relation, TupleData newTuple) throws SQLException;
+
+  /**
+   * @param relation the table
+   * @param oldTuple the previous values of the row, sent when the replica identity of the table
+   *     is {@code FULL} or when the update changed the replica identity columns, null otherwise
+   * @param newTuple the updated row
+   * @throws SQLException if the handler fails
+   */
+  void update(Relation relation, @Nullable TupleData oldTuple, TupleData newTuple)
+      throws SQLException;
+
+  /**
+   * @param relation the table
+   * @param oldTuple the deleted row, or only its replica identity columns, see
+   *     {@link TupleData#isKey()}
+   * @throws SQLException if the handler fails
+   */
+  void delete(Relation relation, TupleData oldTuple) throws SQLException;
+
+  /**
+   * @param relations the truncated tables
+   * @param cascade true for {@code TRUNCATE ... CASCADE}
+   * @param restartIdentity true for {@code TRUNCATE ... RESTART IDENTITY}
+   * @throws SQLException if the handler fails
+   */
+  void truncate(List<Relation> relations, boolean cascade, boolean restartIdentity)
+      throws SQLException;
+
+  /**
+   * Message emitted with {@code pg_logical_emit_message}, sent when the {@code messages} option is
+   * enabled.
+   *
+   * @param lsn LSN of the message
+   * @param transactional true if the message was emitted as part of the current transaction
+   * @param prefix prefix of the message
+   * @param content content of the message
+   * @throws SQLException if the handler fails
+   */
+  void message(LogSequenceNumber lsn, boolean transactional, String prefix, ByteBuffer content)
+      throws SQLException;
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication.pgoutput;
+
+import org.postgresql.replication.LogSequenceNumber;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Convenience base class for {@link PgOutputHandler} implementations that ignores every message,
+ * so subclasses only override the ones they are interested in.
+ */
+public abstract class PgOutputHandlerBase implements PgOutputHandler {
+
+  @Override
+  public void begin(LogSequenceNumber finalLsn, java.time.Instant commitTime, long xid)
+      throws SQLException {
+  }
+
+  @Override
+  public void commit(LogSequenceNumber commitLsn, LogSequenceNumber endLsn,
+      java.time.Instant commitTime) throws SQLException {
+  }
+
+  @Override
+  public void origin(LogSequenceNumber commitLsn, String name) throws SQLException {
+  }
+
+  @Override
+  public void relation(Relation relation) throws SQLException {
+  }
+
+  @Override
+  public void type(int oid, String namespace, String name) throws SQLException {
+  }
+
+  @Override
+  public void insert(Relation relation, TupleData newTuple) throws SQLException {
+  }
+
+  @Override
+  public void update(Relation relation, @Nullable TupleData oldTuple, TupleData newTuple)
+      throws SQLException {
+  }
+
+  @Override
+  public void delete(Relation relation, TupleData oldTuple) throws SQLException {
+  }
+
+  @Override
+  public void truncate(List<Relation> relations, boolean cascade, boolean restartIdentity)
+      throws SQLException {
+  }
+
+  @Override
+  public void message(LogSequenceNumber lsn, boolean transactional, String prefix,
+      ByteBuffer content) throws SQLException {
+  }
+}
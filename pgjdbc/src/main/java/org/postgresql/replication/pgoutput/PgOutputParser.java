@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication.pgoutput;
+
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Encoding;
+import org.postgresql.core.TypeCodecRegistry;
+import org.postgresql.jdbc.TimestampUtils;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Parses the messages of the {@code pgoutput} logical decoding plugin, version 1 of its
+ * protocol, as read from a {@link org.postgresql.replication.PGReplicationStream}, and passes them
+ * to a {@link PgOutputHandler}:</p>
+ *
+ * <pre>
+ * PGReplicationStream stream = replConnection.getReplicationAPI()
+ *     .replicationStream()
+ *     .logical()
+ *     .withSlotName("my_slot")
+ *     .withSlotOption("proto_version", 1)
+ *     .withSlotOption("publication_names", "my_publication")
+ *     .start();
+ * PgOutputParser parser = new PgOutputParser(connection);
+ * while (true) {
+ *   parser.parse(stream.read(), handler);
+ * }
+ * </pre>
+ *
+ * <p>The parser keeps the tables and types described by the server, as the changes only reference
+ * them by OID, so a parser must see all the messages of a stream, in order. The column values are
+ * decoded with the codecs registered on the given connection and the conversions of
+ * {@link java.sql.ResultSet}, see {@link TupleData}.</p>
+ *
+ * <p>The streaming of in-progress transactions, version 2 of the protocol, is not supported.
+ * Instances are not thread-safe.</p>
+ */
+public class PgOutputParser {
+  /**
+   * Seconds from the Java epoch to the PostgreSQL epoch, 2000-01-01 UTC.
+   */
+  private static final long POSTGRES_EPOCH_SECONDS = 946684800L;
+
+  private static final int TRUNCATE_CASCADE = 1;
+  private static final int TRUNCATE_RESTART_IDENTITY = 2;
+  private static final int MESSAGE_TRANSACTIONAL = 1;
+
+  private final Encoding encoding;
+  private final Map<Integer, Relation> relations = new HashMap<Integer, Relation>();
+  private final Map<Integer, String> types = new HashMap<Integer, String>();
+  private final TupleData oldTuple;
+  private final TupleData newTuple;
+
+  private byte[] copyBuffer = new byte[0];
+  private byte[] data = copyBuffer;
+  private int position;
+  private int end;
+
+  /**
+   * @param connection connection the stream is read from, whose encoding and codecs are used to
+   *     decode the values
+   * @throws SQLException if the connection is closed
+   */
+  public PgOutputParser(Connection connection) throws SQLException {
+    this(connection.unwrap(BaseConnection.class));
+  }
+
+  private PgOutputParser(BaseConnection connection) throws SQLException {
+    this(connection.getEncoding(), connection.getTimestampUtils(),
+        connection.getTypeCodecRegistry());
+  }
+
+  PgOutputParser(Encoding encoding, TimestampUtils timestampUtils, TypeCodecRegistry codecs) {
+    this.encoding = encoding;
+    this.oldTuple = new TupleData(encoding, timestampUtils, codecs);
+    this.newTuple = new TupleData(encoding, timestampUtils, codecs);
+  }
+
+  /**
+   * @param oid OID of the table
+   * @return the last description of the table, null if the server did not describe it yet
+   */
+  public @Nullable Relation getRelation(int oid) {
+    return relations.get(oid);
+  }
+
+  /**
+   * @param oid OID of a type
+   * @return the qualified name of the type, null if it is built in or the server did not describe
+   *     it yet
+   */
+  public @Nullable String getTypeName(int oid) {
+    return types.get(oid);
+  }
+
+  /**
+   * Parses one message and passes it to the handler. The buffer is consumed, its position is set
+   * to its limit.
+   *
+   * @param buffer the message, as returned by the replication stream
+   * @param handler handler of the message
+   * @throws SQLException if the message is invalid or unsupported, or if the handler fails
+   */
+  public void parse(ByteBuffer buffer, PgOutputHandler handler) throws SQLException {
+    int length = buffer.remaining();
+    if (buffer.hasArray()) {
+      data = buffer.array();
+      position = buffer.arrayOffset() + buffer.position();
+    } else {
+      if (copyBuffer.length < length) {
+        copyBuffer = new byte[length];
+      }
+      buffer.duplicate().get(copyBuffer, 0, length);
+      data = copyBuffer;
+      position = 0;
+    }
+    end = position + length;
+    buffer.position(buffer.limit());
+
+    byte type = readByte();
+    switch (type) {
+      case 'B':
+        handler.begin(readLsn(), readTimestamp(), readInt() & 0xFFFFFFFFL);
+        break;
+      case 'C':
+        readByte(); // flags, unused
+        handler.commit(readLsn(), readLsn(), readTimestamp());
+        break;
+      case 'O':
+        handler.origin(readLsn(), readString());
+        break;
+      case 'R':
+        handler.relation(readRelation());
+        break;
+      case 'Y':
+        readType(handler);
+        break;
+      case 'I':
+        readInsert(handler);
+        break;
+      case 'U':
+        readUpdate(handler);
+        break;
+      case 'D':
+        readDelete(handler);
+        break;
+      case 'T':
+        readTruncate(handler);
+        break;
+      case 'M':
+        readMessage(handler);
+        break;
+      default:
+        throw new PSQLException(
+            GT.tr("Unsupported pgoutput message type: {0}", String.valueOf((char) type)),
+            PSQLState.NOT_IMPLEMENTED);
+    }
+  }
+
+  private Relation readRelation() throws SQLException {
+    int oid = readInt();
+    String namespace = readString();
+    String name = readString();
+    char replicaIdentity = (char) readByte();
+    Relation.Column[] columns = new Relation.Column[readShort()];
+    for (int i = 0; i < columns.length; i++) {
+      boolean key = (readByte() & 1) != 0;
+      String columnName = readString();
+      columns[i] = new Relation.Column(columnName, readInt(), readInt(), key);
+    }
+    Relation relation = new Relation(oid, namespace, name, replicaIdentity, columns);
+    relations.put(oid, relation);
+    return relation;
+  }
+
+  private void readType(PgOutputHandler handler) throws SQLException {
+    int oid = readInt();
+    String namespace = readString();
+    String name = readString();
+    types.put(oid, namespace + "." + name);
+    handler.type(oid, namespace, name);
+  }
+
+  private void readInsert(PgOutputHandler handler) throws SQLException {
+    Relation relation = readRelationOid();
+    expect('N');
+    readTuple(newTuple, relation, false);
+    handler.insert(relation, newTuple);
+  }
+
+  private void readUpdate(PgOutputHandler handler) throws SQLException {
+    Relation relation = readRelationOid();
+    byte kind = readByte();
+    TupleData old = null;
+    if (kind == 'K' || kind == 'O') {
+      readTuple(oldTuple, relation, kind == 'K');
+      old = oldTuple;
+      kind = readByte();
+    }
+    if (kind != 'N') {
+      throw unexpected('N', kind);
+    }
+    readTuple(newTuple, relation, false);
+    handler.update(relation, old, newTuple);
+  }
+
+  private void readDelete(PgOutputHandler handler) throws SQLException {
+    Relation relation = readRelationOid();
+    byte kind = readByte();
+    if (kind != 'K' && kind != 'O') {
+      throw unexpected('O', kind);
+    }
+    readTuple(oldTuple, relation, kind == 'K');
+    handler.delete(relation, oldTuple);
+  }
+
+  private void readTruncate(PgOutputHandler handler) throws SQLException {
+    int count = readInt();
+    int options = readByte();
+    List<Relation> truncated = new ArrayList<Relation>(count);
+    for (int i = 0; i < count; i++) {
+      truncated.add(readRelationOid());
+    }
+    handler.truncate(truncated, (options & TRUNCATE_CASCADE) != 0,
+        (options & TRUNCATE_RESTART_IDENTITY) != 0);
+  }
+
+  private void readMessage(PgOutputHandler handler) throws SQLException {
+    boolean transactional = (readByte() & MESSAGE_TRANSACTIONAL) != 0;
+    LogSequenceNumber lsn = readLsn();
+    String prefix = readString();
+    int length = readInt();
+    require(length);
+    ByteBuffer content = ByteBuffer.wrap(data, position, length).slice();
+    position += length;
+    handler.message(lsn, transactional, prefix, content.asReadOnlyBuffer());
+  }
+
+  private Relation readRelationOid() throws SQLException {
+    int oid = readInt();
+    Relation relation = relations.get(oid);
+    if (relation == null) {
+      throw new PSQLException(
+          GT.tr("The pgoutput message references the relation {0}, which was not described.",
+              String.valueOf(oid & 0xFFFFFFFFL)),
+          PSQLState.PROTOCOL_VIOLATION);
+    }
+    return relation;
+  }
+
+  private void readTuple(TupleData tuple, Relation relation, boolean key) throws SQLException {
+    int count = readShort();
+    tuple.reset(relation, key, data, count);
+    for (int i = 0; i < count; i++) {
+      byte kind = readByte();
+      if (kind == 't' || kind == 'b') {
+        int length = readInt();
+        require(length);
+        tuple.setColumn(i, kind, position, length);
+        position += length;
+      } else if (kind == 'n' || kind == 'u') {
+        tuple.setColumn(i, kind, position, 0);
+      } else {
+        throw unexpected('t', kind);
+      }
+    }
+  }
+
+  private void expect(char expected) throws SQLException {
+    byte actual = readByte();
+    if (actual != expected) {
+      throw unexpected(expected, actual);
+    }
+  }
+
+  private static PSQLException unexpected(char expected, byte actual) {
+    return new PSQLException(
+        GT.tr("Unexpected pgoutput tuple marker: expected {0}, got {1}.",
+            String.valueOf(expected), String.valueOf((char) actual)),
+        PSQLState.PROTOCOL_VIOLATION);
+  }
+
+  private void require(int length) throws PSQLException {
+    if (length < 0 || end - position < length) {
+      throw new PSQLException(GT.tr("The pgoutput message is truncated."),
+          PSQLState.PROTOCOL_VIOLATION);
+    }
+  }
+
+  private byte readByte() throws PSQLException {
+    require(1);
+    return data[position++];
+  }
+
+  private int readShort() throws PSQLException {
+    require(2);
+    int value = ByteConverter.int2(data, position) & 0xFFFF;
+    position += 2;
+    return value;
+  }
+
+  private int readInt() throws PSQLException {
+    require(4);
+    int value = ByteConverter.int4(data, position);
+    position += 4;
+    return value;
+  }
+
+  private long readLong() throws PSQLException {
+    require(8);
+    long value = ByteConverter.int8(data, position);
+    position += 8;
+    return value;
+  }
+
+  private LogSequenceNumber readLsn() throws PSQLException {
+    return LogSequenceNumber.valueOf(readLong());
+  }
+
+  private java.time.Instant readTimestamp() throws PSQLException {
+    long micros = readLong();
+    return java.time.Instant.ofEpochSecond(
+        POSTGRES_EPOCH_SECONDS + Math.floorDiv(micros, 1000000L),
+        Math.floorMod(micros, 1000000L) * 1000L);
+  }
+
+  private String readString() throws PSQLException {
+    int terminator = position;
+    while (terminator < end && data[terminator] != 0) {
+      terminator++;
+    }
+    if (terminator == end) {
+      throw new PSQLException(GT.tr("The pgoutput message is truncated."),
+          PSQLState.PROTOCOL_VIOLATION);
+    }
+    try {
+      String value = encoding.decode(data, position, terminator - position);
+      position = terminator + 1;
+      return value;
+    } catch (IOException ioe) {
+      throw new PSQLException(
+          GT.tr(
+              "Invalid character data was found.  This is most likely caused by stored data containing characters that are invalid for the character set the database was created in.  The most common example of this is storing 8bit data in a SQL_ASCII database."),
+          PSQLState.DATA_ERROR, ioe);
+    }
+  }
+}
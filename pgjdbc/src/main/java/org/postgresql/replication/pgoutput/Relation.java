@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication.pgoutput;
+
+/**
+ * A table as described by a pgoutput Relation message. The server describes a table before the
+ * first change to it in a session, and again after its definition changed, so the description is
+ * valid for the changes that follow it.
+ */
+public final class Relation {
+
+  /**
+   * A column of a {@link Relation}.
+   */
+  public static final class Column {
+    private final String name;
+    private final int typeOid;
+    private final int typeModifier;
+    private final boolean key;
+
+    Column(String name, int typeOid, int typeModifier, boolean key) {
+      this.name = name;
+      this.typeOid = typeOid;
+      this.typeModifier = typeModifier;
+      this.key = key;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return OID of the type of the column
+     */
+    public int getTypeOid() {
+      return typeOid;
+    }
+
+    /**
+     * @return type modifier of the column, -1 if it has none
+     */
+    public int getTypeModifier() {
+      return typeModifier;
+    }
+
+    /**
+     * @return true if the column is part of the replica identity of the table
+     */
+    public boolean isKey() {
+      return key;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  private final int oid;
+  private final String namespace;
+  private final String name;
+  private final char replicaIdentity;
+  private final Column[] columns;
+
+  Relation(int oid, String namespace, String name, char replicaIdentity, Column[] columns) {
+    this.oid = oid;
+    this.namespace = namespace;
+    this.name = name;
+    this.replicaIdentity = replicaIdentity;
+    this.columns = columns;
+  }
+
+  public int getOid() {
+    return oid;
+  }
+
+  /**
+   * @return schema of the table, an empty string for {@code pg_catalog}
+   */
+  public String getNamespace() {
+    return namespace;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the replica identity setting of the table: {@code 'd'} for the primary key,
+   *     {@code 'n'} for nothing, {@code 'f'} for all the columns and {@code 'i'} for an index
+   */
+  public char getReplicaIdentity() {
+    return replicaIdentity;
+  }
+
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  /**
+   * @param index index of the column, the first one is 1
+   * @return the column
+   */
+  public Column getColumn(int index) {
+    return columns[index - 1];
+  }
+
+  @Override
+  public String toString() {
+    return namespace.isEmpty() ? name : namespace + "." + name;
+  }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication.pgoutput;
+
+import org.postgresql.codec.TypeCodec;
+import org.postgresql.core.Encoding;
+import org.postgresql.core.Oid;
+import org.postgresql.core.TypeCodecRegistry;
+import org.postgresql.jdbc.PgResultSet;
+import org.postgresql.jdbc.TimestampUtils;
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.GT;
+import org.postgresql.util.PGbytea;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * <p>The column values of a row in an Insert, Update or Delete message. The values are decoded on
+ * access, with the codec registered on the connection for the type of the column if any, and else
+ * with the conversions of {@link java.sql.ResultSet}. Column indexes start at 1, as in
+ * {@link java.sql.ResultSet}.</p>
+ *
+ * <p>The instance is reused by the parser for the next message, and reads the values from the
+ * buffer of the message: it is only valid during the callback of the {@link PgOutputHandler} it
+ * is passed to.</p>
+ */
+public final class TupleData {
+  private static final byte NULL = 'n';
+  private static final byte UNCHANGED_TOAST = 'u';
+  private static final byte TEXT = 't';
+  private static final byte BINARY = 'b';
+
+  private final Encoding encoding;
+  private final TimestampUtils timestampUtils;
+  private final TypeCodecRegistry codecs;
+
+  private @Nullable Relation relation;
+  private boolean key;
+  private byte[] data = new byte[0];
+  private int columnCount;
+  private byte[] kinds = new byte[0];
+  private int[] offsets = new int[0];
+  private int[] lengths = new int[0];
+
+  TupleData(Encoding encoding, TimestampUtils timestampUtils, TypeCodecRegistry codecs) {
+    this.encoding = encoding;
+    this.timestampUtils = timestampUtils;
+    this.codecs = codecs;
+  }
+
+  void reset(Relation relation, boolean key, byte[] data, int columnCount) {
+    this.relation = relation;
+    this.key = key;
+    this.data = data;
+    this.columnCount = columnCount;
+    if (kinds.length < columnCount) {
+      kinds = new byte[columnCount];
+      offsets = new int[columnCount];
+      lengths = new int[columnCount];
+    }
+  }
+
+  void setColumn(int index, byte kind, int offset, int length) {
+    kinds[index] = kind;
+    offsets[index] = offset;
+    lengths[index] = length;
+  }
+
+  /**
+   * @return true if the row only holds the replica identity columns, the other ones being null
+   */
+  public boolean isKey() {
+    return key;
+  }
+
+  public int getColumnCount() {
+    return columnCount;
+  }
+
+  public boolean isNull(int column) throws SQLException {
+    return kind(column) == NULL;
+  }
+
+  /**
+   * The server does not send the value of a TOASTed column that an update did not change.
+   *
+   * @param column index of the column
+   * @return true if the value is not sent, as the column was not changed
+   * @throws SQLException if the column index is out of range
+   */
+  public boolean isUnchangedToast(int column) throws SQLException {
+    return kind(column) == UNCHANGED_TOAST;
+  }
+
+  /**
+   * @param column index of the column
+   * @return true if the value is in binary format, see the {@code binary} option of pgoutput
+   * @throws SQLException if the column index is out of range
+   */
+  public boolean isBinary(int column) throws SQLException {
+    return kind(column) == BINARY;
+  }
+
+  /**
+   * @param column index of the column
+   * @return a copy of the value as sent by the server, in text or binary format, null for a null
+   * @throws SQLException if the value of the column is not sent
+   */
+  public byte @Nullable [] getRawValue(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return null;
+    }
+    return copy(column - 1);
+  }
+
+  public @Nullable String getString(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return null;
+    }
+    int i = column - 1;
+    TypeCodec codec = codecs.get(getOid(i));
+    if (kinds[i] == BINARY) {
+      if (codec != null) {
+        return codec.encodeText(codec.decode(data, offsets[i], lengths[i], true, encoding));
+      }
+      Object value = decodeBinary(i);
+      if (value instanceof byte[]) {
+        throw cannotConvert(i, "String");
+      }
+      return value.toString();
+    }
+    return decodeText(i);
+  }
+
+  public boolean getBoolean(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return false; // SQL NULL
+    }
+    int i = column - 1;
+    Object value = decode(i);
+    if (!(value instanceof Boolean)) {
+      throw cannotConvert(i, "boolean");
+    }
+    return (Boolean) value;
+  }
+
+  public int getInt(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return 0; // SQL NULL
+    }
+    int i = column - 1;
+    TypeCodec codec = codecs.get(getOid(i));
+    if (codec != null) {
+      return codec.decodeInt(data, offsets[i], lengths[i], kinds[i] == BINARY, encoding);
+    }
+    if (kinds[i] == TEXT) {
+      return PgResultSet.toInt(decodeText(i));
+    }
+    long value = getLong(column);
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new PSQLException(GT.tr("Bad value for type {0} : {1}", "int", String.valueOf(value)),
+          PSQLState.NUMERIC_VALUE_OUT_OF_RANGE);
+    }
+    return (int) value;
+  }
+
+  public long getLong(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return 0; // SQL NULL
+    }
+    int i = column - 1;
+    int oid = getOid(i);
+    TypeCodec codec = codecs.get(oid);
+    if (codec != null) {
+      return codec.decodeLong(data, offsets[i], lengths[i], kinds[i] == BINARY, encoding);
+    }
+    if (kinds[i] == TEXT) {
+      return PgResultSet.toLong(decodeText(i));
+    }
+    switch (oid) {
+      case Oid.INT2:
+        return ByteConverter.int2(data, offsets[i]);
+      case Oid.INT4:
+        return ByteConverter.int4(data, offsets[i]);
+      case Oid.INT8:
+        return ByteConverter.int8(data, offsets[i]);
+      default:
+        return PgResultSet.toLong(toNumber(i).toString());
+    }
+  }
+
+  public double getDouble(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return 0; // SQL NULL
+    }
+    int i = column - 1;
+    int oid = getOid(i);
+    TypeCodec codec = codecs.get(oid);
+    if (codec != null) {
+      return codec.decodeDouble(data, offsets[i], lengths[i], kinds[i] == BINARY, encoding);
+    }
+    if (kinds[i] == TEXT) {
+      return PgResultSet.toDouble(decodeText(i));
+    }
+    switch (oid) {
+      case Oid.FLOAT4:
+        return ByteConverter.float4(data, offsets[i]);
+      case Oid.FLOAT8:
+        return ByteConverter.float8(data, offsets[i]);
+      default:
+        return toNumber(i).doubleValue();
+    }
+  }
+
+  public @Nullable BigDecimal getBigDecimal(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return null;
+    }
+    int i = column - 1;
+    Object value = decode(i);
+    if (value instanceof BigDecimal) {
+      return (BigDecimal) value;
+    }
+    if (!(value instanceof Number) && !(value instanceof String)) {
+      throw cannotConvert(i, "BigDecimal");
+    }
+    return PgResultSet.toBigDecimal(value.toString());
+  }
+
+  /**
+   * Returns the value of the column as {@link java.sql.ResultSet#getObject(int)} would for the
+   * usual types: numbers, booleans, character types, {@code bytea}, {@code uuid} and the date and
+   * time types. The values of the other types are returned as strings, or as byte arrays in
+   * binary format.
+   *
+   * @param column index of the column
+   * @return the value, null for a null
+   * @throws SQLException if the value of the column is not sent or cannot be decoded
+   */
+  public @Nullable Object getObject(int column) throws SQLException {
+    if (!hasValue(column)) {
+      return null;
+    }
+    return decode(column - 1);
+  }
+
+  private byte kind(int column) throws SQLException {
+    if (column < 1 || column > columnCount) {
+      throw new PSQLException(
+          GT.tr("The column index is out of range: {0}, number of columns: {1}.",
+              String.valueOf(column), String.valueOf(columnCount)),
+          PSQLState.INVALID_PARAMETER_VALUE);
+    }
+    return kinds[column - 1];
+  }
+
+  private boolean hasValue(int column) throws SQLException {
+    byte kind = kind(column);
+    if (kind == UNCHANGED_TOAST) {
+      throw new PSQLException(
+          GT.tr("The value of column {0} is not sent, as the update did not change it.",
+              String.valueOf(column)),
+          PSQLState.NO_DATA);
+    }
+    return kind != NULL;
+  }
+
+  private int getOid(int index) {
+    Relation relation = this.relation;
+    return relation == null || index >= relation.getColumnCount()
+        ? Oid.UNSPECIFIED : relation.getColumn(index + 1).getTypeOid();
+  }
+
+  private byte[] copy(int index) {
+    return Arrays.copyOfRange(data, offsets[index], offsets[index] + lengths[index]);
+  }
+
+  private Object decode(int index) throws SQLException {
+    TypeCodec codec = codecs.get(getOid(index));
+    if (codec != null) {
+      return codec.decode(data, offsets[index], lengths[index], kinds[index] == BINARY, encoding);
+    }
+    return kinds[index] == BINARY ? decodeBinary(index) : decodeText(getOid(index), index);
+  }
+
+  private Number toNumber(int index) throws SQLException {
+    Object value = decode(index);
+    if (!(value instanceof Number)) {
+      throw cannotConvert(index, "number");
+    }
+    return (Number) value;
+  }
+
+  private String decodeText(int index) throws SQLException {
+    try {
+      return encoding.decode(data, offsets[index], lengths[index]);
+    } catch (IOException ioe) {
+      throw new PSQLException(
+          GT.tr(
+              "Invalid character data was found.  This is most likely caused by stored data containing characters that are invalid for the character set the database was created in.  The most common example of this is storing 8bit data in a SQL_ASCII database."),
+          PSQLState.DATA_ERROR, ioe);
+    }
+  }
+
+  private Object decodeText(int oid, int index) throws SQLException {
+    String value = decodeText(index);
+    switch (oid) {
+      case Oid.INT2:
+      case Oid.INT4:
+        return PgResultSet.toInt(value);
+      case Oid.INT8:
+        return PgResultSet.toLong(value);
+      case Oid.FLOAT4:
+        return PgResultSet.toFloat(value);
+      case Oid.FLOAT8:
+        return PgResultSet.toDouble(value);
+      case Oid.NUMERIC:
+        return "NaN".equals(value) ? (Object) Double.NaN : PgResultSet.toBigDecimal(value);
+      case Oid.BOOL:
+        return "t".equals(value);
+      case Oid.BYTEA:
+        return PGbytea.toBytes(copy(index));
+      case Oid.UUID:
+        try {
+          return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+          throw new PSQLException(GT.tr("Bad value for type {0} : {1}", "uuid", value),
+              PSQLState.DATA_TYPE_MISMATCH, e);
+        }
+      case Oid.DATE:
+        return timestampUtils.toDate(null, value);
+      case Oid.TIME:
+      case Oid.TIMETZ:
+        return timestampUtils.toTime(null, value);
+      case Oid.TIMESTAMP:
+      case Oid.TIMESTAMPTZ:
+        return timestampUtils.toTimestamp(null, value);
+      default:
+        return value;
+    }
+  }
+
+  private Object decodeBinary(int index) throws SQLException {
+    int offset = offsets[index];
+    int oid = getOid(index);
+    switch (oid) {
+      case Oid.INT2:
+        return (int) ByteConverter.int2(data, offset);
+      case Oid.INT4:
+        return ByteConverter.int4(data, offset);
+      case Oid.INT8:
+        return ByteConverter.int8(data, offset);
+      case Oid.FLOAT4:
+        return ByteConverter.float4(data, offset);
+      case Oid.FLOAT8:
+        return ByteConverter.float8(data, offset);
+      case Oid.NUMERIC:
+        return ByteConverter.numeric(data, offset, lengths[index]);
+      case Oid.BOOL:
+        return ByteConverter.bool(data, offset);
+      case Oid.UUID:
+        return new UUID(ByteConverter.int8(data, offset), ByteConverter.int8(data, offset + 8));
+      case Oid.DATE:
+        return timestampUtils.toDateBin(null, copy(index));
+      case Oid.TIME:
+      case Oid.TIMETZ:
+        return timestampUtils.toTimeBin(null, copy(index));
+      case Oid.TIMESTAMP:
+      case Oid.TIMESTAMPTZ:
+        return timestampUtils.toTimestampBin(null, copy(index), oid == Oid.TIMESTAMPTZ);
+      case Oid.TEXT:
+      case Oid.VARCHAR:
+      case Oid.BPCHAR:
+      case Oid.NAME:
+      case Oid.JSON:
+        // the binary format of the character types is their text
+        return decodeText(index);
+      default:
+        return copy(index);
+    }
+  }
+
+  private PSQLException cannotConvert(int index, String javaType) {
+    return new PSQLException(
+        GT.tr("Cannot convert the column of type {0} to requested type {1}.",
+            Oid.toString(getOid(index)), javaType),
+        PSQLState.DATA_TYPE_MISMATCH);
+  }
+}
@@ -34,7 +34,7 @@ public class MakeSSL extends ObjectFactory {
     SSLSocketFactory factory = SocketFactoryFactory.getSslSocketFactory(info);
     SSLSocket newConnection;
     try {
-      newConnection = (SSLSocket) factory.createSocket(stream.getSocket(),
+      newConnection = (SSLSocket) factory.createSocket(stream.getBlockingSocket(),
           stream.getHostSpec().getHost(), stream.getHostSpec().getPort(), true);
       // We must invoke manually, otherwise the exceptions are hidden
       newConnection.setUseClientMode(true);
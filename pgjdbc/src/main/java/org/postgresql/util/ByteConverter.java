@@ -6,6 +6,7 @@
 package org.postgresql.util;
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.nio.CharBuffer;
 
 /**
@@ -65,6 +66,8 @@ public class ByteConverter {
       boolean putit = (d1 > 0);
       if (putit || alwaysPutIt) {
         buffer.put((char)(d1 + '0'));
+        // only the leading zeroes are suppressed
+        alwaysPutIt = true;
       }
     }
 
@@ -200,6 +203,64 @@ public class ByteConverter {
     return new BigDecimal(numString);
   }
 
+  /**
+   * Converts a number to the binary representation of {@code numeric}.
+   *
+   * @param value number to convert
+   * @return binary representation of the number
+   * @throws IllegalArgumentException if the scale of the number does not fit in {@code numeric}
+   */
+  public static byte[] numeric(BigDecimal value) {
+    if (value.scale() < 0) {
+      value = value.setScale(0);
+    }
+    int scale = value.scale();
+    if ((scale & NUMERIC_DSCALE_MASK) != scale) {
+      throw new IllegalArgumentException("scale is out of range for \"numeric\" value");
+    }
+    BigInteger unscaled = value.unscaledValue().abs();
+    // align the decimal point on a base NBASE digit
+    int fractionDigits = (scale + DEC_DIGITS - 1) / DEC_DIGITS;
+    int pad = fractionDigits * DEC_DIGITS - scale;
+    if (pad > 0) {
+      unscaled = unscaled.multiply(BigInteger.TEN.pow(pad));
+    }
+
+    // base NBASE digits, least significant first
+    short[] digits = new short[(unscaled.bitLength() + 12) / 13 + 1];
+    int count = 0;
+    if (unscaled.bitLength() < 63) {
+      long rest = unscaled.longValue();
+      while (rest != 0) {
+        digits[count++] = (short) (rest % NBASE);
+        rest /= NBASE;
+      }
+    } else {
+      BigInteger base = BigInteger.valueOf(NBASE);
+      while (unscaled.signum() != 0) {
+        BigInteger[] qr = unscaled.divideAndRemainder(base);
+        digits[count++] = qr[1].shortValue();
+        unscaled = qr[0];
+      }
+    }
+    int weight = count - fractionDigits - 1;
+    int first = 0;
+    while (first < count && digits[first] == 0) {
+      first++; // trailing zeros are implied by the weight
+    }
+    int ndigits = count - first;
+
+    byte[] bytes = new byte[8 + ndigits * SHORT_BYTES];
+    int2(bytes, 0, ndigits);
+    int2(bytes, 2, ndigits == 0 ? 0 : weight);
+    int2(bytes, 4, value.signum() < 0 ? NUMERIC_NEG : NUMERIC_POS);
+    int2(bytes, 6, scale);
+    for (int i = 0; i < ndigits; i++) {
+      int2(bytes, 8 + i * SHORT_BYTES, digits[count - 1 - i]);
+    }
+    return bytes;
+  }
+
   /**
    * Parses a long value from the byte array.
    *
@@ -7,7 +7,6 @@ package org.postgresql.xa;
 
 import static org.postgresql.util.internal.Nullness.castNonNull;
 
-import org.postgresql.PGConnection;
 import org.postgresql.core.BaseConnection;
 import org.postgresql.core.TransactionState;
 import org.postgresql.ds.PGPooledConnection;
@@ -17,13 +16,10 @@ import org.postgresql.util.PSQLState;
 
 import org.checkerframework.checker.nullness.qual.Nullable;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
 import java.util.LinkedList;
 import java.util.logging.Level;
@@ -94,13 +90,16 @@ public class PGXAConnection extends PGPooledConnection implements XAConnection,
       conn.setAutoCommit(true);
     }
 
-    /*
-     * Wrap the connection in a proxy to forbid application from fiddling with transaction state
-     * directly during an XA transaction
-     */
-    ConnectionHandler handler = new ConnectionHandler(conn);
-    return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
-        new Class[]{Connection.class, PGConnection.class}, handler);
+    return conn;
+  }
+
+  /**
+   * Wraps the connection in a handle that forbids the application from fiddling with transaction
+   * state directly during an XA transaction.
+   */
+  @Override
+  protected ConnectionHandle createConnectionHandle(Connection con) {
+    return new XAConnectionHandle(con);
   }
 
   @Override
@@ -109,51 +108,47 @@ public class PGXAConnection extends PGPooledConnection implements XAConnection,
   }
 
   /*
-   * A java.sql.Connection proxy class to forbid calls to transaction control methods while the
+   * A java.sql.Connection handle to forbid calls to transaction control methods while the
    * connection is used for an XA transaction.
    */
-  private class ConnectionHandler implements InvocationHandler {
-    private final Connection con;
-
-    ConnectionHandler(Connection con) {
-      this.con = con;
+  private class XAConnectionHandle extends ConnectionHandle {
+    XAConnectionHandle(Connection con) {
+      super(con);
     }
 
-    @Override
-    @SuppressWarnings("throwing.nullable")
-    public @Nullable Object invoke(Object proxy, Method method, @Nullable Object[] args) throws Throwable {
+    private void checkNoXATransaction() throws SQLException {
       if (state != State.IDLE) {
-        String methodName = method.getName();
-        if (methodName.equals("commit")
-            || methodName.equals("rollback")
-            || methodName.equals("setSavePoint")
-            || (methodName.equals("setAutoCommit") && castNonNull((Boolean) args[0]))) {
-          throw new PSQLException(
-              GT.tr(
-                  "Transaction control methods setAutoCommit(true), commit, rollback and setSavePoint not allowed while an XA transaction is active."),
-              PSQLState.OBJECT_NOT_IN_STATE);
-        }
+        throw new PSQLException(
+            GT.tr(
+                "Transaction control methods setAutoCommit(true), commit, rollback and setSavePoint not allowed while an XA transaction is active."),
+            PSQLState.OBJECT_NOT_IN_STATE);
       }
-      try {
-        /*
-         * If the argument to equals-method is also a wrapper, present the original unwrapped
-         * connection to the underlying equals method.
-         */
-        if (method.getName().equals("equals") && args.length == 1) {
-          Object arg = args[0];
-          if (arg != null && Proxy.isProxyClass(arg.getClass())) {
-            InvocationHandler h = Proxy.getInvocationHandler(arg);
-            if (h instanceof ConnectionHandler) {
-              // unwrap argument
-              args = new Object[]{((ConnectionHandler) h).con};
-            }
-          }
-        }
+    }
 
-        return method.invoke(con, args);
-      } catch (InvocationTargetException ex) {
-        throw ex.getTargetException();
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+      if (autoCommit) {
+        checkNoXATransaction();
       }
+      super.setAutoCommit(autoCommit);
+    }
+
+    @Override
+    public void commit() throws SQLException {
+      checkNoXATransaction();
+      super.commit();
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+      checkNoXATransaction();
+      super.rollback();
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+      checkNoXATransaction();
+      super.rollback(savepoint);
     }
   }
 
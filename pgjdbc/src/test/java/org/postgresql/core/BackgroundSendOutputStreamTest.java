@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class BackgroundSendOutputStreamTest {
+  private ExecutorService executor;
+  private final AtomicBoolean closed = new AtomicBoolean();
+  private final Closeable connection = new Closeable() {
+    @Override
+    public void close() {
+      closed.set(true);
+    }
+  };
+
+  @Before
+  public void setUp() {
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void writesInOrder() throws Exception {
+    ByteArrayOutputStream target = new ByteArrayOutputStream();
+    BackgroundSendOutputStream out = new BackgroundSendOutputStream(target, connection, executor);
+    byte[] expected = new byte[100000];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = (byte) i;
+    }
+    out.write(expected, 0, 10);
+    out.flush();
+    for (int i = 10; i < 1000; i++) {
+      out.write(expected[i]);
+    }
+    out.write(expected, 1000, expected.length - 1000);
+    out.finish();
+    assertArrayEquals(expected, target.toByteArray());
+  }
+
+  @Test
+  public void writesDoNotWaitForTheSocket() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    ByteArrayOutputStream written = new ByteArrayOutputStream();
+    OutputStream blocked = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+        written.write(b, off, len);
+      }
+    };
+    BackgroundSendOutputStream out = new BackgroundSendOutputStream(blocked, connection, executor);
+    // Much more than any socket buffer, yet the writes return
+    byte[] data = new byte[1024 * 1024];
+    for (int i = 0; i < 10; i++) {
+      out.write(data, 0, data.length);
+      out.flush();
+    }
+    assertEquals(0, written.size());
+    release.countDown();
+    out.finish();
+    assertEquals(10 * data.length, written.size());
+  }
+
+  @Test
+  public void boundedQueueBlocksWrites() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    OutputStream blocked = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+        written.write(b, off, len);
+      }
+    };
+    final BackgroundSendOutputStream out =
+        new BackgroundSendOutputStream(blocked, connection, executor, 128 * 1024, null);
+    final CountDownLatch writesDone = new CountDownLatch(1);
+    Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          out.write(new byte[1024 * 1024]);
+          out.finish();
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+        writesDone.countDown();
+      }
+    });
+    writer.start();
+    assertFalse("The writes should wait for room in the queue",
+        writesDone.await(200, TimeUnit.MILLISECONDS));
+    release.countDown();
+    assertTrue(writesDone.await(10, TimeUnit.SECONDS));
+    assertEquals(1024 * 1024, written.size());
+  }
+
+  @Test
+  public void failureClosesConnection() throws Exception {
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("Broken pipe");
+      }
+    };
+    BackgroundSendOutputStream out = new BackgroundSendOutputStream(broken, connection, executor);
+    out.write(1);
+    out.flush();
+    try {
+      out.finish();
+      fail("The write failure should be reported");
+    } catch (IOException e) {
+      assertEquals("Broken pipe", e.getCause().getMessage());
+    }
+    assertTrue("The connection should be closed so the reader does not wait", closed.get());
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void abortDoesNotWaitForTheSocket() throws Exception {
+    final CountDownLatch socketClosed = new CountDownLatch(1);
+    OutputStream blocked = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        try {
+          socketClosed.await();
+        } catch (InterruptedException e) {
+          throw new IOException(e);
+        }
+        throw new IOException("Socket closed");
+      }
+    };
+    Closeable socket = new Closeable() {
+      @Override
+      public void close() {
+        socketClosed.countDown();
+      }
+    };
+    BackgroundSendOutputStream out =
+        new BackgroundSendOutputStream(blocked, socket, executor, 128 * 1024, null);
+    assertFalse(out.isFillingUp());
+    for (int i = 0; i < 4; i++) {
+      out.write(new byte[32 * 1024]);
+    }
+    assertTrue("Half of the queue is used", out.isFillingUp());
+    out.abort();
+    assertEquals(0, socketClosed.getCount());
+    executor.shutdown();
+    assertTrue("The background task should stop",
+        executor.awaitTermination(10, TimeUnit.SECONDS));
+    try {
+      out.write(1);
+      fail("The stream should not accept data once aborted");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGProperty;
+import org.postgresql.util.HostSpec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SocketChannelTransportTest {
+  private ServerSocket serverSocket;
+  private PGStream pgStream;
+  private Socket serverSide;
+
+  @Before
+  public void setUp() throws Exception {
+    serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    Properties info = new Properties();
+    PGProperty.SOCKET_CHANNEL.set(info, true);
+    pgStream = new PGStream(SocketFactoryFactory.getSocketFactory(info),
+        new HostSpec(serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort()),
+        10000);
+    serverSide = serverSocket.accept();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    pgStream.close();
+    serverSide.close();
+    serverSocket.close();
+  }
+
+  @Test
+  public void usesChannel() {
+    assertNotNull("socketChannel=true should produce a channel-backed socket",
+        pgStream.getSocket().getChannel());
+  }
+
+  @Test
+  public void sendAndReceive() throws Exception {
+    pgStream.sendChar('Q');
+    pgStream.sendInteger4(0x01020304);
+    pgStream.sendInteger2(-2);
+    pgStream.send(new byte[]{'a', 'b', 'c', 0});
+    pgStream.flush();
+
+    DataInputStream in = new DataInputStream(serverSide.getInputStream());
+    assertEquals('Q', in.readByte());
+    assertEquals(0x01020304, in.readInt());
+    assertEquals(-2, in.readShort());
+    byte[] str = new byte[4];
+    in.readFully(str);
+    assertArrayEquals(new byte[]{'a', 'b', 'c', 0}, str);
+
+    OutputStream out = serverSide.getOutputStream();
+    out.write(new byte[]{'Z', 0, 0, 0, 5, 'I', 'h', 'i', 0});
+    out.flush();
+    assertEquals('Z', pgStream.receiveChar());
+    assertEquals(5, pgStream.receiveInteger4());
+    assertEquals('I', pgStream.peekChar());
+    assertEquals('I', pgStream.receiveChar());
+    assertEquals("hi", pgStream.receiveString());
+  }
+
+  @Test
+  public void stringsAreDecodedFromTheReceiveBuffer() throws Exception {
+    // Longer than the 64 KiB receive buffer, so it spans several reads and must be made contiguous
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; sb.length() < 150000; i++) {
+      sb.append(i).append(',');
+    }
+    final String longString = sb.toString();
+    Thread server = new Thread() {
+      @Override
+      public void run() {
+        try {
+          OutputStream out = serverSide.getOutputStream();
+          out.write(new byte[]{'S', 'k', 'e', 'y', 0});
+          out.flush();
+          Thread.sleep(50);
+          byte[] bytes = longString.getBytes("UTF-8");
+          out.write(bytes, 0, 1000);
+          out.flush();
+          Thread.sleep(50);
+          out.write(bytes, 1000, bytes.length - 1000);
+          out.write(0);
+          out.write(new byte[]{'v', 'a', 'l', 'u', 'e', 0, 0, 0, 42});
+          out.flush();
+        } catch (Exception e) {
+          // the test fails on the receiving side
+        }
+      }
+    };
+    server.start();
+    assertEquals('S', pgStream.receiveChar());
+    assertEquals("key", pgStream.receiveString());
+    assertEquals(longString, pgStream.receiveString());
+    assertEquals("value", pgStream.receiveString(5));
+    assertEquals(42, pgStream.receiveInteger4());
+    server.join();
+  }
+
+  @Test
+  public void largeTransferSpansBuffers() throws Exception {
+    final byte[] data = new byte[1024 * 1024 + 17];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i * 31);
+    }
+    // Echo the data back while it is being sent, so neither side blocks on full socket buffers
+    Thread echo = new Thread() {
+      @Override
+      public void run() {
+        try {
+          InputStream in = serverSide.getInputStream();
+          OutputStream out = serverSide.getOutputStream();
+          byte[] buf = new byte[8192];
+          int remaining = data.length;
+          while (remaining > 0) {
+            int read = in.read(buf, 0, Math.min(buf.length, remaining));
+            if (read < 0) {
+              return;
+            }
+            out.write(buf, 0, read);
+            remaining -= read;
+          }
+          out.flush();
+        } catch (IOException e) {
+          // the test fails on the receiving side
+        }
+      }
+    };
+    echo.start();
+    pgStream.send(data);
+    pgStream.flush();
+    byte[] received = pgStream.receive(data.length);
+    echo.join();
+    assertArrayEquals(data, received);
+  }
+
+  @Test
+  public void backgroundSendWhileReceiving() throws Exception {
+    // Far more than the socket buffers: without the background send, the client would block on
+    // write while the echo blocks on write too
+    final byte[] data = new byte[16 * 1024 * 1024];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i * 7);
+    }
+    Thread echo = new Thread() {
+      @Override
+      public void run() {
+        try {
+          InputStream in = serverSide.getInputStream();
+          OutputStream out = serverSide.getOutputStream();
+          byte[] buf = new byte[8192];
+          int remaining = data.length;
+          while (remaining > 0) {
+            int read = in.read(buf, 0, Math.min(buf.length, remaining));
+            if (read < 0) {
+              return;
+            }
+            out.write(buf, 0, read);
+            remaining -= read;
+          }
+          out.flush();
+        } catch (IOException e) {
+          // the test fails on the receiving side
+        }
+      }
+    };
+    echo.start();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      assertTrue(pgStream.isBackgroundSendSupported());
+      pgStream.startBackgroundSend(executor);
+      pgStream.send(data);
+      pgStream.flush();
+      byte[] received = pgStream.receive(data.length);
+      pgStream.finishBackgroundSend();
+      echo.join();
+      assertArrayEquals(data, received);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Echoes the data it receives in small reads, pausing now and then, so it falls behind the
+   * client and blocks on its writes while the client does not read.
+   */
+  private static Thread slowEcho(final Socket socket, final int length) {
+    Thread echo = new Thread() {
+      @Override
+      public void run() {
+        try {
+          InputStream in = socket.getInputStream();
+          OutputStream out = socket.getOutputStream();
+          byte[] buf = new byte[4096];
+          int remaining = length;
+          for (int i = 0; remaining > 0; i++) {
+            int read = in.read(buf, 0, Math.min(buf.length, remaining));
+            if (read < 0) {
+              return;
+            }
+            out.write(buf, 0, read);
+            remaining -= read;
+            if (i % 256 == 0) {
+              Thread.sleep(1);
+            }
+          }
+          out.flush();
+        } catch (Exception e) {
+          // the test fails on the receiving side
+        }
+      }
+    };
+    echo.start();
+    return echo;
+  }
+
+  private static void assertOversizedWriteDoesNotBlock(PGStream stream, Socket serverSide)
+      throws Exception {
+    // A single write far larger than the queue of the background send and than the socket
+    // buffers: the responses must be received while the write waits for room in the queue
+    stream.getSocket().setReceiveBufferSize(64 * 1024);
+    stream.getSocket().setSendBufferSize(64 * 1024);
+    serverSide.setReceiveBufferSize(64 * 1024);
+    serverSide.setSendBufferSize(64 * 1024);
+    byte[] data = new byte[16 * 1024 * 1024];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i * 13);
+    }
+    Thread echo = slowEcho(serverSide, data.length);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      stream.startBackgroundSend(executor, 256 * 1024);
+      stream.send(data);
+      stream.flush();
+      stream.finishBackgroundSend();
+      byte[] received = stream.receive(data.length);
+      echo.join();
+      assertArrayEquals(data, received);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void oversizedWriteWithBoundedQueueReceivesResponses() throws Exception {
+    assertOversizedWriteDoesNotBlock(pgStream, serverSide);
+  }
+
+  @Test(timeout = 60000)
+  public void oversizedWriteWithBoundedQueueReceivesResponsesOnSocketStreams() throws Exception {
+    PGStream socketStream = new PGStream(SocketFactoryFactory.getSocketFactory(new Properties()),
+        new HostSpec(serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort()),
+        10000);
+    Socket socketServerSide = serverSocket.accept();
+    try {
+      assertNull(socketStream.getSocket().getChannel());
+      assertOversizedWriteDoesNotBlock(socketStream, socketServerSide);
+    } finally {
+      socketStream.close();
+      socketServerSide.close();
+    }
+  }
+
+  @Test
+  public void readTimeout() throws Exception {
+    pgStream.setNetworkTimeout(100);
+    try {
+      pgStream.receiveChar();
+      fail("receiveChar should time out since the server sends nothing");
+    } catch (SocketTimeoutException expected) {
+      // ok
+    }
+    assertFalse(pgStream.hasMessagePending());
+    serverSide.getOutputStream().write('N');
+    serverSide.getOutputStream().flush();
+    Thread.sleep(50);
+    assertTrue(pgStream.hasMessagePending());
+    assertEquals('N', pgStream.receiveChar());
+  }
+
+  @Test
+  public void socketStreamsUsableAfterGetBlockingSocket() throws Exception {
+    serverSide.getOutputStream().write('N');
+    serverSide.getOutputStream().flush();
+    // Reading through the channel switches it to non-blocking mode
+    assertEquals('N', pgStream.receiveChar());
+    assertFalse("getSocket keeps the channel as is",
+        pgStream.getSocket().getChannel().isBlocking());
+
+    // Layering SSL uses the socket streams directly, which requires a blocking channel
+    Socket socket = pgStream.getBlockingSocket();
+    serverSide.getOutputStream().write('S');
+    serverSide.getOutputStream().flush();
+    assertEquals('S', socket.getInputStream().read());
+  }
+
+  @Test
+  public void abortBreaksABlockedRead() throws Exception {
+    pgStream.setNetworkTimeout(0);
+    final Exception[] failure = new Exception[1];
+    Thread reader = new Thread() {
+      @Override
+      public void run() {
+        try {
+          pgStream.receiveChar();
+        } catch (IOException e) {
+          failure[0] = e;
+        }
+      }
+    };
+    reader.start();
+    Thread.sleep(200);
+    pgStream.abort();
+    reader.join(5000);
+    assertFalse("abort must break the read that waits for the server", reader.isAlive());
+    assertNotNull("The blocked read should fail", failure[0]);
+  }
+}
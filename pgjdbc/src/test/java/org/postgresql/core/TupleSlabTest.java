@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.postgresql.util.HostSpec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import javax.net.SocketFactory;
+
+public class TupleSlabTest {
+  private ServerSocket serverSocket;
+  private PGStream pgStream;
+  private Socket serverSide;
+
+  @Before
+  public void setUp() throws Exception {
+    serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    pgStream = new PGStream(SocketFactory.getDefault(),
+        new HostSpec(serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort()),
+        10000);
+    serverSide = serverSocket.accept();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    pgStream.close();
+    serverSide.close();
+    serverSocket.close();
+  }
+
+  private static byte[] dataRow(byte[]... fields) throws IOException {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(payload);
+    out.writeShort(fields.length);
+    for (byte[] field : fields) {
+      if (field == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(field.length);
+        out.write(field);
+      }
+    }
+    ByteArrayOutputStream message = new ByteArrayOutputStream();
+    DataOutputStream msg = new DataOutputStream(message);
+    msg.writeInt(payload.size() + 4);
+    payload.writeTo(msg);
+    return message.toByteArray();
+  }
+
+  private Tuple receive(TupleSlab slab, byte[]... fields) throws Exception {
+    OutputStream out = serverSide.getOutputStream();
+    out.write(dataRow(fields));
+    out.flush();
+    return pgStream.receiveTupleV3(slab);
+  }
+
+  @Test
+  public void rowsShareSlab() throws Exception {
+    TupleSlab slab = new TupleSlab(1024);
+    byte[] a = "abc".getBytes(StandardCharsets.US_ASCII);
+    byte[] empty = new byte[0];
+    Tuple first = receive(slab, a, null, empty);
+    Tuple second = receive(slab, null, a);
+
+    assertEquals(3, first.fieldCount());
+    assertArrayEquals(a, first.get(0));
+    assertNull(first.get(1));
+    assertEquals(-1, first.fieldLength(1));
+    assertArrayEquals(empty, first.get(2));
+    assertEquals(3, first.length());
+
+    assertEquals(2, second.fieldCount());
+    assertNull(second.get(0));
+    assertArrayEquals(a, second.get(1));
+    assertSame(first.fieldBuffer(0), second.fieldBuffer(1));
+    assertEquals(a.length, second.fieldLength(1));
+  }
+
+  @Test
+  public void largeRowGetsDedicatedArray() throws Exception {
+    TupleSlab slab = new TupleSlab(64);
+    byte[] small = {1, 2, 3};
+    byte[] large = new byte[100];
+    for (int i = 0; i < large.length; i++) {
+      large[i] = (byte) i;
+    }
+    Tuple first = receive(slab, small);
+    Tuple second = receive(slab, large);
+    Tuple third = receive(slab, small);
+
+    assertArrayEquals(large, second.get(0));
+    assertEquals(4, second.fieldOffset(0));
+    assertNotSame(first.fieldBuffer(0), second.fieldBuffer(0));
+    // the chunk keeps being used after a dedicated allocation
+    assertSame(first.fieldBuffer(0), third.fieldBuffer(0));
+    assertArrayEquals(small, third.get(0));
+  }
+
+  @Test
+  public void copies() throws Exception {
+    byte[] a = {'x'};
+    Tuple tuple = receive(new TupleSlab(), a, null);
+    assertSame(tuple, tuple.readOnlyCopy());
+    Tuple copy = tuple.updateableCopy();
+    copy.set(1, a);
+    assertArrayEquals(a, copy.get(1));
+    assertNull(tuple.get(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void slabTupleIsReadOnly() throws Exception {
+    receive(new TupleSlab(), new byte[]{1}).set(0, null);
+  }
+}
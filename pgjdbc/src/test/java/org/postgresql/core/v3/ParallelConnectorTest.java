@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core.v3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.hostchooser.CandidateHost;
+import org.postgresql.hostchooser.HostRequirement;
+import org.postgresql.util.HostSpec;
+import org.postgresql.util.PSQLState;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ParallelConnectorTest {
+
+  /**
+   * Connections are the names of the hosts. Each host answers after its delay, as a primary or a
+   * secondary, or fails.
+   */
+  private static class FakeConnector extends ParallelConnector<String> {
+    private final Map<String, Long> delays = new HashMap<String, Long>();
+    private final Map<String, Boolean> primaries = new HashMap<String, Boolean>();
+    private final Map<String, Exception> failures = new HashMap<String, Exception>();
+    final List<String> opened = Collections.synchronizedList(new ArrayList<String>());
+    final List<String> closed = Collections.synchronizedList(new ArrayList<String>());
+
+    FakeConnector(HostRequirement targetServerType, long delayMillis) {
+      super(targetServerType, delayMillis);
+    }
+
+    FakeConnector host(String name, long delay, boolean primary) {
+      delays.put(name, delay);
+      primaries.put(name, primary);
+      return this;
+    }
+
+    FakeConnector failing(String name, long delay, Exception failure) {
+      delays.put(name, delay);
+      failures.put(name, failure);
+      return this;
+    }
+
+    @Override
+    String openConnection(HostSpec hostSpec) throws SQLException, IOException {
+      String name = hostSpec.getHost();
+      opened.add(name);
+      try {
+        Thread.sleep(delays.get(name));
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      Exception failure = failures.get(name);
+      if (failure instanceof SQLException) {
+        throw (SQLException) failure;
+      }
+      if (failure instanceof IOException) {
+        throw (IOException) failure;
+      }
+      return name;
+    }
+
+    @Override
+    boolean isPrimary(String connection) {
+      return primaries.get(connection);
+    }
+
+    @Override
+    void runInitialQueries(String connection) {
+    }
+
+    @Override
+    void closeConnection(String connection) {
+      closed.add(connection);
+    }
+  }
+
+  private static List<CandidateHost> candidates(HostRequirement requirement, String... hosts) {
+    List<CandidateHost> candidates = new ArrayList<CandidateHost>();
+    for (String host : hosts) {
+      candidates.add(new CandidateHost(new HostSpec(host, 5432), requirement));
+    }
+    return candidates;
+  }
+
+  private static void awaitClosed(FakeConnector connector, int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (connector.closed.size() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void slowHostDoesNotDelayTheConnection() throws Exception {
+    FakeConnector connector = new FakeConnector(HostRequirement.any, 50)
+        .host("slow", 2000, true)
+        .host("fast", 0, true);
+    long start = System.currentTimeMillis();
+    String connection = connector.connect(candidates(HostRequirement.any, "slow", "fast").iterator());
+    assertEquals("fast", connection);
+    assertTrue("The slow host must not delay the connection",
+        System.currentTimeMillis() - start < 1000);
+    awaitClosed(connector, 1);
+    assertEquals("The abandoned connection is closed once established",
+        Collections.singletonList("slow"), connector.closed);
+  }
+
+  @Test
+  public void failedAttemptStartsTheNextOneAtOnce() throws Exception {
+    FakeConnector connector = new FakeConnector(HostRequirement.any, 10000)
+        .failing("down", 0, new ConnectException("Connection refused"))
+        .host("up", 0, true);
+    long start = System.currentTimeMillis();
+    String connection = connector.connect(candidates(HostRequirement.any, "down", "up").iterator());
+    assertEquals("up", connection);
+    assertTrue("The next host is tried as soon as the previous one fails",
+        System.currentTimeMillis() - start < 5000);
+  }
+
+  @Test
+  public void hostOfTheWrongTypeIsSkipped() throws Exception {
+    FakeConnector connector = new FakeConnector(HostRequirement.primary, 0)
+        .host("standby", 0, false)
+        .host("primary", 200, true);
+    String connection =
+        connector.connect(candidates(HostRequirement.primary, "standby", "primary").iterator());
+    assertEquals("primary", connection);
+    assertEquals(Collections.singletonList("standby"), connector.closed);
+  }
+
+  @Test
+  public void secondaryIsPreferredToAFasterPrimary() throws Exception {
+    FakeConnector connector = new FakeConnector(HostRequirement.preferSecondary, 0)
+        .host("primary", 0, true)
+        .host("standby", 200, false);
+    List<CandidateHost> candidates = candidates(HostRequirement.secondary, "primary", "standby");
+    candidates.addAll(candidates(HostRequirement.any, "primary", "standby"));
+    String connection = connector.connect(candidates.iterator());
+    assertEquals("standby", connection);
+    assertEquals(Collections.singletonList("primary"), connector.closed);
+    assertEquals("Each host is connected to once", 2, connector.opened.size());
+  }
+
+  @Test
+  public void primaryIsKeptWhenNoSecondaryIsAvailable() throws Exception {
+    FakeConnector connector = new FakeConnector(HostRequirement.preferSecondary, 0)
+        .host("primary", 0, true)
+        .failing("standby", 200, new ConnectException("Connection refused"));
+    List<CandidateHost> candidates = candidates(HostRequirement.secondary, "primary", "standby");
+    candidates.addAll(candidates(HostRequirement.any, "primary", "standby"));
+    assertEquals("primary", connector.connect(candidates.iterator()));
+  }
+
+  @Test
+  public void failureOfTheLastHostIsReported() throws Exception {
+    SQLException authFailure = new SQLException("password authentication failed", "28P01");
+    FakeConnector connector = new FakeConnector(HostRequirement.any, 0)
+        .failing("first", 0, new ConnectException("Connection refused"))
+        .failing("second", 100, authFailure);
+    try {
+      connector.connect(candidates(HostRequirement.any, "first", "second").iterator());
+      fail("None of the hosts is available");
+    } catch (SQLException e) {
+      assertEquals(authFailure, e);
+      assertEquals(1, e.getSuppressed().length);
+    }
+  }
+
+  @Test
+  public void missingServerTypeIsReported() throws Exception {
+    FakeConnector connector = new FakeConnector(HostRequirement.primary, 0)
+        .host("standby1", 0, false)
+        .host("standby2", 0, false);
+    try {
+      connector.connect(candidates(HostRequirement.primary, "standby1", "standby2").iterator());
+      fail("None of the hosts is a primary");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.CONNECTION_UNABLE_TO_CONNECT.getState(), e.getSQLState());
+    }
+    assertEquals(2, connector.closed.size());
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.hostchooser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.PGProperty;
+import org.postgresql.util.HostSpec;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+public class MultiHostChooserTest {
+
+  private static List<HostSpec> chosenHosts(HostSpec[] hostSpecs, HostRequirement targetServerType,
+      Properties info) {
+    List<HostSpec> hosts = new ArrayList<HostSpec>();
+    Iterator<CandidateHost> it = new MultiHostChooser(hostSpecs, targetServerType, info).iterator();
+    while (it.hasNext()) {
+      hosts.add(it.next().hostSpec);
+    }
+    return hosts;
+  }
+
+  @Test
+  public void laggingSecondaryIsExcluded() {
+    HostSpec lagging = new HostSpec("lagging-standby", 5432);
+    HostSpec upToDate = new HostSpec("up-to-date-standby", 5432);
+    GlobalHostStatusTracker.reportHostStatus(lagging, HostStatus.Secondary, 120000);
+    GlobalHostStatusTracker.reportHostStatus(upToDate, HostStatus.Secondary, 100);
+    HostSpec[] hostSpecs = {lagging, upToDate};
+
+    Properties info = new Properties();
+    assertEquals("Any lag is accepted by default", Arrays.asList(hostSpecs),
+        chosenHosts(hostSpecs, HostRequirement.secondary, info));
+
+    PGProperty.MAX_REPLICATION_LAG_SECONDS.set(info, 60);
+    assertEquals(Arrays.asList(upToDate), chosenHosts(hostSpecs, HostRequirement.secondary, info));
+  }
+
+  @Test
+  public void allHostsAreTriedWhenAllSecondariesLag() {
+    HostSpec lagging1 = new HostSpec("lagging-standby1", 5432);
+    HostSpec lagging2 = new HostSpec("lagging-standby2", 5432);
+    GlobalHostStatusTracker.reportHostStatus(lagging1, HostStatus.Secondary, 120000);
+    GlobalHostStatusTracker.reportHostStatus(lagging2, HostStatus.Secondary, 180000);
+    HostSpec[] hostSpecs = {lagging1, lagging2};
+
+    Properties info = new Properties();
+    PGProperty.MAX_REPLICATION_LAG_SECONDS.set(info, 60);
+    assertEquals(Arrays.asList(hostSpecs),
+        chosenHosts(hostSpecs, HostRequirement.secondary, info));
+  }
+
+  @Test
+  public void fasterHostIsChosenMoreOften() {
+    HostSpec fast = new HostSpec("fast-standby", 5432);
+    HostSpec slow = new HostSpec("slow-standby", 5432);
+    GlobalHostStatusTracker.reportHostLatency(fast, 1000000);
+    GlobalHostStatusTracker.reportHostLatency(slow, 10000000);
+
+    Random random = new Random(42);
+    int fastFirst = 0;
+    for (int i = 0; i < 1000; i++) {
+      List<HostSpec> hosts = new ArrayList<HostSpec>(Arrays.asList(slow, fast));
+      MultiHostChooser.shuffleByLatency(hosts, random);
+      assertEquals(2, hosts.size());
+      if (hosts.get(0).equals(fast)) {
+        fastFirst++;
+      }
+    }
+    // The fast host comes first with a probability of 10/11
+    assertTrue("The fast host came first " + fastFirst + " times out of 1000",
+        fastFirst > 850 && fastFirst < 960);
+  }
+
+  @Test
+  public void hostWithUnknownLatencyIsStillTried() {
+    HostSpec measured = new HostSpec("measured-standby", 5432);
+    HostSpec unknown = new HostSpec("unknown-standby", 5432);
+    GlobalHostStatusTracker.reportHostLatency(measured, 1000000);
+
+    Random random = new Random(42);
+    int unknownFirst = 0;
+    for (int i = 0; i < 1000; i++) {
+      List<HostSpec> hosts = new ArrayList<HostSpec>(Arrays.asList(measured, unknown));
+      MultiHostChooser.shuffleByLatency(hosts, random);
+      if (hosts.get(0).equals(unknown)) {
+        unknownFirst++;
+      }
+    }
+    assertTrue("The host with an unknown latency came first " + unknownFirst + " times out of 1000",
+        unknownFirst > 400 && unknownFirst < 600);
+  }
+}
@@ -8,6 +8,8 @@ package org.postgresql.jdbc;
 import static org.junit.Assert.assertEquals;
 
 import org.postgresql.PGNotification;
+import org.postgresql.PGPipeline;
+import org.postgresql.codec.TypeCodec;
 import org.postgresql.copy.CopyManager;
 import org.postgresql.core.BaseConnection;
 import org.postgresql.core.CachedQuery;
@@ -15,6 +17,7 @@ import org.postgresql.core.Encoding;
 import org.postgresql.core.QueryExecutor;
 import org.postgresql.core.ReplicationProtocol;
 import org.postgresql.core.TransactionState;
+import org.postgresql.core.TypeCodecRegistry;
 import org.postgresql.core.TypeInfo;
 import org.postgresql.core.Version;
 import org.postgresql.fastpath.Fastpath;
@@ -46,6 +49,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.TimerTask;
 import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
 import java.util.logging.Logger;
 
 public abstract class AbstractArraysTest<A> {
@@ -215,6 +219,7 @@ public abstract class AbstractArraysTest<A> {
   private static final class EncodingConnection implements BaseConnection {
     private final Encoding encoding;
     private final TypeInfo typeInfo = new TypeInfoCache(this, -1);
+    private final TypeCodecRegistry typeCodecRegistry = new TypeCodecRegistry();
 
     EncodingConnection(Encoding encoding) {
       this.encoding = encoding;
@@ -234,6 +239,22 @@ public abstract class AbstractArraysTest<A> {
       return typeInfo;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TypeCodecRegistry getTypeCodecRegistry() {
+      return typeCodecRegistry;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void registerTypeCodec(String type, TypeCodec codec) throws SQLException {
+      throw new UnsupportedOperationException();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -911,6 +932,14 @@ public abstract class AbstractArraysTest<A> {
       throw new UnsupportedOperationException();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PGPipeline createPipeline() throws SQLException {
+      throw new UnsupportedOperationException();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -942,5 +971,21 @@ public abstract class AbstractArraysTest<A> {
     public boolean hintReadOnly() {
       return false;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResourceLock obtainLock() {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Condition lockCondition() {
+      throw new UnsupportedOperationException();
+    }
   }
 }
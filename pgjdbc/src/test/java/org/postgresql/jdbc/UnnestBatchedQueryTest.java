@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class UnnestBatchedQueryTest {
+
+  private static String rewrite(String nativeSql, int parameterCount) {
+    return UnnestBatchedQuery.rewrite(nativeSql, parameterCount, true);
+  }
+
+  @Test
+  public void insert() {
+    assertEquals("INSERT INTO t (a, b) SELECT pgjdbc_batch.p1, upper(pgjdbc_batch.p2)"
+            + " FROM unnest(?, ?) AS pgjdbc_batch(p1, p2)",
+        rewrite("INSERT INTO t (a, b) VALUES ($1, upper($2))", 2));
+    assertEquals("insert into t (conflict) SELECT pgjdbc_batch.p1"
+            + " FROM unnest(?) AS pgjdbc_batch(p1)",
+        rewrite("insert into t (conflict) values ($1)", 1));
+  }
+
+  @Test
+  public void updateAndDelete() {
+    assertEquals("UPDATE t SET v = pgjdbc_batch.p1 FROM unnest(?, ?) AS pgjdbc_batch(p1, p2)"
+            + " WHERE id = pgjdbc_batch.p2",
+        rewrite("UPDATE t SET v = $1 WHERE id = $2", 2));
+    assertEquals("DELETE FROM t USING unnest(?) AS pgjdbc_batch(p1)"
+            + " WHERE id = pgjdbc_batch.p1 AND s = '$2 -- ?'",
+        rewrite("DELETE FROM t WHERE id = $1 AND s = '$2 -- ?'", 1));
+  }
+
+  @Test
+  public void questionMarksAreEscaped() {
+    assertEquals("UPDATE t SET v = 1 FROM unnest(?) AS pgjdbc_batch(p1)"
+            + " WHERE j ?? 'a' AND id = pgjdbc_batch.p1",
+        rewrite("UPDATE t SET v = 1 WHERE j ? 'a' AND id = $1", 1));
+  }
+
+  @Test
+  public void unsupportedStatements() {
+    assertNull(rewrite("INSERT INTO t (a, b) VALUES ($1, $2), ($3, $4)", 4));
+    assertNull(rewrite("INSERT INTO t (a, b) VALUES ($1, DEFAULT)", 1));
+    assertNull(rewrite("INSERT INTO t (a, b) SELECT $1, $2", 2));
+    assertNull(rewrite("INSERT INTO t (a, b) VALUES ($1, $2) RETURNING a", 2));
+    assertNull(rewrite("INSERT INTO t (a, b) VALUES ($1, $2) ON CONFLICT (a) DO UPDATE SET b = $3",
+        3));
+    assertNull(rewrite("INSERT INTO t (a, b) VALUES ($1, $2) ON CONFLICT (a) DO UPDATE SET b = 1",
+        2));
+    assertNull(rewrite("insert into conflict values ($1, $2) on conflict (a) do nothing", 2));
+    assertNull(rewrite("UPDATE t SET v = $1", 1));
+    assertNull(rewrite("UPDATE t SET v = $1 WHERE id = 1", 1));
+    assertNull(rewrite("UPDATE t SET v = $1 FROM u WHERE t.id = u.id AND u.x = $2", 2));
+    assertNull(rewrite("DELETE FROM t USING u WHERE t.id = u.id AND u.x = $1", 1));
+    assertNull(rewrite("DELETE FROM t WHERE CURRENT OF c", 0));
+    assertNull(rewrite("WITH x AS (SELECT 1) DELETE FROM t WHERE id = $1", 1));
+    assertNull(rewrite("SELECT $1", 1));
+  }
+}
@@ -425,6 +425,60 @@ public class LogicalReplicationStatusTest {
     );
   }
 
+  @Test
+  public void testStatusIsSentInBackgroundWhileStreamIsNotRead() throws Exception {
+    PGConnection pgConnection = (PGConnection) replicationConnection;
+
+    final int intervalTime = 100;
+    final TimeUnit timeFormat = TimeUnit.MILLISECONDS;
+
+    LogSequenceNumber startLSN = getCurrentLSN();
+
+    Statement st = sqlConnection.createStatement();
+    st.execute("insert into test_logic_table(name) values('previous changes')");
+    st.close();
+
+    PGReplicationStream stream =
+        pgConnection
+            .getReplicationAPI()
+            .replicationStream()
+            .logical()
+            .withSlotName(SLOT_NAME)
+            .withStartPosition(startLSN)
+            .withStatusInterval(intervalTime, timeFormat)
+            .withBackgroundFeedback(true)
+            .start();
+
+    receiveMessageWithoutBlock(stream, 3);
+
+    LogSequenceNumber waitLSN = stream.getLastReceiveLSN();
+
+    stream.setAppliedLSN(waitLSN);
+    stream.setFlushedLSN(waitLSN);
+
+    st = sqlConnection.createStatement();
+    st.execute("insert into test_logic_table(name) values('changes while not reading')");
+    st.close();
+
+    //the stream is not read, the status is sent by the feedback thread
+    timeFormat.sleep(intervalTime * 5);
+
+    assertThat("Status is sent to backend in the background while the stream is not read",
+        getFlushLocationOnView(), equalTo(waitLSN)
+    );
+
+    LogSequenceNumber beforeRead = stream.getLastReceiveLSN();
+    List<String> received = receiveMessageWithoutBlock(stream, 3);
+    assertThat("Changes received by the feedback thread are kept for the consumer",
+        received.get(1).contains("changes while not reading"), equalTo(true)
+    );
+    assertThat("The LSN of a change received by the feedback thread is only reported once the"
+            + " consumer reads the change",
+        beforeRead.asLong() < stream.getLastReceiveLSN().asLong(), equalTo(true)
+    );
+    stream.close();
+  }
+
   private LogSequenceNumber getSentLocationOnView() throws Exception {
     return getLSNFromView((((BaseConnection) sqlConnection).haveMinimumServerVersion(ServerVersion.v10)
         ? "sent_lsn" : "sent_location"));
@@ -30,6 +30,7 @@ import org.junit.experimental.categories.Category;
 import org.junit.rules.ExpectedException;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -202,6 +203,55 @@ public class LogicalReplicationTest {
     );
   }
 
+  @Test(timeout = 1000)
+  public void testReceiveChangesIntoBuffer() throws Exception {
+    PGConnection pgConnection = (PGConnection) replConnection;
+
+    LogSequenceNumber lsn = getCurrentLSN();
+
+    PGReplicationStream stream =
+        pgConnection
+            .getReplicationAPI()
+            .replicationStream()
+            .logical()
+            .withSlotName(SLOT_NAME)
+            .withStartPosition(lsn)
+            .withSlotOption("include-xids", false)
+            .withSlotOption("skip-empty-xacts", true)
+            .start();
+
+    Statement st = sqlConnection.createStatement();
+    st.execute("insert into test_logic_table(name) values('message into a buffer')");
+    st.close();
+
+    ByteBuffer buffer = ByteBuffer.allocate(8);
+    assertThat(stream.read(buffer), equalTo(5));
+    buffer.flip();
+    assertThat(StandardCharsets.UTF_8.decode(buffer).toString(), equalTo("BEGIN"));
+
+    buffer.clear();
+    try {
+      stream.read(buffer);
+      fail("The INSERT record does not fit in 8 bytes");
+    } catch (PSQLException e) {
+      assertThat(e.getSQLState(), equalTo(PSQLState.INVALID_PARAMETER_VALUE.getState()));
+    }
+
+    List<String> result = new ArrayList<String>();
+    // the record that did not fit is pending
+    buffer = ByteBuffer.allocateDirect(1024);
+    assertThat(stream.readPending(buffer), equalTo(buffer.position()));
+    buffer.flip();
+    result.add(StandardCharsets.UTF_8.decode(buffer).toString());
+    // the variants can be mixed
+    result.add(toString(stream.read()));
+
+    assertThat(group(result), equalTo(group(Arrays.asList(
+        "table public.test_logic_table: INSERT: pk[integer]:1 name[character varying]:'message into a buffer'",
+        "COMMIT"
+    ))));
+  }
+
   @Test(timeout = 1000)
   public void testStartFromCurrentServerLSNWithoutSpecifyLSNExplicitly() throws Exception {
     PGConnection pgConnection = (PGConnection) replConnection;
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.postgresql.util.PSQLState;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class ReplicationPipelineTest {
+
+  /**
+   * Serves the messages "0", "1", ... at the LSNs 1, 2, ..., then reports that nothing was
+   * received, closes itself or fails. The last receive LSN of the stream is one message ahead,
+   * like a stream whose feedback thread already received the next message.
+   */
+  private static class FakeStream implements PGReplicationStream {
+    private final int messageCount;
+    private final boolean closeWhenDrained;
+    private final @Nullable SQLException failure;
+    private int next;
+    private volatile boolean closed;
+    private volatile LogSequenceNumber flushed = LogSequenceNumber.INVALID_LSN;
+    private volatile LogSequenceNumber applied = LogSequenceNumber.INVALID_LSN;
+
+    FakeStream(int messageCount, boolean closeWhenDrained, @Nullable SQLException failure) {
+      this.messageCount = messageCount;
+      this.closeWhenDrained = closeWhenDrained;
+      this.failure = failure;
+    }
+
+    @Override
+    public @Nullable ByteBuffer read() throws SQLException {
+      ReplicationMessage message = readMessage();
+      return message == null ? null : message.getPayload();
+    }
+
+    @Override
+    public @Nullable ReplicationMessage readMessage() throws SQLException {
+      if (next < messageCount) {
+        ByteBuffer payload =
+            ByteBuffer.wrap(String.valueOf(next++).getBytes(StandardCharsets.UTF_8));
+        return new ReplicationMessage(payload, LogSequenceNumber.valueOf(next));
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      closed = closeWhenDrained;
+      return null;
+    }
+
+    @Override
+    public @Nullable ByteBuffer readPending() throws SQLException {
+      return read();
+    }
+
+    @Override
+    public LogSequenceNumber getLastReceiveLSN() {
+      return LogSequenceNumber.valueOf(next + 1);
+    }
+
+    @Override
+    public LogSequenceNumber getLastFlushedLSN() {
+      return flushed;
+    }
+
+    @Override
+    public LogSequenceNumber getLastAppliedLSN() {
+      return applied;
+    }
+
+    @Override
+    public void setFlushedLSN(LogSequenceNumber flushed) {
+      this.flushed = flushed;
+    }
+
+    @Override
+    public void setAppliedLSN(LogSequenceNumber applied) {
+      this.applied = applied;
+    }
+
+    @Override
+    public void forceUpdateStatus() {
+    }
+
+    @Override
+    public boolean isClosed() {
+      return closed;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  /**
+   * Decodes the message as its number, after a random delay so the workers complete out of
+   * order.
+   */
+  private static class SlowDecoder implements ReplicationPipeline.Decoder<Integer> {
+    private final Random random = new Random(42);
+
+    @Override
+    public @Nullable Integer decode(ByteBuffer message, LogSequenceNumber lsn) throws Exception {
+      int delay;
+      synchronized (random) {
+        delay = random.nextInt(3);
+      }
+      Thread.sleep(delay);
+      byte[] bytes = new byte[message.remaining()];
+      message.get(bytes);
+      return Integer.valueOf(new String(bytes, StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Records the messages, checking that the LSNs are acknowledged in order.
+   */
+  private static class RecordingSink implements ReplicationPipeline.Sink<Integer> {
+    private final FakeStream stream;
+    private final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+    private final int stopAt;
+    private @Nullable ReplicationPipeline<Integer> pipeline;
+
+    RecordingSink(FakeStream stream, int stopAt) {
+      this.stream = stream;
+      this.stopAt = stopAt;
+    }
+
+    @Override
+    public void accept(Integer value, LogSequenceNumber lsn) {
+      assertEquals("LSN of message " + value, value + 1L, lsn.asLong());
+      assertEquals("Earlier messages are acknowledged before the sink gets the next one",
+          value.longValue(), stream.getLastFlushedLSN().asLong());
+      received.add(value);
+      if (value == stopAt && pipeline != null) {
+        pipeline.stop();
+      }
+    }
+  }
+
+  private static List<Integer> range(int count) {
+    List<Integer> values = new ArrayList<Integer>();
+    for (int i = 0; i < count; i++) {
+      values.add(i);
+    }
+    return values;
+  }
+
+  @Test
+  public void messagesAreDeliveredInOrder() throws SQLException {
+    FakeStream stream = new FakeStream(2000, false, null);
+    RecordingSink sink = new RecordingSink(stream, 1999);
+    ReplicationPipeline<Integer> pipeline =
+        new ReplicationPipeline<Integer>(stream, new SlowDecoder(), sink, 8);
+    pipeline.setCapacity(64);
+    sink.pipeline = pipeline;
+    pipeline.run();
+    assertEquals(range(2000), sink.received);
+    assertEquals(2000, stream.getLastFlushedLSN().asLong());
+    assertEquals(2000, stream.getLastAppliedLSN().asLong());
+  }
+
+  @Test
+  public void closedStreamEndsThePipeline() throws SQLException {
+    FakeStream stream = new FakeStream(100, true, null);
+    RecordingSink sink = new RecordingSink(stream, -1);
+    ReplicationPipeline<Integer> pipeline = new ReplicationPipeline<Integer>(stream,
+        new ReplicationPipeline.Decoder<Integer>() {
+          @Override
+          public @Nullable Integer decode(ByteBuffer message, LogSequenceNumber lsn) {
+            // odd messages are skipped, but acknowledged
+            return lsn.asLong() % 2 == 0 ? null : (int) lsn.asLong() - 1;
+          }
+        }, sink, 3);
+    pipeline.setCapacity(4);
+    pipeline.run();
+    List<Integer> expected = new ArrayList<Integer>();
+    for (int i = 0; i < 100; i += 2) {
+      expected.add(i);
+    }
+    assertEquals(expected, sink.received);
+    assertEquals(100, stream.getLastFlushedLSN().asLong());
+  }
+
+  @Test
+  public void decodingFailureStopsThePipelineAfterEarlierMessages() {
+    FakeStream stream = new FakeStream(1000, false, null);
+    RecordingSink sink = new RecordingSink(stream, -1);
+    final SlowDecoder slowDecoder = new SlowDecoder();
+    ReplicationPipeline<Integer> pipeline = new ReplicationPipeline<Integer>(stream,
+        new ReplicationPipeline.Decoder<Integer>() {
+          @Override
+          public @Nullable Integer decode(ByteBuffer message, LogSequenceNumber lsn)
+              throws Exception {
+            if (lsn.asLong() == 51) {
+              throw new IllegalArgumentException("invalid message");
+            }
+            return slowDecoder.decode(message, lsn);
+          }
+        }, sink, 4);
+    pipeline.setCapacity(16);
+    try {
+      pipeline.run();
+      fail("The decoding failure should be reported");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.DATA_ERROR.getState(), e.getSQLState());
+      assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+    }
+    assertEquals(range(50), sink.received);
+    assertEquals(50, stream.getLastFlushedLSN().asLong());
+  }
+
+  @Test
+  public void readFailureIsReportedAfterTheMessagesRead() {
+    SQLException failure = new SQLException("connection lost", "08006");
+    FakeStream stream = new FakeStream(10, false, failure);
+    RecordingSink sink = new RecordingSink(stream, -1);
+    ReplicationPipeline<Integer> pipeline =
+        new ReplicationPipeline<Integer>(stream, new SlowDecoder(), sink, 2);
+    try {
+      pipeline.run();
+      fail("The read failure should be reported");
+    } catch (SQLException e) {
+      assertSame(failure, e);
+    }
+    assertEquals(range(10), sink.received);
+  }
+
+  @Test
+  public void defaultReadCopiesTheRecordIntoTheBuffer() throws SQLException {
+    FakeStream stream = new FakeStream(12, true, null);
+    ByteBuffer target = ByteBuffer.allocate(2);
+    assertEquals(1, stream.read(target));
+    assertEquals(1, stream.read(target));
+    assertEquals("01", new String(target.array(), StandardCharsets.UTF_8));
+    target.clear();
+    for (int i = 2; i < 10; i++) {
+      stream.read(target);
+      target.clear();
+    }
+    target.limit(1);
+    try {
+      stream.read(target);
+      fail("The record 10 does not fit in a single byte");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.INVALID_PARAMETER_VALUE.getState(), e.getSQLState());
+    }
+    assertEquals(0, target.position());
+    // The default implementation does not keep the record that did not fit
+    assertEquals(2, stream.readPending(ByteBuffer.allocate(2)));
+    assertEquals(-1, stream.readPending(target));
+  }
+}
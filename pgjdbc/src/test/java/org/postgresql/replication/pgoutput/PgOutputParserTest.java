@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.replication.pgoutput;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.codec.TypeCodecBase;
+import org.postgresql.core.Encoding;
+import org.postgresql.core.Oid;
+import org.postgresql.core.Provider;
+import org.postgresql.core.TypeCodecRegistry;
+import org.postgresql.jdbc.TimestampUtils;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.util.PSQLState;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.UUID;
+
+public class PgOutputParserTest {
+  private static final int TABLE = 16390;
+  private static final int POINT_TYPE = 16400;
+
+  private final TypeCodecRegistry codecs = new TypeCodecRegistry();
+  private final PgOutputParser parser = new PgOutputParser(Encoding.getJVMEncoding("UTF-8"),
+      new TimestampUtils(false, new Provider<TimeZone>() {
+        @Override
+        public TimeZone get() {
+          return TimeZone.getTimeZone("UTC");
+        }
+      }), codecs);
+  private final List<String> events = new ArrayList<String>();
+
+  /**
+   * Records the messages, and the columns of the rows as the strings returned by getObject.
+   */
+  private final PgOutputHandler recorder = new PgOutputHandler() {
+    @Override
+    public void begin(LogSequenceNumber finalLsn, java.time.Instant commitTime, long xid) {
+      events.add("begin " + finalLsn.asString() + " " + commitTime + " " + xid);
+    }
+
+    @Override
+    public void commit(LogSequenceNumber commitLsn, LogSequenceNumber endLsn,
+        java.time.Instant commitTime) {
+      events.add("commit " + commitLsn.asString() + " " + endLsn.asString() + " " + commitTime);
+    }
+
+    @Override
+    public void origin(LogSequenceNumber commitLsn, String name) {
+      events.add("origin " + commitLsn.asString() + " " + name);
+    }
+
+    @Override
+    public void relation(Relation relation) {
+      StringBuilder sb = new StringBuilder("relation ").append(relation);
+      for (int i = 1; i <= relation.getColumnCount(); i++) {
+        Relation.Column column = relation.getColumn(i);
+        sb.append(' ').append(column).append(':').append(column.getTypeOid())
+            .append(column.isKey() ? ":key" : "");
+      }
+      events.add(sb.toString());
+    }
+
+    @Override
+    public void type(int oid, String namespace, String name) {
+      events.add("type " + oid + " " + namespace + "." + name);
+    }
+
+    @Override
+    public void insert(Relation relation, TupleData newTuple) throws SQLException {
+      events.add("insert " + relation + " " + toString(newTuple));
+    }
+
+    @Override
+    public void update(Relation relation, @Nullable TupleData oldTuple, TupleData newTuple)
+        throws SQLException {
+      events.add("update " + relation + " " + (oldTuple == null ? "-" : toString(oldTuple))
+          + " " + toString(newTuple));
+    }
+
+    @Override
+    public void delete(Relation relation, TupleData oldTuple) throws SQLException {
+      events.add("delete " + relation + " " + toString(oldTuple));
+    }
+
+    @Override
+    public void truncate(List<Relation> relations, boolean cascade, boolean restartIdentity) {
+      events.add("truncate " + relations + " " + cascade + " " + restartIdentity);
+    }
+
+    @Override
+    public void message(LogSequenceNumber lsn, boolean transactional, String prefix,
+        ByteBuffer content) {
+      byte[] bytes = new byte[content.remaining()];
+      content.get(bytes);
+      events.add("message " + lsn.asString() + " " + transactional + " " + prefix + " "
+          + new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private String toString(TupleData tuple) throws SQLException {
+      StringBuilder sb = new StringBuilder(tuple.isKey() ? "key(" : "(");
+      for (int i = 1; i <= tuple.getColumnCount(); i++) {
+        if (i > 1) {
+          sb.append(", ");
+        }
+        if (tuple.isUnchangedToast(i)) {
+          sb.append("unchanged");
+          continue;
+        }
+        Object value = tuple.getObject(i);
+        sb.append(value instanceof byte[] ? "bytes" + ((byte[]) value).length : value);
+      }
+      return sb.append(')').toString();
+    }
+  };
+
+  /**
+   * Builds a message the way pgoutput writes it.
+   */
+  private static class Message {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    Message(char type) throws IOException {
+      out.writeByte(type);
+    }
+
+    Message b(int value) throws IOException {
+      out.writeByte(value);
+      return this;
+    }
+
+    Message i2(int value) throws IOException {
+      out.writeShort(value);
+      return this;
+    }
+
+    Message i4(int value) throws IOException {
+      out.writeInt(value);
+      return this;
+    }
+
+    Message i8(long value) throws IOException {
+      out.writeLong(value);
+      return this;
+    }
+
+    Message str(String value) throws IOException {
+      out.write(value.getBytes(StandardCharsets.UTF_8));
+      out.writeByte(0);
+      return this;
+    }
+
+    Message text(String value) throws IOException {
+      return value(value.getBytes(StandardCharsets.UTF_8), 't');
+    }
+
+    Message value(byte[] value, char kind) throws IOException {
+      out.writeByte(kind);
+      out.writeInt(value.length);
+      out.write(value);
+      return this;
+    }
+
+    ByteBuffer toBuffer() throws IOException {
+      out.flush();
+      return ByteBuffer.wrap(bytes.toByteArray());
+    }
+  }
+
+  private void parse(Message message) throws SQLException, IOException {
+    parser.parse(message.toBuffer(), recorder);
+  }
+
+  private void describeTable() throws SQLException, IOException {
+    parse(new Message('R').i4(TABLE).str("public").str("items").b('d').i2(5)
+        .b(1).str("id").i4(Oid.INT8).i4(-1)
+        .b(0).str("name").i4(Oid.TEXT).i4(-1)
+        .b(0).str("price").i4(Oid.NUMERIC).i4(655366)
+        .b(0).str("data").i4(Oid.BYTEA).i4(-1)
+        .b(0).str("created").i4(Oid.TIMESTAMP).i4(-1));
+  }
+
+  @Test
+  public void transaction() throws SQLException, IOException {
+    parse(new Message('B').i8(0x16B374D848L).i8(651234567890123L).i4(0xFFFFFFFE));
+    describeTable();
+    parse(new Message('I').i4(TABLE).b('N').i2(5)
+        .text("1").text("café").text("12.50").text("\\x00ff")
+        .text("2020-08-21 10:15:30.123456"));
+    parse(new Message('I').i4(TABLE).b('N').i2(5)
+        .text("2").b('n').b('n').b('n').b('n'));
+    parse(new Message('C').b(0).i8(0x16B374D848L).i8(0x16B374D878L).i8(-1));
+    assertEquals("begin 16/B374D848 2020-08-20T10:29:27.890123Z 4294967294", events.get(0));
+    assertEquals(
+        "relation public.items id:20:key name:25 price:1700 data:17 created:1114",
+        events.get(1));
+    assertEquals(
+        "insert public.items (1, café, 12.50, bytes2, 2020-08-21 10:15:30.123456)",
+        events.get(2));
+    assertEquals("insert public.items (2, null, null, null, null)", events.get(3));
+    assertEquals("commit 16/B374D848 16/B374D878 1999-12-31T23:59:59.999999Z", events.get(4));
+    assertEquals(5, events.size());
+    assertEquals("items", parser.getRelation(TABLE).getName());
+  }
+
+  @Test
+  public void typedGetters() throws SQLException, IOException {
+    describeTable();
+    final List<Object> values = new ArrayList<Object>();
+    parser.parse(new Message('I').i4(TABLE).b('N').i2(5)
+        .text("42").text("x").text("-3.25").text("\\x0102").text("2000-01-01 00:00:00")
+        .toBuffer(), new PgOutputHandlerBase() {
+          @Override
+          public void insert(Relation relation, TupleData newTuple) throws SQLException {
+            values.add(newTuple.getInt(1));
+            values.add(newTuple.getLong(1));
+            values.add(newTuple.getDouble(3));
+            values.add(newTuple.getBigDecimal(3));
+            values.add(newTuple.getString(3));
+            values.add(newTuple.getRawValue(4));
+            values.add(newTuple.getObject(4));
+            values.add(newTuple.getObject(5));
+          }
+        });
+    assertEquals(42, values.get(0));
+    assertEquals(42L, values.get(1));
+    assertEquals(-3.25, values.get(2));
+    assertEquals(new BigDecimal("-3.25"), values.get(3));
+    assertEquals("-3.25", values.get(4));
+    assertArrayEquals("\\x0102".getBytes(StandardCharsets.UTF_8), (byte[]) values.get(5));
+    assertArrayEquals(new byte[]{1, 2}, (byte[]) values.get(6));
+    assertEquals(Timestamp.valueOf("2000-01-01 00:00:00"), values.get(7));
+  }
+
+  @Test
+  public void updatesAndDeletes() throws SQLException, IOException {
+    describeTable();
+    events.clear();
+    parse(new Message('U').i4(TABLE).b('N').i2(5)
+        .text("1").text("new").b('u').b('n').b('n'));
+    parse(new Message('U').i4(TABLE).b('K').i2(5)
+        .text("1").b('n').b('n').b('n').b('n')
+        .b('N').i2(5)
+        .text("2").text("moved").text("1").b('u').b('n'));
+    parse(new Message('D').i4(TABLE).b('O').i2(5)
+        .text("2").text("moved").text("1").text("\\x").b('n'));
+    parse(new Message('T').i4(1).b(3).i4(TABLE));
+    assertEquals("update public.items - (1, new, unchanged, null, null)", events.get(0));
+    assertEquals(
+        "update public.items key(1, null, null, null, null) (2, moved, 1, unchanged, null)",
+        events.get(1));
+    assertEquals("delete public.items (2, moved, 1, bytes0, null)", events.get(2));
+    assertEquals("truncate [public.items] true true", events.get(3));
+  }
+
+  @Test
+  public void binaryValues() throws SQLException, IOException {
+    parse(new Message('R').i4(TABLE).str("").str("binary").b('f').i2(5)
+        .b(0).str("i").i4(Oid.INT4).i4(-1)
+        .b(0).str("d").i4(Oid.FLOAT8).i4(-1)
+        .b(0).str("f").i4(Oid.BOOL).i4(-1)
+        .b(0).str("u").i4(Oid.UUID).i4(-1)
+        .b(0).str("t").i4(Oid.VARCHAR).i4(-1));
+    UUID uuid = UUID.fromString("d7cf3e9b-6ac6-4b39-8d56-0aa0f0b7a8e3");
+    ByteBuffer uuidBytes = ByteBuffer.allocate(16);
+    uuidBytes.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    ByteBuffer message = new Message('I').i4(TABLE).b('N').i2(5)
+        .value(new byte[]{0, 0, 0, 7}, 'b')
+        .value(ByteBuffer.allocate(8).putDouble(0.25).array(), 'b')
+        .value(new byte[]{1}, 'b')
+        .value(uuidBytes.array(), 'b')
+        .value("text".getBytes(StandardCharsets.UTF_8), 'b')
+        .toBuffer();
+    // a direct buffer is copied
+    ByteBuffer direct = ByteBuffer.allocateDirect(message.remaining());
+    direct.put(message).flip();
+    parser.parse(direct, recorder);
+    assertFalse(direct.hasRemaining());
+    assertEquals("relation binary i:23 d:701 f:16 u:2950 t:1043", events.get(0));
+    assertEquals("insert binary (7, 0.25, true, " + uuid + ", text)", events.get(1));
+  }
+
+  @Test
+  public void typesOriginsAndMessages() throws SQLException, IOException {
+    parse(new Message('O').i8(0x10L).str("node1"));
+    parse(new Message('Y').i4(POINT_TYPE).str("public").str("pair"));
+    parse(new Message('M').b(0).i8(0x20L).str("audit").i4(2).b('o').b('k'));
+    assertEquals("origin 0/10 node1", events.get(0));
+    assertEquals("type 16400 public.pair", events.get(1));
+    assertEquals("message 0/20 false audit ok", events.get(2));
+    assertEquals("public.pair", parser.getTypeName(POINT_TYPE));
+    assertNull(parser.getTypeName(Oid.INT4));
+  }
+
+  @Test
+  public void codecOfTheTypeIsUsed() throws SQLException, IOException {
+    codecs.register(POINT_TYPE, new TypeCodecBase(String.class) {
+      @Override
+      public Object decode(byte[] buffer, int offset, int length, boolean binary,
+          Encoding encoding) throws SQLException {
+        return "decoded " + length;
+      }
+    });
+    parse(new Message('R').i4(TABLE).str("public").str("pairs").b('d').i2(1)
+        .b(1).str("p").i4(POINT_TYPE).i4(-1));
+    parse(new Message('I').i4(TABLE).b('N').i2(1).text("(1,2)"));
+    assertEquals("insert public.pairs (decoded 5)", events.get(1));
+  }
+
+  @Test
+  public void unchangedToastValueIsNotReadable() throws SQLException, IOException {
+    describeTable();
+    final Relation[] relations = new Relation[1];
+    parser.parse(new Message('U').i4(TABLE).b('N').i2(5)
+        .text("1").b('u').b('n').b('n').b('n').toBuffer(), new PgOutputHandlerBase() {
+          @Override
+          public void update(Relation relation, @Nullable TupleData oldTuple,
+              TupleData newTuple) throws SQLException {
+            relations[0] = relation;
+            try {
+              newTuple.getString(2);
+              fail("The unchanged value is not sent");
+            } catch (SQLException e) {
+              assertEquals(PSQLState.NO_DATA.getState(), e.getSQLState());
+            }
+          }
+        });
+    assertSame(parser.getRelation(TABLE), relations[0]);
+  }
+
+  @Test
+  public void invalidMessagesAreRejected() throws IOException {
+    assertRejected(new Message('I').i4(TABLE).b('N').i2(0), PSQLState.PROTOCOL_VIOLATION);
+    assertRejected(new Message('B').i4(1), PSQLState.PROTOCOL_VIOLATION);
+    assertRejected(new Message('S').i4(1).b(1), PSQLState.NOT_IMPLEMENTED);
+  }
+
+  private void assertRejected(Message message, PSQLState state) throws IOException {
+    try {
+      parse(message);
+      fail("The message should be rejected");
+    } catch (SQLException e) {
+      assertEquals(state.getState(), e.getSQLState());
+    }
+    assertTrue(events.isEmpty());
+  }
+}
@@ -24,6 +24,7 @@ import static org.postgresql.test.TestUtil.closeDB;
 import org.postgresql.PGProperty;
 import org.postgresql.hostchooser.GlobalHostStatusTracker;
 import org.postgresql.hostchooser.HostRequirement;
+import org.postgresql.hostchooser.HostStatusProber;
 import org.postgresql.test.TestUtil;
 import org.postgresql.util.HostSpec;
 import org.postgresql.util.PSQLException;
@@ -147,6 +148,11 @@ public class MultiHostsConnectionTest {
 
   private Connection getConnection(HostRequirement hostType, boolean reset, boolean lb,
       String... targets) throws SQLException {
+    return getConnection(hostType, reset, lb, 0, targets);
+  }
+
+  private Connection getConnection(HostRequirement hostType, boolean reset, boolean lb,
+      int hostProbeSeconds, String... targets) throws SQLException {
     TestUtil.closeDB(con);
 
     if (reset) {
@@ -161,6 +167,9 @@ public class MultiHostsConnectionTest {
     if (lb) {
       PGProperty.LOAD_BALANCE_HOSTS.set(props,"true");
     }
+    if (hostProbeSeconds > 0) {
+      PGProperty.HOST_PROBE_SECONDS.set(props, hostProbeSeconds);
+    }
 
     StringBuilder sb = new StringBuilder();
     sb.append("jdbc:postgresql://");
@@ -200,6 +209,10 @@ public class MultiHostsConnectionTest {
     }
   }
 
+  private boolean isGlobalState(String host, String status) {
+    return (host + "=" + status).equals(String.valueOf(hostStatusMap.get(hostSpec(host))));
+  }
+
   private void resetGlobalState() {
     hostStatusMap.clear();
   }
@@ -396,4 +409,25 @@ public class MultiHostsConnectionTest {
     getConnection(primary, false, secondary1, fake1, primary1);
     assertRemote(primaryIp);
   }
+
+  @Test
+  public void testHostProberReportsTheServerTypes() throws Exception {
+    try {
+      getConnection(any, true, false, 1, fake1, secondary1, primary1);
+      assertRemote(secondaryIP);
+
+      // The primary was not tried by the connection, but it is checked by the prober
+      long deadline = System.currentTimeMillis() + 10000;
+      while (System.currentTimeMillis() < deadline
+          && !(isGlobalState(primary1, "Primary") && isGlobalState(secondary1, "Secondary")
+              && isGlobalState(fake1, "ConnectFail"))) {
+        Thread.sleep(50);
+      }
+      assertGlobalState(primary1, "Primary");
+      assertGlobalState(secondary1, "Secondary");
+      assertGlobalState(fake1, "ConnectFail");
+    } finally {
+      HostStatusProber.shutdown();
+    }
+  }
 }
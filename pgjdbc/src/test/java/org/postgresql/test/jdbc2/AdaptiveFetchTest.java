@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.PGProperty;
+import org.postgresql.test.TestUtil;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+
+/**
+ * Cursor fetches with {@code adaptiveFetch=true}: the number of rows per round trip follows the
+ * width of the rows, so fetch sizes that are too large for {@code maxResultBuffer} still work.
+ */
+@RunWith(Parameterized.class)
+public class AdaptiveFetchTest extends BaseTest4 {
+  private static final int ROW_WIDTH = 20000;
+
+  public AdaptiveFetchTest(BinaryMode binaryMode) {
+    setBinaryMode(binaryMode);
+  }
+
+  @Parameterized.Parameters(name = "binary = {0}")
+  public static Iterable<Object[]> data() {
+    Collection<Object[]> ids = new ArrayList<Object[]>();
+    for (BinaryMode binaryMode : BinaryMode.values()) {
+      ids.add(new Object[]{binaryMode});
+    }
+    return ids;
+  }
+
+  @Override
+  protected void updateProperties(Properties props) {
+    super.updateProperties(props);
+    PGProperty.ADAPTIVE_FETCH.set(props, true);
+    PGProperty.MAX_RESULT_BUFFER.set(props, "1M");
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    TestUtil.createTable(con, "adaptive_fetch", "id int, payload text");
+    Statement stmt = con.createStatement();
+    stmt.execute("insert into adaptive_fetch select i, repeat('x', " + ROW_WIDTH + ")"
+        + " from generate_series(1, 200) i");
+    TestUtil.closeQuietly(stmt);
+    con.setAutoCommit(false);
+  }
+
+  @Override
+  public void tearDown() throws SQLException {
+    con.rollback();
+    con.setAutoCommit(true);
+    TestUtil.dropTable(con, "adaptive_fetch");
+    super.tearDown();
+  }
+
+  private int readAll(int fetchSize, int maxRows) throws SQLException {
+    PreparedStatement ps = con.prepareStatement("select id, payload from adaptive_fetch order by id");
+    ps.setFetchSize(fetchSize);
+    ps.setMaxRows(maxRows);
+    ResultSet rs = ps.executeQuery();
+    int count = 0;
+    while (rs.next()) {
+      count++;
+      assertEquals(count, rs.getInt(1));
+      assertEquals(ROW_WIDTH, rs.getString(2).length());
+    }
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(ps);
+    return count;
+  }
+
+  @Test
+  public void fetchSizeShrinksToFitMaxResultBuffer() throws SQLException {
+    // 10 rows fit in maxResultBuffer, then the fetches switch to about 25 rows.
+    // The same could not be achieved with a fixed fetch size of 100 rows (2MB per round trip)
+    assertEquals(200, readAll(10, 0));
+  }
+
+  @Test
+  public void maxRowsIsRespected() throws SQLException {
+    assertEquals(37, readAll(10, 37));
+  }
+
+  @Test
+  public void fetchSizeIsAppliedUntilRowWidthIsKnown() throws SQLException {
+    assertEquals(200, readAll(1, 0));
+    assertTrue("The connection is usable after the fetches", con.isValid(5));
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGPreparedStatement;
+import org.postgresql.PGProperty;
+import org.postgresql.test.TestUtil;
+import org.postgresql.util.PSQLState;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(Parameterized.class)
+public class AsyncExecutionTest extends BaseTest4 {
+  private final boolean socketChannel;
+
+  public AsyncExecutionTest(boolean socketChannel, BinaryMode binaryMode) {
+    this.socketChannel = socketChannel;
+    setBinaryMode(binaryMode);
+  }
+
+  @Parameterized.Parameters(name = "{index}: socketChannel={0}, binary={1}")
+  public static Iterable<Object[]> data() {
+    Collection<Object[]> ids = new ArrayList<Object[]>();
+    for (boolean socketChannel : new boolean[]{false, true}) {
+      for (BinaryMode binaryMode : BinaryMode.values()) {
+        ids.add(new Object[]{socketChannel, binaryMode});
+      }
+    }
+    return ids;
+  }
+
+  @Override
+  protected void updateProperties(Properties props) {
+    super.updateProperties(props);
+    PGProperty.SOCKET_CHANNEL.set(props, socketChannel);
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    TestUtil.createTable(con, "async_test", "id int primary key, name text");
+  }
+
+  @Override
+  public void tearDown() throws SQLException {
+    TestUtil.dropTable(con, "async_test");
+    super.tearDown();
+  }
+
+  private PGPreparedStatement prepare(String sql) throws SQLException {
+    return con.prepareStatement(sql).unwrap(PGPreparedStatement.class);
+  }
+
+  private static SQLException cause(CompletableFuture<?> future) throws Exception {
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      fail("The future should have failed");
+      return null;
+    } catch (ExecutionException e) {
+      return (SQLException) e.getCause();
+    }
+  }
+
+  @Test
+  public void executeQueryAsync() throws Exception {
+    PGPreparedStatement ps = prepare("select ?::int, pg_sleep(0.1)");
+    ((PreparedStatement) ps).setInt(1, 42);
+    CompletableFuture<ResultSet> future = ps.executeQueryAsync().toCompletableFuture();
+    // Parameters are copied on submission
+    ((PreparedStatement) ps).setInt(1, 1);
+    ResultSet rs = future.get(10, TimeUnit.SECONDS);
+    assertTrue(rs.next());
+    assertEquals(42, rs.getInt(1));
+    assertFalse(rs.next());
+    TestUtil.closeQuietly((PreparedStatement) ps);
+  }
+
+  @Test
+  public void executionsAreSerialized() throws Exception {
+    List<CompletableFuture<Integer>> futures = new ArrayList<CompletableFuture<Integer>>();
+    List<PreparedStatement> statements = new ArrayList<PreparedStatement>();
+    for (int i = 0; i < 20; i++) {
+      PGPreparedStatement ps = prepare("insert into async_test values (?, ?)");
+      ((PreparedStatement) ps).setInt(1, i);
+      ((PreparedStatement) ps).setString(2, "row " + i);
+      statements.add((PreparedStatement) ps);
+      futures.add(ps.executeUpdateAsync().toCompletableFuture());
+    }
+    // A synchronous execution waits for the pending asynchronous ones
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery("select count(*) from async_test");
+    assertTrue(rs.next());
+    assertEquals(20, rs.getInt(1));
+    for (CompletableFuture<Integer> future : futures) {
+      assertTrue(future.isDone());
+      assertEquals(Integer.valueOf(1), future.get());
+    }
+    TestUtil.closeQuietly(stmt);
+    for (PreparedStatement ps : statements) {
+      TestUtil.closeQuietly(ps);
+    }
+  }
+
+  @Test
+  public void failureDoesNotAffectOtherExecutions() throws Exception {
+    PGPreparedStatement broken = prepare("select 1/0");
+    PGPreparedStatement ok = prepare("select 2");
+    CompletableFuture<ResultSet> brokenResult = broken.executeQueryAsync().toCompletableFuture();
+    CompletableFuture<ResultSet> okResult = ok.executeQueryAsync().toCompletableFuture();
+    assertEquals(PSQLState.DIVISION_BY_ZERO.getState(), cause(brokenResult).getSQLState());
+    ResultSet rs = okResult.get(10, TimeUnit.SECONDS);
+    assertTrue(rs.next());
+    assertEquals(2, rs.getInt(1));
+    TestUtil.closeQuietly((PreparedStatement) broken);
+    TestUtil.closeQuietly((PreparedStatement) ok);
+  }
+
+  @Test
+  public void executeUpdateAsyncRejectsRows() throws Exception {
+    PGPreparedStatement ps = prepare("select 1");
+    assertEquals(PSQLState.TOO_MANY_RESULTS.getState(),
+        cause(ps.executeUpdateAsync().toCompletableFuture()).getSQLState());
+    TestUtil.closeQuietly((PreparedStatement) ps);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGProperty;
+import org.postgresql.test.TestUtil;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+
+/**
+ * Batches sent with {@code batchPipelining=true}: they are sent in a single round trip, whatever
+ * their size and the size of their results.
+ */
+@RunWith(Parameterized.class)
+public class BatchPipeliningTest extends BaseTest4 {
+  private final boolean socketChannel;
+
+  public BatchPipeliningTest(boolean socketChannel, BinaryMode binaryMode) {
+    this.socketChannel = socketChannel;
+    setBinaryMode(binaryMode);
+  }
+
+  @Parameterized.Parameters(name = "{index}: socketChannel={0}, binary={1}")
+  public static Iterable<Object[]> data() {
+    Collection<Object[]> ids = new ArrayList<Object[]>();
+    for (boolean socketChannel : new boolean[]{false, true}) {
+      for (BinaryMode binaryMode : BinaryMode.values()) {
+        ids.add(new Object[]{socketChannel, binaryMode});
+      }
+    }
+    return ids;
+  }
+
+  @Override
+  protected void updateProperties(Properties props) {
+    super.updateProperties(props);
+    PGProperty.BATCH_PIPELINING.set(props, true);
+    PGProperty.SOCKET_CHANNEL.set(props, socketChannel);
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    TestUtil.createTable(con, "batch_pipelining", "id int primary key, payload text");
+  }
+
+  @Override
+  public void tearDown() throws SQLException {
+    TestUtil.dropTable(con, "batch_pipelining");
+    super.tearDown();
+  }
+
+  @Test
+  public void largeBatchWithWideResults() throws SQLException {
+    int rows = 20000;
+    PreparedStatement ps = con.prepareStatement(
+        "insert into batch_pipelining values (?, repeat('x', 1000))",
+        new String[]{"id", "payload"});
+    for (int i = 0; i < rows; i++) {
+      ps.setInt(1, i);
+      ps.addBatch();
+    }
+    int[] counts = ps.executeBatch();
+    assertEquals(rows, counts.length);
+    ResultSet keys = ps.getGeneratedKeys();
+    int received = 0;
+    while (keys.next()) {
+      assertEquals(received, keys.getInt(1));
+      assertEquals(1000, keys.getString(2).length());
+      received++;
+    }
+    assertEquals("Every RETURNING row should be received", rows, received);
+    TestUtil.closeQuietly(ps);
+  }
+
+  @Test
+  public void oversizedEntryAfterWideResults() throws SQLException {
+    // The results of the first entries fill the socket buffers before the last entry, larger than
+    // the queue of the background send, is sent: the backend reads it only once they are received
+    int rows = 5000;
+    StringBuilder sb = new StringBuilder();
+    while (sb.length() < 8 * 1024 * 1024) {
+      sb.append("0123456789abcdef");
+    }
+    String oversized = sb.toString();
+    String wide = oversized.substring(0, 1000);
+    PreparedStatement ps = con.prepareStatement("insert into batch_pipelining values (?, ?)",
+        new String[]{"id", "payload"});
+    for (int i = 0; i < rows; i++) {
+      ps.setInt(1, i);
+      ps.setString(2, i == rows - 1 ? oversized : wide);
+      ps.addBatch();
+    }
+    int[] counts = ps.executeBatch();
+    assertEquals(rows, counts.length);
+    ResultSet keys = ps.getGeneratedKeys();
+    int received = 0;
+    while (keys.next()) {
+      assertEquals(received, keys.getInt(1));
+      assertEquals(received == rows - 1 ? oversized.length() : 1000, keys.getString(2).length());
+      received++;
+    }
+    assertEquals("Every RETURNING row should be received", rows, received);
+    TestUtil.closeQuietly(ps);
+  }
+
+  @Test
+  public void failureAbortsWholeBatch() throws SQLException {
+    PreparedStatement ps = con.prepareStatement("insert into batch_pipelining values (?, 'a')");
+    for (int i = 0; i < 1000; i++) {
+      // duplicate key at the end of the batch
+      ps.setInt(1, i == 999 ? 0 : i);
+      ps.addBatch();
+    }
+    try {
+      ps.executeBatch();
+      fail("The duplicate key should fail the batch");
+    } catch (BatchUpdateException e) {
+      // expected
+    }
+    TestUtil.closeQuietly(ps);
+
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery("select count(*) from batch_pipelining");
+    assertTrue(rs.next());
+    assertEquals("The batch is a single implicit transaction", 0, rs.getInt(1));
+    TestUtil.closeQuietly(stmt);
+  }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGProperty;
+import org.postgresql.test.TestUtil;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+
+/**
+ * Batches executed as a single statement over unnest of array parameters, see
+ * {@link PGProperty#REWRITE_BATCHED_AS_ARRAYS}.
+ */
+@RunWith(Parameterized.class)
+public class BatchedAsArraysReWriteTest extends BaseTest4 {
+
+  public BatchedAsArraysReWriteTest(BinaryMode binaryMode) {
+    setBinaryMode(binaryMode);
+  }
+
+  @Parameterized.Parameters(name = "binary = {0}")
+  public static Iterable<Object[]> data() {
+    Collection<Object[]> ids = new ArrayList<Object[]>();
+    for (BinaryMode binaryMode : BinaryMode.values()) {
+      ids.add(new Object[]{binaryMode});
+    }
+    return ids;
+  }
+
+  @Override
+  protected void updateProperties(Properties props) {
+    super.updateProperties(props);
+    PGProperty.REWRITE_BATCHED_AS_ARRAYS.set(props, true);
+    PGProperty.PREPARE_THRESHOLD.set(props, 1);
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    TestUtil.createTempTable(con, "unnest_batch",
+        "id int8 primary key, i int4, d float8, n numeric, t text, f bool, ts timestamp");
+    // Counts the statements, to tell a single statement from one per batch entry
+    TestUtil.createTempTable(con, "unnest_batch_statements", "n int");
+    TestUtil.execute("CREATE FUNCTION pg_temp.count_statement() RETURNS trigger AS"
+        + " 'begin insert into unnest_batch_statements values (1); return null; end'"
+        + " LANGUAGE plpgsql", con);
+    TestUtil.execute("CREATE TRIGGER unnest_batch_statement"
+        + " AFTER INSERT OR UPDATE OR DELETE ON unnest_batch"
+        + " FOR EACH STATEMENT EXECUTE PROCEDURE pg_temp.count_statement()", con);
+  }
+
+  private void assertStatementCount(int expected) throws SQLException {
+    TestUtil.assertNumberOfRows(con, "unnest_batch_statements", expected,
+        "Number of statements executed by the batch");
+  }
+
+  private void insert(int rows) throws SQLException {
+    PreparedStatement ps = con.prepareStatement(
+        "INSERT INTO unnest_batch (id, i, t) VALUES (?, ?, ?)");
+    for (int i = 0; i < rows; i++) {
+      ps.setLong(1, i);
+      ps.setInt(2, i);
+      ps.setString(3, "value " + i);
+      ps.addBatch();
+    }
+    ps.executeBatch();
+    TestUtil.closeQuietly(ps);
+  }
+
+  @Test
+  public void insertsInOneStatement() throws SQLException {
+    PreparedStatement ps = con.prepareStatement(
+        "INSERT INTO unnest_batch (id, i, d, n, t, f) VALUES (?, ?, ?, ?, upper(?), ?)");
+    ps.setLong(1, 1);
+    ps.setInt(2, -2);
+    ps.setDouble(3, 0.5);
+    ps.setBigDecimal(4, new BigDecimal("1001.25"));
+    ps.setString(5, "a \"quoted\", {braced} value\\");
+    ps.setBoolean(6, true);
+    ps.addBatch();
+    ps.setLong(1, 2);
+    ps.setNull(2, Types.INTEGER);
+    ps.setNull(3, Types.DOUBLE);
+    ps.setNull(4, Types.OTHER);
+    ps.setNull(5, Types.VARCHAR);
+    ps.setNull(6, Types.BOOLEAN);
+    ps.addBatch();
+    ps.setLong(1, 3);
+    ps.setInt(2, 3);
+    ps.setDouble(3, Double.NaN);
+    ps.setBigDecimal(4, BigDecimal.ONE);
+    ps.setString(5, "NULL");
+    ps.setBoolean(6, false);
+    ps.addBatch();
+    assertArrayEquals(new int[]{1, 1, 1}, ps.executeBatch());
+    TestUtil.closeQuietly(ps);
+    assertStatementCount(1);
+
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery("select i, d, n, t, f from unnest_batch order by id");
+    assertTrue(rs.next());
+    assertEquals(-2, rs.getInt(1));
+    assertEquals(0.5, rs.getDouble(2), 0);
+    assertEquals(new BigDecimal("1001.25"), rs.getBigDecimal(3));
+    assertEquals("A \"QUOTED\", {BRACED} VALUE\\", rs.getString(4));
+    assertTrue(rs.getBoolean(5));
+    assertTrue(rs.next());
+    for (int i = 1; i <= 5; i++) {
+      assertNull(rs.getObject(i));
+    }
+    assertTrue(rs.next());
+    assertTrue(Double.isNaN(rs.getDouble(2)));
+    assertEquals("NULL", rs.getString(4));
+    assertFalse(rs.getBoolean(5));
+    assertFalse(rs.next());
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(stmt);
+  }
+
+  @Test
+  public void updatesAndDeletes() throws SQLException {
+    insert(10);
+    PreparedStatement ps = con.prepareStatement("UPDATE unnest_batch SET t = ? WHERE id = ?");
+    for (int i = 0; i < 4; i++) {
+      ps.setString(1, "updated " + i);
+      ps.setLong(2, i);
+      ps.addBatch();
+    }
+    // An UPDATE might affect as many rows as there are entries, yet not one row per entry
+    assertArrayEquals(
+        new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO,
+            Statement.SUCCESS_NO_INFO},
+        ps.executeBatch());
+    TestUtil.closeQuietly(ps);
+
+    ps = con.prepareStatement("DELETE FROM unnest_batch WHERE id = ?");
+    for (long id : new long[]{5, 6, 42}) {
+      ps.setLong(1, id);
+      ps.addBatch();
+    }
+    // two rows deleted for three entries
+    assertArrayEquals(
+        new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO},
+        ps.executeBatch());
+    TestUtil.closeQuietly(ps);
+    assertStatementCount(3);
+
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery("select count(*), count(*) filter (where t like 'updated %')"
+        + " from unnest_batch");
+    assertTrue(rs.next());
+    assertEquals(8, rs.getInt(1));
+    assertEquals(4, rs.getInt(2));
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(stmt);
+  }
+
+  @Test
+  public void batchSizesShareOneServerStatement() throws SQLException {
+    insert(2);
+    insert(3);
+    TestUtil.execute("DELETE FROM unnest_batch", con);
+    insert(7);
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery(
+        "select count(*) from pg_prepared_statements where statement ~ 'AS pgjdbc_batch\\('");
+    assertTrue(rs.next());
+    assertEquals(1, rs.getInt(1));
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(stmt);
+  }
+
+  @Test
+  public void unspecifiedTypesAreExecutedAsUsual() throws SQLException {
+    PreparedStatement ps = con.prepareStatement(
+        "INSERT INTO unnest_batch (id, ts) VALUES (?, ?)");
+    for (int i = 0; i < 3; i++) {
+      ps.setLong(1, i);
+      ps.setTimestamp(2, new Timestamp(0));
+      ps.addBatch();
+    }
+    assertArrayEquals(new int[]{1, 1, 1}, ps.executeBatch());
+    TestUtil.closeQuietly(ps);
+    assertStatementCount(3);
+  }
+
+  @Test
+  public void upsertsAreExecutedAsUsual() throws SQLException {
+    PreparedStatement ps = con.prepareStatement(
+        "INSERT INTO unnest_batch (id, t) VALUES (?, ?) ON CONFLICT (id) DO UPDATE SET t = ?");
+    // A single statement would fail to update the same row twice
+    for (String value : new String[]{"first", "second"}) {
+      ps.setLong(1, 1);
+      ps.setString(2, value);
+      ps.setString(3, value);
+      ps.addBatch();
+    }
+    assertArrayEquals(new int[]{1, 1}, ps.executeBatch());
+    TestUtil.closeQuietly(ps);
+    assertStatementCount(2);
+
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery("select t from unnest_batch");
+    assertTrue(rs.next());
+    assertEquals("second", rs.getString(1));
+    assertFalse(rs.next());
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(stmt);
+  }
+
+  @Test
+  public void failureAbortsTheWholeBatch() throws SQLException {
+    PreparedStatement ps = con.prepareStatement(
+        "INSERT INTO unnest_batch (id, i, t) VALUES (?, ?, ?)");
+    for (long id : new long[]{1, 2, 1}) {
+      ps.setLong(1, id);
+      ps.setInt(2, 0);
+      ps.setString(3, "value");
+      ps.addBatch();
+    }
+    try {
+      ps.executeBatch();
+      fail("The duplicate key should be rejected");
+    } catch (BatchUpdateException e) {
+      assertEquals("23505", e.getSQLState()); // unique_violation
+      assertArrayEquals(
+          new long[]{Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED},
+          e.getLargeUpdateCounts());
+    }
+    TestUtil.closeQuietly(ps);
+    TestUtil.assertNumberOfRows(con, "unnest_batch", 0, "No entry of the batch is inserted");
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGProperty;
+import org.postgresql.test.TestUtil;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.UUID;
+
+/**
+ * Batches of plain INSERT statements executed as a COPY, see
+ * {@link PGProperty#COPY_BATCHED_INSERTS}.
+ */
+@RunWith(Parameterized.class)
+public class BatchedInsertCopyTest extends BaseTest4 {
+  private final AutoCommit autoCommit;
+
+  public BatchedInsertCopyTest(AutoCommit autoCommit, BinaryMode binaryMode) {
+    this.autoCommit = autoCommit;
+    setBinaryMode(binaryMode);
+  }
+
+  @Parameterized.Parameters(name = "{index}: autoCommit={0}, binary={1}")
+  public static Iterable<Object[]> data() {
+    Collection<Object[]> ids = new ArrayList<Object[]>();
+    for (AutoCommit autoCommit : AutoCommit.values()) {
+      for (BinaryMode binaryMode : BinaryMode.values()) {
+        ids.add(new Object[]{autoCommit, binaryMode});
+      }
+    }
+    return ids;
+  }
+
+  @Override
+  protected void updateProperties(Properties props) {
+    super.updateProperties(props);
+    PGProperty.COPY_BATCHED_INSERTS.set(props, true);
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    TestUtil.createTempTable(con, "copy_batch",
+        "id int8, i int4, d float8, n numeric, t text, b bytea, u uuid, ts timestamp, f bool");
+    // Counts the statements, to tell a COPY from one INSERT per batch entry
+    TestUtil.createTempTable(con, "copy_batch_statements", "n int");
+    TestUtil.execute("CREATE FUNCTION pg_temp.count_statement() RETURNS trigger AS"
+        + " 'begin insert into copy_batch_statements values (1); return null; end'"
+        + " LANGUAGE plpgsql", con);
+    TestUtil.execute("CREATE TRIGGER copy_batch_statement AFTER INSERT ON copy_batch"
+        + " FOR EACH STATEMENT EXECUTE PROCEDURE pg_temp.count_statement()", con);
+    con.setAutoCommit(autoCommit == AutoCommit.YES);
+  }
+
+  @Override
+  public void tearDown() throws SQLException {
+    if (!con.getAutoCommit()) {
+      con.rollback();
+    }
+    super.tearDown();
+  }
+
+  private void assertStatementCount(int expected) throws SQLException {
+    TestUtil.assertNumberOfRows(con, "copy_batch_statements", expected,
+        "Number of statements executed by the batch");
+  }
+
+  @Test
+  public void batchIsCopied() throws SQLException {
+    UUID uuid = UUID.randomUUID();
+    PreparedStatement ps = con.prepareStatement(
+        "INSERT INTO copy_batch (id, i, d, n, t, b, u, ts, f) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+    ps.setLong(1, 1);
+    ps.setInt(2, -2);
+    ps.setDouble(3, 0.5);
+    ps.setBigDecimal(4, new BigDecimal("1001.25"));
+    ps.setString(5, "tab\there, new\nline and back\\slash");
+    ps.setBytes(6, new byte[]{0, 1, (byte) 0xff});
+    ps.setObject(7, uuid);
+    ps.setTimestamp(8, Timestamp.valueOf("2020-02-29 12:30:15.123456"));
+    ps.setBoolean(9, true);
+    ps.addBatch();
+    ps.setLong(1, 2);
+    for (int i = 2; i <= 9; i++) {
+      ps.setNull(i, Types.OTHER);
+    }
+    ps.addBatch();
+    ps.setLong(1, 3);
+    ps.setInt(2, 3);
+    ps.setDouble(3, 3);
+    ps.setBigDecimal(4, BigDecimal.ONE);
+    ps.setString(5, "\\N");
+    ps.setBytes(6, new byte[0]);
+    ps.setObject(7, uuid);
+    ps.setTimestamp(8, Timestamp.valueOf("1999-12-31 23:59:59"));
+    ps.setBoolean(9, false);
+    ps.addBatch();
+    assertArrayEquals(new int[]{1, 1, 1}, ps.executeBatch());
+    TestUtil.closeQuietly(ps);
+    assertStatementCount(1);
+
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery(
+        "select id, i, d, n, t, b, u, ts, f from copy_batch order by id");
+    assertTrue(rs.next());
+    assertEquals(-2, rs.getInt(2));
+    assertEquals(0.5, rs.getDouble(3), 0);
+    assertEquals(new BigDecimal("1001.25"), rs.getBigDecimal(4));
+    assertEquals("tab\there, new\nline and back\\slash", rs.getString(5));
+    assertArrayEquals(new byte[]{0, 1, (byte) 0xff}, rs.getBytes(6));
+    assertEquals(uuid, rs.getObject(7));
+    assertEquals(Timestamp.valueOf("2020-02-29 12:30:15.123456"), rs.getTimestamp(8));
+    assertTrue(rs.getBoolean(9));
+    assertTrue(rs.next());
+    for (int i = 2; i <= 9; i++) {
+      assertNull(rs.getObject(i));
+    }
+    assertTrue(rs.next());
+    assertEquals("\\N", rs.getString(5));
+    assertArrayEquals(new byte[0], rs.getBytes(6));
+    assertFalse(rs.getBoolean(9));
+    assertFalse(rs.next());
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(stmt);
+  }
+
+  @Test
+  public void expressionsAreInsertedAsUsual() throws SQLException {
+    PreparedStatement ps = con.prepareStatement(
+        "INSERT INTO copy_batch (id, t) VALUES (?, upper(?))");
+    for (int i = 0; i < 3; i++) {
+      ps.setLong(1, i);
+      ps.setString(2, "value");
+      ps.addBatch();
+    }
+    assertArrayEquals(new int[]{1, 1, 1}, ps.executeBatch());
+    TestUtil.closeQuietly(ps);
+    assertStatementCount(3);
+    TestUtil.assertNumberOfRows(con, "copy_batch", 3, "The batch is inserted");
+  }
+
+  @Test
+  public void rejectedEntryIsReported() throws SQLException {
+    PreparedStatement ps = con.prepareStatement(
+        "INSERT INTO copy_batch (id, u) VALUES (?, ?)");
+    ps.setLong(1, 1);
+    ps.setString(2, UUID.randomUUID().toString());
+    ps.addBatch();
+    ps.setLong(1, 2);
+    ps.setString(2, "not a uuid");
+    ps.addBatch();
+    try {
+      ps.executeBatch();
+      fail("The invalid uuid should be rejected");
+    } catch (BatchUpdateException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Batch entry 1 "));
+      assertArrayEquals(new long[]{Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED},
+          e.getLargeUpdateCounts());
+    }
+    TestUtil.closeQuietly(ps);
+    if (!con.getAutoCommit()) {
+      con.rollback();
+    }
+    TestUtil.assertNumberOfRows(con, "copy_batch", 0, "No entry of the batch is inserted");
+  }
+}
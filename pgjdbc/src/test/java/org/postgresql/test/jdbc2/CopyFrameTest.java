@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.test.TestUtil;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+
+/**
+ * COPY FROM STDIN with small writes coalesced into CopyData frames, see
+ * {@link PGProperty#COPY_FRAME_SIZE} and {@link PGProperty#COPY_BACKGROUND_SEND}.
+ */
+@RunWith(Parameterized.class)
+public class CopyFrameTest extends BaseTest4 {
+  private final int frameSize;
+  private final boolean backgroundSend;
+
+  public CopyFrameTest(int frameSize, boolean backgroundSend) {
+    this.frameSize = frameSize;
+    this.backgroundSend = backgroundSend;
+  }
+
+  @Parameterized.Parameters(name = "copyFrameSize = {0}, copyBackgroundSend = {1}")
+  public static Iterable<Object[]> data() {
+    Collection<Object[]> ids = new ArrayList<Object[]>();
+    for (int frameSize : new int[]{0, 100, 65536}) {
+      for (boolean backgroundSend : new boolean[]{false, true}) {
+        ids.add(new Object[]{frameSize, backgroundSend});
+      }
+    }
+    return ids;
+  }
+
+  @Override
+  protected void updateProperties(Properties props) {
+    super.updateProperties(props);
+    PGProperty.COPY_FRAME_SIZE.set(props, frameSize);
+    PGProperty.COPY_BACKGROUND_SEND.set(props, backgroundSend);
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    TestUtil.createTempTable(con, "copy_frame", "id int8, t text");
+  }
+
+  private CopyIn copyIn() throws SQLException {
+    CopyManager copyAPI = con.unwrap(PGConnection.class).getCopyAPI();
+    return copyAPI.copyIn("COPY copy_frame FROM STDIN");
+  }
+
+  private static byte[] row(int id, String text) {
+    return (id + "\t" + text + "\n").getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void smallWritesAreCopied() throws SQLException {
+    CopyIn copyIn = copyIn();
+    for (int i = 0; i < 100000; i++) {
+      // a row is split between writes, so rows span frames too
+      byte[] row = row(i, "row " + i);
+      copyIn.writeToCopy(row, 0, 3);
+      copyIn.writeToCopy(row, 3, row.length - 3);
+    }
+    assertEquals(100000, copyIn.endCopy());
+
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery(
+        "select count(*), sum(id), bool_and(t = 'row ' || id) from copy_frame");
+    assertTrue(rs.next());
+    assertEquals(100000, rs.getLong(1));
+    assertEquals(99999L * 100000L / 2, rs.getLong(2));
+    assertTrue(rs.getBoolean(3));
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(stmt);
+  }
+
+  @Test
+  public void largeWritesFollowCoalescedData() throws SQLException {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      sb.append('x');
+    }
+    CopyIn copyIn = copyIn();
+    for (int i = 0; i < 100; i++) {
+      byte[] row = i % 10 == 0 ? row(i, sb.toString()) : row(i, "small");
+      copyIn.writeToCopy(row, 0, row.length);
+      if (i % 33 == 0) {
+        copyIn.flushCopy();
+      }
+    }
+    assertEquals(100, copyIn.endCopy());
+
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery("select id, length(t) from copy_frame order by id");
+    for (int i = 0; i < 100; i++) {
+      assertTrue(rs.next());
+      assertEquals("Rows are copied in the order of the writes", i, rs.getInt(1));
+      assertEquals(i % 10 == 0 ? 20000 : 5, rs.getInt(2));
+    }
+    assertFalse(rs.next());
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(stmt);
+  }
+
+  @Test
+  public void cancelDiscardsCoalescedData() throws SQLException {
+    CopyIn copyIn = copyIn();
+    byte[] row = row(1, "one");
+    copyIn.writeToCopy(row, 0, row.length);
+    copyIn.cancelCopy();
+    assertFalse(copyIn.isActive());
+    TestUtil.assertNumberOfRows(con, "copy_frame", 0, "The cancelled copy inserts nothing");
+  }
+
+  @Test
+  public void invalidDataIsReportedByEndCopy() throws SQLException {
+    CopyIn copyIn = copyIn();
+    byte[] row = "not a number\tone\n".getBytes(StandardCharsets.UTF_8);
+    copyIn.writeToCopy(row, 0, row.length);
+    try {
+      copyIn.endCopy();
+      fail("The server should reject the row");
+    } catch (SQLException e) {
+      // expected
+    }
+    assertFalse(copyIn.isActive());
+    TestUtil.assertNumberOfRows(con, "copy_frame", 0, "The connection is usable again");
+  }
+}
@@ -12,12 +12,15 @@ import org.postgresql.core.OidValueOfTest;
 import org.postgresql.core.ParserTest;
 import org.postgresql.core.ReturningParserTest;
 import org.postgresql.core.UTF8EncodingTest;
+import org.postgresql.core.v3.ParallelConnectorTest;
 import org.postgresql.core.v3.V3ParameterListTests;
+import org.postgresql.hostchooser.MultiHostChooserTest;
 import org.postgresql.jdbc.ArraysTest;
 import org.postgresql.jdbc.ArraysTestSuite;
 import org.postgresql.jdbc.DeepBatchedInsertStatementTest;
 import org.postgresql.jdbc.NoColumnMetadataIssue1613Test;
 import org.postgresql.jdbc.PgSQLXMLTest;
+import org.postgresql.jdbc.UnnestBatchedQueryTest;
 import org.postgresql.test.core.FixedLengthOutputStreamTest;
 import org.postgresql.test.core.JavaVersionTest;
 import org.postgresql.test.core.LogServerMessagePropertyTest;
@@ -31,6 +34,7 @@ import org.postgresql.test.util.LruCacheTest;
 import org.postgresql.test.util.PGPropertyMaxResultBufferParserTest;
 import org.postgresql.test.util.ServerVersionParseTest;
 import org.postgresql.test.util.ServerVersionTest;
+import org.postgresql.util.ByteConverterTest;
 import org.postgresql.util.ReaderInputStreamTest;
 
 import org.junit.runner.RunWith;
@@ -42,12 +46,17 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     ANTTest.class,
+    AdaptiveFetchTest.class,
     ArrayTest.class,
     ArraysTest.class,
     ArraysTestSuite.class,
+    AsyncExecutionTest.class,
+    BatchedAsArraysReWriteTest.class,
+    BatchedInsertCopyTest.class,
     BatchedInsertReWriteEnabledTest.class,
     BatchExecuteTest.class,
     BatchFailureTest.class,
+    BatchPipeliningTest.class,
     BlobTest.class,
     BlobTransactionTest.class,
     CallableStmtTest.class,
@@ -59,6 +68,7 @@ import org.junit.runners.Suite;
     ConcurrentStatementFetch.class,
     ConnectionTest.class,
     ConnectTimeoutTest.class,
+    CopyFrameTest.class,
     CopyLargeFileTest.class,
     CopyTest.class,
     CursorFetchTest.class,
@@ -82,6 +92,7 @@ import org.junit.runners.Suite;
     LogServerMessagePropertyTest.class,
     LruCacheTest.class,
     MiscTest.class,
+    MultiHostChooserTest.class,
     NativeQueryBindLengthTest.class,
     NoColumnMetadataIssue1613Test.class,
     NotifyTest.class,
@@ -90,17 +101,24 @@ import org.junit.runners.Suite;
     OptionsPropertyTest.class,
     OuterJoinSyntaxTest.class,
     FixedLengthOutputStreamTest.class,
+    ByteConverterTest.class,
     ByteStreamWriterTest.class,
     ByteBufferByteStreamWriterTest.class,
+    ParallelConnectorTest.class,
+    ParallelCopyLoaderTest.class,
     ParameterStatusTest.class,
     ParserTest.class,
+    PGBinaryCopyReaderTest.class,
+    PGBinaryCopyWriterTest.class,
     PGPropertyMaxResultBufferParserTest.class,
     PGPropertyTest.class,
     PGTimestampTest.class,
     PGTimeTest.class,
     PgSQLXMLTest.class,
+    PipelineTest.class,
     PreparedStatementTest.class,
     QuotationTest.class,
+    ReadColumnTest.class,
     ReaderInputStreamTest.class,
     RefCursorTest.class,
     ReplaceProcessingTest.class,
@@ -114,6 +132,7 @@ import org.junit.runners.Suite;
     ServerVersionParseTest.class,
     ServerVersionTest.class,
     StatementTest.class,
+    StreamResultsTest.class,
     StringTypeUnspecifiedArrayTest.class,
     TestACL.class,
     TimestampTest.class,
@@ -121,6 +140,8 @@ import org.junit.runners.Suite;
     TimezoneCachingTest.class,
     TimezoneTest.class,
     TypeCacheDLLStressTest.class,
+    TypeCodecTest.class,
+    UnnestBatchedQueryTest.class,
     UpdateableResultTest.class,
     UpsertTest.class,
     UTF8EncodingTest.class,
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGBinaryCopyReader;
+import org.postgresql.test.TestUtil;
+import org.postgresql.util.PSQLState;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+public class PGBinaryCopyReaderTest extends BaseTest4 {
+
+  private PGBinaryCopyReader reader(String sql) throws SQLException {
+    return new PGBinaryCopyReader(con.unwrap(PGConnection.class), sql);
+  }
+
+  @Test
+  public void readsTypedFields() throws SQLException, IOException {
+    UUID uuid = UUID.randomUUID();
+    PGBinaryCopyReader reader = reader("COPY (select 1::int8, 2::int4, 3::int2, 4.5::float8,"
+        + " 5.5::float4, true, 'zürich'::text, 1001.25::numeric, '" + uuid + "'::uuid,"
+        + " '\\x0102'::bytea, '2000-01-01 00:00:01'::timestamp, null::int8)"
+        + " TO STDOUT (FORMAT binary)");
+    assertTrue(reader.next());
+    assertEquals(12, reader.getFieldCount());
+    assertEquals(1, reader.getLong(1));
+    assertEquals(2, reader.getInt(2));
+    assertEquals(2, reader.getLong(2));
+    assertEquals(3, reader.getShort(3));
+    assertEquals(4.5, reader.getDouble(4), 0);
+    assertEquals(5.5, reader.getFloat(5), 0);
+    assertEquals(5.5, reader.getDouble(5), 0);
+    assertTrue(reader.getBoolean(6));
+    assertEquals("zürich", reader.getString(7));
+    assertEquals(new BigDecimal("1001.25"), reader.getNumeric(8));
+    assertEquals(uuid, reader.getUuid(9));
+    assertArrayEquals(new byte[]{1, 2}, reader.getBytes(10));
+    InputStream stream = reader.getBinaryStream(10);
+    assertEquals(1, stream.read());
+    assertEquals(2, stream.read());
+    assertEquals(-1, stream.read());
+    assertEquals(1000000L, reader.getLong(11));
+    assertTrue(reader.isNull(12));
+    assertNull(reader.getString(12));
+    assertFalse(reader.next());
+    assertEquals(1, reader.getHandledRowCount());
+  }
+
+  @Test
+  public void readsAllRows() throws SQLException {
+    PGBinaryCopyReader reader = reader("COPY (select i::int8, repeat('x', i % 100000) from"
+        + " generate_series(1, 300000, 7) i) TO STDOUT (FORMAT binary)");
+    long expected = 1;
+    while (reader.next()) {
+      assertEquals(expected, reader.getLong(1));
+      assertEquals(expected % 100000, reader.getLength(2));
+      expected += 7;
+    }
+    assertEquals(300000 / 7 + 1, reader.getHandledRowCount());
+
+    // the connection is usable again
+    Statement stmt = con.createStatement();
+    stmt.execute("select 1");
+    TestUtil.closeQuietly(stmt);
+  }
+
+  @Test
+  public void typeMismatchIsRejected() throws SQLException {
+    PGBinaryCopyReader reader = reader("COPY (select true) TO STDOUT (FORMAT binary)");
+    assertTrue(reader.next());
+    try {
+      reader.getLong(1);
+      fail("A bool should not be read as an integer");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.DATA_TYPE_MISMATCH.getState(), e.getSQLState());
+    }
+    reader.cancelCopy();
+    assertFalse(reader.next());
+  }
+
+  @Test
+  public void textFormatIsRejected() throws SQLException {
+    try {
+      reader("COPY (select 1) TO STDOUT");
+      fail("A text COPY should be rejected");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.WRONG_OBJECT_TYPE.getState(), e.getSQLState());
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGBinaryCopyWriter;
+import org.postgresql.test.TestUtil;
+import org.postgresql.util.PSQLState;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+public class PGBinaryCopyWriterTest extends BaseTest4 {
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    TestUtil.createTempTable(con, "copy_binary",
+        "id int8, i int4, s int2, d float8, b bool, t text, n numeric, u uuid,"
+            + " ts timestamptz, lts timestamp, a int8[]");
+  }
+
+  private PGBinaryCopyWriter writer(int bufferSize) throws SQLException {
+    return new PGBinaryCopyWriter(con.unwrap(PGConnection.class),
+        "COPY copy_binary FROM STDIN (FORMAT binary)", bufferSize);
+  }
+
+  @Test
+  public void writesTypedRows() throws SQLException {
+    PGBinaryCopyWriter writer = writer(65536);
+    UUID uuid = UUID.randomUUID();
+    writer.startRow();
+    writer.writeLong(1);
+    writer.writeInt(-2);
+    writer.writeShort((short) 3);
+    writer.writeDouble(4.5);
+    writer.writeBoolean(true);
+    writer.writeString("zürich");
+    writer.writeNumeric(new BigDecimal("-12345678901234567890.0001"));
+    writer.writeUuid(uuid);
+    writer.writeTimestamp(new Timestamp(1000L));
+    writer.writeTimestamp(java.time.LocalDateTime.of(2020, 2, 29, 12, 30, 15, 123456000));
+    writer.writeArray("int8", new long[]{1, 2, 3});
+    writer.endRow();
+    writer.startRow();
+    writer.writeLong(2);
+    for (int i = 0; i < 10; i++) {
+      writer.writeNull();
+    }
+    writer.endRow();
+    assertEquals(2, writer.endCopy());
+
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery(
+        "select id, i, s, d, b, t, n::text, u, ts = to_timestamp(1), lts::text, a"
+            + " from copy_binary order by id");
+    assertTrue(rs.next());
+    assertEquals(1, rs.getLong(1));
+    assertEquals(-2, rs.getInt(2));
+    assertEquals(3, rs.getShort(3));
+    assertEquals(4.5, rs.getDouble(4), 0);
+    assertTrue(rs.getBoolean(5));
+    assertEquals("zürich", rs.getString(6));
+    assertEquals("-12345678901234567890.0001", rs.getString(7));
+    assertEquals(uuid, rs.getObject(8));
+    assertTrue(rs.getBoolean(9));
+    assertEquals("2020-02-29 12:30:15.123456", rs.getString(10));
+    assertArrayEquals(new Long[]{1L, 2L, 3L}, (Object[]) rs.getArray(11).getArray());
+    assertTrue(rs.next());
+    assertEquals(2, rs.getLong(1));
+    for (int i = 2; i <= 11; i++) {
+      assertNull(rs.getObject(i));
+    }
+    assertFalse(rs.next());
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(stmt);
+  }
+
+  @Test
+  public void rowsLargerThanBuffer() throws SQLException {
+    PGBinaryCopyWriter writer = writer(16);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append("large value ");
+    }
+    String large = sb.toString();
+    for (int i = 0; i < 100; i++) {
+      writer.startRow();
+      writer.writeLong(i);
+      writer.writeString(large);
+      writer.endRow();
+    }
+    assertEquals(100, writer.endCopy());
+    TestUtil.assertNumberOfRows(con, "copy_binary", 100, "All the rows are copied");
+  }
+
+  @Test
+  public void fieldOutsideOfRowIsRejected() throws SQLException {
+    PGBinaryCopyWriter writer = writer(65536);
+    try {
+      writer.writeLong(1);
+      fail("Writing a field before startRow should fail");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.OBJECT_NOT_IN_STATE.getState(), e.getSQLState());
+    }
+    writer.cancelCopy();
+    assertFalse(writer.isActive());
+  }
+
+  @Test
+  public void textFormatIsRejected() throws SQLException {
+    try {
+      new PGBinaryCopyWriter(con.unwrap(PGConnection.class), "COPY copy_binary FROM STDIN");
+      fail("A text COPY should be rejected");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.WRONG_OBJECT_TYPE.getState(), e.getSQLState());
+    }
+    TestUtil.assertNumberOfRows(con, "copy_binary", 0, "The connection is usable again");
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.ParallelCopyLoader;
+import org.postgresql.test.TestUtil;
+import org.postgresql.util.PSQLState;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ParallelCopyLoaderTest extends BaseTest4 {
+  private static final ParallelCopyLoader.ConnectionFactory CONNECTIONS =
+      new ParallelCopyLoader.ConnectionFactory() {
+        @Override
+        public Connection getConnection() throws SQLException {
+          return TestUtil.openDB();
+        }
+      };
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    // not a temporary table, as the rows are copied over other connections
+    TestUtil.createTable(con, "copy_parallel", "id int8, t text");
+  }
+
+  @Override
+  public void tearDown() throws SQLException {
+    TestUtil.dropTable(con, "copy_parallel");
+    super.tearDown();
+  }
+
+  private ParallelCopyLoader loader(String options, ParallelCopyLoader.Format format) {
+    ParallelCopyLoader loader = new ParallelCopyLoader(CONNECTIONS,
+        "COPY copy_parallel FROM STDIN" + options, format, 4);
+    loader.setChunkSize(1000);
+    return loader;
+  }
+
+  private void assertLoaded(int rows, String text) throws SQLException {
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery(
+        "select count(*), count(distinct id), min(id), max(id), bool_and(t = " + text + ")"
+            + " from copy_parallel");
+    assertTrue(rs.next());
+    assertEquals(rows, rs.getLong(1));
+    assertEquals(rows, rs.getLong(2));
+    assertEquals(0, rs.getLong(3));
+    assertEquals(rows - 1, rs.getLong(4));
+    assertTrue("The values are split at row boundaries only", rs.getBoolean(5));
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(stmt);
+  }
+
+  @Test
+  public void loadsText() throws SQLException, IOException {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      sb.append(i).append("\trow\\n").append(i).append('\n');
+    }
+    long rows = loader("", ParallelCopyLoader.Format.TEXT)
+        .load(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)));
+    assertEquals(10000, rows);
+    assertLoaded(10000, "E'row\\n' || id");
+  }
+
+  @Test
+  public void loadsCsvWithQuotedNewlines() throws SQLException, IOException {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      sb.append(i).append(",\"a \"\"quoted\"\"\nvalue ").append(i).append("\"\r\n");
+    }
+    long rows = loader(" (FORMAT csv)", ParallelCopyLoader.Format.CSV)
+        .load(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)));
+    assertEquals(10000, rows);
+    assertLoaded(10000, "E'a \"quoted\"\\nvalue ' || id");
+  }
+
+  @Test
+  public void loadsBinary() throws SQLException, IOException {
+    ByteArrayOutputStream binary = new ByteArrayOutputStream();
+    con.unwrap(PGConnection.class).getCopyAPI().copyOut(
+        "COPY (select i::int8, 'value ' || i from generate_series(0, 9999) i)"
+            + " TO STDOUT (FORMAT binary)", binary);
+    long rows = loader(" (FORMAT binary)", ParallelCopyLoader.Format.BINARY)
+        .load(new ByteArrayInputStream(binary.toByteArray()));
+    assertEquals(10000, rows);
+    assertLoaded(10000, "'value ' || id");
+  }
+
+  @Test
+  public void loadsRows() throws SQLException {
+    List<byte[]> source = new ArrayList<byte[]>();
+    for (int i = 0; i < 10000; i++) {
+      source.add((i + "\tvalue " + i).getBytes(StandardCharsets.UTF_8));
+    }
+    long rows = loader("", ParallelCopyLoader.Format.TEXT).load(source.iterator());
+    assertEquals(10000, rows);
+    assertLoaded(10000, "'value ' || id");
+  }
+
+  @Test
+  public void rejectedRowIsReportedAndNothingIsLoaded() throws SQLException, IOException {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      sb.append(i == 7777 ? "not a number" : String.valueOf(i)).append("\tvalue\n");
+    }
+    try {
+      loader("", ParallelCopyLoader.Format.TEXT)
+          .load(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)));
+      fail("The invalid row should be rejected");
+    } catch (SQLException e) {
+      assertEquals("22P02", e.getSQLState()); // invalid_text_representation
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Row 7778 of the input"));
+    }
+    TestUtil.assertNumberOfRows(con, "copy_parallel", 0, "The connections are rolled back");
+  }
+
+  @Test
+  public void rejectedCsvRowIsFoundAfterQuotedNewlines() throws SQLException, IOException {
+    // The server counts the quoted newlines that match the end of line of the input
+    for (String endOfLine : new String[]{"\n", "\r\n"}) {
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < 10000; i++) {
+        sb.append(i == 7777 ? "not a number" : String.valueOf(i))
+            .append(",\"first line").append(endOfLine).append("second line\"").append(endOfLine);
+      }
+      try {
+        loader(" (FORMAT csv)", ParallelCopyLoader.Format.CSV)
+            .load(new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        fail("The invalid row should be rejected");
+      } catch (SQLException e) {
+        assertEquals("22P02", e.getSQLState()); // invalid_text_representation
+        assertTrue(e.getMessage(), e.getMessage().startsWith("Row 7778 of the input"));
+      }
+    }
+    TestUtil.assertNumberOfRows(con, "copy_parallel", 0, "The connections are rolled back");
+  }
+
+  @Test
+  public void formatMismatchIsRejected() throws SQLException, IOException {
+    try {
+      loader("", ParallelCopyLoader.Format.BINARY)
+          .load(new ByteArrayInputStream(new byte[0]));
+      fail("A text COPY should not load a binary input");
+    } catch (SQLException e) {
+      // the header of the input is missing
+      assertEquals(PSQLState.DATA_ERROR.getState(), e.getSQLState());
+    }
+    try {
+      loader(" (FORMAT binary)", ParallelCopyLoader.Format.TEXT)
+          .load(new ByteArrayInputStream("1\tone\n".getBytes(StandardCharsets.UTF_8)));
+      fail("A binary COPY should not load a text input");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.WRONG_OBJECT_TYPE.getState(), e.getSQLState());
+    }
+  }
+}
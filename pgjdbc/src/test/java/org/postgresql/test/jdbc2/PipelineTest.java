@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGPipeline;
+import org.postgresql.jdbc.PreferQueryMode;
+import org.postgresql.test.TestUtil;
+import org.postgresql.util.PSQLState;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+@RunWith(Parameterized.class)
+public class PipelineTest extends BaseTest4 {
+  private final AutoCommit autoCommit;
+
+  public PipelineTest(AutoCommit autoCommit, BinaryMode binaryMode) {
+    this.autoCommit = autoCommit;
+    setBinaryMode(binaryMode);
+  }
+
+  @Parameterized.Parameters(name = "{index}: autoCommit={0}, binary={1}")
+  public static Iterable<Object[]> data() {
+    Collection<Object[]> ids = new ArrayList<Object[]>();
+    for (AutoCommit autoCommit : AutoCommit.values()) {
+      for (BinaryMode binaryMode : BinaryMode.values()) {
+        ids.add(new Object[]{autoCommit, binaryMode});
+      }
+    }
+    return ids;
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    TestUtil.createTable(con, "pipeline_test", "id int primary key, name text");
+    con.setAutoCommit(autoCommit == AutoCommit.YES);
+  }
+
+  @Override
+  public void tearDown() throws SQLException {
+    if (!con.getAutoCommit()) {
+      con.rollback();
+      con.setAutoCommit(true);
+    }
+    TestUtil.dropTable(con, "pipeline_test");
+    super.tearDown();
+  }
+
+  private static SQLException cause(CompletableFuture<?> future) throws InterruptedException {
+    try {
+      future.get();
+      fail("The future should have failed");
+      return null;
+    } catch (ExecutionException e) {
+      return (SQLException) e.getCause();
+    }
+  }
+
+  @Test
+  public void differentStatements() throws Exception {
+    PGPipeline pipeline = con.unwrap(PGConnection.class).createPipeline();
+    PreparedStatement insert = con.prepareStatement("insert into pipeline_test values (?, ?)");
+    PreparedStatement update = con.prepareStatement("update pipeline_test set name = ? where id < ?");
+    PreparedStatement select = con.prepareStatement("select id, name from pipeline_test order by id");
+
+    insert.setInt(1, 1);
+    insert.setString(2, "one");
+    CompletableFuture<PreparedStatement> insertResult = pipeline.add(insert);
+    update.setString(1, "updated");
+    update.setInt(2, 10);
+    CompletableFuture<PreparedStatement> updateResult = pipeline.add(update);
+    CompletableFuture<PreparedStatement> selectResult = pipeline.add(select);
+    assertEquals(3, pipeline.getPendingCount());
+    assertFalse("Nothing is executed before sync()", insertResult.isDone());
+
+    pipeline.sync();
+    assertEquals(0, pipeline.getPendingCount());
+
+    assertSame(insert, insertResult.get());
+    assertEquals(1, insert.getUpdateCount());
+    assertEquals(1, updateResult.get().getUpdateCount());
+    ResultSet rs = selectResult.get().getResultSet();
+    assertTrue(rs.next());
+    assertEquals(1, rs.getInt(1));
+    assertEquals("updated", rs.getString(2));
+    assertFalse(rs.next());
+    TestUtil.closeQuietly(insert);
+    TestUtil.closeQuietly(update);
+    TestUtil.closeQuietly(select);
+  }
+
+  @Test
+  public void parametersAreCopied() throws Exception {
+    PGPipeline pipeline = con.unwrap(PGConnection.class).createPipeline();
+    PreparedStatement first = con.prepareStatement("select ?::int");
+    PreparedStatement second = con.prepareStatement("select ?::int");
+    first.setInt(1, 1);
+    pipeline.add(first);
+    first.setInt(1, 2);
+    second.setInt(1, 3);
+    pipeline.add(second);
+    pipeline.sync();
+
+    ResultSet rs = first.getResultSet();
+    assertTrue(rs.next());
+    assertEquals(1, rs.getInt(1));
+    rs = second.getResultSet();
+    assertTrue(rs.next());
+    assertEquals(3, rs.getInt(1));
+
+    try {
+      pipeline.add(first);
+      pipeline.add(first);
+      fail("A statement can be queued only once per sync");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.OBJECT_NOT_IN_STATE.getState(), e.getSQLState());
+    }
+    pipeline.sync();
+    TestUtil.closeQuietly(first);
+    TestUtil.closeQuietly(second);
+  }
+
+  /**
+   * In simple query mode each statement is synced on its own, so in auto-commit mode the
+   * statements after a failed one are still executed.
+   */
+  private boolean executesAfterError() {
+    return preferQueryMode == PreferQueryMode.SIMPLE && autoCommit == AutoCommit.YES;
+  }
+
+  @Test
+  public void errorAbortsRemainingStatements() throws Exception {
+    PGPipeline pipeline = con.unwrap(PGConnection.class).createPipeline();
+    PreparedStatement ok = con.prepareStatement("select 1");
+    PreparedStatement broken = con.prepareStatement("select 1/0");
+    PreparedStatement after = con.prepareStatement("select 2");
+    CompletableFuture<PreparedStatement> okResult = pipeline.add(ok);
+    CompletableFuture<PreparedStatement> brokenResult = pipeline.add(broken);
+    CompletableFuture<PreparedStatement> afterResult = pipeline.add(after);
+    pipeline.sync();
+
+    assertSame(ok, okResult.get());
+    assertEquals(PSQLState.DIVISION_BY_ZERO.getState(), cause(brokenResult).getSQLState());
+    if (executesAfterError()) {
+      ResultSet rs = afterResult.get().getResultSet();
+      assertTrue(rs.next());
+      assertEquals(2, rs.getInt(1));
+    } else {
+      assertEquals(PSQLState.IN_FAILED_SQL_TRANSACTION.getState(),
+          cause(afterResult).getSQLState());
+    }
+
+    if (!con.getAutoCommit()) {
+      con.rollback();
+    }
+    // The connection is usable after the failure
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery("select 3");
+    assertTrue(rs.next());
+    assertEquals(3, rs.getInt(1));
+    TestUtil.closeQuietly(stmt);
+    TestUtil.closeQuietly(ok);
+    TestUtil.closeQuietly(broken);
+    TestUtil.closeQuietly(after);
+  }
+
+  @Test
+  public void errorBeforeIntermediateSync() throws Exception {
+    // The batch is synced every 256 statements that return no rows, see flushIfDeadlockRisk
+    int count = 300;
+    int failing = 254;
+    PGPipeline pipeline = con.unwrap(PGConnection.class).createPipeline();
+    PreparedStatement[] inserts = new PreparedStatement[count];
+    List<CompletableFuture<PreparedStatement>> results =
+        new ArrayList<CompletableFuture<PreparedStatement>>();
+    for (int i = 0; i < count; i++) {
+      inserts[i] = con.prepareStatement("insert into pipeline_test values (?, ?)");
+      // Duplicate key for the failing statement
+      inserts[i].setInt(1, i == failing ? 0 : i);
+      inserts[i].setString(2, "row" + i);
+      results.add(pipeline.add(inserts[i]));
+    }
+    pipeline.sync();
+
+    for (int i = 0; i < count; i++) {
+      CompletableFuture<PreparedStatement> result = results.get(i);
+      if (i < failing || i > failing && executesAfterError()) {
+        assertEquals("Update count of statement " + i, 1, result.get().getUpdateCount());
+      } else if (i == failing) {
+        assertEquals(PSQLState.UNIQUE_VIOLATION.getState(), cause(result).getSQLState());
+      } else {
+        assertEquals("State of statement " + i, PSQLState.IN_FAILED_SQL_TRANSACTION.getState(),
+            cause(result).getSQLState());
+      }
+    }
+    for (PreparedStatement insert : inserts) {
+      TestUtil.closeQuietly(insert);
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGResultSet;
+import org.postgresql.test.TestUtil;
+import org.postgresql.util.PSQLState;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Columnar reads with {@link PGResultSet#nextRows(int)} and {@link PGResultSet#readColumn}.
+ */
+@RunWith(Parameterized.class)
+public class ReadColumnTest extends BaseTest4 {
+
+  public ReadColumnTest(BinaryMode binaryMode) {
+    setBinaryMode(binaryMode);
+  }
+
+  @Parameterized.Parameters(name = "binary = {0}")
+  public static Iterable<Object[]> data() {
+    Collection<Object[]> ids = new ArrayList<Object[]>();
+    for (BinaryMode binaryMode : BinaryMode.values()) {
+      ids.add(new Object[]{binaryMode});
+    }
+    return ids;
+  }
+
+  @Test
+  public void readsColumnsOfBatches() throws SQLException {
+    PreparedStatement ps = con.prepareStatement(
+        "select i::int8, i::int4, case when i % 3 = 0 then null else i / 2.0 end::float8"
+            + " from generate_series(1, 10) i");
+    ResultSet rs = ps.executeQuery();
+    PGResultSet pgrs = rs.unwrap(PGResultSet.class);
+    long[] longs = new long[4];
+    int[] ints = new int[4];
+    double[] doubles = new double[4];
+    boolean[] nulls = new boolean[4];
+
+    assertEquals(4, pgrs.nextRows(4));
+    assertEquals(4, pgrs.readColumn(1, longs, null));
+    assertArrayEquals(new long[]{1, 2, 3, 4}, longs);
+    assertEquals(4, pgrs.readColumn(2, ints, nulls));
+    assertArrayEquals(new int[]{1, 2, 3, 4}, ints);
+    assertEquals(4, pgrs.readColumn(3, doubles, nulls));
+    assertArrayEquals(new double[]{0.5, 1, 0, 2}, doubles, 0);
+    assertArrayEquals(new boolean[]{false, false, true, false}, nulls);
+    assertEquals("The result set is on the last row of the batch", 4, rs.getInt(2));
+
+    assertEquals(4, pgrs.nextRows(4));
+    pgrs.readColumn(1, longs, null);
+    assertArrayEquals(new long[]{5, 6, 7, 8}, longs);
+
+    assertTrue(rs.next());
+    assertEquals(9, rs.getInt(1));
+    assertEquals(1, pgrs.nextRows(4));
+    assertEquals(1, pgrs.readColumn(1, longs, null));
+    assertEquals(10, longs[0]);
+
+    assertEquals(0, pgrs.nextRows(4));
+    assertFalse(rs.next());
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(ps);
+  }
+
+  @Test
+  public void readsBatchesFetchedFromCursor() throws SQLException {
+    con.setAutoCommit(false);
+    PreparedStatement ps = con.prepareStatement("select i::int8 from generate_series(1, 1000) i");
+    ps.setFetchSize(100);
+    ResultSet rs = ps.executeQuery();
+    PGResultSet pgrs = rs.unwrap(PGResultSet.class);
+    long[] values = new long[256];
+    long expected = 1;
+    int rows;
+    while ((rows = pgrs.nextRows(values.length)) > 0) {
+      assertTrue("A batch does not span fetches", rows <= 100);
+      pgrs.readColumn(1, values, null);
+      for (int i = 0; i < rows; i++) {
+        assertEquals(expected++, values[i]);
+      }
+    }
+    assertEquals(1001, expected);
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(ps);
+    con.rollback();
+    con.setAutoCommit(true);
+  }
+
+  @Test
+  public void readsTimestampsAsEpochMicros() throws SQLException {
+    PreparedStatement ps = con.prepareStatement(
+        "select '1970-01-01 00:00:01.000002'::timestamp, '1999-12-31 23:00:00-01'::timestamptz,"
+            + " 'infinity'::timestamp, '-infinity'::timestamptz");
+    ResultSet rs = ps.executeQuery();
+    PGResultSet pgrs = rs.unwrap(PGResultSet.class);
+    long[] values = new long[1];
+    assertEquals(1, pgrs.nextRows(1));
+    pgrs.readColumn(1, values, null);
+    assertEquals(1000002L, values[0]);
+    pgrs.readColumn(2, values, null);
+    assertEquals(946684800L * 1000000L, values[0]);
+    pgrs.readColumn(3, values, null);
+    assertEquals(Long.MAX_VALUE, values[0]);
+    pgrs.readColumn(4, values, null);
+    assertEquals(Long.MIN_VALUE, values[0]);
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(ps);
+  }
+
+  @Test
+  public void readColumnRequiresNextRows() throws SQLException {
+    PreparedStatement ps = con.prepareStatement("select 1::int8 from generate_series(1, 3)");
+    ResultSet rs = ps.executeQuery();
+    PGResultSet pgrs = rs.unwrap(PGResultSet.class);
+    assertTrue(rs.next());
+    try {
+      pgrs.readColumn(1, new long[3], null);
+      fail("readColumn should fail when the result set is not positioned by nextRows");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.INVALID_CURSOR_STATE.getState(), e.getSQLState());
+    }
+    assertEquals(2, pgrs.nextRows(2));
+    try {
+      pgrs.readColumn(1, new long[1], null);
+      fail("readColumn should fail when the array does not hold the batch");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.INVALID_PARAMETER_VALUE.getState(), e.getSQLState());
+    }
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(ps);
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGProperty;
+import org.postgresql.test.TestUtil;
+import org.postgresql.util.PSQLState;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+
+/**
+ * Result sets read with {@code streamResults=true}: the rows are read as the result set is
+ * iterated, and the connection stays usable while a result set is open.
+ */
+@RunWith(Parameterized.class)
+public class StreamResultsTest extends BaseTest4 {
+  private static final int ROWS = 100000;
+
+  private final AutoCommit autoCommit;
+
+  public StreamResultsTest(AutoCommit autoCommit, BinaryMode binaryMode) {
+    this.autoCommit = autoCommit;
+    setBinaryMode(binaryMode);
+  }
+
+  @Parameterized.Parameters(name = "{index}: autoCommit={0}, binary={1}")
+  public static Iterable<Object[]> data() {
+    Collection<Object[]> ids = new ArrayList<Object[]>();
+    for (AutoCommit autoCommit : AutoCommit.values()) {
+      for (BinaryMode binaryMode : BinaryMode.values()) {
+        ids.add(new Object[]{autoCommit, binaryMode});
+      }
+    }
+    return ids;
+  }
+
+  @Override
+  protected void updateProperties(Properties props) {
+    super.updateProperties(props);
+    PGProperty.STREAM_RESULTS.set(props, true);
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    con.setAutoCommit(autoCommit == AutoCommit.YES);
+  }
+
+  @Override
+  public void tearDown() throws SQLException {
+    if (!con.getAutoCommit()) {
+      con.rollback();
+    }
+    super.tearDown();
+  }
+
+  private ResultSet series(PreparedStatement ps) throws SQLException {
+    ps.setInt(1, ROWS);
+    return ps.executeQuery();
+  }
+
+  @Test
+  public void readsAllRows() throws SQLException {
+    PreparedStatement ps = con.prepareStatement("select i from generate_series(1, ?) i");
+    ResultSet rs = series(ps);
+    int count = 0;
+    while (rs.next()) {
+      count++;
+      assertEquals(count, rs.getInt(1));
+    }
+    assertEquals(ROWS, count);
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(ps);
+  }
+
+  @Test
+  public void connectionIsUsableWhileStreaming() throws SQLException {
+    PreparedStatement ps = con.prepareStatement("select i from generate_series(1, ?) i");
+    ResultSet rs = series(ps);
+    assertTrue(rs.next());
+    assertEquals(1, rs.getInt(1));
+
+    // The remaining rows are read into memory before the other statement executes
+    Statement other = con.createStatement();
+    ResultSet otherRs = other.executeQuery("select 42");
+    assertTrue(otherRs.next());
+    assertEquals(42, otherRs.getInt(1));
+    TestUtil.closeQuietly(other);
+
+    int count = 1;
+    while (rs.next()) {
+      count++;
+      assertEquals(count, rs.getInt(1));
+    }
+    assertEquals(ROWS, count);
+    TestUtil.closeQuietly(ps);
+  }
+
+  @Test
+  public void closeDiscardsRemainingRows() throws SQLException {
+    PreparedStatement ps = con.prepareStatement("select i from generate_series(1, ?) i");
+    ResultSet rs = series(ps);
+    assertTrue(rs.next());
+    rs.close();
+
+    // The same statement can be executed again
+    rs = series(ps);
+    int count = 0;
+    while (rs.next()) {
+      count++;
+    }
+    assertEquals(ROWS, count);
+    TestUtil.closeQuietly(ps);
+  }
+
+  @Test
+  public void maxRowsIsRespected() throws SQLException {
+    PreparedStatement ps = con.prepareStatement("select i from generate_series(1, ?) i");
+    ps.setMaxRows(1000);
+    ResultSet rs = series(ps);
+    int count = 0;
+    while (rs.next()) {
+      count++;
+    }
+    assertEquals(1000, count);
+    TestUtil.closeQuietly(ps);
+  }
+
+  private long streamedTransactionId() throws SQLException {
+    PreparedStatement ps =
+        con.prepareStatement("select txid_current(), i from generate_series(1, ?) i");
+    ResultSet rs = series(ps);
+    assertTrue(rs.next());
+    // The transaction is open, but its ReadyForQuery message is still behind the streamed rows
+    return rs.getLong(1);
+  }
+
+  private long currentTransactionId() throws SQLException {
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery("select txid_current()");
+    assertTrue(rs.next());
+    long txid = rs.getLong(1);
+    TestUtil.closeQuietly(stmt);
+    return txid;
+  }
+
+  @Test
+  public void commitEndsTheTransactionOfAStreamedStatement() throws SQLException {
+    Assume.assumeTrue("commit requires autoCommit=false", autoCommit == AutoCommit.NO);
+    long streamed = streamedTransactionId();
+    con.commit();
+    assertTrue("commit ends the transaction started by the streamed statement",
+        streamed != currentTransactionId());
+  }
+
+  @Test
+  public void rollbackEndsTheTransactionOfAStreamedStatement() throws SQLException {
+    Assume.assumeTrue("rollback requires autoCommit=false", autoCommit == AutoCommit.NO);
+    long streamed = streamedTransactionId();
+    con.rollback();
+    assertTrue("rollback ends the transaction started by the streamed statement",
+        streamed != currentTransactionId());
+  }
+
+  @Test
+  public void errorAfterRowsIsReported() throws SQLException {
+    Statement stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery(
+        "select 1 / (" + ROWS + " - i) from generate_series(1, " + ROWS + ") i");
+    assertTrue("The first rows are received before the error", rs.next());
+    try {
+      while (rs.next()) {
+        // read until the error
+      }
+      fail("Division by zero should have been reported");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.DIVISION_BY_ZERO.getState(), e.getSQLState());
+    }
+    assertFalse("The result set ends after the error", rs.next());
+    TestUtil.closeQuietly(stmt);
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGConnection;
+import org.postgresql.codec.TypeCodecBase;
+import org.postgresql.core.Encoding;
+import org.postgresql.test.TestUtil;
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Codecs registered with {@link PGConnection#registerTypeCodec}.
+ */
+@RunWith(Parameterized.class)
+public class TypeCodecTest extends BaseTest4 {
+
+  public TypeCodecTest(BinaryMode binaryMode) {
+    setBinaryMode(binaryMode);
+  }
+
+  @Parameterized.Parameters(name = "binary = {0}")
+  public static Iterable<Object[]> data() {
+    Collection<Object[]> ids = new ArrayList<Object[]>();
+    for (BinaryMode binaryMode : BinaryMode.values()) {
+      ids.add(new Object[]{binaryMode});
+    }
+    return ids;
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    TestUtil.createCompositeType(con, "codec_pair", "a int4, b int4");
+  }
+
+  @Override
+  public void tearDown() throws SQLException {
+    TestUtil.dropType(con, "codec_pair");
+    super.tearDown();
+  }
+
+  static class Pair {
+    final int a;
+    final int b;
+
+    Pair(int a, int b) {
+      this.a = a;
+      this.b = b;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Pair && ((Pair) o).a == a && ((Pair) o).b == b;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * a + b;
+    }
+  }
+
+  /**
+   * Text-only codec for {@code codec_pair}, whose text form is {@code (a,b)}.
+   */
+  static class PairCodec extends TypeCodecBase {
+    PairCodec() {
+      super(Pair.class);
+    }
+
+    @Override
+    public Object decode(byte[] buffer, int offset, int length, boolean binary, Encoding encoding)
+        throws SQLException {
+      String value;
+      try {
+        value = encoding.decode(buffer, offset, length);
+      } catch (IOException e) {
+        throw new PSQLException("Invalid codec_pair", PSQLState.DATA_ERROR, e);
+      }
+      String[] parts = value.substring(1, value.length() - 1).split(",");
+      return new Pair(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+    }
+
+    @Override
+    public String encodeText(Object value) {
+      Pair pair = (Pair) value;
+      return "(" + pair.a + "," + pair.b + ")";
+    }
+  }
+
+  /**
+   * Codec that replaces the built-in int4 conversions, and counts the values it decodes.
+   */
+  static class CountingInt4Codec extends TypeCodecBase {
+    final AtomicInteger decoded = new AtomicInteger();
+
+    CountingInt4Codec() {
+      super(Integer.class);
+    }
+
+    @Override
+    public boolean supportsBinaryReceive() {
+      return true;
+    }
+
+    @Override
+    public boolean supportsBinarySend() {
+      return true;
+    }
+
+    @Override
+    public Object decode(byte[] buffer, int offset, int length, boolean binary, Encoding encoding)
+        throws SQLException {
+      return decodeInt(buffer, offset, length, binary, encoding);
+    }
+
+    @Override
+    public int decodeInt(byte[] buffer, int offset, int length, boolean binary, Encoding encoding) {
+      decoded.incrementAndGet();
+      if (binary) {
+        return ByteConverter.int4(buffer, offset);
+      }
+      int value = 0;
+      boolean negative = buffer[offset] == '-';
+      for (int i = negative ? offset + 1 : offset; i < offset + length; i++) {
+        value = value * 10 + (buffer[i] - '0');
+      }
+      return negative ? -value : value;
+    }
+
+    @Override
+    public long decodeLong(byte[] buffer, int offset, int length, boolean binary,
+        Encoding encoding) {
+      return decodeInt(buffer, offset, length, binary, encoding);
+    }
+
+    @Override
+    public byte[] encodeBinary(Object value) {
+      byte[] bytes = new byte[4];
+      ByteConverter.int4(bytes, 0, (Integer) value);
+      return bytes;
+    }
+  }
+
+  @Test
+  public void decodesAndEncodesWithCodec() throws SQLException {
+    con.unwrap(PGConnection.class).registerTypeCodec("codec_pair", new PairCodec());
+    PreparedStatement ps = con.prepareStatement("select ?, row(3, 4)::codec_pair");
+    ps.setObject(1, new Pair(1, 2));
+    ResultSet rs = ps.executeQuery();
+    assertTrue(rs.next());
+    assertEquals(new Pair(1, 2), rs.getObject(1));
+    assertEquals(new Pair(3, 4), rs.getObject(2));
+    assertEquals("(3,4)", rs.getString(2));
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(ps);
+  }
+
+  @Test
+  public void primitiveGettersUseCodec() throws SQLException {
+    CountingInt4Codec codec = new CountingInt4Codec();
+    con.unwrap(PGConnection.class).registerTypeCodec("int4", codec);
+    PreparedStatement ps = con.prepareStatement("select ?::int4 + i from generate_series(1, 10) i");
+    ps.setObject(1, -1);
+    ResultSet rs = ps.executeQuery();
+    int count = 0;
+    while (rs.next()) {
+      assertEquals(count, rs.getInt(1));
+      assertEquals(count, rs.getLong(1));
+      assertEquals((double) count, rs.getDouble(1), 0);
+      count++;
+    }
+    assertEquals(10, count);
+    assertEquals(30, codec.decoded.get());
+    TestUtil.closeQuietly(rs);
+    TestUtil.closeQuietly(ps);
+  }
+
+  @Test
+  public void unknownTypeIsRejected() throws SQLException {
+    try {
+      con.unwrap(PGConnection.class).registerTypeCodec("codec_no_such_type", new PairCodec());
+      fail("Registering a codec for an unknown type should fail");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.INVALID_PARAMETER_TYPE.getState(), e.getSQLState());
+    }
+  }
+}
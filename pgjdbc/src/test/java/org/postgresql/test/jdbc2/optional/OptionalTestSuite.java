@@ -19,6 +19,7 @@ import org.junit.runners.Suite;
         BaseDataSourceFailoverUrlsTest.class,
         CaseOptimiserDataSourceTest.class,
         ConnectionPoolTest.class,
+        PGConnectionPoolTest.class,
         PoolingDataSourceTest.class,
         SimpleDataSourceTest.class,
         SimpleDataSourceWithSetURLTest.class,
@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2.optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGConnection;
+import org.postgresql.ds.PGConnectionPool;
+import org.postgresql.test.TestUtil;
+import org.postgresql.util.PSQLState;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class PGConnectionPoolTest extends BaseDataSourceTest {
+
+  @Override
+  public void tearDown() throws Exception {
+    if (bds instanceof PGConnectionPool) {
+      ((PGConnectionPool) bds).close();
+    }
+    super.tearDown();
+  }
+
+  @Override
+  protected void initializeDataSource() {
+    if (bds == null) {
+      bds = new PGConnectionPool();
+      setupDataSource(bds);
+    }
+  }
+
+  private PGConnectionPool getPool() {
+    initializeDataSource();
+    return (PGConnectionPool) bds;
+  }
+
+  private static int getBackendPid(Connection con) throws SQLException {
+    return con.unwrap(PGConnection.class).getBackendPID();
+  }
+
+  /**
+   * In this case, we *do* want it to be pooled.
+   */
+  @Override
+  public void testNotPooledConnection() throws SQLException {
+    con = getDataSourceConnection();
+    String name = con.toString();
+    con.close();
+    con = getDataSourceConnection();
+    String name2 = con.toString();
+    con.close();
+    assertEquals("Pooled DS doesn't appear to be pooling connections!", name, name2);
+  }
+
+  @Test
+  public void testConnectionIsReusedByTheSameThread() throws SQLException {
+    PGConnectionPool pool = getPool();
+    con = pool.getConnection();
+    int pid = getBackendPid(con);
+    con.close();
+    con = pool.getConnection();
+    assertEquals(pid, getBackendPid(con));
+    con.close();
+    assertEquals(2, pool.getBorrowCount());
+    assertEquals(1, pool.getAffinityBorrowCount());
+    assertEquals(1, pool.getCreatedConnectionCount());
+    assertEquals(1, pool.getIdleConnections());
+    assertEquals(0, pool.getActiveConnections());
+  }
+
+  @Test
+  public void testClosedConnectionCannotBeUsed() throws SQLException {
+    con = getDataSourceConnection();
+    Statement stmt = con.createStatement();
+    assertSame(con, stmt.getConnection());
+    con.close();
+    con.close();
+    assertTrue(con.isClosed());
+    try {
+      con.createStatement();
+      fail("A closed connection must not be usable");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.CONNECTION_DOES_NOT_EXIST.getState(), e.getSQLState());
+    }
+  }
+
+  @Test
+  public void testTransactionIsRolledBackOnClose() throws SQLException {
+    PGConnectionPool pool = getPool();
+    con = pool.getConnection();
+    con.setAutoCommit(false);
+    con.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+    Statement stmt = con.createStatement();
+    stmt.executeUpdate("INSERT INTO poolingtest VALUES (3, 'Rolled back')");
+    stmt.close();
+    con.close();
+
+    con = pool.getConnection();
+    assertTrue(con.getAutoCommit());
+    assertEquals(Connection.TRANSACTION_READ_COMMITTED, con.getTransactionIsolation());
+    stmt = con.createStatement();
+    ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM poolingtest");
+    rs.next();
+    assertEquals(2, rs.getInt(1));
+    rs.close();
+    stmt.close();
+    con.close();
+  }
+
+  @Test
+  public void testExhaustedPoolTimesOut() throws SQLException {
+    PGConnectionPool pool = getPool();
+    pool.setMaxPoolSize(1);
+    pool.setConnectionTimeout(200);
+    con = pool.getConnection();
+    try {
+      pool.getConnection();
+      fail("The pool has a single connection, which is in use");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.CONNECTION_UNABLE_TO_CONNECT.getState(), e.getSQLState());
+    }
+    assertEquals(1, pool.getBorrowTimeoutCount());
+    con.close();
+  }
+
+  @Test
+  public void testReturnedConnectionIsHandedToWaitingThread() throws Exception {
+    final PGConnectionPool pool = getPool();
+    pool.setMaxPoolSize(1);
+    con = pool.getConnection();
+    final int pid = getBackendPid(con);
+    final SQLException[] failure = new SQLException[1];
+    final int[] waiterPid = new int[1];
+    Thread waiter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          Connection connection = pool.getConnection();
+          waiterPid[0] = getBackendPid(connection);
+          connection.close();
+        } catch (SQLException e) {
+          failure[0] = e;
+        }
+      }
+    });
+    waiter.start();
+    long deadline = System.currentTimeMillis() + 5000;
+    while (pool.getThreadsAwaitingConnection() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, pool.getThreadsAwaitingConnection());
+    con.close();
+    waiter.join(5000);
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+    assertEquals(pid, waiterPid[0]);
+    assertEquals(1, pool.getCreatedConnectionCount());
+  }
+
+  @Test
+  public void testWaitingThreadTimesOutWithoutLosingTheConnection() throws Exception {
+    final PGConnectionPool pool = getPool();
+    pool.setMaxPoolSize(1);
+    pool.setConnectionTimeout(300);
+    con = pool.getConnection();
+    final int pid = getBackendPid(con);
+    final SQLException[] failure = new SQLException[1];
+    final long[] waitedMillis = new long[1];
+    Thread waiter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        long start = System.nanoTime();
+        try {
+          pool.getConnection().close();
+        } catch (SQLException e) {
+          failure[0] = e;
+        }
+        waitedMillis[0] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      }
+    });
+    waiter.start();
+    waiter.join(5000);
+    assertNotNull("The waiting thread must time out while the connection is in use", failure[0]);
+    assertEquals(PSQLState.CONNECTION_UNABLE_TO_CONNECT.getState(), failure[0].getSQLState());
+    assertTrue("Waited " + waitedMillis[0] + " ms", waitedMillis[0] >= 300);
+    assertEquals(1, pool.getBorrowTimeoutCount());
+    assertEquals(0, pool.getThreadsAwaitingConnection());
+
+    // The connection returned after the waiter gave up is not handed over to it
+    con.close();
+    assertEquals(1, pool.getIdleConnections());
+    con = pool.getConnection();
+    assertEquals(pid, getBackendPid(con));
+    con.close();
+    assertEquals(1, pool.getCreatedConnectionCount());
+  }
+
+  @Test
+  public void testConnectionsAreHandedOverBetweenManyThreads() throws Exception {
+    final PGConnectionPool pool = getPool();
+    pool.setMaxPoolSize(2);
+    pool.setConnectionTimeout(10000);
+    final int threadCount = 8;
+    final int borrowsPerThread = 20;
+    final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+    Thread[] threads = new Thread[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      threads[i] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            for (int j = 0; j < borrowsPerThread; j++) {
+              Connection connection = pool.getConnection();
+              try {
+                Statement stmt = connection.createStatement();
+                stmt.execute("SELECT 1");
+                stmt.close();
+              } finally {
+                connection.close();
+              }
+            }
+          } catch (Throwable t) {
+            failures.add(t);
+          }
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join(30000);
+    }
+    assertEquals("Failures: " + failures, 0, failures.size());
+    assertEquals(threadCount * borrowsPerThread, pool.getBorrowCount());
+    assertEquals(0, pool.getBorrowTimeoutCount());
+    assertEquals(0, pool.getThreadsAwaitingConnection());
+    assertEquals(0, pool.getActiveConnections());
+    assertTrue(pool.getCreatedConnectionCount() <= 2);
+  }
+
+  @Test
+  public void testBrokenConnectionIsReplaced() throws SQLException {
+    PGConnectionPool pool = getPool();
+    pool.setValidationInterval(0);
+    con = pool.getConnection();
+    int pid = getBackendPid(con);
+    con.close();
+
+    Connection admin = TestUtil.openDB();
+    try {
+      Statement stmt = admin.createStatement();
+      stmt.execute("SELECT pg_terminate_backend(" + pid + ")");
+      stmt.close();
+    } finally {
+      admin.close();
+    }
+
+    con = pool.getConnection();
+    assertNotEquals(pid, getBackendPid(con));
+    con.close();
+    assertEquals(1, pool.getValidationFailureCount());
+    assertEquals(2, pool.getCreatedConnectionCount());
+    assertEquals(1, pool.getTotalConnections());
+  }
+
+  @Test
+  public void testIdleConnectionsAreClosed() throws Exception {
+    PGConnectionPool pool = getPool();
+    pool.setIdleTimeout(100);
+    pool.setHousekeepingInterval(50);
+    con = pool.getConnection();
+    Connection second = pool.getConnection();
+    second.close();
+    con.close();
+    assertEquals(2, pool.getTotalConnections());
+    long deadline = System.currentTimeMillis() + 5000;
+    while (pool.getTotalConnections() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, pool.getTotalConnections());
+    assertEquals(2, pool.getClosedConnectionCount());
+  }
+
+  @Test
+  public void testMinIdleConnectionsAreOpened() throws SQLException {
+    PGConnectionPool pool = getPool();
+    pool.setMinIdle(3);
+    pool.initialize();
+    assertEquals(3, pool.getIdleConnections());
+    try {
+      pool.setMinIdle(4);
+      fail("The pool settings cannot be changed once the pool is initialized");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+public class ByteConverterTest {
+
+  private static void assertNumericRoundTrip(BigDecimal value) {
+    BigDecimal expected = value.scale() < 0 ? value.setScale(0) : value;
+    assertEquals(expected, ByteConverter.numeric(ByteConverter.numeric(value)));
+  }
+
+  @Test
+  public void numeric() {
+    String[] values = {"0", "0.00", "1", "-1", "1001", "10000", "100000000", "0.0001",
+        "0.00000001", "123456789.123456789", "-0.5", "1E+20", "1E-3",
+        "-12345678901234567890123456789.0000000001"};
+    for (String value : values) {
+      assertNumericRoundTrip(new BigDecimal(value));
+    }
+  }
+
+  @Test
+  public void numericRandom() {
+    Random random = new Random(0);
+    for (int i = 0; i < 10000; i++) {
+      BigDecimal value = new BigDecimal(new BigInteger(random.nextInt(200), random),
+          random.nextInt(40) - 10);
+      assertNumericRoundTrip(random.nextBoolean() ? value : value.negate());
+    }
+  }
+
+  @Test
+  public void numericKeepsZeroesInFirstDigit() {
+    byte[] bytes = new byte[10];
+    ByteConverter.int2(bytes, 0, 1); // ndigits
+    ByteConverter.int2(bytes, 8, 1001);
+    assertEquals(new BigDecimal("1001"), ByteConverter.numeric(bytes));
+  }
+}